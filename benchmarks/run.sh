@@ -0,0 +1,38 @@
+#!/bin/sh
+# Build and run the database benchmarks, keeping results per commit.
+#
+# BENCH_LIB must point to a directory with the JMH jars (jmh-core,
+# jmh-generator-annprocess, jopt-simple, commons-math3) and MariaDB4j and its
+# dependencies (see benchmarks/README.md). Extra arguments are passed to JMH, e.g.
+#   benchmarks/run.sh -p rows=10000 'searchBooks.*'
+# or, after "check", to benchmarks.CirculationCheck.
+set -e
+
+cd "$(dirname "$0")/.."
+: "${BENCH_LIB:?Set BENCH_LIB to the directory holding the JMH and MariaDB4j jars}"
+
+CLASSPATH="lib/mysql-connector-j-9.4.0.jar:$BENCH_LIB/*"
+# javac expands "dir/*" only on the class path, so the processor path lists the jars
+PROCESSORPATH=$(find "$BENCH_LIB" -name '*.jar' | tr '\n' ':')
+CLASSES=benchmarks/target/classes
+
+rm -rf "$CLASSES"
+mkdir -p "$CLASSES" benchmarks/results
+javac -encoding UTF-8 -d "$CLASSES" -cp "$CLASSPATH" -processorpath "$PROCESSORPATH" \
+    $(find src benchmarks/src -name '*.java')
+
+# "check" runs the circulation stock check once instead of the benchmarks
+if [ "$1" = "check" ]; then
+    shift
+    exec java -cp "$CLASSES:$CLASSPATH" benchmarks.CirculationCheck "$@"
+fi
+
+COMMIT=$(git rev-parse --short HEAD)
+if ! git diff --quiet HEAD -- src benchmarks/src supabase/migrations; then
+    COMMIT="$COMMIT-dirty"
+fi
+
+java -cp "$CLASSES:$CLASSPATH" org.openjdk.jmh.Main \
+    -rf csv -rff "benchmarks/results/$COMMIT.csv" "$@"
+
+echo "Results written to benchmarks/results/$COMMIT.csv"
@@ -0,0 +1,46 @@
+package benchmarks;
+
+/**
+ * Deterministic synthetic catalog values for seeding and write benchmarks
+ */
+final class BenchmarkData {
+    private static final String[] ADJECTIVES = {
+        "Silent", "Golden", "Hidden", "Broken", "Distant", "Crimson", "Forgotten", "Endless",
+        "Quiet", "Burning", "Frozen", "Wandering", "Secret", "Hollow", "Bright", "Restless"
+    };
+    private static final String[] NOUNS = {
+        "River", "Garden", "Empire", "Harbor", "Mountain", "Library", "Forest", "Kingdom",
+        "Winter", "Voyage", "Island", "Shadow", "Promise", "Station", "Orchard", "Lantern"
+    };
+    private static final String[] FIRST_NAMES = {
+        "James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda",
+        "David", "Elizabeth", "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica"
+    };
+    private static final String[] LAST_NAMES = {
+        "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis",
+        "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas"
+    };
+    
+    private BenchmarkData() {}
+    
+    static String title(int n) {
+        return "The " + ADJECTIVES[n % ADJECTIVES.length] + " " + NOUNS[(n / ADJECTIVES.length) % NOUNS.length] +
+               " " + (n / (ADJECTIVES.length * NOUNS.length));
+    }
+    
+    static String author(int n) {
+        return FIRST_NAMES[(n * 7) % FIRST_NAMES.length] + " " + LAST_NAMES[(n / 3) % LAST_NAMES.length];
+    }
+    
+    /**
+     * Append the ISBN-13 check digit to a 12-digit prefix
+     */
+    static String isbn13(long prefix) {
+        String digits = Long.toString(prefix);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,221 @@
+package benchmarks;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Embedded MariaDB instance seeded from the project migration
+ * The schema and sample rows come from the migration script, then the books
+ * table is padded with synthetic rows up to the requested size. Set the
+ * bench.db.url system property to benchmark an existing server instead.
+ */
+public class BenchmarkDatabase {
+    private static final Logger logger = Logger.getLogger(BenchmarkDatabase.class.getName());
+    
+    static final String MIGRATION = "supabase/migrations/20250807130652_blue_mud.sql";
+    static final String CIRCULATION_MIGRATION = "supabase/migrations/20261016090000_circulation.sql";
+    static final String OFFLINE_REFS_MIGRATION = "supabase/migrations/20261016110000_offline_refs.sql";
+    static final String ISBN13_MIGRATION = "supabase/migrations/20261016120000_isbn13.sql";
+    static final String CATALOG_VERSIONS_MIGRATION = "supabase/migrations/20261016130000_catalog_versions.sql";
+    static final String OFFLINE_REPLAYS_MIGRATION = "supabase/migrations/20261016140000_offline_replays.sql";
+    static final String DATABASE = "library_management";
+    private static final int SEED_BATCH_SIZE = 5000;
+    
+    private final DB embedded;
+    private final String serverUrl;
+    private final String user;
+    private final String password;
+    
+    private BenchmarkDatabase(DB embedded, String serverUrl, String user, String password) {
+        this.embedded = embedded;
+        this.serverUrl = serverUrl;
+        this.user = user;
+        this.password = password;
+    }
+    
+    /**
+     * Start the database and make sure it holds exactly the given number of books
+     * Data directories are kept per size so repeated runs skip seeding
+     */
+    public static BenchmarkDatabase start(int bookRows) throws Exception {
+        BenchmarkDatabase database;
+        String externalUrl = System.getProperty("bench.db.url");
+        if (externalUrl != null) {
+            database = new BenchmarkDatabase(null, externalUrl,
+                                             System.getProperty("bench.db.user", "root"),
+                                             System.getProperty("bench.db.password", ""));
+        } else {
+            DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+            config.setPort(0);
+            config.setDataDir(Paths.get("benchmarks", "target", "mariadb-" + bookRows).toAbsolutePath().toString());
+            config.setDeletingTemporaryBaseAndDataDirsOnShutdown(false);
+            if ("root".equals(System.getProperty("user.name"))) {
+                config.addArg("--user=root");
+            }
+            DB db = DB.newEmbeddedDB(config.build());
+            db.start();
+            database = new BenchmarkDatabase(db, "jdbc:mysql://localhost:" + db.getConfiguration().getPort() + "/",
+                                             "root", "");
+        }
+        
+        database.seed(bookRows);
+        database.runScript(CIRCULATION_MIGRATION);
+        database.runScript(OFFLINE_REFS_MIGRATION);
+        database.runScript(ISBN13_MIGRATION);
+        database.runScript(CATALOG_VERSIONS_MIGRATION);
+        database.runScript(OFFLINE_REPLAYS_MIGRATION);
+        
+        // DatabaseConnection reads these the first time it is used
+        System.setProperty("library.db.url", database.serverUrl + DATABASE);
+        System.setProperty("library.db.user", database.user);
+        System.setProperty("library.db.password", database.password);
+        return database;
+    }
+    
+    private Connection connect(String url) throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", user);
+        properties.setProperty("password", password);
+        properties.setProperty("rewriteBatchedStatements", "true");
+        return DriverManager.getConnection(url, properties);
+    }
+    
+    private void seed(int bookRows) throws SQLException, IOException {
+        if (countBooks() == bookRows) {
+            logger.info("Reusing seeded database with " + bookRows + " books");
+            return;
+        }
+        
+        long start = System.currentTimeMillis();
+        dropLaterTables();
+        runScript(MIGRATION);
+        
+        try (Connection conn = connect(serverUrl + DATABASE)) {
+            conn.setAutoCommit(false);
+            int existing = countRows(conn, "books_table");
+            insertBooks(conn, existing, bookRows - existing);
+            insertStaff(conn, Math.max(0, bookRows / 100 - countRows(conn, "staff_table")));
+            conn.commit();
+        }
+        logger.info("Seeded " + bookRows + " books in " + (System.currentTimeMillis() - start) + " ms");
+    }
+    
+    /**
+     * Run a migration script; later migrations are written to be safe to repeat
+     */
+    private void runScript(String script) throws SQLException, IOException {
+        try (Connection conn = connect(serverUrl);
+             Statement statement = conn.createStatement()) {
+            for (String sql : readStatements(Paths.get(script))) {
+                statement.execute(sql);
+            }
+        }
+    }
+    
+    /**
+     * Drop tables from later migrations that would keep the initial schema
+     * from dropping the ones they refer to; they are recreated afterwards
+     */
+    private void dropLaterTables() throws SQLException {
+        try (Connection conn = connect(serverUrl);
+             Statement statement = conn.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + DATABASE + ".loans_table");
+        }
+    }
+    
+    private int countBooks() {
+        try (Connection conn = connect(serverUrl + DATABASE)) {
+            return countRows(conn, "books_table");
+        } catch (SQLException e) {
+            // Database or table does not exist yet
+            return -1;
+        }
+    }
+    
+    private static int countRows(Connection conn, String table) throws SQLException {
+        try (Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+    
+    private void insertBooks(Connection conn, int first, int count) throws SQLException {
+        String sql = "INSERT INTO books_table (title, author, isbn, quantity, status) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                int n = first + i;
+                int quantity = n % 7;
+                pstmt.setString(1, BenchmarkData.title(n));
+                pstmt.setString(2, BenchmarkData.author(n));
+                pstmt.setString(3, BenchmarkData.isbn13(978_000_000_000L + n));
+                pstmt.setInt(4, quantity);
+                pstmt.setString(5, quantity > 0 ? "AVAILABLE" : "OUT_OF_STOCK");
+                pstmt.addBatch();
+                if ((i + 1) % SEED_BATCH_SIZE == 0) {
+                    pstmt.executeBatch();
+                }
+            }
+            pstmt.executeBatch();
+        }
+    }
+    
+    private void insertStaff(Connection conn, int count) throws SQLException {
+        String sql = "INSERT INTO staff_table (name, role, hire_date, status, email, phone) VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                pstmt.setString(1, BenchmarkData.author(i));
+                pstmt.setString(2, i % 3 == 0 ? "Librarian" : "Assistant Librarian");
+                pstmt.setDate(3, java.sql.Date.valueOf("2024-01-01"));
+                pstmt.setString(4, i % 10 == 0 ? "INACTIVE" : "ACTIVE");
+                pstmt.setString(5, "staff" + i + "@library.com");
+                pstmt.setString(6, "555-" + (1000 + i % 9000));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+    
+    /**
+     * Split a SQL script into statements, dropping comments
+     */
+    static List<String> readStatements(Path script) throws IOException {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : Files.readAllLines(script, StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                current.setLength(current.lastIndexOf(";"));
+                statements.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        return statements;
+    }
+    
+    public void stop() throws Exception {
+        if (embedded != null) {
+            embedded.stop();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package benchmarks;
+
+import database.BookSearchIndex;
+import database.CirculationOperations;
+import database.CirculationOperations.CirculationResult;
+import database.DatabaseConnection;
+import database.LastLoginWriter;
+import models.Loan;
+import utils.Constants;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Stress test of checkouts and returns from many desks at once
+ * Desks lend and take back copies of a small set of hot titles, so they
+ * contend for the same rows and often find the shelf empty. After the run
+ * every hot title must still account for all of its copies: shelf quantity
+ * plus open loans equals the stock it started with, quantity never went
+ * negative and status follows quantity. Every desk's open loans in the
+ * database must also be exactly the copies it still holds, so a return
+ * that closed someone else's loan fails the run as well.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class CirculationBenchmark {
+    private static final Logger logger = Logger.getLogger(CirculationBenchmark.class.getName());
+    
+    // Migration sample rows take the first ids; synthetic row n has id n + 1
+    private static final int FIRST_SYNTHETIC_ID = 11;
+    private static final String PATRON_PREFIX = "Desk Patron ";
+    
+    @Param({"10000"})
+    public int rows;
+    
+    // Few hot titles means heavy contention on each row
+    @Param({"8", "512"})
+    public int hotTitles;
+    
+    @Param({"3"})
+    public int copiesPerTitle;
+    
+    @Param({"3"})
+    public int itemsPerPatron;
+    
+    private BenchmarkDatabase database;
+    private CirculationOperations circulation;
+    private final AtomicLong lent = new AtomicLong();
+    private final AtomicLong returned = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final List<Desk> desks = new CopyOnWriteArrayList<>();
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // Per-call info logging would dominate the measurements
+        Logger.getLogger("").setLevel(java.util.logging.Level.WARNING);
+        database = BenchmarkDatabase.start(rows);
+        circulation = new CirculationOperations();
+        
+        // Close loans left by earlier runs and put every copy back on the shelf
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            execute(conn, "UPDATE loans_table SET return_date = CURRENT_TIMESTAMP " +
+                          "WHERE return_date IS NULL AND book_id BETWEEN ? AND ?", -1);
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "UPDATE loans_table SET return_date = CURRENT_TIMESTAMP WHERE return_date IS NULL AND patron LIKE ?")) {
+                pstmt.setString(1, PATRON_PREFIX + "%");
+                pstmt.executeUpdate();
+            }
+            execute(conn, "UPDATE books_table SET quantity = ?, status = 'AVAILABLE' " +
+                          "WHERE book_id BETWEEN ? AND ?", copiesPerTitle);
+        }
+    }
+    
+    private void execute(Connection conn, String sql, int quantity) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int parameter = 1;
+            if (quantity >= 0) {
+                pstmt.setInt(parameter++, quantity);
+            }
+            pstmt.setInt(parameter++, FIRST_SYNTHETIC_ID);
+            pstmt.setInt(parameter, FIRST_SYNTHETIC_ID + hotTitles - 1);
+            pstmt.executeUpdate();
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try {
+            verifyInventory();
+        } finally {
+            BookSearchIndex.getInstance().invalidate();
+            LastLoginWriter.getInstance().shutdown();
+            DatabaseConnection.getInstance().closeConnection();
+            database.stop();
+        }
+    }
+    
+    /**
+     * Check that every copy of every hot title is either on the shelf or on loan
+     */
+    private void verifyInventory() throws SQLException {
+        String sql = "SELECT b.book_id, b.quantity, b.status, " +
+                     "(SELECT COUNT(*) FROM loans_table l WHERE l.book_id = b.book_id AND l.return_date IS NULL) " +
+                     "FROM books_table b WHERE b.book_id BETWEEN ? AND ?";
+        List<String> problems = new ArrayList<>();
+        long onLoan = 0;
+        
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, FIRST_SYNTHETIC_ID);
+            pstmt.setInt(2, FIRST_SYNTHETIC_ID + hotTitles - 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int bookId = rs.getInt(1);
+                    int quantity = rs.getInt(2);
+                    String status = rs.getString(3);
+                    int loans = rs.getInt(4);
+                    onLoan += loans;
+                    String expectedStatus = quantity > 0 ? Constants.AVAILABLE_STATUS : Constants.OUT_OF_STOCK_STATUS;
+                    if (quantity < 0 || quantity + loans != copiesPerTitle || !expectedStatus.equals(status)) {
+                        problems.add("book " + bookId + ": quantity " + quantity + ", " + loans + " on loan, " + status);
+                    }
+                }
+            }
+        }
+        
+        logger.warning(String.format("Circulation run: %d lent, %d returned, %d rejected, %d failed, %d still on loan",
+                                     lent.get(), returned.get(), rejected.get(), failed.get(), onLoan));
+        if (lent.get() - returned.get() != onLoan) {
+            problems.add(lent.get() + " lent and " + returned.get() + " returned, but " + onLoan + " on loan");
+        }
+        
+        Map<String, List<Integer>> loansByPatron = openLoansByPatron();
+        for (Desk desk : desks) {
+            List<Integer> held = new ArrayList<>(desk.onLoan);
+            Collections.sort(held);
+            List<Integer> recorded = loansByPatron.getOrDefault(desk.patron, List.of());
+            if (!held.equals(recorded)) {
+                problems.add(desk.patron + " holds " + held + ", but the database has " + recorded + " on loan to them");
+            }
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Lost updates in " + problems.size() + " cases, e.g. " +
+                                            problems.subList(0, Math.min(10, problems.size())));
+        }
+    }
+    
+    /**
+     * Get each desk patron's open loans as sorted book ids
+     */
+    private Map<String, List<Integer>> openLoansByPatron() throws SQLException {
+        String sql = "SELECT patron, book_id FROM loans_table WHERE return_date IS NULL AND patron LIKE ? " +
+                     "ORDER BY patron, book_id";
+        Map<String, List<Integer>> loans = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, PATRON_PREFIX + "%");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    loans.computeIfAbsent(rs.getString(1), patron -> new ArrayList<>()).add(rs.getInt(2));
+                }
+            }
+        }
+        return loans;
+    }
+    
+    /**
+     * One circulation desk; it lends to a patron and takes the copies back later
+     */
+    @State(Scope.Thread)
+    public static class Desk {
+        private static final AtomicInteger nextDesk = new AtomicInteger();
+        final String patron = PATRON_PREFIX + nextDesk.incrementAndGet();
+        final List<Integer> onLoan = new ArrayList<>();
+        
+        @Setup(Level.Trial)
+        public void register(CirculationBenchmark benchmark) {
+            benchmark.desks.add(this);
+        }
+    }
+    
+    /**
+     * Alternate between lending a handful of hot titles and returning them
+     */
+    @Benchmark
+    @Threads(2 * Constants.POOL_MAX_SIZE)
+    public CirculationResult checkoutAndReturn(Desk desk) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CirculationResult result;
+        if (desk.onLoan.isEmpty()) {
+            List<Integer> bookIds = new ArrayList<>(itemsPerPatron);
+            for (int i = 0; i < itemsPerPatron; i++) {
+                bookIds.add(FIRST_SYNTHETIC_ID + random.nextInt(hotTitles));
+            }
+            result = circulation.checkout(desk.patron, bookIds);
+            if (result != null) {
+                for (Loan loan : result.getLoans()) {
+                    desk.onLoan.add(loan.getBookId());
+                }
+                lent.addAndGet(result.getLoans().size());
+            }
+        } else {
+            result = circulation.checkin(desk.patron, desk.onLoan);
+            if (result != null) {
+                desk.onLoan.clear();
+                returned.addAndGet(result.getLoans().size());
+            }
+        }
+        
+        if (result == null) {
+            failed.incrementAndGet();
+        } else {
+            rejected.addAndGet(result.getRejected().size());
+        }
+        return result;
+    }
+}
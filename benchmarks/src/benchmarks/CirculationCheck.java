@@ -0,0 +1,61 @@
+package benchmarks;
+
+import utils.Constants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Run the circulation stress test once without JMH and check the stock
+ * The desks of CirculationBenchmark each check out and return a fixed number
+ * of times on their own threads. Afterwards every hot title must have shelf
+ * quantity plus open loans equal to the stock it started with, as the
+ * benchmark's trial teardown checks. Exits with status 1 if it does not.
+ *
+ * Usage: java benchmarks.CirculationCheck [rounds per desk] [hot titles]
+ */
+public class CirculationCheck {
+    
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        CirculationBenchmark benchmark = new CirculationBenchmark();
+        benchmark.rows = 10000;
+        benchmark.hotTitles = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        benchmark.copiesPerTitle = 3;
+        benchmark.itemsPerPatron = 3;
+        
+        int deskCount = 2 * Constants.POOL_MAX_SIZE;
+        benchmark.setUp();
+        ExecutorService executor = Executors.newFixedThreadPool(deskCount);
+        try {
+            List<Future<?>> desks = new ArrayList<>();
+            for (int i = 0; i < deskCount; i++) {
+                CirculationBenchmark.Desk desk = new CirculationBenchmark.Desk();
+                desk.register(benchmark);
+                desks.add(executor.submit(() -> {
+                    for (int round = 0; round < rounds; round++) {
+                        benchmark.checkoutAndReturn(desk);
+                    }
+                }));
+            }
+            for (Future<?> desk : desks) {
+                desk.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        
+        try {
+            benchmark.tearDown();
+        } catch (IllegalStateException e) {
+            System.err.println("Circulation check failed: " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("Circulation check passed: " + deskCount + " desks, " + rounds + " rounds each, " +
+                           benchmark.hotTitles + " hot titles");
+        System.exit(0);
+    }
+}
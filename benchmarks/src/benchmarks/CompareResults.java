@@ -0,0 +1,118 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compare two JMH CSV result files, e.g. benchmarks/results/abc1234.csv
+ * Prints each score side by side with the relative change. For throughput
+ * higher is better; for sample-time rows and percentiles lower is better.
+ *
+ * Usage: java benchmarks.CompareResults base.csv candidate.csv
+ */
+public class CompareResults {
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CompareResults <base.csv> <candidate.csv>");
+            System.exit(2);
+        }
+        Map<String, Row> base = read(Paths.get(args[0]));
+        Map<String, Row> candidate = read(Paths.get(args[1]));
+        
+        System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Base", "Candidate", "Change");
+        for (Map.Entry<String, Row> entry : candidate.entrySet()) {
+            Row after = entry.getValue();
+            Row before = base.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", entry.getKey(), "-", after.score, "new");
+                continue;
+            }
+            double change = before.score == 0 ? 0 : (after.score - before.score) / before.score * 100;
+            boolean higherIsBetter = "thrpt".equals(after.mode);
+            String verdict = Math.abs(change) < 5 ? "" : (change > 0) == higherIsBetter ? " +" : " -";
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%%s%n",
+                              entry.getKey(), before.score, after.score, change, verdict);
+        }
+    }
+    
+    /**
+     * Read rows keyed by benchmark, mode and parameters
+     */
+    private static Map<String, Row> read(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Map<String, Row> rows = new LinkedHashMap<>();
+        if (lines.isEmpty()) {
+            return rows;
+        }
+        
+        List<String> header = split(lines.get(0));
+        int benchmarkColumn = header.indexOf("Benchmark");
+        int modeColumn = header.indexOf("Mode");
+        int scoreColumn = header.indexOf("Score");
+        int unitColumn = header.indexOf("Unit");
+        
+        for (int i = 1; i < lines.size(); i++) {
+            List<String> fields = split(lines.get(i));
+            if (fields.size() != header.size()) {
+                continue;
+            }
+            StringBuilder key = new StringBuilder(fields.get(benchmarkColumn))
+                .append(" [").append(fields.get(modeColumn)).append(", ").append(fields.get(unitColumn));
+            for (int column = unitColumn + 1; column < header.size(); column++) {
+                key.append(", ").append(header.get(column).replace("Param: ", ""))
+                   .append('=').append(fields.get(column));
+            }
+            key.append(']');
+            rows.put(key.toString(), new Row(fields.get(modeColumn), parseScore(fields.get(scoreColumn))));
+        }
+        return rows;
+    }
+    
+    private static double parseScore(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+    
+    /**
+     * Split one CSV line, honouring double quotes
+     */
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+    
+    private static class Row {
+        final String mode;
+        final double score;
+        
+        Row(String mode, double score) {
+            this.mode = mode;
+            this.score = score;
+        }
+    }
+}
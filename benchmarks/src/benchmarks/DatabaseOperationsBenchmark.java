@@ -0,0 +1,152 @@
+package benchmarks;
+
+import database.BookSearchIndex;
+import database.DatabaseConnection;
+import database.DatabaseOperations;
+import database.LastLoginWriter;
+import models.Admin;
+import models.Book;
+import models.BookRecord;
+import models.LibrarySummary;
+import utils.Constants;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Throughput and latency percentiles of the DatabaseOperations queries
+ * Each benchmark runs in its own fork against a catalog of the given size.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class DatabaseOperationsBenchmark {
+    // Migration sample rows take the first ids; synthetic row n has id n + 1
+    private static final int FIRST_SYNTHETIC_ID = 11;
+    
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+    
+    @Param({"Silent River"})
+    public String searchTerm;
+    
+    private BenchmarkDatabase database;
+    private DatabaseOperations operations;
+    private final AtomicLong nextIsbn = new AtomicLong();
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // Per-call info logging would dominate the measurements
+        Logger.getLogger("").setLevel(java.util.logging.Level.WARNING);
+        database = BenchmarkDatabase.start(rows);
+        operations = new DatabaseOperations();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BookSearchIndex.getInstance().invalidate();
+        LastLoginWriter.getInstance().shutdown();
+        DatabaseConnection.getInstance().closeConnection();
+        database.stop();
+    }
+    
+    /**
+     * Catalog with the in-memory search index built
+     */
+    @State(Scope.Benchmark)
+    public static class IndexedCatalog {
+        @Setup(Level.Trial)
+        public void buildIndex(DatabaseOperationsBenchmark benchmark) {
+            benchmark.operations.loadSearchIndex();
+        }
+    }
+    
+    // ==================== READS ====================
+    
+    @Benchmark
+    public List<BookRecord> getAllBooks() {
+        return operations.getAllBooks();
+    }
+    
+    @Benchmark
+    public List<Book> searchBooksDatabase() {
+        return operations.searchBooks(searchTerm);
+    }
+    
+    @Benchmark
+    public List<Book> searchBooksIndexed(IndexedCatalog catalog) {
+        return operations.searchBooks(searchTerm);
+    }
+    
+    @Benchmark
+    public Admin authenticateAdmin() {
+        return operations.authenticateAdmin("admin", "admin123");
+    }
+    
+    /**
+     * Shift change: more concurrent logins than pooled connections
+     */
+    @Benchmark
+    @Threads(2 * Constants.POOL_MAX_SIZE)
+    public Admin authenticateAdminBurst() {
+        return operations.authenticateAdmin("admin", "admin123");
+    }
+    
+    @Benchmark
+    public int getTotalBooks() {
+        return operations.getTotalBooks();
+    }
+    
+    @Benchmark
+    public int getTotalStaff() {
+        return operations.getTotalStaff();
+    }
+    
+    @Benchmark
+    public LibrarySummary getLibrarySummary() {
+        return operations.getLibrarySummary();
+    }
+    
+    // ==================== WRITES ====================
+    
+    @Benchmark
+    public Book addBook() {
+        long n = nextIsbn.getAndIncrement();
+        Book book = new Book("Benchmark Title " + n, "Benchmark Author",
+                             BenchmarkData.isbn13(979_000_000_000L + n), 1);
+        return operations.addBook(book);
+    }
+    
+    @Benchmark
+    public Book updateBook() {
+        int id = ThreadLocalRandom.current().nextInt(FIRST_SYNTHETIC_ID, rows + 1);
+        int n = id - 1;
+        Book book = new Book(BenchmarkData.title(n), BenchmarkData.author(n),
+                             BenchmarkData.isbn13(978_000_000_000L + n),
+                             ThreadLocalRandom.current().nextInt(0, 7));
+        book.setBookId(id);
+        // Quantities are edits relative to the one seen; leave stock as it is
+        return operations.updateBook(book, book.getQuantity());
+    }
+}
@@ -0,0 +1,106 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import utils.Constants;
+import utils.Isbn;
+import utils.ValidationUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Regex-based ISBN validation versus the single-pass Isbn parser
+ * Run with -prof gc to see the allocation rate of each variant.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IsbnValidationBenchmark {
+    
+    private static final int INPUT_COUNT = 1024;
+    private static final Pattern LEGACY_ISBN_PATTERN = Pattern.compile(Constants.ISBN_REGEX);
+    
+    /**
+     * Share of inputs that are hyphenated, ISBN-10 or invalid
+     */
+    @Param({"clean", "mixed"})
+    public String inputs;
+    
+    private String[] isbns;
+    
+    @Setup
+    public void setup() {
+        isbns = new String[INPUT_COUNT];
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            String isbn = BenchmarkData.isbn13(978_000_000_000L + i * 7919L);
+            if ("mixed".equals(inputs)) {
+                switch (i % 4) {
+                    case 1:
+                        isbn = isbn.substring(0, 3) + "-" + isbn.substring(3, 4) + "-" + isbn.substring(4, 9) +
+                               "-" + isbn.substring(9, 12) + "-" + isbn.substring(12);
+                        break;
+                    case 2:
+                        isbn = "030640615" + (i % 3 == 0 ? "2" : "X");
+                        break;
+                    case 3:
+                        isbn = isbn.substring(0, 12) + ((isbn.charAt(12) - '0' + 1) % 10);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            isbns[i] = isbn;
+        }
+    }
+    
+    @Benchmark
+    public void legacyRegex(Blackhole blackhole) {
+        for (String isbn : isbns) {
+            blackhole.consume(legacyIsValidISBN(isbn));
+        }
+    }
+    
+    @Benchmark
+    public void validationUtils(Blackhole blackhole) {
+        for (String isbn : isbns) {
+            blackhole.consume(ValidationUtils.isValidISBN(isbn));
+        }
+    }
+    
+    @Benchmark
+    public void parseToLong(Blackhole blackhole) {
+        for (String isbn : isbns) {
+            blackhole.consume(Isbn.parse(isbn));
+        }
+    }
+    
+    /**
+     * Copy of ValidationUtils.isValidISBN before the Isbn parser
+     */
+    private static boolean legacyIsValidISBN(String isbn) {
+        if (isbn == null || isbn.trim().isEmpty()) {
+            return false;
+        }
+        
+        String cleanISBN = isbn.replaceAll("[\\s-]", "");
+        if (cleanISBN.length() < Constants.MIN_ISBN_LENGTH ||
+            cleanISBN.length() > Constants.MAX_ISBN_LENGTH) {
+            return false;
+        }
+        return LEGACY_ISBN_PATTERN.matcher(cleanISBN).matches();
+    }
+}
@@ -1,23 +1,52 @@
+import gui.CatalogPrefetch;
+import gui.EdtWatchdog;
 import gui.LoginFrame;
+import database.AsyncDatabaseOperations;
+import database.CatalogSnapshotManager;
 import database.DatabaseConnection;
+import database.DatabaseOperations;
+import database.OfflineMode;
 import utils.Constants;
+import utils.FlightRecorderSupport;
+import utils.StartupMetrics;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
 /**
  * Main class for Library Management System
  * Entry point of the application with initialization and error handling
+ * Startup steps that do not depend on each other run concurrently, and the
+ * time each one finishes is recorded in StartupMetrics.
  */
 public class LibraryManagementSystem {
     private static final Logger logger = Logger.getLogger(LibraryManagementSystem.class.getName());
     
+    // Dashboard classes loaded in the background while the database connects
+    private static final String[] PRELOADED_CLASSES = {
+        "gui.MainDashboard", "gui.BookPanel", "gui.StaffPanel", "gui.PagedTableModel",
+        "gui.BookDialog", "gui.StaffDialog", "database.CachingDatabaseOperations",
+        "database.AsyncDatabaseOperations", "database.DashboardStatistics",
+        "javax.swing.JTable", "javax.swing.JTabbedPane", "javax.swing.table.DefaultTableCellRenderer"
+    };
+    
+    // Steps the splash progress bar counts: database, classes and snapshot
+    private static final int STARTUP_STEPS = 3;
+    private static final AtomicInteger completedSteps = new AtomicInteger();
+    
     /**
      * Main method - Application entry point
      */
     public static void main(String[] args) {
+        StartupMetrics.mark("main");
+        
         // Set system properties for better UI experience
         System.setProperty("sun.java2d.metal", "true");
         System.setProperty("swing.aatext", "true");
@@ -25,43 +54,136 @@ public class LibraryManagementSystem {
         
         // Initialize logging
         logger.info("Starting Library Management System v" + Constants.APP_VERSION);
+        FlightRecorderSupport.startIfRequested(args);
+        EdtWatchdog.start();
+        
+        startup();
+    }
+    
+    /**
+     * Run the independent startup steps concurrently and show the login
+     * window once all of them are done
+     */
+    private static void startup() {
+        completedSteps.set(0);
+        ExecutorService executor = Executors.newFixedThreadPool(Constants.STARTUP_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "startup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        // Look and feel first, then the splash, both on the EDT
+        CompletableFuture<Void> splash = CompletableFuture.runAsync(() -> {
+            setLookAndFeel();
+            showSplashScreen();
+            StartupMetrics.mark("splash shown");
+        }, AsyncDatabaseOperations.EDT);
+        
+        // Driver loading, pool warm-up and connection test
+        CompletableFuture<Boolean> database = CompletableFuture.supplyAsync(() -> {
+            boolean connected = DatabaseConnection.getInstance().testConnection();
+            StartupMetrics.mark("database connected");
+            stepCompleted("Connected to database");
+            return connected;
+        }, executor).exceptionally(e -> {
+            logger.log(Level.SEVERE, "Failed to connect to the database", e);
+            return false;
+        });
         
-        // Set look and feel to system default
+        CompletableFuture<Void> classes = CompletableFuture.runAsync(() -> {
+            preloadClasses();
+            StartupMetrics.mark("classes loaded");
+            stepCompleted("Loaded components");
+        }, executor);
+        
+        // Mapping the local snapshot needs no database connection
+        CompletableFuture<Void> snapshot = CompletableFuture.runAsync(() -> {
+            CatalogSnapshotManager.getInstance().open();
+            StartupMetrics.mark("snapshot mapped");
+            stepCompleted("Mapped catalog snapshot");
+        }, executor);
+        
+        CompletableFuture.allOf(splash, database, classes, snapshot).whenCompleteAsync((ignored, error) -> {
+            hideSplashScreen();
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                logger.log(Level.SEVERE, "Failed to initialize application", cause);
+                executor.shutdown();
+                showFatalError(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+            } else if (!database.join() && !showDatabaseError()) {
+                executor.shutdown();
+            } else {
+                if (!OfflineMode.isActive()) {
+                    logger.info("Database connection test successful");
+                }
+                new LoginFrame().setVisible(true);
+                StartupMetrics.mark("login shown");
+                logger.info("Login frame displayed successfully");
+                
+                // Check the snapshot, prefetch the dashboard data and build the
+                // search index in the background while the user logs in
+                executor.execute(LibraryManagementSystem::loadCatalog);
+                executor.shutdown();
+            }
+        }, AsyncDatabaseOperations.EDT);
+    }
+    
+    private static void setLookAndFeel() {
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
             logger.info("System Look and Feel set successfully");
         } catch (Exception e) {
             logger.log(Level.WARNING, "Could not set system Look and Feel", e);
         }
-        
-        // Test database connection before starting GUI
-        SwingUtilities.invokeLater(() -> {
+    }
+    
+    private static void preloadClasses() {
+        ClassLoader loader = LibraryManagementSystem.class.getClassLoader();
+        for (String name : PRELOADED_CLASSES) {
             try {
-                // Show splash screen
-                showSplashScreen();
-                
-                // Test database connection
-                DatabaseConnection dbConnection = DatabaseConnection.getInstance();
-                if (dbConnection.testConnection()) {
-                    logger.info("Database connection test successful");
-                    
-                    // Hide splash and show login
-                    hideSplashScreen();
-                    
-                    // Create and show login frame
-                    LoginFrame loginFrame = new LoginFrame();
-                    loginFrame.setVisible(true);
-                    
-                    logger.info("Login frame displayed successfully");
-                } else {
-                    // Database connection failed
-                    hideSplashScreen();
-                    showDatabaseError();
-                }
-            } catch (Exception e) {
-                logger.log(Level.SEVERE, "Failed to initialize application", e);
-                hideSplashScreen();
-                showFatalError(e);
+                Class.forName(name, true, loader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                logger.log(Level.FINE, "Could not preload " + name, e);
+            }
+        }
+    }
+    
+    /**
+     * Catalog work that may finish after the login window is shown
+     * Offline, only the search index is built, from the mapped snapshot.
+     */
+    private static void loadCatalog() {
+        try {
+            if (OfflineMode.isActive()) {
+                new DatabaseOperations().loadSearchIndex();
+                StartupMetrics.mark("search index ready");
+                return;
+            }
+            // Writes journaled in an earlier offline session go first
+            OfflineMode.getInstance().replayIfPending();
+            boolean reloaded = CatalogSnapshotManager.getInstance().reconcile();
+            StartupMetrics.mark("snapshot reconciled");
+            CatalogPrefetch.start();
+            if (!reloaded) {
+                // A reconcile that reloaded the catalog rebuilt the index already
+                new DatabaseOperations().loadSearchIndex();
+            }
+            StartupMetrics.mark("search index ready");
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Background catalog loading failed", e);
+        }
+    }
+    
+    /**
+     * Advance the splash progress bar; safe to call from any thread
+     */
+    private static void stepCompleted(String message) {
+        int percent = completedSteps.incrementAndGet() * 100 / STARTUP_STEPS;
+        SwingUtilities.invokeLater(() -> {
+            if (progressBar != null) {
+                progressBar.setIndeterminate(false);
+                progressBar.setValue(percent);
+                loadingLabel.setText(message + "...");
             }
         });
     }
@@ -70,6 +192,8 @@ public class LibraryManagementSystem {
      * Show splash screen while initializing
      */
     private static JWindow splashWindow;
+    private static JLabel loadingLabel;
+    private static JProgressBar progressBar;
     
     private static void showSplashScreen() {
         splashWindow = new JWindow();
@@ -92,14 +216,15 @@ public class LibraryManagementSystem {
         versionLabel.setHorizontalAlignment(SwingConstants.CENTER);
         
         // Loading message
-        JLabel loadingLabel = new JLabel("Initializing...");
+        loadingLabel = new JLabel("Initializing...");
         loadingLabel.setFont(new Font("Arial", Font.PLAIN, 14));
         loadingLabel.setForeground(Color.WHITE);
         loadingLabel.setHorizontalAlignment(SwingConstants.CENTER);
         
         // Progress bar
-        JProgressBar progressBar = new JProgressBar();
-        progressBar.setIndeterminate(true);
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setIndeterminate(completedSteps.get() == 0);
+        progressBar.setValue(completedSteps.get() * 100 / STARTUP_STEPS);
         progressBar.setBackground(new Color(33, 150, 243));
         progressBar.setForeground(Color.WHITE);
         
@@ -151,14 +276,18 @@ public class LibraryManagementSystem {
         if (splashWindow != null) {
             splashWindow.setVisible(false);
             splashWindow.dispose();
+            splashWindow = null;
+            loadingLabel = null;
+            progressBar = null;
             logger.info("Splash screen hidden");
         }
     }
     
     /**
      * Show database connection error
+     * Returns true when the user chose to work offline.
      */
-    private static void showDatabaseError() {
+    private static boolean showDatabaseError() {
         String message = "Failed to connect to the database.\n\n" +
                         "Please ensure that:\n" +
                         "1. MySQL server is running\n" +
@@ -167,26 +296,42 @@ public class LibraryManagementSystem {
                         "4. MySQL JDBC driver is available\n\n" +
                         "Check the database configuration in Constants.java";
         
+        // Offline work needs a local snapshot to read and an earlier login to check against
+        boolean offlineAvailable = OfflineMode.canWorkOffline();
+        String[] options = offlineAvailable ? new String[]{"Retry", "Work Offline", "Exit"}
+                                            : new String[]{"Retry", "Exit"};
+        if (offlineAvailable) {
+            message += "\n\nYou can also work offline: changes are saved on this computer\n" +
+                       "and sent to the database when it is reachable again.";
+        }
+        
         int option = JOptionPane.showOptionDialog(
             null,
             message,
             "Database Connection Error",
-            JOptionPane.YES_NO_OPTION,
+            JOptionPane.DEFAULT_OPTION,
             JOptionPane.ERROR_MESSAGE,
             null,
-            new String[]{"Retry", "Exit"},
+            options,
             "Retry"
         );
         
-        if (option == JOptionPane.YES_OPTION) {
+        if (option == 0) {
             // Retry connection
             logger.info("Retrying database connection...");
             main(new String[0]);
-        } else {
-            // Exit application
-            logger.info("Application terminated by user");
-            System.exit(1);
+            return false;
+        } else if (offlineAvailable && option == 1) {
+            OfflineMode.getInstance().goOffline("chosen at startup");
+            if (OfflineMode.isActive()) {
+                return true;
+            }
         }
+        
+        // Exit application
+        logger.info("Application terminated by user");
+        System.exit(1);
+        return false;
     }
     
     /**
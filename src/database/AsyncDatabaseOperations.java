@@ -0,0 +1,218 @@
+package database;
+
+import models.Book;
+import models.BookRecord;
+import models.Staff;
+
+import java.awt.EventQueue;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous facade over DatabaseOperations
+ * Every call runs the blocking JDBC work off the calling thread and returns a
+ * CompletableFuture. Virtual threads are used when the runtime provides them,
+ * otherwise a small pool of daemon threads. At most as many queries run at
+ * once as the connection pool has connections.
+ */
+public class AsyncDatabaseOperations {
+    private static final Logger logger = Logger.getLogger(AsyncDatabaseOperations.class.getName());
+    
+    /**
+     * Executor that runs callbacks on the Swing event dispatch thread
+     */
+    public static final Executor EDT = EventQueue::invokeLater;
+    
+    private final DatabaseOperations operations;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    
+    public AsyncDatabaseOperations(DatabaseOperations operations) {
+        this(operations, DatabaseConnection.getInstance().getPool().getMaxSize());
+    }
+    
+    public AsyncDatabaseOperations(DatabaseOperations operations, int maxConcurrency) {
+        this.operations = operations;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.executor = createExecutor(maxConcurrency);
+    }
+    
+    /**
+     * Prefer a virtual-thread-per-task executor; fall back to platform threads
+     * on runtimes without virtual threads
+     */
+    private static ExecutorService createExecutor(int maxConcurrency) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            logger.info("Async database operations running on virtual threads");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.info("Virtual threads unavailable, using " + maxConcurrency + " database worker threads");
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "db-async-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newFixedThreadPool(maxConcurrency, threadFactory);
+        }
+    }
+    
+    /**
+     * Run any query against the underlying operations asynchronously
+     */
+    public <T> CompletableFuture<T> supply(Function<DatabaseOperations, T> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return query.apply(operations);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+    
+    // ==================== BOOK OPERATIONS ====================
+    
+    public CompletableFuture<List<BookRecord>> getAllBooks() {
+        return supply(DatabaseOperations::getAllBooks);
+    }
+    
+    public CompletableFuture<List<Book>> searchBooks(String searchTerm) {
+        return supply(ops -> ops.searchBooks(searchTerm));
+    }
+    
+    public CompletableFuture<Book> getBookById(int bookId) {
+        return supply(ops -> ops.getBookById(bookId));
+    }
+    
+    public CompletableFuture<Book> addBook(Book book) {
+        return supply(ops -> ops.addBook(book));
+    }
+    
+    public CompletableFuture<Book> updateBook(Book book, int seenQuantity) {
+        return supply(ops -> ops.updateBook(book, seenQuantity));
+    }
+    
+    public CompletableFuture<Boolean> deleteBook(int bookId) {
+        return supply(ops -> ops.deleteBook(bookId));
+    }
+    
+    // ==================== STAFF OPERATIONS ====================
+    
+    public CompletableFuture<List<Staff>> getAllStaff() {
+        return supply(DatabaseOperations::getAllStaff);
+    }
+    
+    public CompletableFuture<Staff> addStaff(Staff staff) {
+        return supply(ops -> ops.addStaff(staff));
+    }
+    
+    public CompletableFuture<Staff> updateStaff(Staff staff) {
+        return supply(ops -> ops.updateStaff(staff));
+    }
+    
+    public CompletableFuture<Boolean> deleteStaff(int staffId) {
+        return supply(ops -> ops.deleteStaff(staffId));
+    }
+    
+    // ==================== UTILITY OPERATIONS ====================
+    
+    public CompletableFuture<Integer> getTotalBooks() {
+        return supply(DatabaseOperations::getTotalBooks);
+    }
+    
+    public CompletableFuture<Integer> getTotalStaff() {
+        return supply(DatabaseOperations::getTotalStaff);
+    }
+    
+    // ==================== FAN-OUT HELPERS ====================
+    
+    /**
+     * Run several independent queries in parallel and collect their results in order
+     */
+    @SafeVarargs
+    public final <T> CompletableFuture<List<T>> all(Function<DatabaseOperations, T>... queries) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(queries.length);
+        for (Function<DatabaseOperations, T> query : queries) {
+            futures.add(supply(query));
+        }
+        return allOf(futures);
+    }
+    
+    /**
+     * Complete with every result in order once all futures complete
+     */
+    public static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+            .thenApply(ignored -> {
+                List<T> results = new ArrayList<>(futures.size());
+                for (CompletableFuture<T> future : futures) {
+                    results.add(future.join());
+                }
+                return results;
+            });
+    }
+    
+    /**
+     * Run two independent queries in parallel and hand both results to the EDT
+     */
+    public <A, B> CompletableFuture<Void> both(Function<DatabaseOperations, A> first,
+                                               Function<DatabaseOperations, B> second,
+                                               BiConsumer<A, B> onEdt) {
+        return supply(first).thenAcceptBothAsync(supply(second), onEdt, EDT);
+    }
+    
+    // ==================== EDT MARSHALLING ====================
+    
+    /**
+     * Deliver the result or failure of a future on the event dispatch thread
+     */
+    public static <T> CompletableFuture<Void> onEdt(CompletableFuture<T> future, Consumer<T> onSuccess,
+                                                    Consumer<Throwable> onFailure) {
+        return future.handleAsync((result, error) -> {
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                logger.log(Level.WARNING, "Asynchronous database call failed", cause);
+                onFailure.accept(cause);
+            }
+            return null;
+        }, EDT);
+    }
+    
+    /**
+     * Deliver the result of a future on the event dispatch thread, logging failures
+     */
+    public static <T> CompletableFuture<Void> onEdt(CompletableFuture<T> future, Consumer<T> onSuccess) {
+        return onEdt(future, onSuccess, error -> {});
+    }
+    
+    /**
+     * Stop accepting work; running queries are allowed to finish
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,501 @@
+package database;
+
+import models.Book;
+import models.BookRecord;
+import models.CompactBookStore;
+import utils.Isbn;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * In-memory inverted index over book title, author and ISBN
+ * Answers multi-term AND queries with relevance ranking without a database
+ * round trip. Kept current through CatalogChangeListener notifications.
+ * Reloads rebuild it on a single background thread, with at most one more
+ * rebuild queued behind the running one. Changes made while a rebuild loads
+ * the catalog are held and laid over its result, and a rebuild that a
+ * reload overtook is discarded rather than published.
+ */
+public class BookSearchIndex implements CatalogChangeListener {
+    private static final Logger logger = Logger.getLogger(BookSearchIndex.class.getName());
+    private static BookSearchIndex instance;
+    
+    // Minimum length before the last query term is matched as a prefix
+    private static final int MIN_PREFIX_LENGTH = 2;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private CompactBookStore documents = new CompactBookStore();
+    private final TreeMap<String, Postings> titlePostings = new TreeMap<>();
+    private final TreeMap<String, Postings> authorPostings = new TreeMap<>();
+    private final TreeMap<String, Postings> isbnPostings = new TreeMap<>();
+    private volatile boolean ready;
+    private int maxBookId;
+    
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    
+    // Guarded by the write lock
+    private long generation;
+    private long rebuildsStarted;
+    private long publishedRebuild;
+    private int rebuilding;
+    private final List<Runnable> heldChanges = new ArrayList<>();
+    
+    private BookSearchIndex() {}
+    
+    /**
+     * Get singleton instance, registered for catalog changes
+     */
+    public static synchronized BookSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new BookSearchIndex();
+            DatabaseOperations.addCatalogListener(instance);
+        }
+        return instance;
+    }
+    
+    /**
+     * Check whether the index has been built and can answer queries
+     */
+    public boolean isReady() {
+        return ready;
+    }
+    
+    /**
+     * Replace the index contents with the catalog the loader returns
+     * The index takes ownership of the store and keeps it current. Nothing is
+     * published if the loader returns null, if the catalog was reloaded
+     * while it ran, or if a rebuild started later has already published.
+     */
+    public void rebuild(Supplier<CompactBookStore> loader) {
+        long started;
+        long ticket;
+        lock.writeLock().lock();
+        try {
+            started = generation;
+            ticket = ++rebuildsStarted;
+            rebuilding++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        CompactBookStore books = null;
+        try {
+            books = loader.get();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                rebuilding--;
+                if (books != null && started == generation && ticket > publishedRebuild) {
+                    publishedRebuild = ticket;
+                    install(books);
+                }
+                if (rebuilding == 0) {
+                    heldChanges.clear();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+    
+    /**
+     * Index a loaded catalog, then lay over it the changes made while it loaded
+     * Those the load already saw are applied again, which leaves them as they are.
+     */
+    private void install(CompactBookStore books) {
+        long start = System.nanoTime();
+        documents = books;
+        titlePostings.clear();
+        authorPostings.clear();
+        isbnPostings.clear();
+        maxBookId = 0;
+        List<BookRecord> views = books.views();
+        for (BookRecord book : views) {
+            indexTerms(book);
+        }
+        for (Runnable change : heldChanges) {
+            change.run();
+        }
+        ready = true;
+        logger.info("Search index built with " + views.size() + " books and " + titlePostings.size() +
+                    " title terms in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+    
+    /**
+     * Mark the index stale so searches fall back to the database until rebuilt
+     * Rebuilds already loading will not publish.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Search for books matching every term, best matches first
+     * At most maxResults books are returned
+     */
+    public List<Book> search(String query, int maxResults) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || maxResults <= 0) {
+            return new ArrayList<>();
+        }
+        
+        lock.readLock().lock();
+        try {
+            TermMatch[] termMatches = new TermMatch[terms.size()];
+            BitSet matches = null;
+            for (int i = 0; i < terms.size(); i++) {
+                boolean prefix = i == terms.size() - 1 && terms.get(i).length() >= MIN_PREFIX_LENGTH;
+                termMatches[i] = lookup(terms.get(i), prefix);
+                if (matches == null) {
+                    matches = termMatches[i].any;
+                } else {
+                    matches.and(termMatches[i].any);
+                }
+                if (matches.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+            
+            // Keep the best maxResults by score; lower ids win ties
+            PriorityQueue<long[]> best = new PriorityQueue<>(Math.min(maxResults, 1024) + 1,
+                (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[1], a[1]));
+            for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+                best.add(new long[]{score(id, termMatches), id});
+                if (best.size() > maxResults) {
+                    best.poll();
+                }
+            }
+            
+            List<ScoredBook> scored = new ArrayList<>(best.size());
+            for (long[] entry : best) {
+                scored.add(new ScoredBook(documents.get((int) entry[1]), (int) entry[0]));
+            }
+            scored.sort((a, b) -> a.score != b.score
+                ? Integer.compare(b.score, a.score)
+                : a.book.getTitle().compareToIgnoreCase(b.book.getTitle()));
+            
+            // Store views are read-only, so callers get copies they may edit
+            List<Book> results = new ArrayList<>(scored.size());
+            for (ScoredBook entry : scored) {
+                BookRecord book = entry.book;
+                results.add(new Book(book.getBookId(), book.getTitle(), book.getAuthor(), book.getIsbn(),
+                                     book.getQuantity(), book.getDateAdded(), book.getStatus()));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Collect ids of books with the term, or a term starting with it, per field
+     */
+    private TermMatch lookup(String term, boolean prefix) {
+        TermMatch match = new TermMatch(maxBookId + 1);
+        addPostings(titlePostings, term, false, match.titleExact);
+        addPostings(titlePostings, term, prefix, match.title);
+        addPostings(authorPostings, term, prefix, match.author);
+        addPostings(isbnPostings, normalizeIsbn(term), prefix, match.isbn);
+        
+        match.any.or(match.title);
+        match.any.or(match.author);
+        match.any.or(match.isbn);
+        return match;
+    }
+    
+    private void addPostings(TreeMap<String, Postings> field, String term, boolean prefix, BitSet target) {
+        if (prefix) {
+            NavigableMap<String, Postings> range = field.subMap(term, true, term + Character.MAX_VALUE, false);
+            for (Postings list : range.values()) {
+                list.addTo(target);
+            }
+        } else {
+            Postings list = field.get(term);
+            if (list != null) {
+                list.addTo(target);
+            }
+        }
+    }
+    
+    /**
+     * Rank by where each term matched: ISBN, then whole title word, title prefix, author
+     */
+    private int score(int id, TermMatch[] termMatches) {
+        int score = 0;
+        for (TermMatch match : termMatches) {
+            if (match.isbn.get(id)) {
+                score += 50;
+            } else if (match.titleExact.get(id)) {
+                score += 10;
+            } else if (match.title.get(id)) {
+                score += 6;
+            } else if (match.author.get(id)) {
+                score += 5;
+            }
+        }
+        return score;
+    }
+    
+    // ==================== INDEX MAINTENANCE ====================
+    
+    @Override
+    public void bookAdded(Book book) {
+        Book added = new Book(book);
+        apply(() -> addDocument(added, added.getDateAdded()));
+    }
+    
+    @Override
+    public void bookUpdated(Book book) {
+        Book updated = new Book(book);
+        apply(() -> {
+            Timestamp dateAdded = removeDocument(updated.getBookId());
+            addDocument(updated, dateAdded != null ? dateAdded : updated.getDateAdded());
+        });
+    }
+    
+    @Override
+    public void bookDeleted(int bookId) {
+        apply(() -> removeDocument(bookId));
+    }
+    
+    /**
+     * Queue a rebuild unless one is already waiting to start
+     * One that is running loaded the catalog too early and will not publish.
+     */
+    @Override
+    public void catalogReloaded() {
+        invalidate();
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildQueued.set(false);
+                new DatabaseOperations().loadSearchIndex();
+            });
+        }
+    }
+    
+    /**
+     * Apply a change to the built index, and hold it for any rebuild still loading
+     * Changes while no index is built or loading are dropped; the next load reads them.
+     */
+    private void apply(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (rebuilding > 0) {
+                heldChanges.add(change);
+            }
+            if (ready) {
+                change.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void addDocument(Book book, Timestamp dateAdded) {
+        String status = book.getStatus() != null ? book.getStatus()
+                      : book.getQuantity() > 0 ? "AVAILABLE" : "OUT_OF_STOCK";
+        documents.put(book.getBookId(), book.getTitle(), book.getAuthor(), book.getIsbn(),
+                      book.getQuantity(), dateAdded, status);
+        indexTerms(book);
+    }
+    
+    private void indexTerms(BookRecord book) {
+        int id = book.getBookId();
+        maxBookId = Math.max(maxBookId, id);
+        for (String token : tokenize(book.getTitle())) {
+            titlePostings.computeIfAbsent(token, key -> new Postings()).add(id);
+        }
+        for (String token : tokenize(book.getAuthor())) {
+            authorPostings.computeIfAbsent(token, key -> new Postings()).add(id);
+        }
+        String isbn = normalizeIsbn(book.getIsbn());
+        if (!isbn.isEmpty()) {
+            isbnPostings.computeIfAbsent(isbn, key -> new Postings()).add(id);
+        }
+    }
+    
+    /**
+     * Remove a book and its postings, returning its date added
+     */
+    private Timestamp removeDocument(int bookId) {
+        BookRecord previous = documents.get(bookId);
+        if (previous == null) {
+            return null;
+        }
+        // Read through the view before the row goes away
+        removePostings(titlePostings, tokenize(previous.getTitle()), bookId);
+        removePostings(authorPostings, tokenize(previous.getAuthor()), bookId);
+        List<String> isbn = new ArrayList<>();
+        isbn.add(normalizeIsbn(previous.getIsbn()));
+        removePostings(isbnPostings, isbn, bookId);
+        Timestamp dateAdded = previous.getDateAdded();
+        documents.remove(bookId);
+        return dateAdded;
+    }
+    
+    private void removePostings(TreeMap<String, Postings> field, List<String> tokens, int bookId) {
+        for (String token : tokens) {
+            Postings list = field.get(token);
+            if (list != null && list.remove(bookId) && list.size == 0) {
+                field.remove(token);
+            }
+        }
+    }
+    
+    // ==================== TOKENIZATION ====================
+    
+    /**
+     * Split text into lower-case alphanumeric tokens
+     * ISBN-like tokens with hyphens are joined into a single token
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            boolean joinsDigits = c == '-' && current.length() > 0
+                && Character.isDigit(current.charAt(current.length() - 1))
+                && i + 1 < lower.length() && Character.isDigit(lower.charAt(i + 1));
+            if (Character.isLetterOrDigit(c)) {
+                current.append(c);
+            } else if (!joinsDigits && current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+    
+    /**
+     * Reduce an ISBN, or the start of one, to the digits it is indexed under
+     * A complete ISBN-10 or ISBN-13 becomes its ISBN-13, so either form finds the book.
+     */
+    private static String normalizeIsbn(String isbn) {
+        if (isbn == null) {
+            return "";
+        }
+        String text = Isbn.normalize(isbn);
+        StringBuilder digits = new StringBuilder(13);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isDigit(c) || c == 'x' || c == 'X') {
+                digits.append(Character.toLowerCase(c));
+            }
+        }
+        return digits.toString();
+    }
+    
+    /**
+     * Get index size summary
+     */
+    public String getStats() {
+        lock.readLock().lock();
+        try {
+            return "books=" + documents.size() + ", authors=" + documents.getDistinctAuthors() +
+                   ", storeBytes=" + documents.getEstimatedBytes() + ", titleTerms=" + titlePostings.size() +
+                   ", authorTerms=" + authorPostings.size() + ", ready=" + ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Sorted list of book ids for one term
+     */
+    private static class Postings {
+        int[] ids = new int[4];
+        int size;
+        
+        void add(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+        
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+        
+        void addTo(BitSet set) {
+            for (int i = 0; i < size; i++) {
+                set.set(ids[i]);
+            }
+        }
+    }
+    
+    /**
+     * Ids matching one query term, split by field
+     */
+    private static class TermMatch {
+        final BitSet titleExact;
+        final BitSet title;
+        final BitSet author;
+        final BitSet isbn;
+        final BitSet any;
+        
+        TermMatch(int size) {
+            titleExact = new BitSet(size);
+            title = new BitSet(size);
+            author = new BitSet(size);
+            isbn = new BitSet(size);
+            any = new BitSet(size);
+        }
+    }
+    
+    private static class ScoredBook {
+        final BookRecord book;
+        final int score;
+        
+        ScoredBook(BookRecord book, int score) {
+            this.book = book;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package database;
+
+import models.Book;
+import models.BookRecord;
+import models.CompactBookStore;
+import models.Staff;
+import utils.Constants;
+import utils.Isbn;
+import utils.LruCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Read-through cache in front of the catalog queries
+ * Books are cached by id and ISBN, search results and the full catalog by
+ * query. Entries are dropped on our own writes through CatalogChangeListener
+ * and wholesale when the database reports a different catalog version.
+ * Cached books are copied on the way in and out because the GUI edits
+ * the objects it is given; the full catalog is held as a CompactBookStore.
+ * Table pages and counts are read from the local catalog snapshot while
+ * CatalogSnapshotManager has a current one; both table versions are
+ * compared with the snapshot's now and then, so changes from other desks
+ * stop it being served. Writes are journaled by
+ * OfflineMode while the database is unreachable, and reads then come from
+ * the snapshot with the journaled writes laid over it.
+ */
+public class CachingDatabaseOperations extends DatabaseOperations {
+    private static final Logger logger = Logger.getLogger(CachingDatabaseOperations.class.getName());
+    
+    // Rough heap cost of a Book with its Timestamp, and of a String, for the footprint estimate
+    private static final long BOOK_BYTES = 96;
+    private static final long STRING_BYTES = 40;
+    
+    private final LruCache<Integer, Book> booksById;
+    private final LruCache<Long, Book> booksByIsbn;
+    private final LruCache<String, List<Book>> searchResults;
+    private final LruCache<String, CompactBookStore> allBooks;
+    
+    // Bumped on every invalidation so loads that raced a write are not cached
+    private final AtomicLong epoch = new AtomicLong();
+    private final OfflineMode offline = OfflineMode.getInstance();
+    
+    // Guards the fields below only; the version query itself runs outside it
+    private final Object versionLock = new Object();
+    private CatalogVersion knownVersion;
+    private long lastVersionCheck;
+    private boolean checkingVersion;
+    private long versionGeneration;
+    
+    // Guards the fields below only; the snapshot's version queries run outside it
+    private final Object snapshotLock = new Object();
+    private long lastSnapshotCheck;
+    private boolean checkingSnapshot;
+    
+    public CachingDatabaseOperations() {
+        super();
+        booksById = new LruCache<>("booksById", Constants.BOOK_CACHE_SIZE,
+                                   Constants.BOOK_CACHE_TTL_MS, CachingDatabaseOperations::estimateSize);
+        booksByIsbn = new LruCache<>("booksByIsbn", Constants.BOOK_CACHE_SIZE,
+                                     Constants.BOOK_CACHE_TTL_MS, CachingDatabaseOperations::estimateSize);
+        searchResults = new LruCache<>("searchResults", Constants.SEARCH_CACHE_SIZE,
+                                       Constants.SEARCH_CACHE_TTL_MS, CachingDatabaseOperations::estimateSize);
+        allBooks = new LruCache<>("allBooks", 1, Constants.BOOK_CACHE_TTL_MS,
+                                  CompactBookStore::getEstimatedBytes);
+        
+        addCatalogListener(new CatalogChangeListener() {
+            @Override
+            public void bookAdded(Book book) {
+                invalidateQueries();
+            }
+            
+            @Override
+            public void bookUpdated(Book book) {
+                invalidateBook(book.getBookId());
+            }
+            
+            @Override
+            public void bookDeleted(int bookId) {
+                invalidateBook(bookId);
+            }
+            
+            @Override
+            public void catalogReloaded() {
+                invalidateAll();
+            }
+        });
+    }
+    
+    // ==================== CACHED READS ====================
+    
+    @Override
+    public Book getBookById(int bookId) {
+        if (OfflineMode.isActive()) {
+            return offline.getBook(bookId);
+        }
+        checkVersion();
+        Book book = booksById.get(bookId);
+        if (book == null) {
+            long loadEpoch = epoch.get();
+            book = super.getBookById(bookId);
+            if (book == null) {
+                return null;
+            }
+            cacheBook(book, loadEpoch);
+        }
+        return new Book(book);
+    }
+    
+    /**
+     * ISBNs are cached by their parsed ISBN-13 value, so hyphenated and
+     * ISBN-10 spellings of a cached book are hits too
+     */
+    @Override
+    public Book getBookByIsbn(String isbn) {
+        if (OfflineMode.isActive()) {
+            return offline.getBookByIsbn(isbn);
+        }
+        long key = Isbn.parse(isbn);
+        if (key == Isbn.INVALID) {
+            return super.getBookByIsbn(isbn);
+        }
+        checkVersion();
+        Book book = booksByIsbn.get(key);
+        if (book == null) {
+            long loadEpoch = epoch.get();
+            book = super.getBookByIsbn(isbn);
+            if (book == null) {
+                return null;
+            }
+            cacheBook(book, loadEpoch);
+        }
+        return new Book(book);
+    }
+    
+    /**
+     * The catalog is cached as a compact store; its views are read-only, so
+     * they are handed out without copying
+     */
+    @Override
+    public List<BookRecord> getAllBooks() {
+        if (OfflineMode.isActive()) {
+            return offline.getAllBooks();
+        }
+        checkVersion();
+        CompactBookStore store = allBooks.get("all");
+        if (store == null) {
+            long loadEpoch = epoch.get();
+            store = loadBookStore();
+            if (epoch.get() == loadEpoch) {
+                allBooks.put("all", store);
+            }
+        }
+        return store.views();
+    }
+    
+    @Override
+    public List<Book> searchBooks(String searchTerm) {
+        if (OfflineMode.isActive()) {
+            // Only the search index can answer, and it predates the journaled writes
+            return offline.overlayBooks(copyAll(super.searchBooks(searchTerm)));
+        }
+        checkVersion();
+        String key = searchTerm.trim().toLowerCase(Locale.ROOT);
+        List<Book> books = searchResults.get(key);
+        if (books == null) {
+            long loadEpoch = epoch.get();
+            books = copyAll(super.searchBooks(searchTerm));
+            if (epoch.get() == loadEpoch) {
+                searchResults.put(key, books);
+            }
+        }
+        return copyAll(books);
+    }
+    
+    /**
+     * Total books come from the snapshot, or else from the version check,
+     * which carries the row count. Offline the count matches the overlaid pages
+     * and never goes to the database.
+     */
+    @Override
+    public int getTotalBooks() {
+        CatalogSnapshot snapshot = currentSnapshot();
+        if (OfflineMode.isActive()) {
+            return snapshot != null ? offline.overlayBookCount(snapshot.getBookCount()) : 0;
+        }
+        if (snapshot != null) {
+            return snapshot.getBookCount();
+        }
+        CatalogVersion version = checkVersion();
+        return version != null ? version.getRowCount() : super.getTotalBooks();
+    }
+    
+    // ==================== SNAPSHOT READS ====================
+    
+    @Override
+    public List<Book> getBooksPage(String afterTitle, int afterId, int limit) {
+        CatalogSnapshot snapshot = currentSnapshot();
+        List<Book> books = snapshot != null ? snapshot.getBooksAfter(afterTitle, afterId, limit) : null;
+        if (books == null) {
+            books = super.getBooksPage(afterTitle, afterId, limit);
+        }
+        return OfflineMode.isActive() ? offline.overlayBooks(books) : books;
+    }
+    
+    @Override
+    public List<Book> getBooksPageAt(int offset, int limit) {
+        CatalogSnapshot snapshot = currentSnapshot();
+        List<Book> books = snapshot != null ? snapshot.getBooksAt(offset, limit) : super.getBooksPageAt(offset, limit);
+        return OfflineMode.isActive() ? offline.overlayBooks(books) : books;
+    }
+    
+    /**
+     * Rows added offline are shown at the top until they are replayed
+     */
+    @Override
+    public int getBookPosition(String title, int bookId) {
+        return OfflineMode.isActive() ? 0 : super.getBookPosition(title, bookId);
+    }
+    
+    @Override
+    public int getStaffRecordCount() {
+        CatalogSnapshot snapshot = currentSnapshot();
+        if (OfflineMode.isActive()) {
+            return snapshot != null ? offline.overlayStaffCount(snapshot.getStaffCount()) : 0;
+        }
+        return snapshot != null ? snapshot.getStaffCount() : super.getStaffRecordCount();
+    }
+    
+    @Override
+    public List<Staff> getStaffPage(String afterName, int afterId, int limit) {
+        CatalogSnapshot snapshot = currentSnapshot();
+        List<Staff> staffList = snapshot != null ? snapshot.getStaffAfter(afterName, afterId, limit) : null;
+        if (staffList == null) {
+            staffList = super.getStaffPage(afterName, afterId, limit);
+        }
+        return OfflineMode.isActive() ? offline.overlayStaff(staffList) : staffList;
+    }
+    
+    @Override
+    public List<Staff> getStaffPageAt(int offset, int limit) {
+        CatalogSnapshot snapshot = currentSnapshot();
+        List<Staff> staffList = snapshot != null ? snapshot.getStaffAt(offset, limit) : super.getStaffPageAt(offset, limit);
+        return OfflineMode.isActive() ? offline.overlayStaff(staffList) : staffList;
+    }
+    
+    @Override
+    public int getStaffPosition(String name, int staffId) {
+        return OfflineMode.isActive() ? 0 : super.getStaffPosition(name, staffId);
+    }
+    
+    @Override
+    public int getTotalStaff() {
+        if (OfflineMode.isActive()) {
+            CatalogSnapshot snapshot = CatalogSnapshotManager.offlineSnapshot();
+            return snapshot != null ? offline.overlayStaffCount(snapshot.getStaffCount()) : 0;
+        }
+        return super.getTotalStaff();
+    }
+    
+    // ==================== OFFLINE WRITES ====================
+    
+    @Override
+    public Book addBook(Book book) {
+        return offline.route(() -> super.addBook(book), () -> offline.addBook(book));
+    }
+    
+    @Override
+    public Book updateBook(Book book, int seenQuantity) {
+        return offline.route(() -> super.updateBook(book, seenQuantity), () -> offline.updateBook(book, seenQuantity));
+    }
+    
+    @Override
+    public List<Book> deleteBooks(Collection<Integer> bookIds) {
+        return offline.route(() -> super.deleteBooks(bookIds), () -> offline.deleteBooks(bookIds));
+    }
+    
+    @Override
+    public List<Book> adjustBookQuantities(Collection<Integer> bookIds, int delta) {
+        return offline.route(() -> super.adjustBookQuantities(bookIds, delta),
+                             () -> offline.adjustBookQuantities(bookIds, delta));
+    }
+    
+    @Override
+    public Staff addStaff(Staff staff) {
+        return offline.route(() -> super.addStaff(staff), () -> offline.addStaff(staff));
+    }
+    
+    @Override
+    public Staff updateStaff(Staff staff) {
+        return offline.route(() -> super.updateStaff(staff), () -> offline.updateStaff(staff));
+    }
+    
+    @Override
+    public List<Staff> deleteStaffMembers(Collection<Integer> staffIds) {
+        return offline.route(() -> super.deleteStaffMembers(staffIds), () -> offline.deleteStaffMembers(staffIds));
+    }
+    
+    @Override
+    public List<Staff> setStaffRole(Collection<Integer> staffIds, String role) {
+        return offline.route(() -> super.setStaffRole(staffIds, role), () -> !isValidRole(role) ? null :
+            offline.updateStaffMembers(staffIds, staff -> {
+                staff.setRole(role);
+                return staff;
+            }));
+    }
+    
+    @Override
+    public List<Staff> setStaffStatus(Collection<Integer> staffIds, String status) {
+        return offline.route(() -> super.setStaffStatus(staffIds, status), () -> !isValidStaffStatus(status) ? null :
+            offline.updateStaffMembers(staffIds, staff -> {
+                staff.setStatus(status);
+                return staff;
+            }));
+    }
+    
+    // ==================== INVALIDATION ====================
+    
+    /**
+     * Compare the database catalog version with the last one seen
+     * Runs at most once per check interval, or right after one of our own
+     * writes. One reader runs the query while the others carry on with the
+     * version they already have.
+     */
+    private CatalogVersion checkVersion() {
+        long now = System.currentTimeMillis();
+        long generation;
+        synchronized (versionLock) {
+            if (OfflineMode.isActive() || checkingVersion ||
+                now - lastVersionCheck < Constants.CATALOG_VERSION_CHECK_INTERVAL_MS) {
+                return knownVersion;
+            }
+            checkingVersion = true;
+            generation = versionGeneration;
+        }
+        
+        CatalogVersion current = null;
+        boolean changed = false;
+        try {
+            current = getCatalogVersion();
+        } finally {
+            synchronized (versionLock) {
+                checkingVersion = false;
+                // A write of our own during the query makes its result stale; the next read checks again
+                if (generation == versionGeneration) {
+                    lastVersionCheck = now;
+                    if (current != null) {
+                        changed = knownVersion != null && !knownVersion.equals(current);
+                        knownVersion = current;
+                    }
+                }
+            }
+        }
+        if (changed) {
+            logger.info("Catalog changed outside this application, refreshing caches");
+            fireCatalogReloaded();
+        }
+        return current;
+    }
+    
+    /**
+     * Get the snapshot to read pages and counts from, or null to use the database
+     * At most once per check interval the book and staff versions are compared
+     * with the snapshot's. If either differs, and not only through rows this
+     * client updated in place since the last check, the snapshot stops being
+     * served and is rewritten, and listeners reload. One reader runs the queries while
+     * the others keep the snapshot; an unreachable database keeps it too.
+     */
+    private CatalogSnapshot currentSnapshot() {
+        if (OfflineMode.isActive()) {
+            return CatalogSnapshotManager.offlineSnapshot();
+        }
+        CatalogSnapshot snapshot = CatalogSnapshotManager.servingSnapshot();
+        if (snapshot == null) {
+            return snapshot;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (snapshotLock) {
+            if (checkingSnapshot || now - lastSnapshotCheck < Constants.CATALOG_VERSION_CHECK_INTERVAL_MS) {
+                return snapshot;
+            }
+            checkingSnapshot = true;
+        }
+        
+        CatalogVersion books = null;
+        CatalogVersion staff = null;
+        try {
+            books = getCatalogVersion();
+            staff = books != null ? getStaffVersion() : null;
+        } finally {
+            synchronized (snapshotLock) {
+                checkingSnapshot = false;
+                lastSnapshotCheck = now;
+            }
+        }
+        if (books == null || staff == null ||
+            (books.equals(snapshot.getBookVersion()) && staff.equals(snapshot.getStaffVersion()))) {
+            return snapshot;
+        }
+        // Our own updates laid over the snapshot moved the versions on
+        if (snapshot.adoptVersions(books, staff)) {
+            return snapshot;
+        }
+        logger.info("Catalog changed outside this application, no longer serving the snapshot");
+        fireCatalogReloaded();
+        return null;
+    }
+    
+    /**
+     * Our own write changed the version, so adopt the new one on the next read
+     */
+    private void forgetVersion() {
+        synchronized (versionLock) {
+            knownVersion = null;
+            lastVersionCheck = 0;
+            versionGeneration++;
+        }
+    }
+    
+    private void invalidateBook(int bookId) {
+        epoch.incrementAndGet();
+        booksById.remove(bookId);
+        booksByIsbn.removeIf(book -> book.getBookId() == bookId);
+        invalidateQueries();
+    }
+    
+    private void invalidateQueries() {
+        epoch.incrementAndGet();
+        searchResults.clear();
+        allBooks.clear();
+        forgetVersion();
+    }
+    
+    private void invalidateAll() {
+        booksById.clear();
+        booksByIsbn.clear();
+        invalidateQueries();
+    }
+    
+    private void cacheBook(Book book, long loadEpoch) {
+        if (epoch.get() != loadEpoch) {
+            return;
+        }
+        booksById.put(book.getBookId(), book);
+        long isbn = Isbn.parse(book.getIsbn());
+        if (isbn != Isbn.INVALID) {
+            booksByIsbn.put(isbn, book);
+        }
+    }
+    
+    private static List<Book> copyAll(List<Book> books) {
+        List<Book> copies = new ArrayList<>(books.size());
+        for (Book book : books) {
+            copies.add(new Book(book));
+        }
+        return copies;
+    }
+    
+    // ==================== STATISTICS ====================
+    
+    private static long estimateSize(Book book) {
+        return BOOK_BYTES + estimateSize(book.getTitle()) + estimateSize(book.getAuthor()) +
+               estimateSize(book.getIsbn()) + estimateSize(book.getStatus());
+    }
+    
+    private static long estimateSize(List<Book> books) {
+        long bytes = 16 + 8L * books.size();
+        for (Book book : books) {
+            bytes += estimateSize(book);
+        }
+        return bytes;
+    }
+    
+    private static long estimateSize(String value) {
+        return value == null ? 0 : STRING_BYTES + value.length();
+    }
+    
+    /**
+     * Combined hit ratio of all catalog caches
+     */
+    public double getHitRatio() {
+        long hits = booksById.getHits() + booksByIsbn.getHits() + searchResults.getHits() + allBooks.getHits();
+        long misses = booksById.getMisses() + booksByIsbn.getMisses() + searchResults.getMisses() + allBooks.getMisses();
+        return hits + misses == 0 ? 0.0 : (double) hits / (hits + misses);
+    }
+    
+    /**
+     * Estimated heap held by the caches, in bytes
+     */
+    public long getEstimatedBytes() {
+        return booksById.getEstimatedBytes() + booksByIsbn.getEstimatedBytes() +
+               searchResults.getEstimatedBytes() + allBooks.getEstimatedBytes();
+    }
+    
+    /**
+     * Get cache statistics summary
+     */
+    public String getCacheStats() {
+        return booksById.getStats() + "\n" + booksByIsbn.getStats() + "\n" +
+               searchResults.getStats() + "\n" + allBooks.getStats();
+    }
+}
@@ -0,0 +1,67 @@
+package database;
+
+import models.Book;
+import models.Staff;
+
+/**
+ * Listener notified after catalog and staff writes succeed
+ * Used to keep in-process indexes, caches and summaries in step with the database
+ */
+public interface CatalogChangeListener {
+    
+    /**
+     * Book was inserted; the book carries its generated id
+     */
+    default void bookAdded(Book book) {}
+    
+    /**
+     * Book was updated with the given values
+     */
+    default void bookUpdated(Book book) {}
+    
+    /**
+     * Book was updated; previous holds the row as it was before the update
+     */
+    default void bookUpdated(Book previous, Book book) {
+        bookUpdated(book);
+    }
+    
+    /**
+     * Book was deleted
+     */
+    default void bookDeleted(int bookId) {}
+    
+    /**
+     * Book was deleted; previous holds the row as it was before the delete
+     */
+    default void bookDeleted(Book previous) {
+        bookDeleted(previous.getBookId());
+    }
+    
+    /**
+     * Many books changed at once, e.g. after a bulk import
+     */
+    default void catalogReloaded() {}
+    
+    /**
+     * Staff member was inserted with the given values
+     */
+    default void staffAdded(Staff staff) {}
+    
+    /**
+     * Staff member was updated with the given values
+     */
+    default void staffUpdated(Staff staff) {}
+    
+    /**
+     * Staff member was updated; previous holds the row as it was before the update
+     */
+    default void staffUpdated(Staff previous, Staff staff) {
+        staffUpdated(staff);
+    }
+    
+    /**
+     * Staff member was deleted; previous holds the row as it was before the delete
+     */
+    default void staffDeleted(Staff previous) {}
+}
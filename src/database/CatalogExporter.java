@@ -0,0 +1,465 @@
+package database;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming exporter for the book and staff tables
+ * Rows are read through a cursor in primary key order and formatted into
+ * chunks. Each chunk is encoded, and compressed into its own gzip member,
+ * on a worker thread; concatenated members form a valid gzip file. Chunks
+ * are written in order through a file channel with only a few in flight,
+ * so memory stays bounded. After each chunk a checkpoint records the last
+ * exported id and the file length, and an interrupted export resumes from
+ * there.
+ */
+public class CatalogExporter {
+    private static final Logger logger = Logger.getLogger(CatalogExporter.class.getName());
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    
+    /**
+     * Tables that can be exported; the mapper's first column is the primary key
+     */
+    public enum Table {
+        BOOKS("Books", "books_table", RowMapper.BOOK),
+        STAFF("Staff", "staff_table", RowMapper.STAFF);
+        
+        private final String displayName;
+        private final String tableName;
+        private final RowMapper<?> mapper;
+        
+        Table(String displayName, String tableName, RowMapper<?> mapper) {
+            this.displayName = displayName;
+            this.tableName = tableName;
+            this.mapper = mapper;
+        }
+        
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+    
+    /**
+     * Output formats
+     */
+    public enum Format {
+        CSV("CSV", ".csv"),
+        JSONL("JSON Lines", ".jsonl");
+        
+        private final String displayName;
+        private final String extension;
+        
+        Format(String displayName, String extension) {
+            this.displayName = displayName;
+            this.extension = extension;
+        }
+        
+        public String getExtension() {
+            return extension;
+        }
+        
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+    
+    /**
+     * Receives progress after each chunk is written
+     */
+    public interface ExportListener {
+        void progress(long rowsExported, long bytesWritten);
+    }
+    
+    /**
+     * Final counts of an export run
+     */
+    public static class ExportResult {
+        private final long rowsExported;
+        private final long rowsResumed;
+        private final long bytesWritten;
+        private final long elapsedMillis;
+        
+        ExportResult(long rowsExported, long rowsResumed, long bytesWritten, long elapsedMillis) {
+            this.rowsExported = rowsExported;
+            this.rowsResumed = rowsResumed;
+            this.bytesWritten = bytesWritten;
+            this.elapsedMillis = elapsedMillis;
+        }
+        
+        /** Rows in the file, including any written before a resume */
+        public long getRowsExported() { return rowsExported; }
+        /** Rows already in the file when this run resumed it */
+        public long getRowsResumed() { return rowsResumed; }
+        public long getBytesWritten() { return bytesWritten; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        
+        public double getRowsPerSecond() {
+            long rows = rowsExported - rowsResumed;
+            return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("ExportResult{rows=%d, resumed=%d, bytes=%d, elapsed=%dms, rate=%.0f rows/s}",
+                                 rowsExported, rowsResumed, bytesWritten, elapsedMillis, getRowsPerSecond());
+        }
+    }
+    
+    /**
+     * Chunk being encoded; written once its data is ready
+     */
+    private static class Chunk {
+        final long rows;
+        final long lastId;
+        final Future<ByteBuffer> data;
+        
+        Chunk(long rows, long lastId, Future<ByteBuffer> data) {
+            this.rows = rows;
+            this.lastId = lastId;
+            this.data = data;
+        }
+    }
+    
+    private final DatabaseConnection dbConnection;
+    private final int chunkRows;
+    private final int threads;
+    
+    // State of the run in progress
+    private ExecutorService encoders;
+    private FileChannel channel;
+    private ArrayDeque<Chunk> inFlight;
+    private Path checkpoint;
+    private Properties settings;
+    private long rowsWritten;
+    
+    public CatalogExporter(int chunkRows, int threads) {
+        this.dbConnection = DatabaseConnection.getInstance();
+        this.chunkRows = chunkRows;
+        this.threads = Math.max(1, threads);
+    }
+    
+    /**
+     * Export a whole table, resuming from a matching checkpoint next to the file
+     * Interrupting the calling thread stops the export and keeps the checkpoint.
+     */
+    public ExportResult export(Table table, Format format, boolean gzip, Path file, ExportListener listener)
+            throws IOException, SQLException {
+        long startTime = System.currentTimeMillis();
+        checkpoint = checkpointFor(file);
+        settings = new Properties();
+        settings.setProperty("table", table.name());
+        settings.setProperty("format", format.name());
+        settings.setProperty("gzip", String.valueOf(gzip));
+        
+        Properties resumed = readCheckpoint(file, settings);
+        long afterId = resumed != null ? Long.parseLong(resumed.getProperty("lastId")) : 0;
+        long resumedBytes = resumed != null ? Long.parseLong(resumed.getProperty("bytes")) : 0;
+        long resumedRows = resumed != null ? Long.parseLong(resumed.getProperty("rows")) : 0;
+        rowsWritten = resumedRows;
+        inFlight = new ArrayDeque<>();
+        encoders = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "export-encoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        String sql = "SELECT " + table.mapper.columnList() + " FROM " + table.tableName +
+                     " WHERE " + table.mapper.columns()[0] + " > ? ORDER BY " + table.mapper.columns()[0];
+        
+        try (FileChannel output = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = DatabaseOperations.prepareStreaming(conn, sql)) {
+            channel = output;
+            channel.truncate(resumedBytes);
+            channel.position(resumedBytes);
+            if (resumed != null) {
+                logger.info("Resuming export to " + file + " after id " + afterId + " (" + resumedRows + " rows)");
+            } else if (format == Format.CSV) {
+                submit(csvHeader(table.mapper.columns()), 0, afterId, gzip, listener);
+            }
+            
+            pstmt.setLong(1, afterId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int[] index = table.mapper.resolve(rs);
+                boolean[] numeric = numericColumns(rs.getMetaData(), index);
+                String[] names = table.mapper.columns();
+                StringBuilder text = new StringBuilder(chunkRows * 128);
+                long rows = 0;
+                long lastId = afterId;
+                
+                while (rs.next()) {
+                    lastId = rs.getLong(index[0]);
+                    if (format == Format.CSV) {
+                        appendCsv(text, rs, index);
+                    } else {
+                        appendJson(text, rs, index, names, numeric);
+                    }
+                    if (++rows == chunkRows) {
+                        submit(text.toString(), rows, lastId, gzip, listener);
+                        text.setLength(0);
+                        rows = 0;
+                    }
+                }
+                if (rows > 0) {
+                    submit(text.toString(), rows, lastId, gzip, listener);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                writeNext(listener);
+            }
+            output.force(false);
+        } finally {
+            encoders.shutdownNow();
+            encoders = null;
+            channel = null;
+            inFlight = null;
+        }
+        
+        Files.deleteIfExists(checkpoint);
+        ExportResult result = new ExportResult(rowsWritten, resumedRows, Files.size(file),
+                                               System.currentTimeMillis() - startTime);
+        logger.info("Exported " + table + " to " + file + ": " + result);
+        return result;
+    }
+    
+    /**
+     * Check whether an interrupted export left a checkpoint for the file
+     */
+    public static boolean hasCheckpoint(Path file) {
+        return Files.exists(checkpointFor(file));
+    }
+    
+    /**
+     * Forget an interrupted export so the next one starts over
+     */
+    public static void discardCheckpoint(Path file) throws IOException {
+        Files.deleteIfExists(checkpointFor(file));
+    }
+    
+    private static Path checkpointFor(Path file) {
+        return file.resolveSibling(file.getFileName() + CHECKPOINT_SUFFIX);
+    }
+    
+    // ==================== PIPELINE ====================
+    
+    /**
+     * Hand a chunk to the encoders, first writing the oldest one if too many are in flight
+     */
+    private void submit(String text, long rows, long lastId, boolean gzip, ExportListener listener)
+            throws IOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Export cancelled");
+        }
+        while (inFlight.size() >= threads * 2) {
+            writeNext(listener);
+        }
+        inFlight.add(new Chunk(rows, lastId, encoders.submit(() -> encode(text, gzip))));
+    }
+    
+    private void writeNext(ExportListener listener) throws IOException {
+        Chunk chunk = inFlight.poll();
+        ByteBuffer data;
+        try {
+            data = chunk.data.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export cancelled");
+        } catch (ExecutionException e) {
+            throw new IOException("Could not encode export chunk", e.getCause());
+        }
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+        rowsWritten += chunk.rows;
+        writeCheckpoint(chunk.lastId, channel.position());
+        listener.progress(rowsWritten, channel.position());
+    }
+    
+    /**
+     * Encode a chunk as UTF-8, as a complete gzip member when compressing
+     */
+    private static ByteBuffer encode(String text, boolean gzip) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (!gzip) {
+            return ByteBuffer.wrap(bytes);
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (OutputStream out = new GZIPOutputStream(compressed, 64 * 1024)) {
+            out.write(bytes);
+        }
+        return ByteBuffer.wrap(compressed.toByteArray());
+    }
+    
+    // ==================== CHECKPOINTS ====================
+    
+    /**
+     * Write the checkpoint beside the file and move it into place atomically
+     * The data is not forced first; a file shorter than its checkpoint is
+     * detected on resume and exported again from the start.
+     */
+    private void writeCheckpoint(long lastId, long bytes) throws IOException {
+        Properties state = new Properties();
+        state.putAll(settings);
+        state.setProperty("lastId", String.valueOf(lastId));
+        state.setProperty("bytes", String.valueOf(bytes));
+        state.setProperty("rows", String.valueOf(rowsWritten));
+        
+        Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            state.store(writer, "Export checkpoint");
+        }
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Read a checkpoint that matches these settings and the file on disk, or null
+     */
+    private Properties readCheckpoint(Path file, Properties expected) {
+        if (!Files.exists(checkpoint)) {
+            return null;
+        }
+        Properties state = new Properties();
+        try (Reader reader = Files.newBufferedReader(checkpoint, StandardCharsets.UTF_8)) {
+            state.load(reader);
+            for (String key : expected.stringPropertyNames()) {
+                if (!expected.getProperty(key).equals(state.getProperty(key))) {
+                    logger.info("Ignoring export checkpoint for different settings: " + checkpoint);
+                    return null;
+                }
+            }
+            long bytes = Long.parseLong(state.getProperty("bytes"));
+            Long.parseLong(state.getProperty("lastId"));
+            Long.parseLong(state.getProperty("rows"));
+            if (!Files.exists(file) || Files.size(file) < bytes) {
+                logger.warning("Export file is shorter than its checkpoint; starting over: " + file);
+                return null;
+            }
+            return state;
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Ignoring unreadable export checkpoint " + checkpoint + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    // ==================== FORMATTING ====================
+    
+    private static boolean[] numericColumns(ResultSetMetaData metaData, int[] index) throws SQLException {
+        boolean[] numeric = new boolean[index.length];
+        for (int i = 0; i < index.length; i++) {
+            switch (metaData.getColumnType(index[i])) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    numeric[i] = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return numeric;
+    }
+    
+    private static String csvHeader(String[] columns) {
+        return String.join(",", columns) + "\r\n";
+    }
+    
+    /**
+     * Append one CSV record, quoting fields that contain separators, quotes or line breaks
+     */
+    static void appendCsv(StringBuilder out, ResultSet rs, int[] index) throws SQLException {
+        for (int i = 0; i < index.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            String value = rs.getString(index[i]);
+            if (value == null) {
+                continue;
+            }
+            boolean quote = false;
+            for (int c = 0; c < value.length() && !quote; c++) {
+                char ch = value.charAt(c);
+                quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+            }
+            if (quote) {
+                out.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                out.append(value);
+            }
+        }
+        out.append("\r\n");
+    }
+    
+    /**
+     * Append one JSON object on its own line
+     */
+    static void appendJson(StringBuilder out, ResultSet rs, int[] index, String[] names, boolean[] numeric)
+            throws SQLException {
+        out.append('{');
+        for (int i = 0; i < index.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('"').append(names[i]).append("\":");
+            String value = rs.getString(index[i]);
+            if (value == null) {
+                out.append("null");
+            } else if (numeric[i]) {
+                out.append(value);
+            } else {
+                appendJsonString(out, value);
+            }
+        }
+        out.append("}\n");
+    }
+    
+    private static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,394 @@
+package database;
+
+import models.Book;
+import utils.Constants;
+import utils.Isbn;
+import utils.ValidationUtils;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Streaming CSV importer for the book catalog
+ * Reads title,author,isbn,quantity rows, validates them and upserts them
+ * with batched statements in chunked transactions. Memory use is bounded by
+ * the commit size regardless of file size. The quantity in a file is the
+ * number of copies owned; for a book already in the catalog the copies on
+ * loan are subtracted, so the shelf count stays right.
+ */
+public class CatalogImporter {
+    private static final Logger logger = Logger.getLogger(CatalogImporter.class.getName());
+    
+    private static final String[] HEADER = {"title", "author", "isbn", "quantity"};
+    
+    private static final String UPSERT_SQL =
+        "INSERT INTO books_table (title, author, isbn, quantity, status) VALUES (?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE title = VALUES(title), author = VALUES(author), " +
+        "quantity = VALUES(quantity), status = VALUES(status)";
+    // The upsert cannot read loans_table for the row it updates, so loans are subtracted after it.
+    // Status is assigned after quantity so it sees the new shelf count, as MySQL applies assignments in order.
+    private static final String SUBTRACT_LOANS_SQL =
+        "UPDATE books_table SET quantity = GREATEST(0, quantity - (SELECT COUNT(*) FROM loans_table l " +
+        "WHERE l.book_id = books_table.book_id AND l.return_date IS NULL)), " +
+        "status = IF(quantity > 0, 'AVAILABLE', 'OUT_OF_STOCK') " +
+        "WHERE EXISTS (SELECT 1 FROM loans_table l WHERE l.book_id = books_table.book_id AND l.return_date IS NULL) " +
+        "AND isbn IN ";
+    
+    /**
+     * Receives progress and rejected rows while an import runs
+     */
+    public interface ImportListener {
+        /**
+         * bytesRead counts bytes taken from the file; it runs ahead of linesRead by the reader's buffer
+         */
+        void progress(long linesRead, long bytesRead, long imported, long rejected);
+        
+        void rowRejected(long lineNumber, String line, String reason);
+    }
+    
+    /**
+     * Final counts of an import run
+     */
+    public static class ImportResult {
+        private final long linesRead;
+        private final long imported;
+        private final long rejected;
+        private final long elapsedMillis;
+        
+        ImportResult(long linesRead, long imported, long rejected, long elapsedMillis) {
+            this.linesRead = linesRead;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.elapsedMillis = elapsedMillis;
+        }
+        
+        public long getLinesRead() { return linesRead; }
+        public long getImported() { return imported; }
+        public long getRejected() { return rejected; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        
+        public double getRowsPerSecond() {
+            return elapsedMillis == 0 ? imported : imported * 1000.0 / elapsedMillis;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("ImportResult{lines=%d, imported=%d, rejected=%d, elapsed=%dms, rate=%.0f rows/s}",
+                                 linesRead, imported, rejected, elapsedMillis, getRowsPerSecond());
+        }
+    }
+    
+    /**
+     * Counts the encoded bytes read through it, whatever the charset and line endings
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+        
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+        
+        long getCount() {
+            return count;
+        }
+    }
+    
+    /**
+     * Parsed row waiting in the current chunk
+     */
+    private static class PendingRow {
+        final long lineNumber;
+        final String line;
+        final Book book;
+        
+        PendingRow(long lineNumber, String line, Book book) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.book = book;
+        }
+    }
+    
+    private final DatabaseConnection dbConnection;
+    private final int batchSize;
+    private final int commitSize;
+    
+    // Counters for the run in progress
+    private long linesRead;
+    private long bytesRead;
+    private long imported;
+    private long rejected;
+    
+    public CatalogImporter(int batchSize, int commitSize) {
+        this.dbConnection = DatabaseConnection.getInstance();
+        this.batchSize = batchSize;
+        this.commitSize = Math.max(commitSize, batchSize);
+    }
+    
+    /**
+     * Import a CSV file, skipping a title,author,isbn[,quantity] header on the first line
+     */
+    public ImportResult importCsv(Path file, ImportListener listener) throws IOException, SQLException {
+        long startTime = System.currentTimeMillis();
+        linesRead = 0;
+        bytesRead = 0;
+        imported = 0;
+        rejected = 0;
+        
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder buffer = new StringBuilder(256);
+        List<PendingRow> chunk = new ArrayList<>(commitSize);
+        
+        try (CountingInputStream input = new CountingInputStream(Files.newInputStream(file));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8.newDecoder()));
+             Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+            
+            conn.setAutoCommit(false);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                linesRead++;
+                bytesRead = input.getCount();
+                
+                if (line.trim().isEmpty() || (linesRead == 1 && isHeader(line, fields, buffer))) {
+                    continue;
+                }
+                
+                String reason = parseLine(line, fields, buffer);
+                Book book = reason == null ? toBook(fields) : null;
+                if (reason == null && book == null) {
+                    reason = "Invalid quantity";
+                }
+                if (reason == null && !ValidationUtils.isValidBook(book)) {
+                    reason = "Failed book validation";
+                }
+                if (reason != null) {
+                    reject(listener, linesRead, line, reason);
+                    continue;
+                }
+                
+                chunk.add(new PendingRow(linesRead, line, book));
+                if (chunk.size() >= commitSize) {
+                    flushChunk(conn, pstmt, chunk, listener);
+                    listener.progress(linesRead, bytesRead, imported, rejected);
+                }
+            }
+            
+            flushChunk(conn, pstmt, chunk, listener);
+            bytesRead = input.getCount();
+            listener.progress(linesRead, bytesRead, imported, rejected);
+        }
+        
+        if (imported > 0) {
+            DatabaseOperations.fireCatalogReloaded();
+        }
+        
+        ImportResult result = new ImportResult(linesRead, imported, rejected,
+                                               System.currentTimeMillis() - startTime);
+        logger.info("Catalog import of " + file.getFileName() + " finished: " + result);
+        return result;
+    }
+    
+    /**
+     * Write a chunk in batches and commit it as one transaction
+     * On failure the chunk is rolled back and retried row by row to isolate bad rows
+     */
+    private void flushChunk(Connection conn, PreparedStatement pstmt, List<PendingRow> chunk,
+                            ImportListener listener) throws SQLException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        
+        try {
+            int inBatch = 0;
+            for (PendingRow row : chunk) {
+                bind(pstmt, row.book);
+                pstmt.addBatch();
+                if (++inBatch == batchSize) {
+                    pstmt.executeBatch();
+                    inBatch = 0;
+                }
+            }
+            if (inBatch > 0) {
+                pstmt.executeBatch();
+            }
+            subtractOpenLoans(conn, chunk);
+            conn.commit();
+            imported += chunk.size();
+        } catch (BatchUpdateException e) {
+            logger.log(Level.WARNING, "Batch failed, retrying chunk of " + chunk.size() + " rows individually", e);
+            conn.rollback();
+            pstmt.clearBatch();
+            retryIndividually(conn, pstmt, chunk, listener);
+        }
+        chunk.clear();
+    }
+    
+    private void retryIndividually(Connection conn, PreparedStatement pstmt, List<PendingRow> chunk,
+                                   ImportListener listener) throws SQLException {
+        List<PendingRow> written = new ArrayList<>(chunk.size());
+        for (PendingRow row : chunk) {
+            try {
+                bind(pstmt, row.book);
+                pstmt.executeUpdate();
+                written.add(row);
+                imported++;
+            } catch (SQLException e) {
+                reject(listener, row.lineNumber, row.line, e.getMessage());
+            }
+        }
+        subtractOpenLoans(conn, written);
+        conn.commit();
+    }
+    
+    /**
+     * Take the copies on loan off the quantities just written, in the same transaction
+     * New books have no loans, so only books already in the catalog change.
+     */
+    private void subtractOpenLoans(Connection conn, List<PendingRow> rows) throws SQLException {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (PendingRow row : rows) {
+            distinct.add(row.book.getIsbn());
+        }
+        List<String> isbns = new ArrayList<>(distinct);
+        for (int from = 0; from < isbns.size(); from += Constants.BULK_CHUNK_SIZE) {
+            List<String> part = isbns.subList(from, Math.min(from + Constants.BULK_CHUNK_SIZE, isbns.size()));
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                     SUBTRACT_LOANS_SQL + DatabaseOperations.placeholders(part.size()))) {
+                for (int i = 0; i < part.size(); i++) {
+                    pstmt.setString(i + 1, part.get(i));
+                }
+                pstmt.executeUpdate();
+            }
+        }
+    }
+    
+    private void bind(PreparedStatement pstmt, Book book) throws SQLException {
+        pstmt.setString(1, book.getTitle());
+        pstmt.setString(2, book.getAuthor());
+        pstmt.setString(3, book.getIsbn());
+        pstmt.setInt(4, book.getQuantity());
+        pstmt.setString(5, book.getQuantity() > 0 ? "AVAILABLE" : "OUT_OF_STOCK");
+    }
+    
+    private void reject(ImportListener listener, long lineNumber, String line, String reason) {
+        rejected++;
+        listener.rowRejected(lineNumber, line, reason);
+    }
+    
+    /**
+     * Check whether every column of the line is the column name, in any case
+     * A first row like "Title of the book,..." is a book, not a header.
+     */
+    private boolean isHeader(String line, List<String> fields, StringBuilder buffer) {
+        if (parseLine(line, fields, buffer) != null) {
+            return false;
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            if (!fields.get(i).equalsIgnoreCase(HEADER[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Build a book from title, author, isbn and optional quantity fields
+     * Returns null when the quantity is not a number
+     */
+    private Book toBook(List<String> fields) {
+        int quantity = 1;
+        if (fields.size() > 3 && !fields.get(3).isEmpty()) {
+            try {
+                quantity = Integer.parseInt(fields.get(3));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        // Store ISBN-10 and hyphenated forms as plain ISBN-13 so upserts match
+        return new Book(fields.get(0), fields.get(1), Isbn.normalize(fields.get(2)), quantity);
+    }
+    
+    /**
+     * Split one CSV line into trimmed fields, honouring quotes
+     * Returns an error message, or null when the line parsed
+     */
+    static String parseLine(String line, List<String> fields, StringBuilder buffer) {
+        fields.clear();
+        buffer.setLength(0);
+        boolean quoted = false;
+        
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        buffer.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    buffer.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(buffer.toString().trim());
+                buffer.setLength(0);
+            } else {
+                buffer.append(c);
+            }
+        }
+        
+        if (quoted) {
+            return "Unterminated quoted field";
+        }
+        fields.add(buffer.toString().trim());
+        
+        if (fields.size() < 3 || fields.size() > 4) {
+            return "Expected title,author,isbn[,quantity] but found " + fields.size() + " fields";
+        }
+        return null;
+    }
+}
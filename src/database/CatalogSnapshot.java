@@ -0,0 +1,554 @@
+package database;
+
+import database.DatabaseOperations.CatalogVersion;
+import models.Book;
+import models.CompactBookStore;
+import models.Staff;
+import utils.Constants;
+import utils.Isbn;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Read-only, memory-mapped copy of the books and staff tables
+ * Rows are stored in the same (title, book_id) and (name, staff_id) order as
+ * the paged queries, with an offset table for positional access and an id
+ * table for keyset access. The header records the table versions the copy
+ * was taken at, so it can be checked against the database later. The file
+ * is created readable only by its owner, as it holds staff records.
+ *
+ * Rows updated in place after the copy are held in memory and laid over
+ * the mapped records, as long as the update leaves the row where it was in
+ * the sort order; CatalogSnapshotManager decides which updates qualify.
+ *
+ * Layout: a fixed header, book records, staff records, then per table an
+ * int offset per row and (id, row) pairs sorted by id. Strings are an int
+ * byte length, -1 for null, followed by UTF-8 bytes.
+ */
+public class CatalogSnapshot {
+    private static final Logger logger = Logger.getLogger(CatalogSnapshot.class.getName());
+    
+    private static final int MAGIC = 0x4C4D5353;
+    private static final int FORMAT_VERSION = 3;
+    private static final int HEADER_SIZE = 96;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    
+    // Header field positions
+    private static final int CREATED_AT = 8;
+    private static final int BOOK_VERSION = 16;
+    private static final int STAFF_VERSION = 32;
+    private static final int BOOK_OFFSETS = 48;
+    private static final int BOOK_IDS = 52;
+    private static final int STAFF_OFFSETS = 56;
+    private static final int STAFF_IDS = 60;
+    private static final int FILE_LENGTH = 64;
+    
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final long createdAt;
+    private final int bookCount;
+    private final int staffCount;
+    private final int bookOffsets;
+    private final int bookIds;
+    private final int staffOffsets;
+    private final int staffIds;
+    
+    // Rows updated since the copy was taken, and the table versions that include them
+    private final Map<Integer, Book> updatedBooks = new ConcurrentHashMap<>();
+    private final Map<Integer, Staff> updatedStaff = new ConcurrentHashMap<>();
+    private volatile CatalogVersion bookVersion;
+    private volatile CatalogVersion staffVersion;
+    private volatile boolean updatedSinceAdopt;
+    
+    private CatalogSnapshot(Path file, ByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+        this.createdAt = buffer.getLong(CREATED_AT);
+        this.bookVersion = readVersion(buffer, BOOK_VERSION);
+        this.staffVersion = readVersion(buffer, STAFF_VERSION);
+        this.bookCount = bookVersion.getRowCount();
+        this.staffCount = staffVersion.getRowCount();
+        this.bookOffsets = buffer.getInt(BOOK_OFFSETS);
+        this.bookIds = buffer.getInt(BOOK_IDS);
+        this.staffOffsets = buffer.getInt(STAFF_OFFSETS);
+        this.staffIds = buffer.getInt(STAFF_IDS);
+    }
+    
+    /**
+     * Map a snapshot file
+     * Returns null if the file is missing, truncated or of another format
+     */
+    public static CatalogSnapshot open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION ||
+                buffer.getInt(FILE_LENGTH) != size) {
+                logger.warning("Ignoring incompatible catalog snapshot: " + file);
+                return null;
+            }
+            return new CatalogSnapshot(file, buffer);
+        } catch (IOException e) {
+            logger.warning("Could not open catalog snapshot " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Copy both tables from the database into a new snapshot file
+     * Rows are read with the keyset page queries. The table versions are read
+     * before and after the copy, and the copy is rejected if they differ, if
+     * a row count does not match, or if a query failed part way.
+     */
+    public static void write(Path file, DatabaseOperations dbOperations) throws IOException {
+        CatalogVersion bookVersion = dbOperations.getCatalogVersion();
+        CatalogVersion staffVersion = dbOperations.getStaffVersion();
+        if (bookVersion == null || staffVersion == null) {
+            throw new IOException("Could not read table versions");
+        }
+        
+        int batchSize = Constants.SNAPSHOT_BATCH_SIZE;
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        OfflineMode.createPrivateFile(temp);
+        int bookCount = 0;
+        int staffCount = 0;
+        int bookOffsets;
+        int bookIds;
+        int staffOffsets;
+        int staffIds;
+        
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(Files.newOutputStream(temp, StandardOpenOption.TRUNCATE_EXISTING), 1 << 16))) {
+            out.write(new byte[HEADER_SIZE]);
+            
+            // Book records in (title, book_id) order
+            int[] bookRows = new int[Math.max(16, bookVersion.getRowCount())];
+            int[] bookIdList = new int[bookRows.length];
+            List<Book> page = checked(dbOperations.getBooksPage(null, 0, batchSize));
+            while (!page.isEmpty()) {
+                for (Book book : page) {
+                    if (bookCount == bookRows.length) {
+                        bookRows = Arrays.copyOf(bookRows, bookCount * 2);
+                        bookIdList = Arrays.copyOf(bookIdList, bookCount * 2);
+                    }
+                    bookRows[bookCount] = out.size();
+                    bookIdList[bookCount++] = book.getBookId();
+                    out.writeInt(book.getBookId());
+                    out.writeInt(book.getQuantity());
+                    out.writeLong(book.getDateAdded() == null ? NO_TIME : book.getDateAdded().getTime());
+                    writeString(out, book.getTitle());
+                    writeString(out, book.getAuthor());
+                    writeString(out, book.getIsbn());
+                    writeString(out, book.getStatus());
+                }
+                if (page.size() < batchSize) {
+                    break;
+                }
+                Book last = page.get(page.size() - 1);
+                page = checked(dbOperations.getBooksPage(last.getTitle(), last.getBookId(), batchSize));
+            }
+            
+            // Staff records in (name, staff_id) order
+            int[] staffRows = new int[Math.max(16, staffVersion.getRowCount())];
+            int[] staffIdList = new int[staffRows.length];
+            List<Staff> staffPage = checked(dbOperations.getStaffPage(null, 0, batchSize));
+            while (!staffPage.isEmpty()) {
+                for (Staff staff : staffPage) {
+                    if (staffCount == staffRows.length) {
+                        staffRows = Arrays.copyOf(staffRows, staffCount * 2);
+                        staffIdList = Arrays.copyOf(staffIdList, staffCount * 2);
+                    }
+                    staffRows[staffCount] = out.size();
+                    staffIdList[staffCount++] = staff.getStaffId();
+                    out.writeInt(staff.getStaffId());
+                    out.writeLong(staff.getHireDate() == null ? NO_TIME : staff.getHireDate().getTime());
+                    writeString(out, staff.getName());
+                    writeString(out, staff.getRole());
+                    writeString(out, staff.getStatus());
+                    writeString(out, staff.getEmail());
+                    writeString(out, staff.getPhone());
+                }
+                if (staffPage.size() < batchSize) {
+                    break;
+                }
+                Staff last = staffPage.get(staffPage.size() - 1);
+                staffPage = checked(dbOperations.getStaffPage(last.getName(), last.getStaffId(), batchSize));
+            }
+            
+            bookOffsets = writeOffsets(out, bookRows, bookCount);
+            bookIds = writeIdIndex(out, bookIdList, bookCount);
+            staffOffsets = writeOffsets(out, staffRows, staffCount);
+            staffIds = writeIdIndex(out, staffIdList, staffCount);
+            // The byte counter stops at Integer.MAX_VALUE, past what an int offset can address
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Catalog too large for a snapshot");
+            }
+        }
+        
+        if (bookCount != bookVersion.getRowCount() || staffCount != staffVersion.getRowCount() ||
+            !bookVersion.equals(dbOperations.getCatalogVersion()) ||
+            !staffVersion.equals(dbOperations.getStaffVersion())) {
+            Files.deleteIfExists(temp);
+            throw new IOException("Tables changed or could not be read while writing the snapshot");
+        }
+        
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(System.currentTimeMillis());
+            putVersion(header, bookVersion);
+            putVersion(header, staffVersion);
+            header.putInt(bookOffsets).putInt(bookIds).putInt(staffOffsets).putInt(staffIds)
+                  .putInt((int) channel.size());
+            header.rewind();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Wrote catalog snapshot with " + bookCount + " books and " + staffCount +
+                    " staff to " + file);
+    }
+    
+    /**
+     * Fail the write when a page could not be read, rather than leave the snapshot short
+     */
+    private static <T> List<T> checked(List<T> page) throws IOException {
+        if (page == null) {
+            throw new IOException("Could not read catalog page from the database");
+        }
+        return page;
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static int writeOffsets(DataOutputStream out, int[] rows, int count) throws IOException {
+        int start = out.size();
+        for (int i = 0; i < count; i++) {
+            out.writeInt(rows[i]);
+        }
+        return start;
+    }
+    
+    /**
+     * Write (id, row) pairs sorted by id
+     */
+    private static int writeIdIndex(DataOutputStream out, int[] ids, int count) throws IOException {
+        long[] pairs = new long[count];
+        for (int row = 0; row < count; row++) {
+            pairs[row] = (long) ids[row] << 32 | row;
+        }
+        Arrays.sort(pairs);
+        int start = out.size();
+        for (long pair : pairs) {
+            out.writeInt((int) (pair >>> 32));
+            out.writeInt((int) pair);
+        }
+        return start;
+    }
+    
+    private static void putVersion(ByteBuffer header, CatalogVersion version) {
+        header.putInt(version.getRowCount()).putInt(0).putLong(version.getVersion());
+    }
+    
+    private static CatalogVersion readVersion(ByteBuffer buffer, int position) {
+        return new CatalogVersion(buffer.getInt(position), buffer.getLong(position + 8));
+    }
+    
+    // ==================== READS ====================
+    
+    public Path getFile() {
+        return file;
+    }
+    
+    public long getCreatedAt() {
+        return createdAt;
+    }
+    
+    /**
+     * Get the books table version the rows served here correspond to
+     */
+    public CatalogVersion getBookVersion() {
+        return bookVersion;
+    }
+    
+    /**
+     * Get the staff table version the rows served here correspond to
+     */
+    public CatalogVersion getStaffVersion() {
+        return staffVersion;
+    }
+    
+    public int getBookCount() {
+        return bookCount;
+    }
+    
+    public int getStaffCount() {
+        return staffCount;
+    }
+    
+    // ==================== IN-PLACE UPDATES ====================
+    
+    /**
+     * Serve the given values for a book already in the snapshot
+     * The title must be unchanged, so the row keeps its position.
+     * Returns false if the book is not in the snapshot.
+     */
+    boolean updateBook(Book book) {
+        if (findRow(bookIds, bookCount, book.getBookId()) < 0) {
+            return false;
+        }
+        updatedBooks.put(book.getBookId(), new Book(book));
+        updatedSinceAdopt = true;
+        return true;
+    }
+    
+    /**
+     * Serve the given values for a staff member already in the snapshot
+     * The name must be unchanged, so the row keeps its position.
+     * Returns false if the member is not in the snapshot.
+     */
+    boolean updateStaff(Staff staff) {
+        if (findRow(staffIds, staffCount, staff.getStaffId()) < 0) {
+            return false;
+        }
+        updatedStaff.put(staff.getStaffId(), new Staff(staff));
+        updatedSinceAdopt = true;
+        return true;
+    }
+    
+    /**
+     * Take the database's table versions as this snapshot's after rows were
+     * updated in place, as those updates moved the versions on
+     * Only done when something was updated since the last call and the row
+     * counts still match; returns false otherwise.
+     */
+    boolean adoptVersions(CatalogVersion books, CatalogVersion staff) {
+        if (!updatedSinceAdopt || books.getRowCount() != bookCount || staff.getRowCount() != staffCount) {
+            return false;
+        }
+        updatedSinceAdopt = false;
+        bookVersion = books;
+        staffVersion = staff;
+        return true;
+    }
+    
+    /**
+     * Get books by row position in (title, book_id) order
+     */
+    public List<Book> getBooksAt(int offset, int limit) {
+        int end = (int) Math.min((long) offset + limit, bookCount);
+        List<Book> books = new ArrayList<>(Math.max(0, end - offset));
+        for (int row = Math.max(0, offset); row < end; row++) {
+            books.add(bookAt(buffer.getInt(bookOffsets + row * 4)));
+        }
+        return books;
+    }
+    
+    /**
+     * Get the books following the given one, or the first books when afterTitle is null
+     * Returns null if the anchor book is not in the snapshot
+     */
+    public List<Book> getBooksAfter(String afterTitle, int afterId, int limit) {
+        if (afterTitle == null) {
+            return getBooksAt(0, limit);
+        }
+        int row = findRow(bookIds, bookCount, afterId);
+        if (row < 0 || !afterTitle.equals(readString(buffer.getInt(bookOffsets + row * 4) + 16))) {
+            return null;
+        }
+        return getBooksAt(row + 1, limit);
+    }
+    
+    /**
+     * Get a book by id, or null if it is not in the snapshot
+     */
+    public Book getBookById(int bookId) {
+        int row = findRow(bookIds, bookCount, bookId);
+        return row < 0 ? null : bookAt(buffer.getInt(bookOffsets + row * 4));
+    }
+    
+    /**
+     * Get a book by ISBN, or null if it is not in the snapshot
+     * There is no ISBN index, so every row is scanned; meant for offline use.
+     */
+    public Book getBookByIsbn(String isbn) {
+        String normalized = Isbn.normalize(isbn);
+        for (Book updated : updatedBooks.values()) {
+            if (Objects.equals(normalized, Isbn.normalize(updated.getIsbn()))) {
+                return new Book(updated);
+            }
+        }
+        for (int row = 0; row < bookCount; row++) {
+            int position = buffer.getInt(bookOffsets + row * 4);
+            int isbnAt = skipString(skipString(position + 16));
+            if (Objects.equals(normalized, Isbn.normalize(readString(isbnAt))) &&
+                !updatedBooks.containsKey(buffer.getInt(position))) {
+                return readBook(position);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Get staff by row position in (name, staff_id) order
+     */
+    public List<Staff> getStaffAt(int offset, int limit) {
+        int end = (int) Math.min((long) offset + limit, staffCount);
+        List<Staff> staffList = new ArrayList<>(Math.max(0, end - offset));
+        for (int row = Math.max(0, offset); row < end; row++) {
+            staffList.add(staffAt(buffer.getInt(staffOffsets + row * 4)));
+        }
+        return staffList;
+    }
+    
+    /**
+     * Get the staff following the given member, or the first rows when afterName is null
+     * Returns null if the anchor is not in the snapshot
+     */
+    public List<Staff> getStaffAfter(String afterName, int afterId, int limit) {
+        if (afterName == null) {
+            return getStaffAt(0, limit);
+        }
+        int row = findRow(staffIds, staffCount, afterId);
+        if (row < 0 || !afterName.equals(readString(buffer.getInt(staffOffsets + row * 4) + 12))) {
+            return null;
+        }
+        return getStaffAt(row + 1, limit);
+    }
+    
+    /**
+     * Get a staff member by id, or null if they are not in the snapshot
+     */
+    public Staff getStaffById(int staffId) {
+        int row = findRow(staffIds, staffCount, staffId);
+        return row < 0 ? null : staffAt(buffer.getInt(staffOffsets + row * 4));
+    }
+    
+    /**
+     * Load every book into a compact store, in title order
+     */
+    public CompactBookStore loadBookStore() {
+        CompactBookStore store = new CompactBookStore(bookCount);
+        for (int row = 0; row < bookCount; row++) {
+            int position = buffer.getInt(bookOffsets + row * 4);
+            Book updated = updatedBooks.isEmpty() ? null : updatedBooks.get(buffer.getInt(position));
+            if (updated != null) {
+                store.put(updated.getBookId(), updated.getTitle(), updated.getAuthor(), updated.getIsbn(),
+                          updated.getQuantity(), updated.getDateAdded(), updated.getStatus());
+                continue;
+            }
+            int titleAt = position + 16;
+            int authorAt = skipString(titleAt);
+            int isbnAt = skipString(authorAt);
+            int statusAt = skipString(isbnAt);
+            long dateAdded = buffer.getLong(position + 8);
+            store.put(buffer.getInt(position), readString(titleAt), readString(authorAt), readString(isbnAt),
+                      buffer.getInt(position + 4), dateAdded == NO_TIME ? null : new Timestamp(dateAdded),
+                      readString(statusAt));
+        }
+        return store;
+    }
+    
+    /**
+     * Binary search the (id, row) pairs of one table
+     */
+    private int findRow(int index, int count, int id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = buffer.getInt(index + mid * 8);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return buffer.getInt(index + mid * 8 + 4);
+            }
+        }
+        return -1;
+    }
+    
+    private Book bookAt(int position) {
+        Book updated = updatedBooks.isEmpty() ? null : updatedBooks.get(buffer.getInt(position));
+        return updated != null ? new Book(updated) : readBook(position);
+    }
+    
+    private Staff staffAt(int position) {
+        Staff updated = updatedStaff.isEmpty() ? null : updatedStaff.get(buffer.getInt(position));
+        return updated != null ? new Staff(updated) : readStaff(position);
+    }
+    
+    private Book readBook(int position) {
+        int titleAt = position + 16;
+        int authorAt = skipString(titleAt);
+        int isbnAt = skipString(authorAt);
+        int statusAt = skipString(isbnAt);
+        long dateAdded = buffer.getLong(position + 8);
+        return new Book(buffer.getInt(position), readString(titleAt), readString(authorAt), readString(isbnAt),
+                        buffer.getInt(position + 4), dateAdded == NO_TIME ? null : new Timestamp(dateAdded),
+                        readString(statusAt));
+    }
+    
+    private Staff readStaff(int position) {
+        int nameAt = position + 12;
+        int roleAt = skipString(nameAt);
+        int statusAt = skipString(roleAt);
+        int emailAt = skipString(statusAt);
+        int phoneAt = skipString(emailAt);
+        long hireDate = buffer.getLong(position + 4);
+        return new Staff(buffer.getInt(position), readString(nameAt), readString(roleAt),
+                         hireDate == NO_TIME ? null : new Date(hireDate), readString(statusAt),
+                         readString(emailAt), readString(phoneAt));
+    }
+    
+    private int skipString(int position) {
+        return position + 4 + Math.max(0, buffer.getInt(position));
+    }
+    
+    private String readString(int position) {
+        int length = buffer.getInt(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        // A duplicate has its own position, so concurrent readers do not disturb each other
+        ByteBuffer reader = buffer.duplicate();
+        reader.position(position + 4);
+        reader.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,431 @@
+package database;
+
+import models.Book;
+import models.Staff;
+import utils.Constants;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the on-disk catalog snapshot in step with the database
+ * The newest snapshot is mapped at startup and served straight away, then
+ * checked against the table versions in the background and rewritten if it
+ * is out of date. Updates from this client that leave a row in place, such
+ * as a quantity or author change, are laid over the snapshot and it stays
+ * served; adds, deletes, renames and reloads stop serving it until it has
+ * been rewritten, so reads never mix stale rows with fresh ones. The rewrite
+ * waits for writes to settle, but never longer than
+ * SNAPSHOT_REWRITE_MAX_DELAY_MS after the first one. A write also leaves a
+ * dirty marker on disk until the rewrite lands, so a snapshot outdated by an
+ * exit before the rewrite is never taken as current.
+ */
+public class CatalogSnapshotManager implements CatalogChangeListener {
+    private static final Logger logger = Logger.getLogger(CatalogSnapshotManager.class.getName());
+    private static CatalogSnapshotManager instance;
+    
+    private final Path directory;
+    private final String filePrefix;
+    private final Path dirtyMarker;
+    private final DatabaseOperations dbOperations = new DatabaseOperations();
+    private final ScheduledExecutorService executor;
+    
+    // Bumped on every write so a rewrite that raced one is not published
+    private final AtomicLong changeCount = new AtomicLong();
+    private volatile CatalogSnapshot snapshot;
+    // The newest snapshot mapped, served or not; offline reads fall back to it
+    private volatile CatalogSnapshot lastMapped;
+    private volatile boolean verified;
+    private volatile boolean publishing;
+    private boolean markedDirty;
+    private long dirtySince;
+    private ScheduledFuture<?> pendingRewrite;
+    
+    private CatalogSnapshotManager() {
+        directory = Paths.get(System.getProperty("user.home"), Constants.SNAPSHOT_DIRECTORY);
+        // One snapshot series per database
+        String url = DatabaseConnection.getInstance().getPool().getUrl();
+        filePrefix = "catalog-" + Integer.toHexString(url.hashCode()) + "-";
+        dirtyMarker = directory.resolve(filePrefix + "dirty");
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Get singleton instance, registered for catalog changes
+     */
+    public static synchronized CatalogSnapshotManager getInstance() {
+        if (instance == null) {
+            instance = new CatalogSnapshotManager();
+            DatabaseOperations.addCatalogListener(instance);
+        }
+        return instance;
+    }
+    
+    /**
+     * Get the snapshot to serve reads from, or null if there is none or the
+     * manager was never started, e.g. in benchmarks
+     */
+    static CatalogSnapshot servingSnapshot() {
+        CatalogSnapshotManager manager;
+        synchronized (CatalogSnapshotManager.class) {
+            manager = instance;
+        }
+        return manager != null ? manager.getSnapshot() : null;
+    }
+    
+    /**
+     * Get the checked snapshot if the manager was started, or null
+     */
+    static CatalogSnapshot verifiedSnapshot() {
+        CatalogSnapshotManager manager;
+        synchronized (CatalogSnapshotManager.class) {
+            manager = instance;
+        }
+        return manager != null ? manager.getVerifiedSnapshot() : null;
+    }
+    
+    /**
+     * Get the snapshot to read from while offline, or null if there is none
+     * or the manager was never started
+     */
+    static CatalogSnapshot offlineSnapshot() {
+        CatalogSnapshotManager manager;
+        synchronized (CatalogSnapshotManager.class) {
+            manager = instance;
+        }
+        return manager != null ? manager.getOfflineSnapshot() : null;
+    }
+    
+    /**
+     * Get the snapshot to serve reads from, or null to read from the database
+     */
+    public CatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * Get the snapshot only once it has been checked against the database
+     */
+    public CatalogSnapshot getVerifiedSnapshot() {
+        return verified ? snapshot : null;
+    }
+    
+    /**
+     * Get the snapshot to read from while offline
+     * That is the served one, or else the last one mapped, which lacks the
+     * adds, deletes and renames made here since it was written. The newest
+     * file on disk is mapped if none was; null only when there is no snapshot.
+     */
+    public CatalogSnapshot getOfflineSnapshot() {
+        CatalogSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (lastMapped == null) {
+                List<Path> files = listSnapshots();
+                lastMapped = files.isEmpty() ? null : CatalogSnapshot.open(files.get(files.size() - 1));
+            }
+            return lastMapped;
+        }
+    }
+    
+    /**
+     * Map the newest snapshot on disk and start serving it
+     */
+    public void open() {
+        long start = System.nanoTime();
+        long startChanges = changeCount.get();
+        List<Path> files = listSnapshots();
+        CatalogSnapshot opened = files.isEmpty() ? null : CatalogSnapshot.open(files.get(files.size() - 1));
+        if (opened == null) {
+            logger.info("No usable catalog snapshot in " + directory);
+            return;
+        }
+        synchronized (this) {
+            lastMapped = opened;
+            if (changeCount.get() == startChanges) {
+                snapshot = opened;
+                verified = false;
+            }
+        }
+        logger.info("Mapped catalog snapshot with " + opened.getBookCount() + " books and " +
+                    opened.getStaffCount() + " staff in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+    
+    /**
+     * Compare the snapshot with the database and rewrite it if it differs
+     * Blocks on database queries, so call it off the EDT. When a stale
+     * snapshot was being served, listeners are told to reload afterwards
+     * and true is returned. A snapshot left dirty by a write it never caught
+     * up with is rewritten without comparing versions.
+     */
+    public boolean reconcile() {
+        CatalogSnapshot current = snapshot;
+        if (current != null && Files.exists(dirtyMarker)) {
+            logger.info("Catalog snapshot missed a local write, rewriting");
+            synchronized (this) {
+                if (snapshot == current) {
+                    snapshot = null;
+                }
+            }
+        } else if (current != null) {
+            DatabaseOperations.CatalogVersion books = dbOperations.getCatalogVersion();
+            DatabaseOperations.CatalogVersion staff = dbOperations.getStaffVersion();
+            if (books == null || staff == null) {
+                return false;
+            }
+            if (books.equals(current.getBookVersion()) && staff.equals(current.getStaffVersion())) {
+                verified = snapshot == current;
+                logger.info("Catalog snapshot is up to date");
+                return false;
+            }
+            logger.info("Catalog snapshot is out of date, rewriting");
+            synchronized (this) {
+                if (snapshot == current) {
+                    snapshot = null;
+                }
+            }
+        }
+        
+        // On the rewriter thread, so it never overlaps a scheduled rewrite
+        try {
+            executor.submit(this::rewrite).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException e) {
+            logger.log(Level.WARNING, "Could not rewrite catalog snapshot", e);
+        }
+        if (current == null) {
+            return false;
+        }
+        // Rows already shown came from the old snapshot
+        publishing = true;
+        try {
+            DatabaseOperations.fireCatalogReloaded();
+        } finally {
+            publishing = false;
+        }
+        return true;
+    }
+    
+    /**
+     * Write a fresh snapshot from the database and serve it
+     * Returns false if the database changed meanwhile or the write failed
+     */
+    private boolean rewrite() {
+        long startChanges = changeCount.get();
+        Path file = directory.resolve(filePrefix + System.currentTimeMillis() + ".snapshot");
+        try {
+            Files.createDirectories(directory);
+            CatalogSnapshot.write(file, dbOperations);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not write catalog snapshot", e);
+            return false;
+        }
+        
+        CatalogSnapshot written = CatalogSnapshot.open(file);
+        synchronized (this) {
+            if (written == null || changeCount.get() != startChanges) {
+                // The writes that raced this one scheduled another; give that one a full window
+                if (dirtySince != 0) {
+                    dirtySince = System.currentTimeMillis();
+                }
+                return false;
+            }
+            snapshot = written;
+            lastMapped = written;
+            verified = true;
+            clearDirty();
+        }
+        deleteOlderThan(file);
+        return true;
+    }
+    
+    /**
+     * Stop serving the snapshot and rewrite it once writes have settled
+     */
+    private synchronized void invalidate() {
+        changeCount.incrementAndGet();
+        snapshot = null;
+        verified = false;
+        markDirty();
+        scheduleRewrite();
+    }
+    
+    /**
+     * Keep serving the snapshot with the updated book laid over it
+     * An update that renames the book moves it in the title order, so the
+     * snapshot is invalidated instead.
+     */
+    private synchronized void updateInPlace(Book previous, Book book) {
+        CatalogSnapshot current = snapshot;
+        if (current == null || previous == null || !Objects.equals(previous.getTitle(), book.getTitle()) ||
+            !current.updateBook(book)) {
+            invalidate();
+            return;
+        }
+        changeCount.incrementAndGet();
+        markDirty();
+        scheduleRewrite();
+    }
+    
+    /**
+     * Keep serving the snapshot with the updated staff member laid over it,
+     * unless the name changed
+     */
+    private synchronized void updateInPlace(Staff previous, Staff staff) {
+        CatalogSnapshot current = snapshot;
+        if (current == null || previous == null || !Objects.equals(previous.getName(), staff.getName()) ||
+            !current.updateStaff(staff)) {
+            invalidate();
+            return;
+        }
+        changeCount.incrementAndGet();
+        markDirty();
+        scheduleRewrite();
+    }
+    
+    /**
+     * Rewrite once writes have been quiet for SNAPSHOT_REWRITE_DELAY_MS, or
+     * SNAPSHOT_REWRITE_MAX_DELAY_MS after the first unsaved write, whichever
+     * comes first, so a steady stream of writes cannot put it off for ever
+     */
+    private void scheduleRewrite() {
+        if (pendingRewrite != null) {
+            pendingRewrite.cancel(false);
+        }
+        long untilDeadline = dirtySince + Constants.SNAPSHOT_REWRITE_MAX_DELAY_MS - System.currentTimeMillis();
+        long delay = Math.max(0, Math.min(Constants.SNAPSHOT_REWRITE_DELAY_MS, untilDeadline));
+        pendingRewrite = executor.schedule(this::rewrite, delay, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Record on disk that the snapshot lags a write, once per rewrite
+     */
+    private void markDirty() {
+        if (dirtySince == 0) {
+            dirtySince = System.currentTimeMillis();
+        }
+        if (markedDirty) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            if (!Files.exists(dirtyMarker)) {
+                Files.createFile(dirtyMarker);
+            }
+            markedDirty = true;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not mark catalog snapshot dirty", e);
+        }
+    }
+    
+    private void clearDirty() {
+        dirtySince = 0;
+        try {
+            Files.deleteIfExists(dirtyMarker);
+            markedDirty = false;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not clear catalog snapshot dirty marker", e);
+        }
+    }
+    
+    /**
+     * Stop the background rewriter; a pending rewrite happens on the next start instead
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private List<Path> listSnapshots() {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, filePrefix + "*.snapshot")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not list catalog snapshots in " + directory, e);
+        }
+        // Names end in the creation time, all with the same number of digits
+        files.sort(null);
+        return files;
+    }
+    
+    /**
+     * Remove superseded snapshots; a file still mapped elsewhere may refuse
+     * and is retried on the next rewrite
+     */
+    private void deleteOlderThan(Path keep) {
+        for (Path file : listSnapshots()) {
+            if (file.getFileName().toString().compareTo(keep.getFileName().toString()) < 0) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    logger.fine("Could not delete old catalog snapshot " + file + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    // ==================== CHANGE NOTIFICATION ====================
+    
+    @Override
+    public void bookAdded(Book book) {
+        invalidate();
+    }
+    
+    @Override
+    public void bookUpdated(Book previous, Book book) {
+        updateInPlace(previous, book);
+    }
+    
+    @Override
+    public void bookDeleted(int bookId) {
+        invalidate();
+    }
+    
+    @Override
+    public void catalogReloaded() {
+        if (!publishing) {
+            invalidate();
+        }
+    }
+    
+    @Override
+    public void staffAdded(Staff staff) {
+        invalidate();
+    }
+    
+    @Override
+    public void staffUpdated(Staff previous, Staff staff) {
+        updateInPlace(previous, staff);
+    }
+    
+    @Override
+    public void staffDeleted(Staff previous) {
+        invalidate();
+    }
+}
@@ -0,0 +1,380 @@
+package database;
+
+import models.Book;
+import models.Loan;
+import utils.Constants;
+import utils.ValidationUtils;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Checkouts and returns of book copies
+ * Shelf quantity is changed with relative updates, so two desks lending
+ * the last copies of a title at once cannot both succeed and no update is
+ * lost. A desk scans all items for a patron in one transaction. Book rows
+ * are locked in id order before any loan row, which keeps concurrent desks
+ * from deadlocking each other in the common case; the rare deadlock left
+ * over is retried.
+ */
+public class CirculationOperations {
+    private static final Logger logger = Logger.getLogger(CirculationOperations.class.getName());
+    
+    // Status is assigned first so it sees the old quantity, both in standard
+    // SQL and with MySQL's left-to-right evaluation of assignments
+    private static final String TAKE_COPY_SQL =
+        "UPDATE books_table SET status = IF(quantity > 1, 'AVAILABLE', 'OUT_OF_STOCK'), quantity = quantity - 1 " +
+        "WHERE book_id = ? AND quantity > 0";
+    private static final String RETURN_COPIES_SQL =
+        "UPDATE books_table SET status = 'AVAILABLE', quantity = quantity + ? WHERE book_id = ?";
+    private static final String INSERT_LOAN_SQL =
+        "INSERT INTO loans_table (book_id, patron, checkout_date, due_date) VALUES (?, ?, ?, ?)";
+    // Not a locking read: the book row locks held by then keep every loan of those books
+    // from changing, and gap locks on the patron index would deadlock concurrent returns
+    private static final String OLDEST_OPEN_LOAN_SQL =
+        "SELECT loan_id FROM loans_table WHERE patron = ? AND book_id = ? AND return_date IS NULL " +
+        "ORDER BY loan_id LIMIT 1";
+    private static final String CLOSE_LOAN_SQL =
+        "UPDATE loans_table SET return_date = ? WHERE loan_id = ?";
+    
+    /**
+     * Outcome of scanning several items at the desk
+     */
+    public static class CirculationResult {
+        private final List<Loan> loans;
+        private final List<Book> books;
+        private final List<Integer> rejected;
+        
+        CirculationResult(List<Loan> loans, List<Book> books, List<Integer> rejected) {
+            this.loans = Collections.unmodifiableList(loans);
+            this.books = Collections.unmodifiableList(books);
+            this.rejected = Collections.unmodifiableList(rejected);
+        }
+        
+        /** Loans opened by a checkout, or closed by a return */
+        public List<Loan> getLoans() { return loans; }
+        /** Books whose quantity changed, as stored afterwards */
+        public List<Book> getBooks() { return books; }
+        /** Scanned book ids that had no copy on the shelf, or no copy on loan to the patron */
+        public List<Integer> getRejected() { return rejected; }
+    }
+    
+    /**
+     * One attempt at a circulation transaction
+     */
+    private interface Transaction {
+        CirculationResult run(Connection conn) throws SQLException;
+    }
+    
+    private final DatabaseConnection dbConnection;
+    
+    public CirculationOperations() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+    
+    // ==================== CHECKOUT AND RETURN ====================
+    
+    /**
+     * Lend one copy of each scanned book to a patron
+     * A book id scanned twice lends two copies. Items without a copy on
+     * the shelf are rejected while the rest are lent. Returns null on failure.
+     */
+    public CirculationResult checkout(String patron, List<Integer> bookIds) {
+        if (!ValidationUtils.isNotEmpty(patron) || patron.length() > Constants.MAX_NAME_LENGTH) {
+            logger.warning("Invalid patron provided for checkout: " + patron);
+            return null;
+        }
+        if (bookIds.isEmpty() || bookIds.size() > Constants.CHECKOUT_MAX_ITEMS) {
+            logger.warning("Checkout of " + bookIds.size() + " items refused; the limit is " +
+                           Constants.CHECKOUT_MAX_ITEMS);
+            return null;
+        }
+        
+        List<Integer> sorted = sortedCopy(bookIds);
+        Date dueDate = Date.valueOf(LocalDate.now().plusDays(Constants.LOAN_PERIOD_DAYS));
+        CirculationResult result = inTransaction("checkout for " + patron, conn -> {
+            List<Integer> taken = new ArrayList<>(sorted.size());
+            List<Integer> rejected = new ArrayList<>();
+            
+            // Row locks are taken here, in id order
+            try (PreparedStatement pstmt = conn.prepareStatement(TAKE_COPY_SQL)) {
+                for (int bookId : sorted) {
+                    pstmt.setInt(1, bookId);
+                    if (pstmt.executeUpdate() == 1) {
+                        taken.add(bookId);
+                    } else {
+                        rejected.add(bookId);
+                    }
+                }
+            }
+            
+            List<Loan> loans = insertLoans(conn, patron, taken, dueDate);
+            return new CirculationResult(loans, readBooks(conn, taken), rejected);
+        });
+        
+        if (result != null) {
+            notifyListeners(result.getBooks(), countByBook(result.getLoans()), -1);
+            logger.info("Checked out " + result.getLoans().size() + " items to " + patron +
+                        (result.getRejected().isEmpty() ? "" : ", " + result.getRejected().size() + " unavailable"));
+        }
+        return result;
+    }
+    
+    /**
+     * Take back one copy of each scanned book from a patron, closing the
+     * patron's oldest open loan of it
+     * Items the patron has no copy of on loan are rejected while the rest
+     * are returned. Returns null on failure.
+     */
+    public CirculationResult checkin(String patron, List<Integer> bookIds) {
+        if (!ValidationUtils.isNotEmpty(patron) || patron.length() > Constants.MAX_NAME_LENGTH) {
+            logger.warning("Invalid patron provided for return: " + patron);
+            return null;
+        }
+        if (bookIds.isEmpty() || bookIds.size() > Constants.CHECKOUT_MAX_ITEMS) {
+            logger.warning("Return of " + bookIds.size() + " items refused; the limit is " +
+                           Constants.CHECKOUT_MAX_ITEMS);
+            return null;
+        }
+        
+        List<Integer> sorted = sortedCopy(bookIds);
+        CirculationResult result = inTransaction("return from " + patron, conn -> {
+            lockBooks(conn, sorted);
+            
+            List<Integer> loanIds = new ArrayList<>(sorted.size());
+            List<Integer> rejected = new ArrayList<>();
+            Map<Integer, Integer> returned = new LinkedHashMap<>();
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            try (PreparedStatement find = conn.prepareStatement(OLDEST_OPEN_LOAN_SQL);
+                 PreparedStatement close = conn.prepareStatement(CLOSE_LOAN_SQL)) {
+                find.setString(1, patron);
+                for (int bookId : sorted) {
+                    find.setInt(2, bookId);
+                    try (ResultSet rs = find.executeQuery()) {
+                        if (!rs.next()) {
+                            rejected.add(bookId);
+                            continue;
+                        }
+                        loanIds.add(rs.getInt(1));
+                    }
+                    // Closed right away so a second scan of the same book finds the next loan
+                    close.setTimestamp(1, now);
+                    close.setInt(2, loanIds.get(loanIds.size() - 1));
+                    close.executeUpdate();
+                    returned.merge(bookId, 1, Integer::sum);
+                }
+            }
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(RETURN_COPIES_SQL)) {
+                for (Map.Entry<Integer, Integer> entry : returned.entrySet()) {
+                    pstmt.setInt(1, entry.getValue());
+                    pstmt.setInt(2, entry.getKey());
+                    pstmt.addBatch();
+                }
+                if (!returned.isEmpty()) {
+                    pstmt.executeBatch();
+                }
+            }
+            
+            return new CirculationResult(readLoans(conn, loanIds), readBooks(conn, new ArrayList<>(returned.keySet())),
+                                         rejected);
+        });
+        
+        if (result != null) {
+            notifyListeners(result.getBooks(), countByBook(result.getLoans()), 1);
+            logger.info("Returned " + result.getLoans().size() + " items from " + patron +
+                        (result.getRejected().isEmpty() ? "" : ", " + result.getRejected().size() + " not on loan"));
+        }
+        return result;
+    }
+    
+    // ==================== LOAN QUERIES ====================
+    
+    /**
+     * Get a patron's open loans, soonest due first
+     */
+    public List<Loan> getOpenLoans(String patron) {
+        List<Loan> loans = new ArrayList<>();
+        String sql = "SELECT " + RowMapper.LOAN.columnList() + " FROM loans_table " +
+                     "WHERE patron = ? AND return_date IS NULL ORDER BY due_date, loan_id";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, patron);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper.LOAN.forEach(rs, loans::add);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error retrieving open loans for " + patron, e);
+        }
+        
+        return loans;
+    }
+    
+    /**
+     * Count the copies of a book currently on loan, or -1 on failure
+     */
+    public int getCopiesOnLoan(int bookId) {
+        String sql = "SELECT COUNT(*) FROM loans_table WHERE book_id = ? AND return_date IS NULL";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, bookId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error counting loans of book with ID: " + bookId, e);
+        }
+        
+        return -1;
+    }
+    
+    // ==================== HELPERS ====================
+    
+    /**
+     * Run a transaction, retrying when the server rolled it back to break a deadlock
+     */
+    private CirculationResult inTransaction(String description, Transaction transaction) {
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = dbConnection.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    CirculationResult result = transaction.run(conn);
+                    conn.commit();
+                    return result;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLTransactionRollbackException e) {
+                if (attempt > Constants.CIRCULATION_DEADLOCK_RETRIES) {
+                    logger.log(Level.SEVERE, "Giving up on " + description + " after " + attempt + " attempts", e);
+                    return null;
+                }
+                logger.fine("Retrying " + description + " after rollback: " + e.getMessage());
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Error during " + description, e);
+                return null;
+            }
+        }
+    }
+    
+    private static List<Loan> insertLoans(Connection conn, String patron, List<Integer> bookIds, Date dueDate)
+            throws SQLException {
+        List<Loan> loans = new ArrayList<>(bookIds.size());
+        if (bookIds.isEmpty()) {
+            return loans;
+        }
+        
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_LOAN_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (int bookId : bookIds) {
+                pstmt.setInt(1, bookId);
+                pstmt.setString(2, patron);
+                pstmt.setTimestamp(3, now);
+                pstmt.setDate(4, dueDate);
+                pstmt.addBatch();
+                loans.add(new Loan(0, bookId, patron, now, dueDate, null));
+            }
+            pstmt.executeBatch();
+            
+            // Keys come back in batch order, also when the driver rewrites the batch into one INSERT
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                for (int i = 0; i < loans.size() && keys.next(); i++) {
+                    loans.get(i).setLoanId(keys.getInt(1));
+                }
+            }
+        }
+        return loans;
+    }
+    
+    private static void lockBooks(Connection conn, List<Integer> sortedIds) throws SQLException {
+        String sql = "SELECT book_id FROM books_table WHERE book_id IN " +
+                     DatabaseOperations.placeholders(sortedIds.size()) + " ORDER BY book_id FOR UPDATE";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < sortedIds.size(); i++) {
+                pstmt.setInt(i + 1, sortedIds.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    // Locked; nothing to read
+                }
+            }
+        }
+    }
+    
+    private static List<Book> readBooks(Connection conn, List<Integer> bookIds) throws SQLException {
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(bookIds));
+        return readByIds(conn, RowMapper.BOOK, "books_table", "book_id", distinct);
+    }
+    
+    private static List<Loan> readLoans(Connection conn, List<Integer> loanIds) throws SQLException {
+        return readByIds(conn, RowMapper.LOAN, "loans_table", "loan_id", loanIds);
+    }
+    
+    private static <T> List<T> readByIds(Connection conn, RowMapper<T> mapper, String table, String idColumn,
+                                         List<Integer> ids) throws SQLException {
+        List<T> rows = new ArrayList<>(ids.size());
+        if (ids.isEmpty()) {
+            return rows;
+        }
+        String sql = "SELECT " + mapper.columnList() + " FROM " + table + " WHERE " + idColumn + " IN " +
+                     DatabaseOperations.placeholders(ids.size()) + " ORDER BY " + idColumn;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                pstmt.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                mapper.forEach(rs, rows::add);
+            }
+        }
+        return rows;
+    }
+    
+    /**
+     * Tell catalog listeners about the new quantities
+     * The previous row is derived from the stored one, so caches and
+     * dashboard counters move by exactly the copies lent or returned.
+     */
+    private static void notifyListeners(List<Book> books, Map<Integer, Integer> copies, int direction) {
+        for (Book book : books) {
+            Book previous = new Book(book);
+            previous.setQuantity(book.getQuantity() - direction * copies.getOrDefault(book.getBookId(), 0));
+            previous.setStatus(previous.getQuantity() > 0 ? Constants.AVAILABLE_STATUS : Constants.OUT_OF_STOCK_STATUS);
+            DatabaseOperations.fireBookUpdated(previous, book);
+        }
+    }
+    
+    private static Map<Integer, Integer> countByBook(Collection<Loan> loans) {
+        Map<Integer, Integer> counts = new LinkedHashMap<>();
+        for (Loan loan : loans) {
+            counts.merge(loan.getBookId(), 1, Integer::sum);
+        }
+        return counts;
+    }
+    
+    private static List<Integer> sortedCopy(List<Integer> ids) {
+        List<Integer> sorted = new ArrayList<>(ids);
+        Collections.sort(sorted);
+        return sorted;
+    }
+}
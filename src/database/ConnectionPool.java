@@ -0,0 +1,373 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded JDBC connection pool
+ * Hands out connection leases that return to the pool when closed
+ */
+public class ConnectionPool {
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    
+    // Capturing the borrow stack costs a full stack walk per borrow, so it is opt-in
+    private static final boolean TRACE_LEAKS = Boolean.getBoolean("library.pool.traceLeaks");
+    
+    private final String url;
+    private final Properties connectionProperties;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long validationIntervalMs;
+    private final long leakThresholdMs;
+    private final int statementCacheSize;
+    
+    // Permits bound the number of leased connections; idle ones are kept LIFO
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PhysicalConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<Lease> leased = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final ScheduledExecutorService housekeeper;
+    
+    public ConnectionPool(String url, Properties connectionProperties,
+                          int minSize, int maxSize, long borrowTimeoutMs,
+                          long idleTimeoutMs, long validationIntervalMs,
+                          long leakThresholdMs, long housekeepingIntervalMs,
+                          int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.connectionProperties = connectionProperties;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.validationIntervalMs = validationIntervalMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+        
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, housekeepingIntervalMs,
+                                           housekeepingIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Open connections until the pool holds its minimum size
+     */
+    public synchronized void warmUp() throws SQLException {
+        int opened = 0;
+        while (totalConnections.get() < minSize && !closed.get()) {
+            idle.offerLast(openPhysical());
+            opened++;
+        }
+        if (opened > 0) {
+            logger.info("Connection pool opened " + opened + " connections, total " + totalConnections.get());
+        }
+    }
+    
+    /**
+     * Borrow a connection lease, waiting up to the borrow timeout
+     */
+    public Connection borrow() throws SQLException {
+        if (closed.get()) {
+            throw new SQLException("Connection pool is closed");
+        }
+        QueryMetrics.Call call = QueryMetrics.startCall();
+        
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                call.finish();
+                throw new SQLTransientConnectionException(
+                    "Timed out after " + borrowTimeoutMs + " ms waiting for a database connection (" + getStatus() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        }
+        
+        try {
+            PhysicalConnection physical = takeIdle();
+            if (physical == null) {
+                physical = openPhysical();
+            }
+            Lease lease = new Lease(physical, call);
+            leased.add(lease);
+            return lease.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+    
+    /**
+     * Take the most recently used idle connection that passes validation
+     */
+    private PhysicalConnection takeIdle() {
+        PhysicalConnection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            long idleFor = System.currentTimeMillis() - physical.lastUsed;
+            if (idleFor < validationIntervalMs || isValid(physical)) {
+                return physical;
+            }
+            logger.info("Discarding connection that failed validation");
+            discard(physical);
+        }
+        return null;
+    }
+    
+    private boolean isValid(PhysicalConnection physical) {
+        try {
+            return physical.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    private PhysicalConnection openPhysical() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, connectionProperties);
+        totalConnections.incrementAndGet();
+        StatementCache cache = statementCacheSize > 0 ? new StatementCache(connection, statementCacheSize) : null;
+        return new PhysicalConnection(connection, cache);
+    }
+    
+    private void discard(PhysicalConnection physical) {
+        totalConnections.decrementAndGet();
+        if (physical.statementCache != null) {
+            physical.statementCache.close();
+        }
+        try {
+            physical.connection.close();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Failed to close discarded connection", e);
+        }
+    }
+    
+    /**
+     * Return a leased connection to the pool
+     */
+    private void release(Lease lease) {
+        leased.remove(lease);
+        PhysicalConnection physical = lease.physical;
+        try {
+            if (closed.get() || physical.connection.isClosed()) {
+                discard(physical);
+            } else {
+                resetState(physical.connection);
+                physical.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(physical);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Discarding connection that could not be reset", e);
+            discard(physical);
+        } finally {
+            permits.release();
+        }
+    }
+    
+    /**
+     * Undo per-lease changes so the next borrower starts clean
+     */
+    private void resetState(Connection connection) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        }
+        if (connection.isReadOnly()) {
+            connection.setReadOnly(false);
+        }
+        connection.clearWarnings();
+    }
+    
+    /**
+     * Evict idle connections, top up to minimum size and report leaks
+     */
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+            
+            // Oldest idle connections sit at the tail
+            Iterator<PhysicalConnection> iterator = idle.descendingIterator();
+            while (iterator.hasNext() && totalConnections.get() > minSize) {
+                PhysicalConnection physical = iterator.next();
+                if (now - physical.lastUsed > idleTimeoutMs && idle.removeLastOccurrence(physical)) {
+                    discard(physical);
+                    logger.fine("Evicted idle connection");
+                }
+            }
+            
+            if (!closed.get() && totalConnections.get() < minSize) {
+                warmUp();
+            }
+            
+            for (Lease lease : leased) {
+                long heldFor = now - lease.borrowedAt;
+                if (heldFor > leakThresholdMs && !lease.leakReported) {
+                    lease.leakReported = true;
+                    String message = "Possible connection leak: lease held for " + heldFor + " ms by " +
+                                     lease.call.getOperation();
+                    if (lease.borrowSite != null) {
+                        logger.log(Level.WARNING, message, lease.borrowSite);
+                    } else {
+                        logger.warning(message + " (run with -Dlibrary.pool.traceLeaks=true for the borrow stack)");
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Connection pool housekeeping failed", e);
+        }
+    }
+    
+    /**
+     * Close the pool and all idle connections
+     * Leased connections are closed as they are returned
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        housekeeper.shutdownNow();
+        PhysicalConnection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            discard(physical);
+        }
+        logger.info("Connection pool closed");
+    }
+    
+    public boolean isClosed() { return closed.get(); }
+    public int getActiveCount() { return leased.size(); }
+    public int getIdleCount() { return idle.size(); }
+    public int getTotalCount() { return totalConnections.get(); }
+    public int getMaxSize() { return maxSize; }
+    public int getWaitingCount() { return permits.getQueueLength(); }
+    
+    /**
+     * Get pool status summary
+     */
+    public String getStatus() {
+        return "active=" + getActiveCount() + ", idle=" + getIdleCount() +
+               ", total=" + getTotalCount() + "/" + maxSize + ", waiting=" + getWaitingCount();
+    }
+    
+    public String getUrl() { return url; }
+    
+    /**
+     * Physical connection owned by the pool
+     */
+    private static class PhysicalConnection {
+        final Connection connection;
+        final StatementCache statementCache;
+        volatile long lastUsed = System.currentTimeMillis();
+        
+        PhysicalConnection(Connection connection, StatementCache statementCache) {
+            this.connection = connection;
+            this.statementCache = statementCache;
+        }
+    }
+    
+    /**
+     * Single borrow of a physical connection
+     * close() returns the connection to the pool instead of closing it and
+     * records the time since the borrow request in QueryMetrics
+     */
+    private class Lease implements InvocationHandler {
+        final PhysicalConnection physical;
+        final Connection proxy;
+        final QueryMetrics.Call call;
+        final long borrowedAt = System.currentTimeMillis();
+        final Throwable borrowSite = TRACE_LEAKS ? new Throwable("Connection borrowed here") : null;
+        final AtomicBoolean returned = new AtomicBoolean();
+        volatile boolean leakReported;
+        
+        Lease(PhysicalConnection physical, QueryMetrics.Call call) {
+            this.physical = physical;
+            this.call = call;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release(this);
+                        call.finish();
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || physical.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical.connection + "]";
+                default:
+                    break;
+            }
+            
+            if (returned.get()) {
+                throw new SQLException("Connection lease has already been returned to the pool");
+            }
+            if (method.getName().equals("prepareStatement")) {
+                PreparedStatement statement = physical.statementCache != null ? prepareCached(args) : null;
+                if (statement == null) {
+                    statement = (PreparedStatement) invokePhysical(method, args);
+                }
+                return QueryMetrics.instrument(statement, (String) args[0], call.getOperation());
+            }
+            return invokePhysical(method, args);
+        }
+        
+        private Object invokePhysical(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(physical.connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+        
+        /**
+         * Serve prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) from the cache
+         */
+        private PreparedStatement prepareCached(Object[] args) throws SQLException {
+            if (args.length == 1) {
+                return physical.statementCache.prepare((String) args[0], Statement.NO_GENERATED_KEYS);
+            }
+            if (args.length == 2 && args[1] instanceof Integer) {
+                return physical.statementCache.prepare((String) args[0], (Integer) args[1]);
+            }
+            return null;
+        }
+    }
+}
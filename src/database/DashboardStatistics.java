@@ -0,0 +1,183 @@
+package database;
+
+import models.Book;
+import models.LibrarySummary;
+import models.Staff;
+import utils.Constants;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.logging.Logger;
+
+/**
+ * Dashboard counters kept as an in-memory summary
+ * The summary is loaded with one query and then adjusted from change
+ * notifications, so mutations never trigger a recount. Listeners are called
+ * on the event dispatch thread with each new summary.
+ */
+public class DashboardStatistics implements CatalogChangeListener {
+    private static final Logger logger = Logger.getLogger(DashboardStatistics.class.getName());
+    
+    private final AsyncDatabaseOperations asyncOperations;
+    private final List<Consumer<LibrarySummary>> listeners = new CopyOnWriteArrayList<>();
+    private LibrarySummary summary;
+    
+    // Counts deltas so a reload that raced a mutation is repeated
+    private long changeCount;
+    private boolean refreshing;
+    
+    public DashboardStatistics(AsyncDatabaseOperations asyncOperations) {
+        this.asyncOperations = asyncOperations;
+        DatabaseOperations.addCatalogListener(this);
+    }
+    
+    /**
+     * Register for summary updates; called on the EDT
+     */
+    public void addListener(Consumer<LibrarySummary> listener) {
+        listeners.add(listener);
+        LibrarySummary current = getSummary();
+        if (current != null) {
+            AsyncDatabaseOperations.EDT.execute(() -> listener.accept(current));
+        }
+    }
+    
+    public void removeListener(Consumer<LibrarySummary> listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Get the current summary, or null before the first load completes
+     */
+    public synchronized LibrarySummary getSummary() {
+        return summary;
+    }
+    
+    /**
+     * Reload all counters from the database in the background
+     */
+    public void refresh() {
+        refresh(1);
+    }
+    
+    /**
+     * Load the summary, repeating a bounded number of times while writes race the load
+     * When every attempt raced, the last summary stays in place; with none yet,
+     * the final load is taken as the closest available.
+     */
+    private synchronized void refresh(int attempt) {
+        if (refreshing) {
+            return;
+        }
+        refreshing = true;
+        final long startChangeCount = changeCount;
+        
+        asyncOperations.supply(DatabaseOperations::getLibrarySummary).whenComplete((loaded, error) -> {
+            boolean repeat;
+            synchronized (this) {
+                refreshing = false;
+                boolean raced = changeCount != startChangeCount;
+                repeat = raced && attempt < Constants.DASHBOARD_REFRESH_ATTEMPTS;
+                if (loaded != null && (!raced || (!repeat && summary == null))) {
+                    summary = loaded;
+                    publish(loaded);
+                }
+                if (raced && !repeat) {
+                    logger.info("Dashboard statistics changed during " + attempt +
+                                " reloads; keeping the last summary");
+                }
+            }
+            if (repeat) {
+                refresh(attempt + 1);
+            } else if (loaded == null) {
+                logger.warning("Dashboard statistics could not be loaded");
+            }
+        });
+    }
+    
+    /**
+     * Start from a summary loaded elsewhere, e.g. during login; reloads when there is none
+     */
+    public synchronized void seed(LibrarySummary loaded) {
+        if (loaded == null) {
+            refresh();
+            return;
+        }
+        if (summary == null) {
+            summary = loaded;
+            publish(loaded);
+        }
+    }
+    
+    // ==================== INCREMENTAL UPDATES ====================
+    
+    @Override
+    public void bookAdded(Book book) {
+        apply(current -> current.withBook(book, 1));
+    }
+    
+    @Override
+    public void bookUpdated(Book previous, Book book) {
+        apply(current -> current.withBook(previous, -1).withBook(book, 1));
+    }
+    
+    @Override
+    public void bookDeleted(Book previous) {
+        apply(current -> current.withBook(previous, -1));
+    }
+    
+    @Override
+    public void staffAdded(Staff staff) {
+        apply(current -> current.withStaff(staff, 1));
+    }
+    
+    @Override
+    public void staffUpdated(Staff previous, Staff staff) {
+        apply(current -> current.withStaff(previous, -1).withStaff(staff, 1));
+    }
+    
+    @Override
+    public void staffDeleted(Staff previous) {
+        apply(current -> current.withStaff(previous, -1));
+    }
+    
+    @Override
+    public void catalogReloaded() {
+        synchronized (this) {
+            // Discard any reload that started before the bulk change
+            changeCount++;
+        }
+        refresh();
+    }
+    
+    private synchronized void apply(UnaryOperator<LibrarySummary> change) {
+        changeCount++;
+        if (summary == null) {
+            // Not loaded yet; any reload in flight will be repeated
+            return;
+        }
+        summary = change.apply(summary);
+        publish(summary);
+    }
+    
+    /**
+     * Post a summary to listeners; called with the lock held so posts keep their order
+     */
+    private void publish(LibrarySummary updated) {
+        AsyncDatabaseOperations.EDT.execute(() -> {
+            for (Consumer<LibrarySummary> listener : listeners) {
+                listener.accept(updated);
+            }
+        });
+    }
+    
+    /**
+     * Stop receiving change notifications
+     */
+    public void close() {
+        DatabaseOperations.removeCatalogListener(this);
+        listeners.clear();
+    }
+}
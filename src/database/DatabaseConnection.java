@@ -1,8 +1,8 @@
 package database;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Properties;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import utils.Constants;
@@ -14,29 +14,66 @@ import utils.Constants;
 public class DatabaseConnection {
     private static final Logger logger = Logger.getLogger(DatabaseConnection.class.getName());
     private static DatabaseConnection instance;
-    private Connection connection;
+    private final ConnectionPool pool;
     
-    // Database connection parameters
-    private final String URL = Constants.DB_URL;
-    private final String USERNAME = Constants.DB_USERNAME;
-    private final String PASSWORD = Constants.DB_PASSWORD;
+    // Database connection parameters; system properties override them, e.g. for benchmarks
+    private final String URL = System.getProperty("library.db.url", Constants.DB_URL);
+    private final String USERNAME = System.getProperty("library.db.user", Constants.DB_USERNAME);
+    private final String PASSWORD = System.getProperty("library.db.password", Constants.DB_PASSWORD);
     
     // Private constructor for singleton pattern
     private DatabaseConnection() {
         try {
             // Load MySQL JDBC driver
             Class.forName("com.mysql.cj.jdbc.Driver");
-            this.connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
-            logger.info("Database connection established successfully");
+            this.pool = new ConnectionPool(URL, createConnectionProperties(),
+                                           Constants.POOL_MIN_SIZE,
+                                           Constants.POOL_MAX_SIZE,
+                                           Constants.POOL_BORROW_TIMEOUT_MS,
+                                           Constants.POOL_IDLE_TIMEOUT_MS,
+                                           Constants.POOL_VALIDATION_INTERVAL_MS,
+                                           Constants.POOL_LEAK_THRESHOLD_MS,
+                                           Constants.POOL_HOUSEKEEPING_INTERVAL_MS,
+                                           Constants.STATEMENT_CACHE_SIZE);
+            Runtime.getRuntime().addShutdownHook(new Thread(this::closeConnection, "connection-pool-shutdown"));
+            try {
+                pool.warmUp();
+                logger.info("Database connection pool established successfully");
+            } catch (SQLException e) {
+                // Keep the pool so the caller can retry or work offline; it connects on first use
+                logger.log(Level.WARNING, "Database unreachable, connections will be opened on demand", e);
+            }
         } catch (ClassNotFoundException e) {
             logger.log(Level.SEVERE, "MySQL JDBC driver not found", e);
             throw new RuntimeException("MySQL JDBC driver not found", e);
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Failed to establish database connection", e);
-            throw new RuntimeException("Failed to establish database connection", e);
         }
     }
     
+    /**
+     * Build driver properties for pooled connections
+     */
+    private Properties createConnectionProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("user", USERNAME);
+        properties.setProperty("password", PASSWORD);
+        
+        // Server-side prepared statements pay off because statements are cached per
+        // connection. Cursor fetch below needs them, and the driver turns them on
+        // with it regardless of this setting, so they are not optional here.
+        properties.setProperty("useServerPrepStmts", "true");
+        properties.setProperty("cachePrepStmts", "false");
+        
+        // Collapse JDBC batches into multi-row INSERTs for bulk imports
+        properties.setProperty("rewriteBatchedStatements", "true");
+        
+        // Let full-table reads with a positive fetch size use a server-side cursor
+        properties.setProperty("useCursorFetch", "true");
+        
+        // Fail fast when the server is down so the client can switch to offline mode
+        properties.setProperty("connectTimeout", String.valueOf(Constants.DB_CONNECT_TIMEOUT_MS));
+        return properties;
+    }
+    
     /**
      * Get singleton instance of DatabaseConnection
      */
@@ -48,29 +85,19 @@ public class DatabaseConnection {
     }
     
     /**
-     * Get database connection
+     * Get a pooled database connection
+     * Callers must close the connection to return it to the pool
      */
-    public Connection getConnection() {
-        try {
-            // Check if connection is closed or invalid
-            if (connection == null || connection.isClosed()) {
-                connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
-                logger.info("Database connection reestablished");
-            }
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Failed to get database connection", e);
-            throw new RuntimeException("Failed to get database connection", e);
-        }
-        return connection;
+    public Connection getConnection() throws SQLException {
+        return pool.borrow();
     }
     
     /**
      * Test database connection
      */
     public boolean testConnection() {
-        try {
-            Connection conn = getConnection();
-            return conn != null && !conn.isClosed();
+        try (Connection conn = getConnection()) {
+            return conn.isValid(2);
         } catch (SQLException e) {
             logger.log(Level.WARNING, "Connection test failed", e);
             return false;
@@ -78,31 +105,41 @@ public class DatabaseConnection {
     }
     
     /**
-     * Close database connection
+     * Check whether the database can be reached, without logging failures
+     * Used to tell an unreachable server from a failed statement
      */
-    public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                logger.info("Database connection closed successfully");
-            }
+    public boolean isReachable() {
+        try (Connection conn = getConnection()) {
+            return conn.isValid(2);
         } catch (SQLException e) {
-            logger.log(Level.WARNING, "Failed to close database connection", e);
+            logger.fine("Database unreachable: " + e.getMessage());
+            return false;
         }
     }
     
+    /**
+     * Close all pooled database connections
+     */
+    public void closeConnection() {
+        pool.close();
+    }
+    
+    /**
+     * Get the underlying connection pool
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+    
     /**
      * Get connection status information
      */
     public String getConnectionStatus() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                return "Connected to: " + connection.getMetaData().getURL();
-            } else {
-                return "Not connected";
-            }
-        } catch (SQLException e) {
-            return "Connection status unknown: " + e.getMessage();
+        if (pool.isClosed()) {
+            return "Not connected";
         }
+        return "Connected to: " + pool.getUrl() + " (" + pool.getStatus() + ")" +
+               "\nStatement cache: " + StatementCache.getStats() +
+               "\nQuery latency:\n" + QueryMetrics.getStats();
     }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package database;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder events for database access
+ * They cost next to nothing unless a recording is running.
+ */
+final class DatabaseEvents {
+    
+    private DatabaseEvents() {}
+    
+    @Name("library.DatabaseOperation")
+    @Label("Database Operation")
+    @Category({"Library", "Database"})
+    @Description("DAO call from the connection request until the connection is returned")
+    static class Operation extends Event {
+        @Label("Operation")
+        String operation;
+    }
+    
+    @Name("library.Statement")
+    @Label("SQL Statement")
+    @Category({"Library", "Database"})
+    @Description("Statement execution; for queries, until the result set is closed")
+    @StackTrace(false)
+    static class Statement extends Event {
+        @Label("Operation")
+        String operation;
+        
+        @Label("SQL")
+        String sql;
+        
+        @Label("Rows")
+        @Description("Rows read or affected, -1 if the statement failed")
+        long rows;
+        
+        @Label("Bind Count")
+        int binds;
+        
+        @Label("Batch Size")
+        int batchSize;
+    }
+    
+    @Name("library.Login")
+    @Label("Login")
+    @Category({"Library", "Database"})
+    static class Login extends Event {
+        @Label("Username")
+        String username;
+        
+        @Label("Success")
+        boolean success;
+    }
+}
@@ -2,12 +2,28 @@ package database;
 
 import models.Admin;
 import models.Book;
+import models.BookRecord;
+import models.CompactBookStore;
+import models.LibrarySummary;
 import models.Staff;
+import utils.Constants;
+import utils.Isbn;
+import utils.LatencyHistogram;
 import utils.ValidationUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -17,26 +33,81 @@ import java.util.logging.Level;
  */
 public class DatabaseOperations {
     private static final Logger logger = Logger.getLogger(DatabaseOperations.class.getName());
+    private static final String BOOK_COLUMNS = RowMapper.BOOK.columnList();
+    private static final String STAFF_COLUMNS = RowMapper.STAFF.columnList();
+    private static final List<CatalogChangeListener> catalogListeners = new CopyOnWriteArrayList<>();
+    
+    // Time from login request to result, including the lookup round trip
+    private static final LatencyHistogram loginLatency = new LatencyHistogram("DatabaseOperations.login");
+    
     private final DatabaseConnection dbConnection;
     
     public DatabaseOperations() {
         this.dbConnection = DatabaseConnection.getInstance();
     }
     
+    // ==================== CHANGE NOTIFICATION ====================
+    
+    /**
+     * Register a listener for successful catalog writes
+     */
+    public static void addCatalogListener(CatalogChangeListener listener) {
+        catalogListeners.add(listener);
+    }
+    
+    /**
+     * Remove a catalog listener
+     */
+    public static void removeCatalogListener(CatalogChangeListener listener) {
+        catalogListeners.remove(listener);
+    }
+    
+    /**
+     * Notify listeners that many books changed at once
+     */
+    static void fireCatalogReloaded() {
+        for (CatalogChangeListener listener : catalogListeners) {
+            listener.catalogReloaded();
+        }
+    }
+    
+    /**
+     * Notify listeners that a book changed through a statement other than updateBook
+     */
+    static void fireBookUpdated(Book previous, Book book) {
+        for (CatalogChangeListener listener : catalogListeners) {
+            listener.bookUpdated(previous, book);
+        }
+    }
+    
     // ==================== ADMIN OPERATIONS ====================
     
     /**
      * Authenticate admin user
+     * One indexed lookup by username; the password hash is checked here rather
+     * than by the server, and last_login is written behind by LastLoginWriter.
+     * While working offline the logins remembered by OfflineMode are checked instead.
      */
     public Admin authenticateAdmin(String username, String password) {
-        String sql = "SELECT * FROM admin_table WHERE username = ? AND password_hash = SHA2(?, 256) AND status = 'ACTIVE'";
+        if (OfflineMode.isActive()) {
+            return OfflineMode.getInstance().authenticate(username, password);
+        }
+        
+        String sql = "SELECT id, username, password_hash, created_date, last_login, status " +
+                     "FROM admin_table WHERE username = ? AND status = 'ACTIVE'";
+        long startNanos = System.nanoTime();
+        DatabaseEvents.Login event = new DatabaseEvents.Login();
+        event.begin();
         
-        try (PreparedStatement pstmt = dbConnection.getConnection().prepareStatement(sql)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, username);
-            pstmt.setString(2, password);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
+                // Hash even for unknown users so both paths take the same time
+                byte[] candidate = sha256(password);
+                boolean found = rs.next();
+                if (found && MessageDigest.isEqual(candidate, parseHex(rs.getString("password_hash")))) {
                     Admin admin = new Admin(
                         rs.getInt("id"),
                         rs.getString("username"),
@@ -44,89 +115,342 @@ public class DatabaseOperations {
                         rs.getTimestamp("created_date"),
                         rs.getString("status")
                     );
+                    Timestamp now = new Timestamp(System.currentTimeMillis());
+                    admin.setLastLogin(now);
                     
                     // Update last login
-                    updateLastLogin(admin.getId());
-                    logger.info("Admin authenticated successfully: " + username);
+                    LastLoginWriter.getInstance().recordLogin(admin.getId(), now);
+                    OfflineMode.getInstance().rememberLogin(admin, password);
+                    loginLatency.recordSince(startNanos);
+                    commitLoginEvent(event, username, true);
+                    logger.info("Admin authenticated successfully: " + username + "; " + loginLatency);
+                    warnIfLoginSlow();
                     return admin;
                 }
+                // The database answered: an inactive or removed admin loses offline access,
+                // and so does a password that has since been changed
+                OfflineMode.getInstance().forgetLogin(username, found ? password : null);
             }
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error authenticating admin: " + username, e);
         }
         
+        loginLatency.recordSince(startNanos);
+        commitLoginEvent(event, username, false);
         logger.warning("Authentication failed for user: " + username);
         return null;
     }
     
+    private static void commitLoginEvent(DatabaseEvents.Login event, String username, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.username = username;
+            event.success = success;
+            event.commit();
+        }
+    }
+    
     /**
-     * Update admin's last login timestamp
+     * Get login latency recorded across all logins in this process
      */
-    private void updateLastLogin(int adminId) {
-        String sql = "UPDATE admin_table SET last_login = CURRENT_TIMESTAMP WHERE id = ?";
-        
-        try (PreparedStatement pstmt = dbConnection.getConnection().prepareStatement(sql)) {
-            pstmt.setInt(1, adminId);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            logger.log(Level.WARNING, "Failed to update last login for admin ID: " + adminId, e);
+    public static LatencyHistogram getLoginLatency() {
+        return loginLatency;
+    }
+    
+    private static void warnIfLoginSlow() {
+        long p99Millis = loginLatency.getPercentileMicros(99) / 1000;
+        if (loginLatency.getCount() >= Constants.LOGIN_LATENCY_MIN_SAMPLES &&
+            p99Millis > Constants.LOGIN_LATENCY_TARGET_MS) {
+            logger.warning("Login p99 of " + p99Millis + " ms is above the " +
+                           Constants.LOGIN_LATENCY_TARGET_MS + " ms target");
+        }
+    }
+    
+    /**
+     * SHA-256 of the UTF-8 password, matching SHA2(password, 256) in MySQL
+     */
+    static byte[] sha256(String password) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Decode a hex string; malformed input gives an empty array that matches no digest
+     */
+    static byte[] parseHex(String hex) {
+        if (hex == null || hex.length() % 2 != 0) {
+            return new byte[0];
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return new byte[0];
+            }
+            bytes[i] = (byte) (high << 4 | low);
         }
+        return bytes;
     }
     
     // ==================== BOOK OPERATIONS ====================
     
     /**
      * Get all books from database
+     * The books are read-only views over a compact store, see loadBookStore
      */
-    public List<Book> getAllBooks() {
-        List<Book> books = new ArrayList<>();
-        String sql = "SELECT * FROM books_table ORDER BY title";
+    public List<BookRecord> getAllBooks() {
+        return loadBookStore().views();
+    }
+    
+    /**
+     * Load the whole catalog in title order into a column-oriented store
+     * Rows are copied straight from the result set, without a Book per row
+     */
+    public CompactBookStore loadBookStore() {
+        CompactBookStore store = new CompactBookStore();
+        String sql = "SELECT " + BOOK_COLUMNS + " FROM books_table ORDER BY title";
         
-        try (PreparedStatement pstmt = dbConnection.getConnection().prepareStatement(sql);
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = prepareStreaming(conn, sql);
              ResultSet rs = pstmt.executeQuery()) {
             
+            int[] index = RowMapper.BOOK.resolve(rs);
             while (rs.next()) {
-                Book book = new Book(
-                    rs.getInt("book_id"),
-                    rs.getString("title"),
-                    rs.getString("author"),
-                    rs.getString("isbn"),
-                    rs.getInt("quantity"),
-                    rs.getTimestamp("date_added"),
-                    rs.getString("status")
+                store.put(
+                    rs.getInt(index[0]),
+                    rs.getString(index[1]),
+                    rs.getString(index[2]),
+                    rs.getString(index[3]),
+                    rs.getInt(index[4]),
+                    rs.getTimestamp(index[5]),
+                    rs.getString(index[6])
                 );
-                books.add(book);
             }
-            logger.info("Retrieved " + books.size() + " books from database");
+            logger.info("Retrieved " + store.size() + " books from database");
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error retrieving books from database", e);
         }
         
+        return store;
+    }
+    
+    /**
+     * Stream every book in (title, book_id) order to the consumer
+     * Rows are fetched DB_STREAM_FETCH_SIZE at a time instead of being
+     * buffered by the driver, so memory stays flat however large the
+     * catalog is. The consumer runs while the connection is held; keep it
+     * quick. Returns the number of rows, or -1 if the query failed.
+     */
+    public long forEachBook(Consumer<? super Book> consumer) {
+        String sql = "SELECT " + BOOK_COLUMNS + " FROM books_table ORDER BY title, book_id";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = prepareStreaming(conn, sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return RowMapper.BOOK.forEach(rs, consumer);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error streaming books from database", e);
+            return -1;
+        }
+    }
+    
+    /**
+     * Prepare a forward-only read that the driver fetches in chunks
+     * With useCursorFetch a positive fetch size reads through a server-side
+     * cursor; Integer.MIN_VALUE streams row by row instead.
+     */
+    static PreparedStatement prepareStreaming(Connection conn, String sql) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(sql);
+        pstmt.setFetchSize(Constants.DB_STREAM_FETCH_SIZE);
+        return pstmt;
+    }
+    
+    /**
+     * Get one page of books ordered by (title, book_id) using keyset pagination
+     * Pass a null afterTitle to fetch the first page; returns null on error
+     */
+    public List<Book> getBooksPage(String afterTitle, int afterId, int limit) {
+        List<Book> books = new ArrayList<>(limit);
+        String sql = afterTitle == null
+            ? "SELECT " + BOOK_COLUMNS + " FROM books_table ORDER BY title, book_id LIMIT ?"
+            : "SELECT " + BOOK_COLUMNS + " FROM books_table WHERE title > ? OR (title = ? AND book_id > ?) " +
+              "ORDER BY title, book_id LIMIT ?";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (afterTitle != null) {
+                pstmt.setString(index++, afterTitle);
+                pstmt.setString(index++, afterTitle);
+                pstmt.setInt(index++, afterId);
+            }
+            pstmt.setInt(index, limit);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper.BOOK.forEach(rs, books::add);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error retrieving book page after: " + afterTitle, e);
+            return null;
+        }
+        
         return books;
     }
     
+    /**
+     * Get one page of books starting at a row offset
+     * Used only when no keyset anchor is known, e.g. after a scrollbar jump.
+     * Returns null on error.
+     */
+    public List<Book> getBooksPageAt(int offset, int limit) {
+        List<Book> books = new ArrayList<>(limit);
+        String sql = "SELECT " + BOOK_COLUMNS + " FROM books_table ORDER BY title, book_id LIMIT ? OFFSET ?";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, limit);
+            pstmt.setInt(2, offset);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper.BOOK.forEach(rs, books::add);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error retrieving book page at offset: " + offset, e);
+            return null;
+        }
+        
+        return books;
+    }
+    
+    /**
+     * Get the row position of a book in (title, book_id) order
+     * Returns -1 if the position could not be determined
+     */
+    public int getBookPosition(String title, int bookId) {
+        String sql = "SELECT COUNT(*) FROM books_table WHERE title < ? OR (title = ? AND book_id < ?)";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, title);
+            pstmt.setString(2, title);
+            pstmt.setInt(3, bookId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error locating book: " + title, e);
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Get a single book by id, or null if it does not exist
+     */
+    public Book getBookById(int bookId) {
+        String sql = "SELECT " + BOOK_COLUMNS + " FROM books_table WHERE book_id = ?";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, bookId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return RowMapper.BOOK.mapRow(rs);
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error retrieving book with ID: " + bookId, e);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Get a single book by ISBN, or null if it does not exist
+     * Any ISBN-10 or ISBN-13 spelling finds the book, as ISBNs are stored as ISBN-13 digits.
+     */
+    public Book getBookByIsbn(String isbn) {
+        String sql = "SELECT " + BOOK_COLUMNS + " FROM books_table WHERE isbn = ?";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, Isbn.normalize(isbn));
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return RowMapper.BOOK.mapRow(rs);
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error retrieving book with ISBN: " + isbn, e);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Read a book inside the caller's transaction, locking the row until commit
+     * Lets listeners see the values a write replaced
+     */
+    private Book lockBook(Connection conn, int bookId) throws SQLException {
+        String sql = "SELECT " + BOOK_COLUMNS + " FROM books_table WHERE book_id = ? FOR UPDATE";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, bookId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? RowMapper.BOOK.mapRow(rs) : null;
+            }
+        }
+    }
+    
     /**
      * Add new book to database
+     * The ISBN must be valid and is stored as its ISBN-13, the form lookups use.
+     * Returns the stored book with its generated id, or null on failure
      */
-    public boolean addBook(Book book) {
+    public Book addBook(Book book) {
         if (!ValidationUtils.isValidBook(book)) {
             logger.warning("Invalid book data provided");
-            return false;
+            return null;
         }
+        book.setIsbn(Isbn.normalize(book.getIsbn()));
         
         String sql = "INSERT INTO books_table (title, author, isbn, quantity, status) VALUES (?, ?, ?, ?, ?)";
+        String status = book.getQuantity() > 0 ? "AVAILABLE" : "OUT_OF_STOCK";
         
-        try (PreparedStatement pstmt = dbConnection.getConnection().prepareStatement(sql)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setString(1, book.getTitle());
             pstmt.setString(2, book.getAuthor());
             pstmt.setString(3, book.getIsbn());
             pstmt.setInt(4, book.getQuantity());
-            pstmt.setString(5, book.getQuantity() > 0 ? "AVAILABLE" : "OUT_OF_STOCK");
+            pstmt.setString(5, status);
             
             int rowsAffected = pstmt.executeUpdate();
             if (rowsAffected > 0) {
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        book.setBookId(keys.getInt(1));
+                    }
+                }
+                book.setStatus(status);
+                book.setDateAdded(new Timestamp(System.currentTimeMillis()));
+                
+                for (CatalogChangeListener listener : catalogListeners) {
+                    listener.bookAdded(book);
+                }
                 logger.info("Book added successfully: " + book.getTitle());
-                return true;
+                return book;
             }
         } catch (SQLIntegrityConstraintViolationException e) {
             logger.warning("Book with ISBN " + book.getIsbn() + " already exists");
@@ -134,54 +458,108 @@ public class DatabaseOperations {
             logger.log(Level.SEVERE, "Error adding book: " + book.getTitle(), e);
         }
         
-        return false;
+        return null;
     }
     
     /**
      * Update existing book
+     * Quantity is changed by the difference between the book's quantity and
+     * seenQuantity, the one the editor started from, so checkouts and returns
+     * made meanwhile are kept. A new ISBN must be valid and is stored as its
+     * ISBN-13; an unchanged one that predates the check digit test is kept.
+     * Returns the book as stored, or null on failure.
      */
-    public boolean updateBook(Book book) {
-        if (!ValidationUtils.isValidBook(book)) {
+    public Book updateBook(Book book, int seenQuantity) {
+        if (book == null) {
             logger.warning("Invalid book data provided for update");
-            return false;
+            return null;
         }
         
         String sql = "UPDATE books_table SET title = ?, author = ?, isbn = ?, quantity = ?, status = ? WHERE book_id = ?";
         
-        try (PreparedStatement pstmt = dbConnection.getConnection().prepareStatement(sql)) {
-            pstmt.setString(1, book.getTitle());
-            pstmt.setString(2, book.getAuthor());
-            pstmt.setString(3, book.getIsbn());
-            pstmt.setInt(4, book.getQuantity());
-            pstmt.setString(5, book.getQuantity() > 0 ? "AVAILABLE" : "OUT_OF_STOCK");
-            pstmt.setInt(6, book.getBookId());
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            Book previous = lockBook(conn, book.getBookId());
+            if (previous == null) {
+                return null;
+            }
+            // A stored ISBN with a bad check digit may be kept, but not newly entered
+            if (!ValidationUtils.isValidBookUpdate(book, previous.getIsbn())) {
+                logger.warning("Invalid book data provided for update");
+                conn.rollback();
+                return null;
+            }
+            book.setIsbn(Isbn.normalize(book.getIsbn()));
             
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
-                logger.info("Book updated successfully: " + book.getTitle());
-                return true;
+            // The row is locked, so circulation cannot change the quantity between reading and writing it
+            int quantity = shiftedQuantity(previous.getQuantity(), book.getQuantity(), seenQuantity);
+            String status = quantity > 0 ? "AVAILABLE" : "OUT_OF_STOCK";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, book.getTitle());
+                pstmt.setString(2, book.getAuthor());
+                pstmt.setString(3, book.getIsbn());
+                pstmt.setInt(4, quantity);
+                pstmt.setString(5, status);
+                pstmt.setInt(6, book.getBookId());
+                pstmt.executeUpdate();
+            }
+            conn.commit();
+            
+            if (quantity != book.getQuantity()) {
+                logger.info("Quantity of book " + book.getBookId() + " changed while it was edited; stored " + quantity);
+            }
+            book.setQuantity(quantity);
+            book.setStatus(status);
+            for (CatalogChangeListener listener : catalogListeners) {
+                listener.bookUpdated(previous, book);
             }
+            logger.info("Book updated successfully: " + book.getTitle());
+            return book;
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error updating book: " + book.getTitle(), e);
         }
         
-        return false;
+        return null;
+    }
+    
+    /**
+     * Apply an edit of the quantity from seenQuantity to editedQuantity on top of the current one
+     */
+    static int shiftedQuantity(int currentQuantity, int editedQuantity, int seenQuantity) {
+        long quantity = (long) currentQuantity + editedQuantity - seenQuantity;
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, quantity));
     }
     
     /**
      * Delete book from database
+     * A book with copies on loan is refused.
      */
     public boolean deleteBook(int bookId) {
         String sql = "DELETE FROM books_table WHERE book_id = ?";
         
-        try (PreparedStatement pstmt = dbConnection.getConnection().prepareStatement(sql)) {
-            pstmt.setInt(1, bookId);
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            Book previous = lockBook(conn, bookId);
+            if (previous == null) {
+                return false;
+            }
+            if (!booksOnLoan(conn, List.of(List.of(bookId))).isEmpty()) {
+                logger.warning("Not deleting book " + bookId + ": copies are on loan");
+                conn.rollback();
+                return false;
+            }
             
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
-                logger.info("Book deleted successfully with ID: " + bookId);
-                return true;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, bookId);
+                pstmt.executeUpdate();
+            }
+            conn.commit();
+            
+            for (CatalogChangeListener listener : catalogListeners) {
+                listener.bookDeleted(previous);
             }
+            logger.info("Book deleted successfully with ID: " + bookId);
+            return true;
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error deleting book with ID: " + bookId, e);
         }
@@ -190,30 +568,30 @@ public class DatabaseOperations {
     }
     
     /**
-     * Search books by title or author
+     * Search books by title, author or ISBN
+     * Served from the in-memory search index once it is built. Either way at
+     * most SEARCH_MAX_RESULTS books are returned.
      */
     public List<Book> searchBooks(String searchTerm) {
+        BookSearchIndex index = BookSearchIndex.getInstance();
+        if (index.isReady()) {
+            List<Book> books = index.search(searchTerm, Constants.SEARCH_MAX_RESULTS);
+            logger.fine("Index found " + books.size() + " books matching search term: " + searchTerm);
+            return books;
+        }
+        
         List<Book> books = new ArrayList<>();
-        String sql = "SELECT * FROM books_table WHERE title LIKE ? OR author LIKE ? ORDER BY title";
+        String sql = "SELECT " + BOOK_COLUMNS + " FROM books_table WHERE title LIKE ? OR author LIKE ? ORDER BY title " +
+                     "LIMIT " + Constants.SEARCH_MAX_RESULTS;
         
-        try (PreparedStatement pstmt = dbConnection.getConnection().prepareStatement(sql)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             String searchPattern = "%" + searchTerm + "%";
             pstmt.setString(1, searchPattern);
             pstmt.setString(2, searchPattern);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Book book = new Book(
-                        rs.getInt("book_id"),
-                        rs.getString("title"),
-                        rs.getString("author"),
-                        rs.getString("isbn"),
-                        rs.getInt("quantity"),
-                        rs.getTimestamp("date_added"),
-                        rs.getString("status")
-                    );
-                    books.add(book);
-                }
+                RowMapper.BOOK.forEach(rs, books::add);
             }
             logger.info("Found " + books.size() + " books matching search term: " + searchTerm);
         } catch (SQLException e) {
@@ -223,6 +601,19 @@ public class DatabaseOperations {
         return books;
     }
     
+    /**
+     * Build the in-memory search index from the full catalog
+     * Reads the local snapshot instead of the database when it is known to be
+     * current, or whenever the database is unreachable
+     */
+    public void loadSearchIndex() {
+        BookSearchIndex.getInstance().rebuild(() -> {
+            CatalogSnapshot snapshot = OfflineMode.isActive() ? CatalogSnapshotManager.offlineSnapshot()
+                                                              : CatalogSnapshotManager.verifiedSnapshot();
+            return snapshot != null ? snapshot.loadBookStore() : loadBookStore();
+        });
+    }
+    
     // ==================== STAFF OPERATIONS ====================
     
     /**
@@ -230,43 +621,139 @@ public class DatabaseOperations {
      */
     public List<Staff> getAllStaff() {
         List<Staff> staffList = new ArrayList<>();
-        String sql = "SELECT * FROM staff_table ORDER BY name";
+        if (forEachStaff(staffList::add) >= 0) {
+            logger.info("Retrieved " + staffList.size() + " staff members from database");
+        }
+        return staffList;
+    }
+    
+    /**
+     * Stream every staff member in name order to the consumer
+     * Rows are fetched in chunks rather than buffered, see forEachBook.
+     * Returns the number of rows, or -1 if the query failed.
+     */
+    public long forEachStaff(Consumer<? super Staff> consumer) {
+        String sql = "SELECT " + STAFF_COLUMNS + " FROM staff_table ORDER BY name, staff_id";
         
-        try (PreparedStatement pstmt = dbConnection.getConnection().prepareStatement(sql);
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = prepareStreaming(conn, sql);
              ResultSet rs = pstmt.executeQuery()) {
+            return RowMapper.STAFF.forEach(rs, consumer);
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error streaming staff from database", e);
+            return -1;
+        }
+    }
+    
+    /**
+     * Get one page of staff ordered by (name, staff_id) using keyset pagination
+     * Pass a null afterName to fetch the first page; returns null on error
+     */
+    public List<Staff> getStaffPage(String afterName, int afterId, int limit) {
+        List<Staff> staffList = new ArrayList<>(limit);
+        String sql = afterName == null
+            ? "SELECT " + STAFF_COLUMNS + " FROM staff_table ORDER BY name, staff_id LIMIT ?"
+            : "SELECT " + STAFF_COLUMNS + " FROM staff_table WHERE name > ? OR (name = ? AND staff_id > ?) " +
+              "ORDER BY name, staff_id LIMIT ?";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (afterName != null) {
+                pstmt.setString(index++, afterName);
+                pstmt.setString(index++, afterName);
+                pstmt.setInt(index++, afterId);
+            }
+            pstmt.setInt(index, limit);
             
-            while (rs.next()) {
-                Staff staff = new Staff(
-                    rs.getInt("staff_id"),
-                    rs.getString("name"),
-                    rs.getString("role"),
-                    rs.getDate("hire_date"),
-                    rs.getString("status"),
-                    rs.getString("email"),
-                    rs.getString("phone")
-                );
-                staffList.add(staff);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper.STAFF.forEach(rs, staffList::add);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error retrieving staff page after: " + afterName, e);
+            return null;
+        }
+        
+        return staffList;
+    }
+    
+    /**
+     * Get one page of staff starting at a row offset, or null on error
+     */
+    public List<Staff> getStaffPageAt(int offset, int limit) {
+        List<Staff> staffList = new ArrayList<>(limit);
+        String sql = "SELECT " + STAFF_COLUMNS + " FROM staff_table ORDER BY name, staff_id LIMIT ? OFFSET ?";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, limit);
+            pstmt.setInt(2, offset);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper.STAFF.forEach(rs, staffList::add);
             }
-            logger.info("Retrieved " + staffList.size() + " staff members from database");
         } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Error retrieving staff from database", e);
+            logger.log(Level.SEVERE, "Error retrieving staff page at offset: " + offset, e);
+            return null;
         }
         
         return staffList;
     }
     
+    /**
+     * Get the row position of a staff member in (name, staff_id) order
+     * Returns -1 if the position could not be determined
+     */
+    public int getStaffPosition(String name, int staffId) {
+        String sql = "SELECT COUNT(*) FROM staff_table WHERE name < ? OR (name = ? AND staff_id < ?)";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, name);
+            pstmt.setString(2, name);
+            pstmt.setInt(3, staffId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error locating staff member: " + name, e);
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Read a staff member inside the caller's transaction, locking the row until commit
+     */
+    private Staff lockStaff(Connection conn, int staffId) throws SQLException {
+        String sql = "SELECT " + STAFF_COLUMNS + " FROM staff_table WHERE staff_id = ? FOR UPDATE";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, staffId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? RowMapper.STAFF.mapRow(rs) : null;
+            }
+        }
+    }
+    
     /**
      * Add new staff member
+     * Returns the stored staff member with its generated id, or null on failure
      */
-    public boolean addStaff(Staff staff) {
+    public Staff addStaff(Staff staff) {
         if (!ValidationUtils.isValidStaff(staff)) {
             logger.warning("Invalid staff data provided");
-            return false;
+            return null;
         }
         
         String sql = "INSERT INTO staff_table (name, role, hire_date, status, email, phone) VALUES (?, ?, ?, ?, ?, ?)";
         
-        try (PreparedStatement pstmt = dbConnection.getConnection().prepareStatement(sql)) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setString(1, staff.getName());
             pstmt.setString(2, staff.getRole());
             pstmt.setDate(3, staff.getHireDate());
@@ -276,45 +763,67 @@ public class DatabaseOperations {
             
             int rowsAffected = pstmt.executeUpdate();
             if (rowsAffected > 0) {
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        staff.setStaffId(keys.getInt(1));
+                    }
+                }
+                staff.setStatus("ACTIVE");
+                for (CatalogChangeListener listener : catalogListeners) {
+                    listener.staffAdded(staff);
+                }
                 logger.info("Staff member added successfully: " + staff.getName());
-                return true;
+                return staff;
             }
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error adding staff member: " + staff.getName(), e);
         }
         
-        return false;
+        return null;
     }
     
     /**
      * Update existing staff member
+     * Returns the updated staff member, or null on failure
      */
-    public boolean updateStaff(Staff staff) {
+    public Staff updateStaff(Staff staff) {
         if (!ValidationUtils.isValidStaff(staff)) {
             logger.warning("Invalid staff data provided for update");
-            return false;
+            return null;
         }
         
         String sql = "UPDATE staff_table SET name = ?, role = ?, hire_date = ?, email = ?, phone = ? WHERE staff_id = ?";
         
-        try (PreparedStatement pstmt = dbConnection.getConnection().prepareStatement(sql)) {
-            pstmt.setString(1, staff.getName());
-            pstmt.setString(2, staff.getRole());
-            pstmt.setDate(3, staff.getHireDate());
-            pstmt.setString(4, staff.getEmail());
-            pstmt.setString(5, staff.getPhone());
-            pstmt.setInt(6, staff.getStaffId());
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            Staff previous = lockStaff(conn, staff.getStaffId());
+            if (previous == null) {
+                return null;
+            }
             
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
-                logger.info("Staff member updated successfully: " + staff.getName());
-                return true;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, staff.getName());
+                pstmt.setString(2, staff.getRole());
+                pstmt.setDate(3, staff.getHireDate());
+                pstmt.setString(4, staff.getEmail());
+                pstmt.setString(5, staff.getPhone());
+                pstmt.setInt(6, staff.getStaffId());
+                pstmt.executeUpdate();
             }
+            conn.commit();
+            
+            // Status is not edited here, so it stays as stored
+            staff.setStatus(previous.getStatus());
+            for (CatalogChangeListener listener : catalogListeners) {
+                listener.staffUpdated(previous, staff);
+            }
+            logger.info("Staff member updated successfully: " + staff.getName());
+            return staff;
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error updating staff member: " + staff.getName(), e);
         }
         
-        return false;
+        return null;
     }
     
     /**
@@ -323,14 +832,24 @@ public class DatabaseOperations {
     public boolean deleteStaff(int staffId) {
         String sql = "DELETE FROM staff_table WHERE staff_id = ?";
         
-        try (PreparedStatement pstmt = dbConnection.getConnection().prepareStatement(sql)) {
-            pstmt.setInt(1, staffId);
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            Staff previous = lockStaff(conn, staffId);
+            if (previous == null) {
+                return false;
+            }
             
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
-                logger.info("Staff member deleted successfully with ID: " + staffId);
-                return true;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, staffId);
+                pstmt.executeUpdate();
+            }
+            conn.commit();
+            
+            for (CatalogChangeListener listener : catalogListeners) {
+                listener.staffDeleted(previous);
             }
+            logger.info("Staff member deleted successfully with ID: " + staffId);
+            return true;
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error deleting staff member with ID: " + staffId, e);
         }
@@ -338,6 +857,289 @@ public class DatabaseOperations {
         return false;
     }
     
+    // ==================== BULK OPERATIONS ====================
+    
+    /**
+     * Delete several books in one transaction
+     * Books with copies on loan are left alone. Returns the deleted rows as
+     * they were, or null on failure.
+     */
+    public List<Book> deleteBooks(Collection<Integer> bookIds) {
+        List<List<Integer>> chunks = chunkIds(bookIds);
+        
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            List<Book> locked = lockBooks(conn, chunks);
+            Set<Integer> onLoan = booksOnLoan(conn, chunks);
+            List<Book> previous = new ArrayList<>(locked.size());
+            List<Integer> deletable = new ArrayList<>(locked.size());
+            for (Book book : locked) {
+                if (!onLoan.contains(book.getBookId())) {
+                    previous.add(book);
+                    deletable.add(book.getBookId());
+                }
+            }
+            if (!onLoan.isEmpty()) {
+                logger.warning("Not deleting " + onLoan.size() + " books with copies on loan");
+            }
+            for (List<Integer> chunk : chunkIds(deletable)) {
+                executeForIds(conn, "DELETE FROM books_table WHERE book_id IN ", chunk, null);
+            }
+            conn.commit();
+            
+            for (Book book : previous) {
+                for (CatalogChangeListener listener : catalogListeners) {
+                    listener.bookDeleted(book);
+                }
+            }
+            logger.info("Deleted " + previous.size() + " books");
+            return previous;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error deleting " + bookIds.size() + " books", e);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Add delta to the quantity of several books, stopping at zero
+     * Status follows the new quantity as in updateBook. Returns the updated
+     * books, or null on failure.
+     */
+    public List<Book> adjustBookQuantities(Collection<Integer> bookIds, int delta) {
+        String sql = "UPDATE books_table SET quantity = ?, status = ? WHERE book_id = ?";
+        List<List<Integer>> chunks = chunkIds(bookIds);
+        
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            List<Book> previous = lockBooks(conn, chunks);
+            List<Book> updated = new ArrayList<>(previous.size());
+            
+            // Rows are locked, so the new values can be computed here and sent as one batch
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (Book book : previous) {
+                    Book changed = new Book(book);
+                    changed.setQuantity((int) Math.max(0, Math.min(Integer.MAX_VALUE, (long) book.getQuantity() + delta)));
+                    changed.setStatus(changed.getQuantity() > 0 ? "AVAILABLE" : "OUT_OF_STOCK");
+                    pstmt.setInt(1, changed.getQuantity());
+                    pstmt.setString(2, changed.getStatus());
+                    pstmt.setInt(3, changed.getBookId());
+                    pstmt.addBatch();
+                    updated.add(changed);
+                }
+                pstmt.executeBatch();
+            }
+            conn.commit();
+            
+            for (int i = 0; i < updated.size(); i++) {
+                for (CatalogChangeListener listener : catalogListeners) {
+                    listener.bookUpdated(previous.get(i), updated.get(i));
+                }
+            }
+            logger.info("Adjusted quantity of " + updated.size() + " books by " + delta);
+            return updated;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error adjusting quantity of " + bookIds.size() + " books", e);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Delete several staff members in one transaction
+     * Returns the deleted rows as they were, or null on failure
+     */
+    public List<Staff> deleteStaffMembers(Collection<Integer> staffIds) {
+        List<List<Integer>> chunks = chunkIds(staffIds);
+        
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            List<Staff> previous = lockStaffMembers(conn, chunks);
+            for (List<Integer> chunk : chunks) {
+                executeForIds(conn, "DELETE FROM staff_table WHERE staff_id IN ", chunk, null);
+            }
+            conn.commit();
+            
+            for (Staff staff : previous) {
+                for (CatalogChangeListener listener : catalogListeners) {
+                    listener.staffDeleted(staff);
+                }
+            }
+            logger.info("Deleted " + previous.size() + " staff members");
+            return previous;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error deleting " + staffIds.size() + " staff members", e);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Give several staff members the same role
+     * Returns the updated staff, or null on failure
+     */
+    public List<Staff> setStaffRole(Collection<Integer> staffIds, String role) {
+        if (!isValidRole(role)) {
+            logger.warning("Invalid role provided for bulk update: " + role);
+            return null;
+        }
+        return updateStaffColumn(staffIds, "role", role);
+    }
+    
+    /**
+     * Set several staff members ACTIVE or INACTIVE
+     * Returns the updated staff, or null on failure
+     */
+    public List<Staff> setStaffStatus(Collection<Integer> staffIds, String status) {
+        if (!isValidStaffStatus(status)) {
+            logger.warning("Invalid staff status provided for bulk update: " + status);
+            return null;
+        }
+        return updateStaffColumn(staffIds, "status", status);
+    }
+    
+    static boolean isValidRole(String role) {
+        return ValidationUtils.isNotEmpty(role) && role.length() <= Constants.MAX_NAME_LENGTH;
+    }
+    
+    static boolean isValidStaffStatus(String status) {
+        return Constants.ACTIVE_STATUS.equals(status) || Constants.INACTIVE_STATUS.equals(status);
+    }
+    
+    /**
+     * Set one column of several staff rows in a transaction, IN-list chunk by chunk
+     */
+    private List<Staff> updateStaffColumn(Collection<Integer> staffIds, String column, String value) {
+        List<List<Integer>> chunks = chunkIds(staffIds);
+        
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            List<Staff> previous = lockStaffMembers(conn, chunks);
+            for (List<Integer> chunk : chunks) {
+                executeForIds(conn, "UPDATE staff_table SET " + column + " = ? WHERE staff_id IN ", chunk, value);
+            }
+            conn.commit();
+            
+            List<Staff> updated = new ArrayList<>(previous.size());
+            for (Staff staff : previous) {
+                Staff changed = new Staff(staff.getStaffId(), staff.getName(),
+                                          "role".equals(column) ? value : staff.getRole(), staff.getHireDate(),
+                                          "status".equals(column) ? value : staff.getStatus(),
+                                          staff.getEmail(), staff.getPhone());
+                updated.add(changed);
+                for (CatalogChangeListener listener : catalogListeners) {
+                    listener.staffUpdated(staff, changed);
+                }
+            }
+            logger.info("Set " + column + " of " + updated.size() + " staff members to " + value);
+            return updated;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error setting " + column + " of " + staffIds.size() + " staff members", e);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Lock and read books by id, IN-list chunk by chunk
+     */
+    private List<Book> lockBooks(Connection conn, List<List<Integer>> chunks) throws SQLException {
+        List<Book> books = new ArrayList<>();
+        for (List<Integer> chunk : chunks) {
+            String sql = "SELECT " + BOOK_COLUMNS + " FROM books_table WHERE book_id IN " + placeholders(chunk.size()) + " FOR UPDATE";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    RowMapper.BOOK.forEach(rs, books::add);
+                }
+            }
+        }
+        return books;
+    }
+    
+    /**
+     * Lock and read staff by id, IN-list chunk by chunk
+     */
+    private List<Staff> lockStaffMembers(Connection conn, List<List<Integer>> chunks) throws SQLException {
+        List<Staff> staffList = new ArrayList<>();
+        for (List<Integer> chunk : chunks) {
+            String sql = "SELECT " + STAFF_COLUMNS + " FROM staff_table WHERE staff_id IN " + placeholders(chunk.size()) + " FOR UPDATE";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    RowMapper.STAFF.forEach(rs, staffList::add);
+                }
+            }
+        }
+        return staffList;
+    }
+    
+    /**
+     * Find which of the books have copies on loan
+     * Callers hold the books' row locks, which checkouts wait for, so no loan
+     * can be opened on them until the transaction ends.
+     */
+    static Set<Integer> booksOnLoan(Connection conn, List<List<Integer>> chunks) throws SQLException {
+        Set<Integer> onLoan = new HashSet<>();
+        for (List<Integer> chunk : chunks) {
+            String sql = "SELECT DISTINCT book_id FROM loans_table WHERE return_date IS NULL AND book_id IN " +
+                         placeholders(chunk.size());
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        onLoan.add(rs.getInt(1));
+                    }
+                }
+            }
+        }
+        return onLoan;
+    }
+    
+    /**
+     * Run a statement ending in an IN list for one chunk of ids
+     * A non-null value is bound as the first parameter.
+     */
+    private void executeForIds(Connection conn, String sqlPrefix, List<Integer> ids, String value) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sqlPrefix + placeholders(ids.size()))) {
+            int index = 1;
+            if (value != null) {
+                pstmt.setString(index++, value);
+            }
+            for (int id : ids) {
+                pstmt.setInt(index++, id);
+            }
+            pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Split distinct ids into chunks of at most BULK_CHUNK_SIZE
+     * Full chunks share one statement text, so the statement cache reuses them
+     */
+    private static List<List<Integer>> chunkIds(Collection<Integer> ids) {
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += Constants.BULK_CHUNK_SIZE) {
+            chunks.add(distinct.subList(from, Math.min(from + Constants.BULK_CHUNK_SIZE, distinct.size())));
+        }
+        return chunks;
+    }
+    
+    static String placeholders(int count) {
+        StringBuilder sql = new StringBuilder(count * 3 + 2).append('(');
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(')').toString();
+    }
+    
     // ==================== UTILITY OPERATIONS ====================
     
     /**
@@ -346,7 +1148,8 @@ public class DatabaseOperations {
     public int getTotalBooks() {
         String sql = "SELECT COUNT(*) as total FROM books_table";
         
-        try (PreparedStatement pstmt = dbConnection.getConnection().prepareStatement(sql);
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
             
             if (rs.next()) {
@@ -359,13 +1162,101 @@ public class DatabaseOperations {
         return 0;
     }
     
+    /**
+     * Get every dashboard counter in a single round trip
+     * Returns null if the summary could not be read
+     */
+    public LibrarySummary getLibrarySummary() {
+        String sql = "SELECT COUNT(*) AS total_titles, COALESCE(SUM(quantity), 0) AS total_copies, " +
+                     "COALESCE(SUM(status = 'AVAILABLE'), 0) AS available_titles, " +
+                     "COALESCE(SUM(status = 'OUT_OF_STOCK'), 0) AS out_of_stock_titles, " +
+                     "(SELECT COUNT(*) FROM staff_table WHERE status = 'ACTIVE') AS active_staff " +
+                     "FROM books_table";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            if (rs.next()) {
+                return new LibrarySummary(rs.getInt("total_titles"), rs.getLong("total_copies"),
+                                          rs.getInt("available_titles"), rs.getInt("out_of_stock_titles"),
+                                          rs.getInt("active_staff"));
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error reading library summary", e);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Get the version of the books table used to detect outside changes
+     * Reads the single catalog_versions row that the catalog_versions
+     * migration's triggers bump on every committed insert, update and delete,
+     * together with the row count they maintain. Unlike the table's
+     * UPDATE_TIME, which MySQL 8 caches for up to a day, this changes with
+     * every write. Returns null if the query fails.
+     */
+    public CatalogVersion getCatalogVersion() {
+        return getTableVersion("books_table");
+    }
+    
+    /**
+     * Get the staff table version, compared like the catalog version
+     */
+    public CatalogVersion getStaffVersion() {
+        return getTableVersion("staff_table");
+    }
+    
+    private CatalogVersion getTableVersion(String table) {
+        String sql = "SELECT row_count, version FROM catalog_versions WHERE table_name = ?";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, table);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new CatalogVersion(rs.getInt("row_count"), rs.getLong("version"));
+                }
+            }
+            logger.warning("No version recorded for " + table + "; has the catalog_versions migration been applied?");
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Error reading version of " + table +
+                       "; has the catalog_versions migration been applied?", e);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Get count of all staff records regardless of status
+     */
+    public int getStaffRecordCount() {
+        String sql = "SELECT COUNT(*) as total FROM staff_table";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            if (rs.next()) {
+                return rs.getInt("total");
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error getting staff record count", e);
+        }
+        
+        return 0;
+    }
+    
     /**
      * Get total count of staff
      */
     public int getTotalStaff() {
         String sql = "SELECT COUNT(*) as total FROM staff_table WHERE status = 'ACTIVE'";
         
-        try (PreparedStatement pstmt = dbConnection.getConnection().prepareStatement(sql);
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
             
             if (rs.next()) {
@@ -378,5 +1269,33 @@ public class DatabaseOperations {
         return 0;
     }
     
-
-}
+    /**
+     * Row count and change counter of a table at one point in time
+     */
+    public static class CatalogVersion {
+        private final int rowCount;
+        private final long version;
+        
+        CatalogVersion(int rowCount, long version) {
+            this.rowCount = rowCount;
+            this.version = version;
+        }
+        
+        public int getRowCount() { return rowCount; }
+        public long getVersion() { return version; }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof CatalogVersion)) {
+                return false;
+            }
+            CatalogVersion catalogVersion = (CatalogVersion) other;
+            return rowCount == catalogVersion.rowCount && version == catalogVersion.version;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(rowCount, version);
+        }
+    }
+}
\ No newline at end of file
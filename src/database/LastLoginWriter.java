@@ -0,0 +1,116 @@
+package database;
+
+import utils.Constants;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind queue for admin last_login timestamps
+ * Logins only record the time in memory; a background thread writes all
+ * pending timestamps in one JDBC batch. Repeated logins by the same admin
+ * between flushes collapse into one row update. Timestamps still queued
+ * when the process dies are lost, which only affects the audit column.
+ */
+public class LastLoginWriter {
+    private static final Logger logger = Logger.getLogger(LastLoginWriter.class.getName());
+    private static LastLoginWriter instance;
+    
+    private final DatabaseConnection dbConnection;
+    private final Map<Integer, Timestamp> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService executor;
+    
+    private LastLoginWriter() {
+        this.dbConnection = DatabaseConnection.getInstance();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "last-login-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Get singleton instance
+     */
+    public static synchronized LastLoginWriter getInstance() {
+        if (instance == null) {
+            instance = new LastLoginWriter();
+        }
+        return instance;
+    }
+    
+    /**
+     * Queue a login time for the admin; returns without touching the database
+     */
+    public void recordLogin(int adminId, Timestamp loginTime) {
+        pending.merge(adminId, loginTime, (queued, latest) -> latest.after(queued) ? latest : queued);
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.schedule(this::flush, Constants.LAST_LOGIN_FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Shut down already; the caller's shutdown flush picks it up
+                flushScheduled.set(false);
+            }
+        }
+    }
+    
+    /**
+     * Write all queued timestamps in one batch
+     * Rows that fail are put back so the next flush retries them.
+     */
+    public synchronized void flush() {
+        flushScheduled.set(false);
+        if (pending.isEmpty()) {
+            return;
+        }
+        
+        // Take a consistent set of entries; newer logins arriving meanwhile stay queued
+        Map<Integer, Timestamp> batch = new HashMap<>();
+        for (Map.Entry<Integer, Timestamp> entry : pending.entrySet()) {
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        String sql = "UPDATE admin_table SET last_login = ? WHERE id = ?";
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<Integer, Timestamp> entry : batch.entrySet()) {
+                pstmt.setTimestamp(1, entry.getValue());
+                pstmt.setInt(2, entry.getKey());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            logger.fine("Wrote last login for " + batch.size() + " admins");
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Failed to write last login for " + batch.size() + " admins", e);
+            for (Map.Entry<Integer, Timestamp> entry : batch.entrySet()) {
+                recordLogin(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Stop the background writer after writing what is still queued
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        flush();
+    }
+}
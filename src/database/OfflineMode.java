@@ -0,0 +1,1298 @@
+package database;
+
+import models.Admin;
+import models.Book;
+import models.BookRecord;
+import models.Staff;
+import utils.Constants;
+import utils.Isbn;
+import utils.ValidationUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.FileStore;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.AclEntryType;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Keeps a desk client working while the database is unreachable
+ * Reads are served from the catalog snapshot with this client's pending
+ * writes laid over it; when the snapshot had stopped being served after a
+ * local write, the last one mapped stands in for it. Writes go to a
+ * WriteAheadJournal and are replayed in batches once the database is back.
+ * A write whose title, author or ISBN was changed by someone else in the
+ * meantime is recorded as a conflict instead of overwriting that change,
+ * and quantity edits are replayed as a change on top of the stored
+ * quantity, so checkouts at other desks are kept. A write the database
+ * keeps refusing is set aside as a conflict after JOURNAL_REPLAY_ATTEMPTS
+ * tries. Rows added offline get temporary negative ids until they are replayed.
+ */
+public class OfflineMode {
+    private static final Logger logger = Logger.getLogger(OfflineMode.class.getName());
+    private static OfflineMode instance;
+    private static volatile boolean active;
+    
+    /**
+     * Notified on the event dispatch thread when the offline state changes
+     */
+    public interface StatusListener {
+        /** Offline state or the number of journaled writes changed */
+        void statusChanged(boolean offline, int pendingWrites);
+        
+        /** Journaled writes were replayed against the database */
+        default void replayFinished(ReplayResult result) {}
+    }
+    
+    /**
+     * Outcome of replaying the journal
+     */
+    public static class ReplayResult {
+        private final int applied;
+        private final List<String> conflicts;
+        private final Path conflictFile;
+        
+        ReplayResult(int applied, List<String> conflicts, Path conflictFile) {
+            this.applied = applied;
+            this.conflicts = Collections.unmodifiableList(conflicts);
+            this.conflictFile = conflictFile;
+        }
+        
+        public int getApplied() { return applied; }
+        public List<String> getConflicts() { return conflicts; }
+        public Path getConflictFile() { return conflictFile; }
+    }
+    
+    private final DatabaseConnection dbConnection;
+    private final Path journalFile;
+    private final Path conflictFile;
+    private final Path loginFile;
+    private final List<StatusListener> listeners = new CopyOnWriteArrayList<>();
+    
+    // Offline writes hold the read lock, so none can slip in after the final replay
+    private final ReadWriteLock switchLock = new ReentrantReadWriteLock();
+    private WriteAheadJournal journal;
+    private ScheduledExecutorService reconnector;
+    private ExecutorService loginWriter;
+    private final SecureRandom random = new SecureRandom();
+    
+    // Pending writes laid over the snapshot, rebuilt from the journal on open
+    private final Map<Integer, Book> books = new ConcurrentHashMap<>();
+    private final Map<Integer, Staff> staff = new ConcurrentHashMap<>();
+    private final Set<Integer> deletedBooks = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> deletedStaff = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextTemporaryId = new AtomicInteger(-1);
+    
+    // Ids the database gave rows that were added offline, by temporary id
+    private final Map<Integer, Integer> replayedBookIds = new ConcurrentHashMap<>();
+    
+    // Failed replays per journal sequence, for writes the database keeps refusing
+    private final Map<Long, Integer> replayFailures = new ConcurrentHashMap<>();
+    
+    private OfflineMode() {
+        dbConnection = DatabaseConnection.getInstance();
+        Path directory = Paths.get(System.getProperty("user.home"), Constants.SNAPSHOT_DIRECTORY);
+        // One journal per database, like the snapshots
+        String suffix = Integer.toHexString(dbConnection.getPool().getUrl().hashCode());
+        journalFile = directory.resolve("journal-" + suffix + ".wal");
+        conflictFile = directory.resolve("journal-" + suffix + ".conflicts");
+        loginFile = directory.resolve("logins-" + suffix + ".properties");
+    }
+    
+    /**
+     * Get singleton instance
+     */
+    public static synchronized OfflineMode getInstance() {
+        if (instance == null) {
+            instance = new OfflineMode();
+        }
+        return instance;
+    }
+    
+    /**
+     * Check whether writes are currently journaled instead of sent to the database
+     */
+    public static boolean isActive() {
+        return active;
+    }
+    
+    /**
+     * Check whether the client could work offline: a snapshot was written on
+     * this machine and someone has logged in here before
+     */
+    public static boolean canWorkOffline() {
+        try {
+            return CatalogSnapshotManager.offlineSnapshot() != null && getInstance().hasRememberedLogins();
+        } catch (RuntimeException e) {
+            logger.log(Level.FINE, "Offline mode unavailable", e);
+            return false;
+        }
+    }
+    
+    public void addListener(StatusListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(StatusListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Get the number of writes waiting to be replayed
+     */
+    public synchronized int getPendingCount() {
+        return journal != null ? journal.getPendingCount() : 0;
+    }
+    
+    // ==================== SWITCHING ====================
+    
+    /**
+     * Start journaling writes and look for the database in the background
+     */
+    public void goOffline(String reason) {
+        switchLock.writeLock().lock();
+        try {
+            if (active) {
+                return;
+            }
+            journal();
+            active = true;
+            startReconnecting();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not open the offline journal " + journalFile, e);
+            return;
+        } finally {
+            switchLock.writeLock().unlock();
+        }
+        logger.warning("Working offline (" + reason + "); writes are journaled to " + journalFile);
+        fireStatusChanged();
+    }
+    
+    /**
+     * Go offline if the database cannot be reached and a snapshot can serve reads
+     * Returns true when offline afterwards.
+     */
+    boolean switchIfUnreachable() {
+        if (active) {
+            return true;
+        }
+        if (CatalogSnapshotManager.offlineSnapshot() == null || dbConnection.isReachable()) {
+            return false;
+        }
+        goOffline("database unreachable");
+        return active;
+    }
+    
+    /**
+     * Run a write against the database, or journal it while offline
+     * A failed online write that turns out to be an outage is journaled
+     * too; every write reports failure as null.
+     */
+    <T> T route(Supplier<T> online, Supplier<T> journaled) {
+        if (!active) {
+            T result = online.get();
+            if (result != null || !switchIfUnreachable()) {
+                return result;
+            }
+        }
+        switchLock.readLock().lock();
+        try {
+            return active ? journaled.get() : online.get();
+        } finally {
+            switchLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Replay a journal left over from an earlier offline session
+     * Call off the EDT once the database is known to be reachable.
+     */
+    public void replayIfPending() {
+        try {
+            if (active || !Files.exists(journalFile) || Files.size(journalFile) == 0) {
+                return;
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not check the offline journal " + journalFile, e);
+            return;
+        }
+        reconnect();
+    }
+    
+    private void startReconnecting() {
+        reconnector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "offline-reconnect");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconnector.scheduleWithFixedDelay(() -> {
+            if (dbConnection.isReachable()) {
+                reconnect();
+            }
+        }, Constants.JOURNAL_RECONNECT_INTERVAL_MS, Constants.JOURNAL_RECONNECT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Replay the journal and go back online if all of it was applied
+     */
+    private void reconnect() {
+        ReplayResult result;
+        switchLock.writeLock().lock();
+        try {
+            result = replay(journal());
+            if (journal.getPendingCount() > 0) {
+                return;
+            }
+            books.clear();
+            staff.clear();
+            deletedBooks.clear();
+            deletedStaff.clear();
+            replayedBookIds.clear();
+            replayFailures.clear();
+            if (active) {
+                active = false;
+                reconnector.shutdown();
+                logger.info("Database reachable again, back online");
+            }
+        } catch (SQLException | IOException e) {
+            logger.log(Level.WARNING, "Replaying the offline journal failed; will retry", e);
+            return;
+        } finally {
+            switchLock.writeLock().unlock();
+        }
+        
+        // Caches, snapshot, index and tables all reload from the database
+        if (result.getApplied() > 0 || !result.getConflicts().isEmpty()) {
+            DatabaseOperations.fireCatalogReloaded();
+        }
+        fireStatusChanged();
+        AsyncDatabaseOperations.EDT.execute(() -> {
+            for (StatusListener listener : listeners) {
+                listener.replayFinished(result);
+            }
+        });
+    }
+    
+    private void fireStatusChanged() {
+        boolean offline = active;
+        int pending = getPendingCount();
+        AsyncDatabaseOperations.EDT.execute(() -> {
+            for (StatusListener listener : listeners) {
+                listener.statusChanged(offline, pending);
+            }
+        });
+    }
+    
+    // ==================== OFFLINE READS ====================
+    
+    /**
+     * Get a book as this client last saw it, or null if unknown or deleted
+     */
+    public Book getBook(int bookId) {
+        if (deletedBooks.contains(bookId)) {
+            return null;
+        }
+        Book book = books.get(bookId);
+        if (book != null) {
+            return new Book(book);
+        }
+        CatalogSnapshot snapshot = CatalogSnapshotManager.offlineSnapshot();
+        return snapshot != null ? snapshot.getBookById(bookId) : null;
+    }
+    
+    /**
+     * Get a staff member as this client last saw them, or null if unknown or deleted
+     */
+    public Staff getStaff(int staffId) {
+        if (deletedStaff.contains(staffId)) {
+            return null;
+        }
+        Staff member = staff.get(staffId);
+        if (member != null) {
+            return copy(member);
+        }
+        CatalogSnapshot snapshot = CatalogSnapshotManager.offlineSnapshot();
+        return snapshot != null ? snapshot.getStaffById(staffId) : null;
+    }
+    
+    /**
+     * Get a book by ISBN as this client last saw it, or null if unknown or deleted
+     * The snapshot has no ISBN index, so its rows are scanned.
+     */
+    public Book getBookByIsbn(String isbn) {
+        String normalized = Isbn.normalize(isbn);
+        for (Book book : books.values()) {
+            if (Objects.equals(normalized, Isbn.normalize(book.getIsbn()))) {
+                return new Book(book);
+            }
+        }
+        CatalogSnapshot snapshot = CatalogSnapshotManager.offlineSnapshot();
+        Book book = snapshot != null ? snapshot.getBookByIsbn(isbn) : null;
+        // A pending write gave that book another ISBN, or deleted it
+        if (book == null || books.containsKey(book.getBookId()) || deletedBooks.contains(book.getBookId())) {
+            return null;
+        }
+        return book;
+    }
+    
+    /**
+     * Get every book as this client last saw it, books added offline first
+     */
+    public List<BookRecord> getAllBooks() {
+        List<BookRecord> result = new ArrayList<>();
+        for (Book book : books.values()) {
+            if (book.getBookId() < 0) {
+                result.add(new Book(book));
+            }
+        }
+        CatalogSnapshot snapshot = CatalogSnapshotManager.offlineSnapshot();
+        if (snapshot != null) {
+            // As overlayBooks, keeping the store's views for rows with nothing pending
+            for (BookRecord row : snapshot.loadBookStore().views()) {
+                if (!deletedBooks.contains(row.getBookId())) {
+                    Book pending = books.get(row.getBookId());
+                    result.add(pending != null ? new Book(pending) : row);
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Apply pending writes to rows read from the snapshot
+     * Rows added offline are not merged in; they are shown where they were inserted.
+     */
+    List<Book> overlayBooks(List<Book> rows) {
+        if (rows == null || books.isEmpty() && deletedBooks.isEmpty()) {
+            return rows;
+        }
+        List<Book> result = new ArrayList<>(rows.size());
+        for (Book row : rows) {
+            if (!deletedBooks.contains(row.getBookId())) {
+                Book pending = books.get(row.getBookId());
+                result.add(pending != null ? new Book(pending) : row);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Count the snapshot's books that overlayBooks still shows
+     */
+    int overlayBookCount(int snapshotCount) {
+        return snapshotCount - countSnapshotRows(deletedBooks);
+    }
+    
+    /**
+     * Count the snapshot's staff that overlayStaff still shows
+     */
+    int overlayStaffCount(int snapshotCount) {
+        return snapshotCount - countSnapshotRows(deletedStaff);
+    }
+    
+    /**
+     * Deleted rows with temporary ids were never in the snapshot
+     */
+    private static int countSnapshotRows(Set<Integer> deleted) {
+        int count = 0;
+        for (int id : deleted) {
+            if (id > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Apply pending writes to staff rows read from the snapshot
+     */
+    List<Staff> overlayStaff(List<Staff> rows) {
+        if (rows == null || staff.isEmpty() && deletedStaff.isEmpty()) {
+            return rows;
+        }
+        List<Staff> result = new ArrayList<>(rows.size());
+        for (Staff row : rows) {
+            if (!deletedStaff.contains(row.getStaffId())) {
+                Staff pending = staff.get(row.getStaffId());
+                result.add(pending != null ? copy(pending) : row);
+            }
+        }
+        return result;
+    }
+    
+    // ==================== OFFLINE WRITES ====================
+    
+    /**
+     * Journal a new book; it gets a temporary id until replayed
+     */
+    Book addBook(Book book) {
+        if (!ValidationUtils.isValidBook(book)) {
+            logger.warning("Invalid book data provided");
+            return null;
+        }
+        book.setIsbn(Isbn.normalize(book.getIsbn()));
+        Book added = new Book(book);
+        added.setBookId(nextTemporaryId.getAndDecrement());
+        added.setStatus(book.getQuantity() > 0 ? "AVAILABLE" : "OUT_OF_STOCK");
+        added.setDateAdded(new Timestamp(System.currentTimeMillis()));
+        if (!journalBooks(WriteAheadJournal.Entry.Type.ADD_BOOK, List.of(added), null)) {
+            return null;
+        }
+        book.setBookId(added.getBookId());
+        book.setStatus(added.getStatus());
+        book.setDateAdded(added.getDateAdded());
+        return book;
+    }
+    
+    /**
+     * Journal a book update against the row this client last saw
+     * The quantity edit is applied on top of that row, as online.
+     */
+    Book updateBook(Book book, int seenQuantity) {
+        Book previous = book == null ? null : getBook(book.getBookId());
+        if (previous == null) {
+            return null;
+        }
+        if (!ValidationUtils.isValidBookUpdate(book, previous.getIsbn())) {
+            logger.warning("Invalid book data provided for update");
+            return null;
+        }
+        book.setIsbn(Isbn.normalize(book.getIsbn()));
+        book.setQuantity(DatabaseOperations.shiftedQuantity(previous.getQuantity(), book.getQuantity(), seenQuantity));
+        book.setStatus(book.getQuantity() > 0 ? "AVAILABLE" : "OUT_OF_STOCK");
+        Book updated = new Book(book);
+        updated.setDateAdded(previous.getDateAdded());
+        return journalBooks(WriteAheadJournal.Entry.Type.UPDATE_BOOK, List.of(updated), List.of(previous)) ? book : null;
+    }
+    
+    /**
+     * Journal the deletion of several books; ids not known here are skipped
+     */
+    List<Book> deleteBooks(Collection<Integer> bookIds) {
+        List<Book> previous = new ArrayList<>(bookIds.size());
+        for (int bookId : bookIds) {
+            Book book = getBook(bookId);
+            if (book != null) {
+                previous.add(book);
+            }
+        }
+        return journalBooks(WriteAheadJournal.Entry.Type.DELETE_BOOK, previous, null) ? previous : null;
+    }
+    
+    /**
+     * Journal a quantity change for several books, stopping at zero
+     */
+    List<Book> adjustBookQuantities(Collection<Integer> bookIds, int delta) {
+        List<Book> previous = new ArrayList<>(bookIds.size());
+        List<Book> updated = new ArrayList<>(bookIds.size());
+        for (int bookId : bookIds) {
+            Book book = getBook(bookId);
+            if (book != null) {
+                Book changed = new Book(book);
+                changed.setQuantity((int) Math.max(0, Math.min(Integer.MAX_VALUE, (long) book.getQuantity() + delta)));
+                changed.setStatus(changed.getQuantity() > 0 ? "AVAILABLE" : "OUT_OF_STOCK");
+                previous.add(book);
+                updated.add(changed);
+            }
+        }
+        if (!journalBooks(WriteAheadJournal.Entry.Type.UPDATE_BOOK, updated, previous)) {
+            return null;
+        }
+        List<Book> copies = new ArrayList<>(updated.size());
+        for (Book book : updated) {
+            copies.add(new Book(book));
+        }
+        return copies;
+    }
+    
+    /**
+     * Journal a new staff member; they get a temporary id until replayed
+     */
+    Staff addStaff(Staff member) {
+        if (!ValidationUtils.isValidStaff(member)) {
+            logger.warning("Invalid staff data provided");
+            return null;
+        }
+        Staff added = copy(member);
+        added.setStaffId(nextTemporaryId.getAndDecrement());
+        added.setStatus("ACTIVE");
+        if (!journalStaff(WriteAheadJournal.Entry.Type.ADD_STAFF, List.of(added), null)) {
+            return null;
+        }
+        member.setStaffId(added.getStaffId());
+        member.setStatus(added.getStatus());
+        return member;
+    }
+    
+    /**
+     * Journal a staff update against the row this client last saw
+     */
+    Staff updateStaff(Staff member) {
+        if (!ValidationUtils.isValidStaff(member)) {
+            logger.warning("Invalid staff data provided for update");
+            return null;
+        }
+        Staff previous = getStaff(member.getStaffId());
+        if (previous == null) {
+            return null;
+        }
+        // Status is not edited here, so it stays as stored
+        member.setStatus(previous.getStatus());
+        return journalStaff(WriteAheadJournal.Entry.Type.UPDATE_STAFF, List.of(copy(member)), List.of(previous))
+               ? member : null;
+    }
+    
+    /**
+     * Journal the deletion of several staff members; ids not known here are skipped
+     */
+    List<Staff> deleteStaffMembers(Collection<Integer> staffIds) {
+        List<Staff> previous = new ArrayList<>(staffIds.size());
+        for (int staffId : staffIds) {
+            Staff member = getStaff(staffId);
+            if (member != null) {
+                previous.add(member);
+            }
+        }
+        return journalStaff(WriteAheadJournal.Entry.Type.DELETE_STAFF, previous, null) ? previous : null;
+    }
+    
+    /**
+     * Journal the same change to several staff members, e.g. a new role
+     */
+    List<Staff> updateStaffMembers(Collection<Integer> staffIds, UnaryOperator<Staff> change) {
+        List<Staff> previous = new ArrayList<>(staffIds.size());
+        List<Staff> updated = new ArrayList<>(staffIds.size());
+        for (int staffId : staffIds) {
+            Staff member = getStaff(staffId);
+            if (member != null) {
+                previous.add(member);
+                updated.add(change.apply(copy(member)));
+            }
+        }
+        if (!journalStaff(WriteAheadJournal.Entry.Type.UPDATE_STAFF, updated, previous)) {
+            return null;
+        }
+        List<Staff> copies = new ArrayList<>(updated.size());
+        for (Staff member : updated) {
+            copies.add(copy(member));
+        }
+        return copies;
+    }
+    
+    private boolean journalBooks(WriteAheadJournal.Entry.Type type, List<Book> rows, List<Book> previous) {
+        try {
+            for (WriteAheadJournal.Entry entry : journal().appendBooks(type, rows, previous)) {
+                overlay(entry);
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not journal " + rows.size() + " book writes", e);
+            return false;
+        }
+        logger.info("Journaled " + rows.size() + " book writes (" + type + ") while offline");
+        fireStatusChanged();
+        return true;
+    }
+    
+    private boolean journalStaff(WriteAheadJournal.Entry.Type type, List<Staff> rows, List<Staff> previous) {
+        try {
+            for (WriteAheadJournal.Entry entry : journal().appendStaff(type, rows, previous)) {
+                overlay(entry);
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not journal " + rows.size() + " staff writes", e);
+            return false;
+        }
+        logger.info("Journaled " + rows.size() + " staff writes (" + type + ") while offline");
+        fireStatusChanged();
+        return true;
+    }
+    
+    /**
+     * Lay a journaled write over the snapshot
+     */
+    private void overlay(WriteAheadJournal.Entry entry) {
+        int id = entry.getRowId();
+        switch (entry.getType()) {
+            case ADD_BOOK:
+            case UPDATE_BOOK:
+                books.put(id, entry.getBook());
+                break;
+            case DELETE_BOOK:
+                books.remove(id);
+                deletedBooks.add(id);
+                break;
+            case ADD_STAFF:
+            case UPDATE_STAFF:
+                staff.put(id, entry.getStaff());
+                break;
+            case DELETE_STAFF:
+                staff.remove(id);
+                deletedStaff.add(id);
+                break;
+        }
+        if (id <= nextTemporaryId.get()) {
+            nextTemporaryId.set(id - 1);
+        }
+    }
+    
+    /**
+     * Open the journal on first use and lay its pending writes over the snapshot
+     */
+    private synchronized WriteAheadJournal journal() throws IOException {
+        if (journal == null) {
+            journal = new WriteAheadJournal(journalFile);
+            for (WriteAheadJournal.Entry entry : journal.getPending()) {
+                overlay(entry);
+            }
+        }
+        return journal;
+    }
+    
+    // ==================== REPLAY ====================
+    
+    /**
+     * Apply pending writes in batches, one transaction per batch
+     * Each batch records its last sequence in offline_replays as it commits,
+     * and the journal notes it afterwards, so an interrupted replay continues
+     * with the next batch and applies nothing twice. When a batch fails while
+     * the database is reachable, its writes are retried one at a time; one
+     * that has failed JOURNAL_REPLAY_ATTEMPTS times is set aside as a
+     * conflict. Otherwise stops at the first database error.
+     */
+    private ReplayResult replay(WriteAheadJournal journal) throws SQLException, IOException {
+        String generation = journal.getGeneration();
+        skipReplayed(journal, generation);
+        List<WriteAheadJournal.Entry> pending = journal.getPending();
+        List<String> conflicts = new ArrayList<>();
+        int applied = 0;
+        
+        for (int start = 0; start < pending.size(); start += Constants.JOURNAL_REPLAY_BATCH_SIZE) {
+            List<WriteAheadJournal.Entry> batch =
+                pending.subList(start, Math.min(start + Constants.JOURNAL_REPLAY_BATCH_SIZE, pending.size()));
+            List<List<WriteAheadJournal.Entry>> parts;
+            List<String> batchConflicts = new ArrayList<>();
+            try {
+                applyBatch(batch, generation, batchConflicts);
+                parts = List.of(batch);
+            } catch (SQLException e) {
+                if (!dbConnection.isReachable()) {
+                    throw e;
+                }
+                logger.log(Level.WARNING, "Replaying a batch of the offline journal failed, retrying its writes one by one", e);
+                batchConflicts.clear();
+                for (WriteAheadJournal.Entry entry : batch) {
+                    applyAlone(entry, generation, batchConflicts);
+                    recordConflicts(batchConflicts);
+                    journal.markApplied(entry.getSequence());
+                    conflicts.addAll(batchConflicts);
+                    applied += 1 - batchConflicts.size();
+                    batchConflicts.clear();
+                }
+                continue;
+            }
+            
+            recordConflicts(batchConflicts);
+            journal.markApplied(batch.get(batch.size() - 1).getSequence());
+            conflicts.addAll(batchConflicts);
+            applied += batch.size() - batchConflicts.size();
+        }
+        
+        if (!pending.isEmpty()) {
+            forgetReplayed(generation);
+            logger.info("Replayed offline journal: " + applied + " applied, " + conflicts.size() + " conflicts; " +
+                        journal.getStats());
+        }
+        return new ReplayResult(applied, conflicts, conflictFile);
+    }
+    
+    /**
+     * Apply writes and record the last one's sequence in a single transaction
+     */
+    private void applyBatch(List<WriteAheadJournal.Entry> batch, String generation, List<String> conflicts)
+            throws SQLException {
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (WriteAheadJournal.Entry entry : batch) {
+                    String conflict = entry.isBook() ? applyBook(conn, entry) : applyStaff(conn, entry);
+                    if (conflict != null) {
+                        conflicts.add(describe(entry, conflict));
+                    }
+                }
+                String sql = "INSERT INTO offline_replays (journal_generation, sequence) VALUES (?, ?) " +
+                             "ON DUPLICATE KEY UPDATE sequence = GREATEST(sequence, VALUES(sequence))";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, generation);
+                    pstmt.setLong(2, batch.get(batch.size() - 1).getSequence());
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Apply one write on its own, setting it aside as a conflict once it has
+     * failed JOURNAL_REPLAY_ATTEMPTS times
+     * Rethrows the failure before that, or when the database went away.
+     */
+    private void applyAlone(WriteAheadJournal.Entry entry, String generation, List<String> conflicts)
+            throws SQLException {
+        try {
+            applyBatch(List.of(entry), generation, conflicts);
+            replayFailures.remove(entry.getSequence());
+        } catch (SQLException e) {
+            int failures = replayFailures.merge(entry.getSequence(), 1, Integer::sum);
+            if (failures < Constants.JOURNAL_REPLAY_ATTEMPTS || !dbConnection.isReachable()) {
+                throw e;
+            }
+            replayFailures.remove(entry.getSequence());
+            conflicts.clear();
+            conflicts.add(describe(entry, "failed " + failures + " times: " + e.getMessage()));
+        }
+    }
+    
+    private static String describe(WriteAheadJournal.Entry entry, String conflict) {
+        return new Timestamp(entry.getTime()) + " " + entry + ": " + conflict;
+    }
+    
+    /**
+     * Note as applied the writes an interrupted replay committed but the journal never noted
+     */
+    private void skipReplayed(WriteAheadJournal journal, String generation) throws SQLException, IOException {
+        if (journal.getPendingCount() == 0) {
+            return;
+        }
+        String sql = "SELECT sequence FROM offline_replays WHERE journal_generation = ?";
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, generation);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    logger.info("Offline journal was replayed up to " + rs.getLong(1) + " before; skipping those writes");
+                    journal.markApplied(rs.getLong(1));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Drop the progress row once the journal no longer needs it
+     */
+    private void forgetReplayed(String generation) {
+        if (journal.getPendingCount() > 0) {
+            return;
+        }
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM offline_replays WHERE journal_generation = ?")) {
+            pstmt.setString(1, generation);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Could not remove offline replay progress", e);
+        }
+    }
+    
+    /**
+     * Apply one book write; returns why it could not be applied, or null
+     * Writes that are already in the database, e.g. from a replay cut short
+     * before its progress was recorded, count as applied.
+     */
+    private String applyBook(Connection conn, WriteAheadJournal.Entry entry) throws SQLException {
+        Book book = entry.getBook();
+        if (entry.getType() == WriteAheadJournal.Entry.Type.ADD_BOOK) {
+            Book existing = findBookByIsbn(conn, book.getIsbn());
+            if (existing != null) {
+                replayedBookIds.put(book.getBookId(), existing.getBookId());
+                return sameBook(existing, book) ? null : "ISBN " + book.getIsbn() + " already belongs to another book";
+            }
+            String sql = "INSERT INTO books_table (title, author, isbn, quantity, status) VALUES (?, ?, ?, ?, ?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, book.getTitle());
+                pstmt.setString(2, book.getAuthor());
+                pstmt.setString(3, Isbn.normalize(book.getIsbn()));
+                pstmt.setInt(4, book.getQuantity());
+                pstmt.setString(5, book.getStatus());
+                pstmt.executeUpdate();
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        replayedBookIds.put(book.getBookId(), keys.getInt(1));
+                    }
+                }
+            } catch (SQLIntegrityConstraintViolationException e) {
+                return "rejected by the database: " + e.getMessage();
+            }
+            return null;
+        }
+        
+        Integer bookId = resolveBookId(conn, entry);
+        Book current = bookId != null ? lockBook(conn, bookId) : null;
+        if (entry.getType() == WriteAheadJournal.Entry.Type.DELETE_BOOK) {
+            if (current == null) {
+                return null;
+            }
+            if (!sameBook(current, book)) {
+                return "changed by someone else before it was deleted";
+            }
+            if (!DatabaseOperations.booksOnLoan(conn, List.of(List.of(bookId))).isEmpty()) {
+                return "copies are on loan";
+            }
+            executeForId(conn, "DELETE FROM books_table WHERE book_id = ?", bookId);
+            return null;
+        }
+        
+        if (current == null) {
+            return "deleted by someone else";
+        }
+        Book previous = entry.getPreviousBook();
+        if (!sameBook(current, book) && !sameBook(current, previous)) {
+            return "changed by someone else";
+        }
+        // Copies checked out or returned elsewhere meanwhile stay counted, as online
+        int seenQuantity = previous != null ? previous.getQuantity() : book.getQuantity();
+        int quantity = DatabaseOperations.shiftedQuantity(current.getQuantity(), book.getQuantity(), seenQuantity);
+        String sql = "UPDATE books_table SET title = ?, author = ?, isbn = ?, quantity = ?, status = ? WHERE book_id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, book.getTitle());
+            pstmt.setString(2, book.getAuthor());
+            // Entries journaled by earlier versions may hold the ISBN as typed
+            pstmt.setString(3, Isbn.normalize(book.getIsbn()));
+            pstmt.setInt(4, quantity);
+            pstmt.setString(5, quantity > 0 ? "AVAILABLE" : "OUT_OF_STOCK");
+            pstmt.setInt(6, bookId);
+            pstmt.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            return "rejected by the database: " + e.getMessage();
+        }
+        return null;
+    }
+    
+    /**
+     * Apply one staff write; returns why it could not be applied, or null
+     * Staff added offline are inserted with a reference to their journal
+     * entry, which later writes and an interrupted replay look them up by.
+     */
+    private String applyStaff(Connection conn, WriteAheadJournal.Entry entry) throws SQLException {
+        Staff member = entry.getStaff();
+        if (entry.getType() == WriteAheadJournal.Entry.Type.ADD_STAFF) {
+            String reference = offlineReference(member.getStaffId());
+            if (findStaffByReference(conn, reference) != null) {
+                return null;
+            }
+            String sql = "INSERT INTO staff_table (name, role, hire_date, status, email, phone, offline_ref) " +
+                         "VALUES (?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, member.getName());
+                pstmt.setString(2, member.getRole());
+                pstmt.setDate(3, member.getHireDate());
+                pstmt.setString(4, member.getStatus());
+                pstmt.setString(5, member.getEmail());
+                pstmt.setString(6, member.getPhone());
+                pstmt.setString(7, reference);
+                pstmt.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException e) {
+                return "rejected by the database: " + e.getMessage();
+            }
+            return null;
+        }
+        
+        int staffId = member.getStaffId();
+        if (staffId < 0) {
+            Integer replayed = findStaffByReference(conn, offlineReference(staffId));
+            if (replayed == null) {
+                return "the staff member added offline could not be found";
+            }
+            staffId = replayed;
+        }
+        Staff current = lockStaff(conn, staffId);
+        if (entry.getType() == WriteAheadJournal.Entry.Type.DELETE_STAFF) {
+            if (current == null) {
+                return null;
+            }
+            if (!sameStaff(current, member)) {
+                return "changed by someone else before it was deleted";
+            }
+            executeForId(conn, "DELETE FROM staff_table WHERE staff_id = ?", staffId);
+            return null;
+        }
+        
+        if (current == null) {
+            return "deleted by someone else";
+        }
+        if (sameStaff(current, member)) {
+            return null;
+        }
+        if (!sameStaff(current, entry.getPreviousStaff())) {
+            return "changed by someone else";
+        }
+        String sql = "UPDATE staff_table SET name = ?, role = ?, hire_date = ?, status = ?, email = ?, phone = ? WHERE staff_id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, member.getName());
+            pstmt.setString(2, member.getRole());
+            pstmt.setDate(3, member.getHireDate());
+            pstmt.setString(4, member.getStatus());
+            pstmt.setString(5, member.getEmail());
+            pstmt.setString(6, member.getPhone());
+            pstmt.setInt(7, staffId);
+            pstmt.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            return "rejected by the database: " + e.getMessage();
+        }
+        return null;
+    }
+    
+    /**
+     * Find the database id of the book an update or delete refers to
+     * A book added offline in an earlier, interrupted replay is found by its ISBN.
+     */
+    private Integer resolveBookId(Connection conn, WriteAheadJournal.Entry entry) throws SQLException {
+        int bookId = entry.getRowId();
+        if (bookId >= 0) {
+            return bookId;
+        }
+        Integer replayed = replayedBookIds.get(bookId);
+        if (replayed != null) {
+            return replayed;
+        }
+        Book seen = entry.getPreviousBook() != null ? entry.getPreviousBook() : entry.getBook();
+        Book existing = findBookByIsbn(conn, seen.getIsbn());
+        return existing != null ? existing.getBookId() : null;
+    }
+    
+    /**
+     * Name a row added offline uniquely across clients and journal generations
+     */
+    private String offlineReference(int temporaryId) {
+        return journal.getGeneration() + ":" + temporaryId;
+    }
+    
+    private static Integer findStaffByReference(Connection conn, String reference) throws SQLException {
+        String sql = "SELECT staff_id FROM staff_table WHERE offline_ref = ? FOR UPDATE";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, reference);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+    
+    private static Book findBookByIsbn(Connection conn, String isbn) throws SQLException {
+        String sql = "SELECT " + RowMapper.BOOK.columnList() + " FROM books_table WHERE isbn = ? FOR UPDATE";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, Isbn.normalize(isbn));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? RowMapper.BOOK.mapRow(rs) : null;
+            }
+        }
+    }
+    
+    private static Book lockBook(Connection conn, int bookId) throws SQLException {
+        String sql = "SELECT " + RowMapper.BOOK.columnList() + " FROM books_table WHERE book_id = ? FOR UPDATE";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, bookId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? RowMapper.BOOK.mapRow(rs) : null;
+            }
+        }
+    }
+    
+    private static Staff lockStaff(Connection conn, int staffId) throws SQLException {
+        String sql = "SELECT " + RowMapper.STAFF.columnList() + " FROM staff_table WHERE staff_id = ? FOR UPDATE";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, staffId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? RowMapper.STAFF.mapRow(rs) : null;
+            }
+        }
+    }
+    
+    private static void executeForId(Connection conn, String sql, int id) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Compare the descriptive columns a user edits
+     * Quantity is left out: circulation changes it all day, and quantity
+     * edits are replayed as a change rather than compared.
+     */
+    private static boolean sameBook(Book a, Book b) {
+        return b != null && Objects.equals(a.getTitle(), b.getTitle()) && Objects.equals(a.getAuthor(), b.getAuthor()) &&
+               Objects.equals(Isbn.normalize(a.getIsbn()), Isbn.normalize(b.getIsbn()));
+    }
+    
+    private static boolean sameStaff(Staff a, Staff b) {
+        return b != null && Objects.equals(a.getName(), b.getName()) && Objects.equals(a.getRole(), b.getRole()) &&
+               Objects.equals(String.valueOf(a.getHireDate()), String.valueOf(b.getHireDate())) &&
+               Objects.equals(a.getStatus(), b.getStatus()) && Objects.equals(a.getEmail(), b.getEmail()) &&
+               Objects.equals(a.getPhone(), b.getPhone());
+    }
+    
+    private static Staff copy(Staff member) {
+        return new Staff(member.getStaffId(), member.getName(), member.getRole(), member.getHireDate(),
+                         member.getStatus(), member.getEmail(), member.getPhone());
+    }
+    
+    /**
+     * Append conflicts to a file next to the journal so they can be redone by hand
+     */
+    private void recordConflicts(List<String> conflicts) {
+        if (conflicts.isEmpty()) {
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(conflictFile, StandardCharsets.UTF_8,
+                                                             StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (String conflict : conflicts) {
+                logger.warning("Offline write not applied: " + conflict);
+                writer.write(conflict);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not record replay conflicts in " + conflictFile, e);
+        }
+    }
+    
+    // ==================== OFFLINE LOGIN ====================
+    
+    /**
+     * Remember a successful login so the same user can log in while offline
+     * A salted PBKDF2 verifier of the password is stored, never the server's
+     * hash, in a file only the current user can read. The key derivation is
+     * slow on purpose, so it runs in the background.
+     */
+    void rememberLogin(Admin admin, String password) {
+        loginExecutor().execute(() -> {
+            byte[] salt = new byte[16];
+            random.nextBytes(salt);
+            int iterations = Constants.OFFLINE_LOGIN_ITERATIONS;
+            byte[] verifier = deriveVerifier(password, salt, iterations);
+            String value = admin.getId() + ":" + (admin.getCreatedDate() != null ? admin.getCreatedDate().getTime() : 0) +
+                           ":" + System.currentTimeMillis() + ":" + iterations + ":" + toHex(salt) + ":" + toHex(verifier);
+            synchronized (this) {
+                Properties logins = loadLogins();
+                logins.setProperty(admin.getUsername(), value);
+                storeLogins(logins);
+            }
+        });
+    }
+    
+    /**
+     * Drop a remembered login the database no longer accepts
+     * With a password, only drop it when it was remembered for that password,
+     * i.e. the password has been changed since; a mistyped one leaves it alone.
+     */
+    void forgetLogin(String username, String password) {
+        loginExecutor().execute(() -> {
+            synchronized (this) {
+                Properties logins = loadLogins();
+                String value = logins.getProperty(username);
+                if (value == null) {
+                    return;
+                }
+                if (password != null && !matches(value.split(":", 6), password)) {
+                    return;
+                }
+                if (logins.remove(username) != null) {
+                    storeLogins(logins);
+                    logger.info("Forgot offline login for " + username);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Check a login against the remembered ones; returns null when it does not match
+     * Entries older than OFFLINE_LOGIN_MAX_AGE_DAYS are removed instead.
+     */
+    synchronized Admin authenticate(String username, String password) {
+        Properties logins = loadLogins();
+        String value = logins.getProperty(username);
+        String[] parts = value == null ? null : value.split(":", 6);
+        if (parts == null) {
+            // Derive anyway so unknown users take as long as known ones
+            deriveVerifier(password, new byte[16], Constants.OFFLINE_LOGIN_ITERATIONS);
+            logger.warning("Offline authentication failed for user: " + username);
+            return null;
+        }
+        if (isExpired(parts)) {
+            logins.remove(username);
+            storeLogins(logins);
+            logger.warning("Offline login for " + username + " has expired; log in online first");
+            return null;
+        }
+        
+        if (!matches(parts, password)) {
+            logger.warning("Offline authentication failed for user: " + username);
+            return null;
+        }
+        
+        long created = Long.parseLong(parts[1]);
+        Admin admin = new Admin(Integer.parseInt(parts[0]), username, null,
+                                created != 0 ? new Timestamp(created) : null, "ACTIVE");
+        admin.setLastLogin(new Timestamp(System.currentTimeMillis()));
+        logger.info("Admin authenticated offline: " + username);
+        return admin;
+    }
+    
+    private static boolean matches(String[] parts, String password) {
+        byte[] candidate = deriveVerifier(password, DatabaseOperations.parseHex(parts[4]), Integer.parseInt(parts[3]));
+        return MessageDigest.isEqual(candidate, DatabaseOperations.parseHex(parts[5]));
+    }
+    
+    private static boolean isExpired(String[] parts) {
+        long rememberedAt = Long.parseLong(parts[2]);
+        return System.currentTimeMillis() - rememberedAt > TimeUnit.DAYS.toMillis(Constants.OFFLINE_LOGIN_MAX_AGE_DAYS);
+    }
+    
+    private synchronized boolean hasRememberedLogins() {
+        Properties logins = loadLogins();
+        for (String username : logins.stringPropertyNames()) {
+            if (!isExpired(logins.getProperty(username).split(":", 6))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static byte[] deriveVerifier(String password, byte[] salt, int iterations) {
+        try {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+            return factory.generateSecret(new PBEKeySpec(password.toCharArray(), salt, iterations, 256)).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 is not available", e);
+        }
+    }
+    
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+    
+    private synchronized ExecutorService loginExecutor() {
+        if (loginWriter == null) {
+            loginWriter = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "offline-login");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return loginWriter;
+    }
+    
+    private Properties loadLogins() {
+        Properties logins = new Properties();
+        if (Files.exists(loginFile)) {
+            try (InputStream in = Files.newInputStream(loginFile)) {
+                logins.load(in);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not read remembered logins from " + loginFile, e);
+            }
+        }
+        // Entries from older versions held the server's password hash; the next store drops them
+        logins.values().removeIf(value -> value.toString().split(":", 6).length != 6);
+        return logins;
+    }
+    
+    /**
+     * Replace the login file with one that is private to the current user before anything is written to it
+     */
+    private void storeLogins(Properties logins) {
+        try {
+            if (logins.isEmpty()) {
+                Files.deleteIfExists(loginFile);
+                return;
+            }
+            Files.createDirectories(loginFile.getParent());
+            Path temp = loginFile.resolveSibling(loginFile.getFileName() + ".tmp");
+            Files.deleteIfExists(temp);
+            createPrivateFile(temp);
+            try (OutputStream out = Files.newOutputStream(temp, StandardOpenOption.TRUNCATE_EXISTING)) {
+                logins.store(out, "Logins usable while the database is unreachable");
+            }
+            Files.move(temp, loginFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not store logins for offline use", e);
+        }
+    }
+    
+    /**
+     * Create an empty file readable only by its owner, through POSIX
+     * permissions or, e.g. on Windows, an ACL with a single owner entry
+     */
+    static void createPrivateFile(Path file) throws IOException {
+        FileStore store = Files.getFileStore(file.toAbsolutePath().getParent());
+        if (store.supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            return;
+        }
+        Files.createFile(file);
+        AclFileAttributeView view = Files.getFileAttributeView(file, AclFileAttributeView.class);
+        if (view == null) {
+            Files.delete(file);
+            throw new IOException("Cannot restrict access to " + file);
+        }
+        AclEntry ownerOnly = AclEntry.newBuilder()
+            .setType(AclEntryType.ALLOW)
+            .setPrincipal(view.getOwner())
+            .setPermissions(AclEntryPermission.READ_DATA, AclEntryPermission.WRITE_DATA,
+                            AclEntryPermission.APPEND_DATA, AclEntryPermission.READ_ATTRIBUTES,
+                            AclEntryPermission.WRITE_ATTRIBUTES, AclEntryPermission.READ_NAMED_ATTRS,
+                            AclEntryPermission.WRITE_NAMED_ATTRS, AclEntryPermission.READ_ACL,
+                            AclEntryPermission.WRITE_ACL, AclEntryPermission.DELETE,
+                            AclEntryPermission.SYNCHRONIZE)
+            .build();
+        view.setAcl(List.of(ownerOnly));
+    }
+}
@@ -0,0 +1,378 @@
+package database;
+
+import utils.Constants;
+import utils.FlightRecorderSupport;
+import utils.LatencyHistogram;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Latency of every database operation, plus a log of slow statements
+ * A connection lease is timed from the borrow request until it is closed and
+ * recorded under the DAO method that borrowed it, so pool waits count too.
+ * Statements prepared on the lease are timed individually; any execution
+ * slower than the threshold is logged with its SQL and bind count. Both
+ * levels are also emitted as flight recorder events, see DatabaseEvents.
+ */
+public class QueryMetrics {
+    private static final Logger logger = Logger.getLogger(QueryMetrics.class.getName());
+    private static final StackWalker stackWalker = StackWalker.getInstance();
+    private static final int MAX_LOGGED_SQL_LENGTH = 1000;
+    
+    private static final ConcurrentHashMap<String, LatencyHistogram> operations = new ConcurrentHashMap<>();
+    private static final ArrayDeque<SlowQuery> slowQueries = new ArrayDeque<>();
+    private static volatile long slowQueryThresholdMicros = TimeUnit.MILLISECONDS.toMicros(
+        Long.getLong("library.slowQueryMs", Constants.SLOW_QUERY_THRESHOLD_MS));
+    
+    private QueryMetrics() {}
+    
+    // ==================== RECORDING ====================
+    
+    /**
+     * Start timing a connection borrow for the calling DAO method
+     */
+    static Call startCall() {
+        return new Call(callerOperation());
+    }
+    
+    /**
+     * Name the operation that is borrowing a connection, e.g. "DatabaseOperations.getAllBooks"
+     * The first caller outside the pool is taken to be the DAO method.
+     */
+    static String callerOperation() {
+        return stackWalker.walk(frames -> frames
+            .filter(frame -> !isInfrastructure(frame.getClassName()))
+            .findFirst()
+            .map(frame -> simpleName(frame.getClassName()) + "." + frame.getMethodName())
+            .orElse("unknown"));
+    }
+    
+    private static boolean isInfrastructure(String className) {
+        return className.startsWith("database.ConnectionPool") ||
+               className.equals("database.DatabaseConnection") ||
+               className.equals("database.QueryMetrics");
+    }
+    
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+    
+    /**
+     * Record one call of an operation
+     */
+    static void record(String operation, long nanos) {
+        operations.computeIfAbsent(operation, LatencyHistogram::new).recordNanos(nanos);
+        if (nanos > TimeUnit.MILLISECONDS.toNanos(Constants.DB_STALL_THRESHOLD_MS)) {
+            FlightRecorderSupport.dumpOnStall(operation + " took " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms");
+        }
+    }
+    
+    /**
+     * Wrap a prepared statement so its executions are timed
+     */
+    static PreparedStatement instrument(PreparedStatement statement, String sql, String operation) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+            new Class<?>[]{PreparedStatement.class}, new TimedStatement(statement, sql, operation));
+    }
+    
+    private static void statementExecuted(String operation, String sql, int binds, int batchSize, long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        if (micros < slowQueryThresholdMicros) {
+            return;
+        }
+        SlowQuery slowQuery = new SlowQuery(System.currentTimeMillis(), operation, sql, binds, batchSize, micros);
+        synchronized (slowQueries) {
+            if (slowQueries.size() == Constants.SLOW_QUERY_LOG_SIZE) {
+                slowQueries.removeFirst();
+            }
+            slowQueries.addLast(slowQuery);
+        }
+        logger.warning("Slow query: " + slowQuery);
+    }
+    
+    /**
+     * One connection borrow, from the request until the lease is closed
+     */
+    static class Call {
+        private final String operation;
+        private final long startNanos = System.nanoTime();
+        private final DatabaseEvents.Operation event = new DatabaseEvents.Operation();
+        
+        Call(String operation) {
+            this.operation = operation;
+            event.begin();
+        }
+        
+        String getOperation() {
+            return operation;
+        }
+        
+        void finish() {
+            record(operation, System.nanoTime() - startNanos);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.commit();
+            }
+        }
+    }
+    
+    // ==================== SNAPSHOTS ====================
+    
+    /**
+     * Get a summary of every operation seen so far, ordered by name
+     */
+    public static List<LatencyHistogram.Snapshot> snapshot() {
+        List<LatencyHistogram.Snapshot> snapshots = new ArrayList<>();
+        for (LatencyHistogram histogram : operations.values()) {
+            snapshots.add(histogram.snapshot());
+        }
+        snapshots.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return snapshots;
+    }
+    
+    /**
+     * Get the most recent slow statements, oldest first
+     */
+    public static List<SlowQuery> getSlowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<>(slowQueries);
+        }
+    }
+    
+    /**
+     * Get one line per operation
+     */
+    public static String getStats() {
+        StringBuilder stats = new StringBuilder();
+        for (LatencyHistogram.Snapshot snapshot : snapshot()) {
+            stats.append(snapshot).append('\n');
+        }
+        return stats.length() == 0 ? "no queries recorded" : stats.toString().trim();
+    }
+    
+    /**
+     * Clear all histograms and the slow query log
+     */
+    public static void reset() {
+        operations.clear();
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+    
+    public static long getSlowQueryThresholdMillis() {
+        return TimeUnit.MICROSECONDS.toMillis(slowQueryThresholdMicros);
+    }
+    
+    public static void setSlowQueryThresholdMillis(long millis) {
+        slowQueryThresholdMicros = TimeUnit.MILLISECONDS.toMicros(millis);
+    }
+    
+    /**
+     * Statement that took longer than the slow query threshold
+     */
+    public static class SlowQuery {
+        private final long timestamp;
+        private final String operation;
+        private final String sql;
+        private final int bindCount;
+        private final int batchSize;
+        private final long elapsedMicros;
+        
+        SlowQuery(long timestamp, String operation, String sql, int bindCount, int batchSize, long elapsedMicros) {
+            this.timestamp = timestamp;
+            this.operation = operation;
+            this.sql = sql;
+            this.bindCount = bindCount;
+            this.batchSize = batchSize;
+            this.elapsedMicros = elapsedMicros;
+        }
+        
+        public long getTimestamp() { return timestamp; }
+        public String getOperation() { return operation; }
+        public String getSql() { return sql; }
+        public int getBindCount() { return bindCount; }
+        public int getBatchSize() { return batchSize; }
+        public long getElapsedMicros() { return elapsedMicros; }
+        
+        @Override
+        public String toString() {
+            String shownSql = sql.length() > MAX_LOGGED_SQL_LENGTH ? sql.substring(0, MAX_LOGGED_SQL_LENGTH) + "..." : sql;
+            return String.format("%s %s took %.2fms, binds=%d, batch=%d: %s", new Timestamp(timestamp), operation,
+                                 elapsedMicros / 1000.0, bindCount, batchSize, shownSql);
+        }
+    }
+    
+    /**
+     * Prepared statement proxy that times execute calls
+     */
+    private static class TimedStatement implements InvocationHandler {
+        final PreparedStatement statement;
+        final String sql;
+        final String operation;
+        
+        // Highest parameter index bound and rows added since the last execution
+        int binds;
+        int batchSize;
+        
+        TimedStatement(PreparedStatement statement, String sql, String operation) {
+            this.statement = statement;
+            this.sql = sql;
+            this.operation = operation;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "TimedStatement[" + statement + "]";
+                case "addBatch":
+                    batchSize++;
+                    break;
+                case "clearParameters":
+                    binds = 0;
+                    break;
+                case "clearBatch":
+                    batchSize = 0;
+                    break;
+                default:
+                    // setString(1, ...), setNull(2, type) and friends; setFetchSize(n) takes one argument
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        binds = Math.max(binds, (Integer) args[0]);
+                    }
+                    break;
+            }
+            
+            if (!name.startsWith("execute")) {
+                return invokeTarget(method, args);
+            }
+            DatabaseEvents.Statement event = new DatabaseEvents.Statement();
+            event.begin();
+            long start = System.nanoTime();
+            Object result = null;
+            try {
+                result = invokeTarget(method, args);
+                if (result instanceof ResultSet && event.isEnabled()) {
+                    // The event ends when the rows have been read
+                    result = CountingResultSet.wrap((ResultSet) result, describe(event));
+                    event = null;
+                }
+                return result;
+            } finally {
+                statementExecuted(operation, sql, binds, batchSize, System.nanoTime() - start);
+                if (event != null) {
+                    event.end();
+                    if (event.shouldCommit()) {
+                        describe(event).rows = result == null ? -1 : affectedRows(result);
+                        event.commit();
+                    }
+                }
+                if (name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+                    batchSize = 0;
+                }
+            }
+        }
+        
+        private DatabaseEvents.Statement describe(DatabaseEvents.Statement event) {
+            event.operation = operation;
+            event.sql = sql;
+            event.binds = binds;
+            event.batchSize = batchSize;
+            return event;
+        }
+        
+        private static long affectedRows(Object result) {
+            if (result instanceof Number) {
+                return ((Number) result).longValue();
+            }
+            long rows = 0;
+            if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    rows += Math.max(count, 0);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    rows += Math.max(count, 0);
+                }
+            }
+            return rows;
+        }
+        
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+    
+    /**
+     * Result set proxy that counts rows and commits the statement event on close
+     */
+    private static class CountingResultSet implements InvocationHandler {
+        final ResultSet resultSet;
+        final DatabaseEvents.Statement event;
+        long rows;
+        boolean committed;
+        
+        private CountingResultSet(ResultSet resultSet, DatabaseEvents.Statement event) {
+            this.resultSet = resultSet;
+            this.event = event;
+        }
+        
+        static ResultSet wrap(ResultSet resultSet, DatabaseEvents.Statement event) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, new CountingResultSet(resultSet, event));
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    if (!committed) {
+                        committed = true;
+                        event.end();
+                        event.rows = rows;
+                        event.commit();
+                    }
+                    break;
+                default:
+                    break;
+            }
+            
+            Object result;
+            try {
+                result = method.invoke(resultSet, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                rows++;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package database;
+
+import models.Book;
+import models.Loan;
+import models.Staff;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Maps result set rows to objects by column position
+ * A mapper names the columns it reads, so queries select exactly those,
+ * and their positions are looked up once per result set instead of by
+ * label on every row.
+ */
+public abstract class RowMapper<T> {
+    
+    public static final RowMapper<Book> BOOK = new RowMapper<Book>(
+            "book_id", "title", "author", "isbn", "quantity", "date_added", "status") {
+        @Override
+        protected Book map(ResultSet rs, int[] index) throws SQLException {
+            return new Book(
+                rs.getInt(index[0]),
+                rs.getString(index[1]),
+                rs.getString(index[2]),
+                rs.getString(index[3]),
+                rs.getInt(index[4]),
+                rs.getTimestamp(index[5]),
+                rs.getString(index[6])
+            );
+        }
+    };
+    
+    public static final RowMapper<Staff> STAFF = new RowMapper<Staff>(
+            "staff_id", "name", "role", "hire_date", "status", "email", "phone") {
+        @Override
+        protected Staff map(ResultSet rs, int[] index) throws SQLException {
+            return new Staff(
+                rs.getInt(index[0]),
+                rs.getString(index[1]),
+                rs.getString(index[2]),
+                rs.getDate(index[3]),
+                rs.getString(index[4]),
+                rs.getString(index[5]),
+                rs.getString(index[6])
+            );
+        }
+    };
+    
+    public static final RowMapper<Loan> LOAN = new RowMapper<Loan>(
+            "loan_id", "book_id", "patron", "checkout_date", "due_date", "return_date") {
+        @Override
+        protected Loan map(ResultSet rs, int[] index) throws SQLException {
+            return new Loan(
+                rs.getInt(index[0]),
+                rs.getInt(index[1]),
+                rs.getString(index[2]),
+                rs.getTimestamp(index[3]),
+                rs.getDate(index[4]),
+                rs.getTimestamp(index[5])
+            );
+        }
+    };
+    
+    private final String[] columns;
+    private final String columnList;
+    
+    protected RowMapper(String... columns) {
+        this.columns = columns.clone();
+        this.columnList = String.join(", ", columns);
+    }
+    
+    /**
+     * Map the current row; index holds each column's position in constructor order
+     */
+    protected abstract T map(ResultSet rs, int[] index) throws SQLException;
+    
+    /**
+     * Get the columns to select, separated by commas
+     */
+    public String columnList() {
+        return columnList;
+    }
+    
+    /**
+     * Get the column names in the order map reads them
+     */
+    public String[] columns() {
+        return columns.clone();
+    }
+    
+    /**
+     * Look up the position of each column in the result set
+     */
+    public int[] resolve(ResultSet rs) throws SQLException {
+        int[] index = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            index[i] = rs.findColumn(columns[i]);
+        }
+        return index;
+    }
+    
+    /**
+     * Map the current row only; for single-row lookups
+     */
+    public T mapRow(ResultSet rs) throws SQLException {
+        return map(rs, resolve(rs));
+    }
+    
+    /**
+     * Push each remaining row to the consumer without collecting them
+     * Returns the number of rows read.
+     */
+    public long forEach(ResultSet rs, Consumer<? super T> consumer) throws SQLException {
+        int[] index = resolve(rs);
+        long rows = 0;
+        while (rs.next()) {
+            consumer.accept(map(rs, index));
+            rows++;
+        }
+        return rows;
+    }
+    
+    /**
+     * Collect the remaining rows into a list
+     */
+    public List<T> list(ResultSet rs, int expectedSize) throws SQLException {
+        List<T> rows = new ArrayList<>(expectedSize);
+        forEach(rs, rows::add);
+        return rows;
+    }
+}
@@ -0,0 +1,210 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * LRU cache of prepared statements for a single physical connection
+ * Statements are keyed by SQL text and returned to the cache on close()
+ */
+public class StatementCache {
+    private static final Logger logger = Logger.getLogger(StatementCache.class.getName());
+    
+    // Counters shared by every connection's cache
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+    
+    private final Connection connection;
+    private final int maxSize;
+    private final LinkedHashMap<String, CachedStatement> statements;
+    
+    public StatementCache(Connection connection, int maxSize) {
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+    
+    /**
+     * Get a prepared statement for the SQL, reusing a cached one when it is free
+     */
+    public synchronized PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "keys:" + sql : sql;
+        CachedStatement cached = statements.get(key);
+        
+        if (cached != null && !cached.inUse) {
+            hits.incrementAndGet();
+            cached.inUse = true;
+            return cached.proxy;
+        }
+        
+        misses.incrementAndGet();
+        PreparedStatement statement = connection.prepareStatement(sql, autoGeneratedKeys);
+        
+        if (cached != null) {
+            // Same SQL already checked out on this connection; hand out an uncached statement
+            return statement;
+        }
+        
+        cached = new CachedStatement(key, statement);
+        cached.inUse = true;
+        statements.put(key, cached);
+        evictOverflow();
+        return cached.proxy;
+    }
+    
+    /**
+     * Evict least recently used statements that are not checked out
+     */
+    private void evictOverflow() {
+        Iterator<CachedStatement> iterator = statements.values().iterator();
+        while (statements.size() > maxSize && iterator.hasNext()) {
+            CachedStatement candidate = iterator.next();
+            if (!candidate.inUse) {
+                iterator.remove();
+                evictions.incrementAndGet();
+                closeQuietly(candidate.statement);
+            }
+        }
+    }
+    
+    private synchronized void checkIn(CachedStatement cached) throws SQLException {
+        if (statements.get(cached.key) != cached) {
+            // Evicted or replaced while checked out
+            closeQuietly(cached.statement);
+            return;
+        }
+        cached.reset();
+        cached.inUse = false;
+        evictOverflow();
+    }
+    
+    /**
+     * Close every cached statement
+     */
+    public synchronized void close() {
+        for (CachedStatement cached : statements.values()) {
+            closeQuietly(cached.statement);
+        }
+        statements.clear();
+    }
+    
+    public synchronized int size() {
+        return statements.size();
+    }
+    
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Failed to close cached statement", e);
+        }
+    }
+    
+    // ==================== STATISTICS ====================
+    
+    public static long getHitCount() { return hits.get(); }
+    public static long getMissCount() { return misses.get(); }
+    public static long getEvictionCount() { return evictions.get(); }
+    
+    /**
+     * Get hit ratio across all connections
+     */
+    public static double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+    
+    /**
+     * Get statement cache statistics summary
+     */
+    public static String getStats() {
+        return String.format("hits=%d, misses=%d, evictions=%d, hitRatio=%.1f%%",
+                             getHitCount(), getMissCount(), getEvictionCount(), getHitRatio() * 100);
+    }
+    
+    /**
+     * Cached statement with a proxy whose close() checks it back in
+     */
+    private class CachedStatement implements InvocationHandler {
+        final String key;
+        final PreparedStatement statement;
+        final PreparedStatement proxy;
+        volatile boolean inUse;
+        
+        // Settings the borrower changed that must be undone on check-in
+        boolean settingsChanged;
+        boolean batched;
+        
+        CachedStatement(String key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, this);
+        }
+        
+        void reset() throws SQLException {
+            statement.clearParameters();
+            if (batched) {
+                statement.clearBatch();
+                batched = false;
+            }
+            if (settingsChanged) {
+                statement.setFetchSize(0);
+                statement.setMaxRows(0);
+                statement.setQueryTimeout(0);
+                settingsChanged = false;
+            }
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (inUse) {
+                        checkIn(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return !inUse || statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + key + "]";
+                case "setFetchSize":
+                case "setMaxRows":
+                case "setQueryTimeout":
+                    settingsChanged = true;
+                    break;
+                case "addBatch":
+                    batched = true;
+                    break;
+                default:
+                    break;
+            }
+            
+            if (!inUse) {
+                throw new SQLException("Statement has already been closed");
+            }
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
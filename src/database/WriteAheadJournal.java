@@ -0,0 +1,496 @@
+package database;
+
+import models.Book;
+import models.Staff;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of catalog writes made while the database is unreachable
+ * Each record is length-prefixed and checksummed, so a record torn by a
+ * crash is found and cut off when the journal is opened. Appends are made
+ * durable with group commit: the first writer that needs a sync forces the
+ * file for everyone who appended before it, so concurrent writers share one
+ * fsync. Replay progress is kept beside the journal, and the journal is
+ * emptied once everything in it has been applied. The marker also holds an
+ * id for the journal's current generation, which changes whenever it is
+ * emptied, so rows added offline can be named uniquely across clients.
+ * The journal and its marker are created readable only by their owner.
+ */
+public class WriteAheadJournal implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(WriteAheadJournal.class.getName());
+    private static final String APPLIED_SUFFIX = ".applied";
+    
+    // A record larger than this cannot be one of ours; treat it as a torn tail
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    
+    /**
+     * One journaled write
+     * Updates carry the row as the client saw it before the change, and
+     * deletes the row that was deleted, so replay can tell whether the
+     * database changed meanwhile.
+     */
+    public static class Entry {
+        public enum Type { ADD_BOOK, UPDATE_BOOK, DELETE_BOOK, ADD_STAFF, UPDATE_STAFF, DELETE_STAFF }
+        
+        private final long sequence;
+        private final long time;
+        private final Type type;
+        private final Book book;
+        private final Book previousBook;
+        private final Staff staff;
+        private final Staff previousStaff;
+        
+        Entry(long sequence, long time, Type type, Book book, Book previousBook, Staff staff, Staff previousStaff) {
+            this.sequence = sequence;
+            this.time = time;
+            this.type = type;
+            this.book = book;
+            this.previousBook = previousBook;
+            this.staff = staff;
+            this.previousStaff = previousStaff;
+        }
+        
+        public long getSequence() { return sequence; }
+        public long getTime() { return time; }
+        public Type getType() { return type; }
+        /** New values; the deleted row for deletes */
+        public Book getBook() { return book; }
+        /** Row before an update, or null for adds and deletes */
+        public Book getPreviousBook() { return previousBook; }
+        /** New values; the deleted row for deletes */
+        public Staff getStaff() { return staff; }
+        /** Row before an update, or null for adds and deletes */
+        public Staff getPreviousStaff() { return previousStaff; }
+        
+        public boolean isBook() {
+            return type == Type.ADD_BOOK || type == Type.UPDATE_BOOK || type == Type.DELETE_BOOK;
+        }
+        
+        /** Id of the row this entry changes; negative for rows added offline */
+        public int getRowId() {
+            return isBook() ? book.getBookId() : staff.getStaffId();
+        }
+        
+        @Override
+        public String toString() {
+            return "#" + sequence + " " + type + " " + (isBook() ? book.getTitle() : staff.getName()) +
+                   " (id " + getRowId() + ")";
+        }
+    }
+    
+    private final Path file;
+    private final Path appliedFile;
+    private final FileChannel channel;
+    private final List<Entry> pending = new ArrayList<>();
+    private long nextSequence;
+    private long appliedThrough;
+    private String generation;
+    
+    // Group commit state; written is guarded by this, synced and syncing by syncLock
+    private final Object syncLock = new Object();
+    private long written;
+    private long synced;
+    private boolean syncing;
+    private long appends;
+    private long syncs;
+    
+    /**
+     * Open the journal, creating it if needed and cutting off a torn last record
+     */
+    public WriteAheadJournal(Path file) throws IOException {
+        this.file = file;
+        this.appliedFile = file.resolveSibling(file.getFileName() + APPLIED_SUFFIX);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        
+        readApplied();
+        if (generation == null) {
+            // Persist it before any replay can use it, so a restart keeps the same one
+            writeApplied(appliedThrough, UUID.randomUUID().toString());
+        }
+        long validLength = readEntries();
+        if (!Files.exists(file)) {
+            OfflineMode.createPrivateFile(file);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() > validLength) {
+            logger.warning("Cutting " + (channel.size() - validLength) + " bytes of torn records from " + file);
+            channel.truncate(validLength);
+            channel.force(true);
+        }
+        channel.position(validLength);
+        written = validLength;
+        synced = validLength;
+        
+        long last = pending.isEmpty() ? 0 : pending.get(pending.size() - 1).getSequence();
+        nextSequence = Math.max(last, appliedThrough) + 1;
+        if (!pending.isEmpty()) {
+            logger.info("Journal " + file + " has " + pending.size() + " writes waiting to be replayed");
+        }
+    }
+    
+    // ==================== APPENDING ====================
+    
+    /**
+     * Append a book write and return once it is on disk
+     */
+    public Entry appendBook(Entry.Type type, Book book, Book previousBook) throws IOException {
+        return appendBooks(type, List.of(book), previousBook != null ? List.of(previousBook) : null).get(0);
+    }
+    
+    /**
+     * Append several book writes and return once all of them are on disk
+     * previousBooks corresponds to books, and is null for adds and deletes.
+     */
+    public List<Entry> appendBooks(Entry.Type type, List<Book> books, List<Book> previousBooks) throws IOException {
+        List<Entry> entries = new ArrayList<>(books.size());
+        long end;
+        synchronized (this) {
+            for (int i = 0; i < books.size(); i++) {
+                entries.add(write(type, books.get(i), previousBooks != null ? previousBooks.get(i) : null, null, null));
+            }
+            end = written;
+        }
+        awaitDurable(end);
+        return entries;
+    }
+    
+    /**
+     * Append a staff write and return once it is on disk
+     */
+    public Entry appendStaff(Entry.Type type, Staff staff, Staff previousStaff) throws IOException {
+        return appendStaff(type, List.of(staff), previousStaff != null ? List.of(previousStaff) : null).get(0);
+    }
+    
+    /**
+     * Append several staff writes and return once all of them are on disk
+     * previousStaff corresponds to staff, and is null for adds and deletes.
+     */
+    public List<Entry> appendStaff(Entry.Type type, List<Staff> staff, List<Staff> previousStaff) throws IOException {
+        List<Entry> entries = new ArrayList<>(staff.size());
+        long end;
+        synchronized (this) {
+            for (int i = 0; i < staff.size(); i++) {
+                entries.add(write(type, null, null, staff.get(i), previousStaff != null ? previousStaff.get(i) : null));
+            }
+            end = written;
+        }
+        awaitDurable(end);
+        return entries;
+    }
+    
+    /**
+     * Write one record without syncing; the caller holds the journal lock
+     */
+    private Entry write(Entry.Type type, Book book, Book previousBook, Staff staff, Staff previousStaff)
+            throws IOException {
+        Entry entry = new Entry(nextSequence, System.currentTimeMillis(), type, book, previousBook, staff, previousStaff);
+        ByteBuffer record = encode(entry);
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        nextSequence++;
+        written = channel.position();
+        appends++;
+        pending.add(entry);
+        return entry;
+    }
+    
+    /**
+     * Wait until the file is forced at least up to the given length
+     * Whoever finds no sync in progress forces the file for all appends so
+     * far; the others wait for that sync instead of starting their own.
+     */
+    private void awaitDurable(long end) throws IOException {
+        while (true) {
+            synchronized (syncLock) {
+                while (syncing && synced < end) {
+                    try {
+                        syncLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for the journal to sync", e);
+                    }
+                }
+                if (synced >= end) {
+                    return;
+                }
+                syncing = true;
+            }
+            
+            long target;
+            synchronized (this) {
+                target = written;
+            }
+            IOException failure = null;
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                failure = e;
+            }
+            synchronized (syncLock) {
+                syncing = false;
+                if (failure == null) {
+                    synced = Math.max(synced, target);
+                    syncs++;
+                }
+                syncLock.notifyAll();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+    
+    // ==================== REPLAY ====================
+    
+    /**
+     * Get the entries not yet applied, oldest first
+     */
+    public synchronized List<Entry> getPending() {
+        return new ArrayList<>(pending);
+    }
+    
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+    
+    /**
+     * Record that every entry up to and including the sequence was applied
+     * Empties the journal once nothing is left to replay.
+     */
+    public synchronized void markApplied(long sequence) throws IOException {
+        boolean emptied = pending.stream().allMatch(entry -> entry.getSequence() <= sequence);
+        // Temporary ids may be handed out again once the journal is empty, so they get a new generation
+        writeApplied(sequence, emptied ? UUID.randomUUID().toString() : generation);
+        pending.removeIf(entry -> entry.getSequence() <= sequence);
+        
+        if (pending.isEmpty()) {
+            // Sequences keep counting from the marker, so a crash between these steps is harmless
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+            written = 0;
+            synchronized (syncLock) {
+                synced = 0;
+            }
+        }
+    }
+    
+    /**
+     * Get the id of the journal's current generation
+     * Together with a temporary id it names a row added offline uniquely.
+     */
+    public synchronized String getGeneration() {
+        return generation;
+    }
+    
+    /**
+     * Get append and sync counts; appends per sync shows how well group commit batches
+     */
+    public synchronized String getStats() {
+        long syncCount;
+        synchronized (syncLock) {
+            syncCount = syncs;
+        }
+        return String.format("Journal{pending=%d, appends=%d, syncs=%d}", pending.size(), appends, syncCount);
+    }
+    
+    public Path getFile() {
+        return file;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    // ==================== ENCODING ====================
+    
+    /**
+     * Read the marker: the last applied sequence and the generation id
+     * Older markers hold only the sequence; they get a generation when rewritten.
+     */
+    private void readApplied() {
+        if (!Files.exists(appliedFile)) {
+            return;
+        }
+        try {
+            String[] parts = new String(Files.readAllBytes(appliedFile), StandardCharsets.UTF_8).trim().split(" ", 2);
+            appliedThrough = Long.parseLong(parts[0]);
+            generation = parts.length > 1 ? parts[1] : null;
+        } catch (IOException | NumberFormatException e) {
+            logger.warning("Ignoring unreadable journal marker " + appliedFile + ": " + e.getMessage());
+        }
+    }
+    
+    private void writeApplied(long sequence, String newGeneration) throws IOException {
+        Path temp = appliedFile.resolveSibling(appliedFile.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        OfflineMode.createPrivateFile(temp);
+        Files.write(temp, (sequence + " " + newGeneration).getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        Files.move(temp, appliedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        appliedThrough = sequence;
+        generation = newGeneration;
+    }
+    
+    /**
+     * Read every intact record; returns the length of the intact prefix
+     */
+    private long readEntries() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long validLength = 0;
+        CRC32 crc = new CRC32();
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file));
+             DataInputStream in = new DataInputStream(stream)) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || length > MAX_RECORD_BYTES) {
+                    break;
+                }
+                long checksum = in.readInt() & 0xFFFFFFFFL;
+                byte[] payload = new byte[length];
+                try {
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if (crc.getValue() != checksum) {
+                    break;
+                }
+                Entry entry = decode(payload);
+                if (entry.getSequence() > appliedThrough) {
+                    pending.add(entry);
+                }
+                validLength += 8 + length;
+            }
+        } catch (EOFException e) {
+            // Torn checksum field; the prefix read so far stands
+        }
+        return validLength;
+    }
+    
+    private static ByteBuffer encode(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(entry.sequence);
+        out.writeLong(entry.time);
+        out.writeByte(entry.type.ordinal());
+        writeBook(out, entry.book);
+        writeBook(out, entry.previousBook);
+        writeStaff(out, entry.staff);
+        writeStaff(out, entry.previousStaff);
+        out.flush();
+        
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        return record;
+    }
+    
+    private static Entry decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long sequence = in.readLong();
+        long time = in.readLong();
+        Entry.Type type = Entry.Type.values()[in.readByte()];
+        return new Entry(sequence, time, type, readBook(in), readBook(in), readStaff(in), readStaff(in));
+    }
+    
+    private static void writeBook(DataOutputStream out, Book book) throws IOException {
+        out.writeBoolean(book != null);
+        if (book == null) {
+            return;
+        }
+        out.writeInt(book.getBookId());
+        writeString(out, book.getTitle());
+        writeString(out, book.getAuthor());
+        writeString(out, book.getIsbn());
+        out.writeInt(book.getQuantity());
+        out.writeLong(book.getDateAdded() != null ? book.getDateAdded().getTime() : Long.MIN_VALUE);
+        writeString(out, book.getStatus());
+    }
+    
+    private static Book readBook(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int id = in.readInt();
+        String title = readString(in);
+        String author = readString(in);
+        String isbn = readString(in);
+        int quantity = in.readInt();
+        long dateAdded = in.readLong();
+        return new Book(id, title, author, isbn, quantity,
+                        dateAdded == Long.MIN_VALUE ? null : new Timestamp(dateAdded), readString(in));
+    }
+    
+    private static void writeStaff(DataOutputStream out, Staff staff) throws IOException {
+        out.writeBoolean(staff != null);
+        if (staff == null) {
+            return;
+        }
+        out.writeInt(staff.getStaffId());
+        writeString(out, staff.getName());
+        writeString(out, staff.getRole());
+        out.writeLong(staff.getHireDate() != null ? staff.getHireDate().getTime() : Long.MIN_VALUE);
+        writeString(out, staff.getStatus());
+        writeString(out, staff.getEmail());
+        writeString(out, staff.getPhone());
+    }
+    
+    private static Staff readStaff(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int id = in.readInt();
+        String name = readString(in);
+        String role = readString(in);
+        long hireDate = in.readLong();
+        return new Staff(id, name, role, hireDate == Long.MIN_VALUE ? null : new Date(hireDate),
+                         readString(in), readString(in), readString(in));
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
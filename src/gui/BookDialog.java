@@ -1,6 +1,7 @@
 package gui;
 
 import models.Book;
+import utils.Isbn;
 import utils.ValidationUtils;
 
 import javax.swing.*;
@@ -24,9 +25,13 @@ public class BookDialog extends JDialog implements ActionListener {
     private Book book;
     private boolean confirmed = false;
     
+    // A stored ISBN is kept as it is, even one from before check digits were verified
+    private final String originalIsbn;
+    
     public BookDialog(Frame parent, String title, boolean modal, Book book) {
         super(parent, title, modal);
         this.book = book;
+        this.originalIsbn = book != null ? book.getIsbn() : null;
         
         initializeComponents();
         setupLayout();
@@ -187,8 +192,12 @@ public class BookDialog extends JDialog implements ActionListener {
             return false;
         }
         
-        if (!ValidationUtils.isValidISBN(isbn)) {
-            showError("Please enter a valid ISBN (10-13 digits).");
+        boolean isbnUnchanged = ValidationUtils.isNotEmpty(isbn) && isbn.equals(originalIsbn);
+        if (!isbnUnchanged && !ValidationUtils.isValidISBN(isbn)) {
+            showError(originalIsbn != null && !ValidationUtils.isValidISBN(originalIsbn)
+                ? "The stored ISBN " + originalIsbn + " has an invalid check digit and can be kept as it is,\n" +
+                  "but a changed ISBN must be a valid ISBN-10 or ISBN-13 (check digit is verified)."
+                : "Please enter a valid ISBN-10 or ISBN-13 (check digit is verified).");
             isbnField.requestFocus();
             return false;
         }
@@ -206,7 +215,8 @@ public class BookDialog extends JDialog implements ActionListener {
         
         book.setTitle(title);
         book.setAuthor(author);
-        book.setIsbn(isbn.replaceAll("[\\s-]", "")); // Remove spaces and hyphens
+        // Store as ISBN-13 without separators
+        book.setIsbn(isbnUnchanged ? originalIsbn : Isbn.normalize(isbn));
         book.setQuantity(quantity);
         
         return true;
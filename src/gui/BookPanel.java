@@ -1,18 +1,33 @@
 package gui;
 
+import database.CatalogImporter;
 import database.DatabaseOperations;
 import models.Book;
+import utils.Constants;
+import utils.LatencyHistogram;
 import utils.ValidationUtils;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
-import javax.swing.table.TableRowSorter;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
@@ -22,16 +37,26 @@ import java.util.logging.Logger;
 public class BookPanel extends JPanel implements ActionListener {
     private static final Logger logger = Logger.getLogger(BookPanel.class.getName());
     
+    // Time from query start until its results are on screen, across all panels
+    private static final LatencyHistogram searchLatency = new LatencyHistogram("BookPanel.search");
+    
     private DatabaseOperations dbOperations;
     private JTable bookTable;
-    private DefaultTableModel tableModel;
+    private PagedTableModel<Book> tableModel;
     private JTextField searchField;
     private JButton addButton;
     private JButton editButton;
     private JButton deleteButton;
+    private JButton adjustQuantityButton;
     private JButton refreshButton;
+    private JButton importButton;
     private JButton searchButton;
     
+    // Search-as-you-type state
+    private Timer searchDebounceTimer;
+    private SwingWorker<List<Book>, Void> searchWorker;
+    private int searchGeneration;
+    
     // Table columns
     private final String[] columnNames = {
         "ID", "Title", "Author", "ISBN", "Quantity", "Status", "Date Added"
@@ -53,23 +78,31 @@ public class BookPanel extends JPanel implements ActionListener {
     private void initializeComponents() {
         setLayout(new BorderLayout());
         
-        // Create table model and table
-        tableModel = new DefaultTableModel(columnNames, 0) {
+        // Create paged table model and table; rows are ordered by title
+        tableModel = new PagedTableModel<>("BookPanel", columnNames, new PagedTableModel.PageLoader<Book>() {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table read-only
+            public int count() {
+                return dbOperations.getTotalBooks();
             }
-        };
+            
+            @Override
+            public List<Book> loadAfter(Book last, int limit) {
+                return last == null
+                    ? dbOperations.getBooksPage(null, 0, limit)
+                    : dbOperations.getBooksPage(last.getTitle(), last.getBookId(), limit);
+            }
+            
+            @Override
+            public List<Book> loadAt(int offset, int limit) {
+                return dbOperations.getBooksPageAt(offset, limit);
+            }
+        }, this::getColumnValue, Constants.TABLE_PAGE_SIZE, Constants.TABLE_MAX_CACHED_PAGES);
         
         bookTable = new JTable(tableModel);
-        bookTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        bookTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         bookTable.setRowHeight(25);
         bookTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 12));
         
-        // Enable sorting
-        TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(tableModel);
-        bookTable.setRowSorter(sorter);
-        
         // Create search components
         searchField = new JTextField(20);
         searchButton = new JButton("Search");
@@ -78,14 +111,18 @@ public class BookPanel extends JPanel implements ActionListener {
         addButton = new JButton("Add Book");
         editButton = new JButton("Edit Book");
         deleteButton = new JButton("Delete Book");
+        adjustQuantityButton = new JButton("Adjust Qty");
         refreshButton = new JButton("Refresh");
+        importButton = new JButton("Import CSV");
         
         // Style buttons
         Dimension buttonSize = new Dimension(120, 30);
         addButton.setPreferredSize(buttonSize);
         editButton.setPreferredSize(buttonSize);
         deleteButton.setPreferredSize(buttonSize);
+        adjustQuantityButton.setPreferredSize(buttonSize);
         refreshButton.setPreferredSize(buttonSize);
+        importButton.setPreferredSize(buttonSize);
         
         addButton.setBackground(new Color(76, 175, 80));
         addButton.setForeground(Color.WHITE);
@@ -97,6 +134,7 @@ public class BookPanel extends JPanel implements ActionListener {
         // Initially disable edit and delete buttons
         editButton.setEnabled(false);
         deleteButton.setEnabled(false);
+        adjustQuantityButton.setEnabled(false);
     }
     
     /**
@@ -114,7 +152,9 @@ public class BookPanel extends JPanel implements ActionListener {
         buttonPanel.add(addButton);
         buttonPanel.add(editButton);
         buttonPanel.add(deleteButton);
+        buttonPanel.add(adjustQuantityButton);
         buttonPanel.add(refreshButton);
+        buttonPanel.add(importButton);
         
         // Combine top panels
         JPanel controlPanel = new JPanel(new BorderLayout());
@@ -144,18 +184,42 @@ public class BookPanel extends JPanel implements ActionListener {
         addButton.addActionListener(this);
         editButton.addActionListener(this);
         deleteButton.addActionListener(this);
+        adjustQuantityButton.addActionListener(this);
         refreshButton.addActionListener(this);
+        importButton.addActionListener(this);
         searchButton.addActionListener(this);
         
         // Search field listener
         searchField.addActionListener(this);
         
+        // Search as the user types, once typing pauses
+        searchDebounceTimer = new Timer(Constants.SEARCH_DEBOUNCE_MS, e -> performSearch());
+        searchDebounceTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchDebounceTimer.restart();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchDebounceTimer.restart();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes do not affect the query
+            }
+        });
+        
         // Table selection listener
         bookTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
-                boolean hasSelection = bookTable.getSelectedRow() >= 0;
-                editButton.setEnabled(hasSelection);
-                deleteButton.setEnabled(hasSelection);
+                // Editing works on one book, delete and quantity on any number
+                int selected = bookTable.getSelectedRowCount();
+                editButton.setEnabled(selected == 1);
+                deleteButton.setEnabled(selected > 0);
+                adjustQuantityButton.setEnabled(selected > 0);
             }
         });
         
@@ -163,7 +227,7 @@ public class BookPanel extends JPanel implements ActionListener {
         bookTable.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                if (e.getClickCount() == 2 && bookTable.getSelectedRow() >= 0) {
+                if (e.getClickCount() == 2 && bookTable.getSelectedRowCount() == 1) {
                     editSelectedBook();
                 }
             }
@@ -182,9 +246,13 @@ public class BookPanel extends JPanel implements ActionListener {
         } else if (source == editButton) {
             editSelectedBook();
         } else if (source == deleteButton) {
-            deleteSelectedBook();
+            deleteSelectedBooks();
+        } else if (source == adjustQuantityButton) {
+            adjustSelectedQuantities();
         } else if (source == refreshButton) {
             refreshData();
+        } else if (source == importButton) {
+            importCatalog();
         } else if (source == searchButton || source == searchField) {
             performSearch();
         }
@@ -199,15 +267,19 @@ public class BookPanel extends JPanel implements ActionListener {
         dialog.setVisible(true);
         
         if (dialog.isConfirmed()) {
-            Book book = dialog.getBook();
-            if (dbOperations.addBook(book)) {
+            Book newBook = dialog.getBook();
+            // Search results show new books at the top, so only the sorted table needs a position
+            boolean sorted = !tableModel.isFixed();
+            runRowWrite("add", () -> dbOperations.addBook(newBook), sorted, (book, position) -> {
+                if (sorted == tableModel.isFixed()) {
+                    // A search started or ended while the book was added
+                    reloadCurrentView();
+                } else {
+                    insertBookRow(book, position);
+                }
                 JOptionPane.showMessageDialog(this, "Book added successfully!", 
                                             "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadBooks();
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to add book. Please check if ISBN already exists.", 
-                                            "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            }, "Failed to add book. Please check if ISBN already exists.");
         }
     }
     
@@ -220,140 +292,466 @@ public class BookPanel extends JPanel implements ActionListener {
             // Convert view row to model row
             selectedRow = bookTable.convertRowIndexToModel(selectedRow);
             
-            // Get book data from table
-            int bookId = (Integer) tableModel.getValueAt(selectedRow, 0);
-            String title = (String) tableModel.getValueAt(selectedRow, 1);
-            String author = (String) tableModel.getValueAt(selectedRow, 2);
-            String isbn = (String) tableModel.getValueAt(selectedRow, 3);
-            int quantity = (Integer) tableModel.getValueAt(selectedRow, 4);
-            
-            Book book = new Book(bookId, title, author, isbn, quantity, null, null);
+            // Get book data from table; rows still loading cannot be edited
+            Book book = tableModel.getRow(selectedRow);
+            if (book == null) {
+                return;
+            }
+            int bookId = book.getBookId();
+            String originalTitle = book.getTitle();
+            int originalQuantity = book.getQuantity();
             
+            // The dialog edits a copy; the row changes only once the update is saved
             BookDialog dialog = new BookDialog((Frame) SwingUtilities.getWindowAncestor(this), 
-                                             "Edit Book", true, book);
+                                             "Edit Book", true, new Book(book));
             dialog.setVisible(true);
             
             if (dialog.isConfirmed()) {
                 Book updatedBook = dialog.getBook();
                 updatedBook.setBookId(bookId);
                 
-                if (dbOperations.updateBook(updatedBook)) {
-                    JOptionPane.showMessageDialog(this, "Book updated successfully!", 
+                // A changed title moves the row to its new sorted position
+                int row = selectedRow;
+                boolean moves = !tableModel.isFixed() && !updatedBook.getTitle().equals(originalTitle);
+                // Quantity is saved as a change from the one shown, so checkouts meanwhile are kept
+                int editedQuantity = updatedBook.getQuantity();
+                runRowWrite("update", () -> dbOperations.updateBook(updatedBook, originalQuantity), moves, (saved, position) -> {
+                    Book current = tableModel.getRow(row);
+                    if (current == null || current.getBookId() != bookId) {
+                        // The rows shifted while the update ran
+                        reloadCurrentView();
+                    } else if (moves) {
+                        tableModel.removeRow(row);
+                        insertBookRow(saved, position);
+                    } else {
+                        tableModel.updateRow(row, saved);
+                    }
+                    String message = saved.getQuantity() == editedQuantity
+                        ? "Book updated successfully!"
+                        : "Book updated successfully!\nCopies were checked out or returned while it was being edited, " +
+                          "so the quantity is now " + saved.getQuantity() + ".";
+                    JOptionPane.showMessageDialog(this, message, 
                                                 "Success", JOptionPane.INFORMATION_MESSAGE);
-                    loadBooks();
-                } else {
-                    JOptionPane.showMessageDialog(this, "Failed to update book.", 
+                }, "Failed to update book.");
+            }
+        }
+    }
+    
+    /**
+     * Delete selected books in one transaction
+     */
+    private void deleteSelectedBooks() {
+        int[] rows = selectedLoadedRows();
+        if (rows.length == 0) {
+            return;
+        }
+        List<Book> books = rowsAt(rows);
+        
+        String prompt = books.size() == 1
+            ? "Are you sure you want to delete the book:\n\"" + books.get(0).getTitle() + "\"?"
+            : "Are you sure you want to delete " + books.size() + " books?";
+        int option = JOptionPane.showConfirmDialog(
+            this,
+            prompt + skippedNote(rows.length),
+            "Confirm Delete",
+            JOptionPane.YES_NO_OPTION,
+            JOptionPane.WARNING_MESSAGE
+        );
+        if (option != JOptionPane.YES_OPTION) {
+            return;
+        }
+        
+        List<Integer> bookIds = idsOf(books);
+        runBulkOperation("delete", rows, books, () -> dbOperations.deleteBooks(bookIds),
+                         "could not be deleted because copies are on loan, or were already gone.", deleted -> {
+            bookTable.clearSelection();
+            tableModel.removeRows(rows);
+            JOptionPane.showMessageDialog(this, deleted.size() == 1 ? "Book deleted successfully!"
+                                                                    : deleted.size() + " books deleted successfully!",
+                                        "Success", JOptionPane.INFORMATION_MESSAGE);
+        });
+    }
+    
+    /**
+     * Add or remove copies of every selected book
+     */
+    private void adjustSelectedQuantities() {
+        int[] rows = selectedLoadedRows();
+        if (rows.length == 0) {
+            return;
+        }
+        List<Book> books = rowsAt(rows);
+        
+        String input = JOptionPane.showInputDialog(this,
+            "Change the quantity of " + books.size() + (books.size() == 1 ? " book" : " books") +
+            " by (e.g. 5 or -2):" + skippedNote(rows.length),
+            "Adjust Quantity", JOptionPane.QUESTION_MESSAGE);
+        if (input == null) {
+            return;
+        }
+        int delta;
+        try {
+            delta = Integer.parseInt(input.trim());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Please enter a whole number.",
+                                        "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (delta == 0) {
+            return;
+        }
+        
+        List<Integer> bookIds = idsOf(books);
+        runBulkOperation("adjust quantity of", rows, books, () -> dbOperations.adjustBookQuantities(bookIds, delta), null, updated -> {
+            // Quantity does not affect the sort order, so rows stay where they are
+            Map<Integer, Book> byId = new HashMap<>();
+            for (Book book : updated) {
+                byId.put(book.getBookId(), book);
+            }
+            List<Book> replacements = new ArrayList<>(rows.length);
+            for (Book book : books) {
+                replacements.add(byId.getOrDefault(book.getBookId(), book));
+            }
+            tableModel.updateRows(rows, replacements);
+            JOptionPane.showMessageDialog(this, "Quantity updated for " + updated.size() +
+                                        (updated.size() == 1 ? " book." : " books."),
+                                        "Success", JOptionPane.INFORMATION_MESSAGE);
+        });
+    }
+    
+    /**
+     * Run a single-book write in the background, together with the lookup of the
+     * book's sorted position when the row has to be placed, and apply the delta
+     * on the EDT once both are done
+     */
+    private void runRowWrite(String action, Supplier<Book> write, boolean positioned,
+                             BiConsumer<Book, Integer> onSuccess, String failureMessage) {
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<Book, Void>() {
+            private int position;
+            
+            @Override
+            protected Book doInBackground() throws Exception {
+                return UiEvents.trace("BookPanel", action, () -> {
+                    Book book = write.get();
+                    if (book != null && positioned) {
+                        position = dbOperations.getBookPosition(book.getTitle(), book.getBookId());
+                    }
+                    return book;
+                });
+            }
+            
+            @Override
+            protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                Book result;
+                try {
+                    result = get();
+                } catch (Exception e) {
+                    logger.severe("Error in book " + action + ": " + e.getMessage());
+                    result = null;
+                }
+                if (result == null) {
+                    JOptionPane.showMessageDialog(BookPanel.this, failureMessage,
                                                 "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
+                onSuccess.accept(result, position);
+            }
+        }.execute();
+    }
+    
+    /**
+     * Run a bulk database call in the background and apply its result to the
+     * model in one step, or reload if the rows moved while it ran
+     * When some books were skipped, a non-null skippedMessage tells the user why.
+     */
+    private void runBulkOperation(String action, int[] rows, List<Book> books,
+                                  Supplier<List<Book>> operation, String skippedMessage,
+                                  Consumer<List<Book>> onSuccess) {
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<List<Book>, Void>() {
+            @Override
+            protected List<Book> doInBackground() throws Exception {
+                return UiEvents.trace("BookPanel", action, operation::get);
+            }
+            
+            @Override
+            protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                List<Book> result;
+                try {
+                    result = get();
+                } catch (Exception e) {
+                    logger.severe("Error in bulk operation: " + e.getMessage());
+                    result = null;
+                }
+                if (result == null) {
+                    JOptionPane.showMessageDialog(BookPanel.this, "Failed to " + action + " the selected books.",
+                                                "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                if (!rowsUnchanged(rows, books) || result.size() != books.size()) {
+                    // The table changed meanwhile or some books were skipped
+                    reloadCurrentView();
+                    if (skippedMessage != null && result.size() < books.size()) {
+                        int skipped = books.size() - result.size();
+                        JOptionPane.showMessageDialog(BookPanel.this,
+                                                    (skipped == 1 ? "1 book " : skipped + " books ") + skippedMessage,
+                                                    "Warning", JOptionPane.WARNING_MESSAGE);
+                    }
+                    return;
+                }
+                onSuccess.accept(result);
+            }
+        }.execute();
+    }
+    
+    /**
+     * Get the selected model rows whose books are loaded
+     * Rows still loading in a large selection are left out.
+     */
+    private int[] selectedLoadedRows() {
+        int[] selected = bookTable.getSelectedRows();
+        int[] rows = new int[selected.length];
+        int count = 0;
+        for (int viewRow : selected) {
+            int row = bookTable.convertRowIndexToModel(viewRow);
+            if (tableModel.getRow(row) != null) {
+                rows[count++] = row;
             }
         }
+        return Arrays.copyOf(rows, count);
+    }
+    
+    private List<Book> rowsAt(int[] rows) {
+        List<Book> books = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            books.add(tableModel.getRow(row));
+        }
+        return books;
+    }
+    
+    private boolean rowsUnchanged(int[] rows, List<Book> books) {
+        for (int i = 0; i < rows.length; i++) {
+            Book current = tableModel.getRow(rows[i]);
+            if (current == null || current.getBookId() != books.get(i).getBookId()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private String skippedNote(int loaded) {
+        int skipped = bookTable.getSelectedRowCount() - loaded;
+        return skipped > 0 ? "\n(" + skipped + " selected rows are still loading and will be skipped)" : "";
+    }
+    
+    private static List<Integer> idsOf(List<Book> books) {
+        List<Integer> ids = new ArrayList<>(books.size());
+        for (Book book : books) {
+            ids.add(book.getBookId());
+        }
+        return ids;
     }
     
     /**
-     * Delete selected book
+     * Import books from a CSV file in the background
+     * Rejected rows are written next to the source file
      */
-    private void deleteSelectedBook() {
-        int selectedRow = bookTable.getSelectedRow();
-        if (selectedRow >= 0) {
-            // Convert view row to model row
-            selectedRow = bookTable.convertRowIndexToModel(selectedRow);
+    private void importCatalog() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Books (title,author,isbn,quantity)");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        
+        File file = chooser.getSelectedFile();
+        File rejectsFile = new File(file.getParentFile(), file.getName() + ".rejected.txt");
+        long fileSize = Math.max(file.length(), 1);
+        ProgressMonitor monitor = new ProgressMonitor(this, "Importing " + file.getName(), "", 0, 1000);
+        importButton.setEnabled(false);
+        
+        SwingWorker<CatalogImporter.ImportResult, String> worker = new SwingWorker<CatalogImporter.ImportResult, String>() {
+            @Override
+            protected CatalogImporter.ImportResult doInBackground() throws Exception {
+                return UiEvents.trace("BookPanel", "import", this::importFile);
+            }
             
-            int bookId = (Integer) tableModel.getValueAt(selectedRow, 0);
-            String title = (String) tableModel.getValueAt(selectedRow, 1);
+            private CatalogImporter.ImportResult importFile() throws Exception {
+                CatalogImporter importer = new CatalogImporter(Constants.IMPORT_BATCH_SIZE, Constants.IMPORT_COMMIT_SIZE);
+                
+                try (PrintWriter rejects = new PrintWriter(Files.newBufferedWriter(rejectsFile.toPath(), StandardCharsets.UTF_8))) {
+                    return importer.importCsv(file.toPath(), new CatalogImporter.ImportListener() {
+                        @Override
+                        public void progress(long linesRead, long bytesRead, long imported, long rejected) {
+                            setProgress((int) Math.min(100, bytesRead * 100 / fileSize));
+                            publish("Imported " + imported + ", rejected " + rejected);
+                        }
+                        
+                        @Override
+                        public void rowRejected(long lineNumber, String line, String reason) {
+                            rejects.println(lineNumber + ": " + reason + " | " + line);
+                        }
+                    });
+                }
+            }
             
-            int option = JOptionPane.showConfirmDialog(
-                this,
-                "Are you sure you want to delete the book:\n\"" + title + "\"?",
-                "Confirm Delete",
-                JOptionPane.YES_NO_OPTION,
-                JOptionPane.WARNING_MESSAGE
-            );
+            @Override
+            protected void process(List<String> notes) {
+                monitor.setNote(notes.get(notes.size() - 1));
+                monitor.setProgress(getProgress() * 10);
+            }
             
-            if (option == JOptionPane.YES_OPTION) {
-                if (dbOperations.deleteBook(bookId)) {
-                    JOptionPane.showMessageDialog(this, "Book deleted successfully!", 
-                                                "Success", JOptionPane.INFORMATION_MESSAGE);
+            @Override
+            protected void done() {
+                monitor.close();
+                importButton.setEnabled(true);
+                try {
+                    CatalogImporter.ImportResult result = get();
+                    String message = "Imported " + result.getImported() + " books in " +
+                                     result.getElapsedMillis() + " ms.";
+                    if (result.getRejected() > 0) {
+                        message += "\n" + result.getRejected() + " rows were rejected, see:\n" + rejectsFile;
+                    } else {
+                        rejectsFile.delete();
+                    }
+                    JOptionPane.showMessageDialog(BookPanel.this, message,
+                                                "Import Complete", JOptionPane.INFORMATION_MESSAGE);
                     loadBooks();
-                } else {
-                    JOptionPane.showMessageDialog(this, "Failed to delete book.", 
-                                                "Error", JOptionPane.ERROR_MESSAGE);
+                } catch (Exception e) {
+                    logger.severe("Error importing books: " + e.getMessage());
+                    JOptionPane.showMessageDialog(BookPanel.this,
+                                                "Error importing books: " + e.getMessage(),
+                                                "Import Error",
+                                                JOptionPane.ERROR_MESSAGE);
                 }
             }
-        }
+        };
+        
+        worker.execute();
     }
     
     /**
-     * Perform search
+     * Perform search off the EDT
+     * A newer search cancels the one in flight and stale results are dropped
      */
     private void performSearch() {
+        searchDebounceTimer.stop();
         String searchTerm = searchField.getText().trim();
         
+        final int generation = ++searchGeneration;
+        if (searchWorker != null) {
+            searchWorker.cancel(true);
+            searchWorker = null;
+        }
+        
         if (searchTerm.isEmpty()) {
             loadBooks();
-        } else {
-            List<Book> books = dbOperations.searchBooks(searchTerm);
-            populateTable(books);
+            return;
         }
-    }
-    
-    /**
-     * Load books from database
-     */
-    private void loadBooks() {
-        SwingWorker<List<Book>, Void> worker = new SwingWorker<List<Book>, Void>() {
+        
+        final long startNanos = System.nanoTime();
+        searchWorker = new SwingWorker<List<Book>, Void>() {
             @Override
             protected List<Book> doInBackground() throws Exception {
-                return dbOperations.getAllBooks();
+                // Search results are capped by SEARCH_MAX_RESULTS, so the table is filled once
+                return UiEvents.trace("BookPanel", "search", () -> dbOperations.searchBooks(searchTerm));
             }
             
             @Override
             protected void done() {
+                if (isCancelled() || generation != searchGeneration) {
+                    return;
+                }
                 try {
-                    List<Book> books = get();
-                    populateTable(books);
+                    populateTable(get());
+                    searchLatency.recordSince(startNanos);
+                    logger.fine("Search for '" + searchTerm + "' returned " + tableModel.getRowCount() +
+                                " books; " + searchLatency);
                 } catch (Exception e) {
-                    logger.severe("Error loading books: " + e.getMessage());
-                    JOptionPane.showMessageDialog(BookPanel.this, 
-                                                "Error loading books: " + e.getMessage(),
-                                                "Database Error", 
-                                                JOptionPane.ERROR_MESSAGE);
+                    logger.severe("Error searching books: " + e.getMessage());
                 }
             }
         };
         
-        worker.execute();
+        searchWorker.execute();
     }
     
     /**
-     * Populate table with book data
+     * Get search latency recorded across all book panels
+     */
+    public static LatencyHistogram getSearchLatency() {
+        return searchLatency;
+    }
+    
+    /**
+     * Load books from database
+     * Rows are fetched page by page as the table scrolls
+     */
+    private void loadBooks() {
+        bookTable.clearSelection();
+        tableModel.reload();
+    }
+    
+    /**
+     * Populate table with a fixed list of books, e.g. search results
      */
     private void populateTable(List<Book> books) {
-        // Clear existing data
-        tableModel.setRowCount(0);
-        
-        // Add book data
-        for (Book book : books) {
-            Object[] row = {
-                book.getBookId(),
-                book.getTitle(),
-                book.getAuthor(),
-                book.getIsbn(),
-                book.getQuantity(),
-                book.getStatus(),
-                book.getDateAdded()
-            };
-            tableModel.addRow(row);
-        }
+        tableModel.setRows(books);
         
         // Clear selection
         bookTable.clearSelection();
     }
     
+    /**
+     * Insert a book at a position looked up with the write, or reload if that failed
+     */
+    private void insertBookRow(Book book, int position) {
+        if (position < 0) {
+            loadBooks();
+            return;
+        }
+        tableModel.insertRow(position, book);
+        bookTable.setRowSelectionInterval(position, position);
+        bookTable.scrollRectToVisible(bookTable.getCellRect(position, 0, true));
+    }
+    
+    /**
+     * Get table cell value for a book
+     */
+    private Object getColumnValue(Book book, int column) {
+        switch (column) {
+            case 0: return book.getBookId();
+            case 1: return book.getTitle();
+            case 2: return book.getAuthor();
+            case 3: return book.getIsbn();
+            case 4: return book.getQuantity();
+            case 5: return book.getStatus();
+            case 6: return book.getDateAdded();
+            default: return null;
+        }
+    }
+    
+    /**
+     * Reload the rows on screen, keeping the current search
+     */
+    public void reloadCurrentView() {
+        performSearch();
+    }
+    
+    /**
+     * Get the time the table was last loaded from the database, or 0 if never
+     */
+    public long getLoadedAt() {
+        return tableModel.getLoadedAt();
+    }
+    
     /**
      * Refresh data
      */
     public void refreshData() {
-        loadBooks();
         searchField.setText("");
+        performSearch();
     }
 }
\ No newline at end of file
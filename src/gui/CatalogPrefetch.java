@@ -0,0 +1,128 @@
+package gui;
+
+import database.CachingDatabaseOperations;
+import database.CatalogChangeListener;
+import database.DatabaseOperations;
+import models.Book;
+import models.LibrarySummary;
+import models.Staff;
+import utils.Constants;
+import utils.StartupMetrics;
+
+import java.util.logging.Logger;
+
+/**
+ * Catalog data fetched while the login window is showing
+ * The dashboard takes over the warmed operations instance and the summary,
+ * and the first table pages have been read once so their rows are hot in
+ * the snapshot mapping or the server's buffer pool. Any catalog change
+ * before the dashboard opens discards the prefetched summary.
+ */
+public class CatalogPrefetch implements CatalogChangeListener {
+    private static final Logger logger = Logger.getLogger(CatalogPrefetch.class.getName());
+    private static CatalogPrefetch current;
+    
+    private final CachingDatabaseOperations operations = new CachingDatabaseOperations();
+    private final long fetchedAt;
+    private volatile LibrarySummary summary;
+    
+    // Set by any change from the moment the listener is registered
+    private volatile boolean changed;
+    
+    private CatalogPrefetch() {
+        DatabaseOperations.addCatalogListener(this);
+        // A change while the query runs would be overwritten by its result, so publish only if none came
+        LibrarySummary loaded = operations.getLibrarySummary();
+        if (!changed) {
+            summary = loaded;
+        }
+        operations.getBooksPage(null, 0, Constants.TABLE_PAGE_SIZE);
+        operations.getStaffPage(null, 0, Constants.TABLE_PAGE_SIZE);
+        fetchedAt = System.currentTimeMillis();
+    }
+    
+    /**
+     * Fetch on the calling thread and keep the result for the dashboard
+     */
+    public static void start() {
+        CatalogPrefetch prefetch = new CatalogPrefetch();
+        synchronized (CatalogPrefetch.class) {
+            current = prefetch;
+        }
+        StartupMetrics.mark("catalog prefetched");
+    }
+    
+    /**
+     * Take the prefetched data once; null if there is none or it is too old
+     */
+    public static synchronized CatalogPrefetch take() {
+        CatalogPrefetch prefetch = current;
+        current = null;
+        if (prefetch == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - prefetch.fetchedAt > Constants.PREFETCH_MAX_AGE_MS) {
+            logger.info("Discarding catalog prefetch older than " + Constants.PREFETCH_MAX_AGE_MS + " ms");
+            prefetch.summary = null;
+        }
+        return prefetch;
+    }
+    
+    /**
+     * Get the operations instance whose caches the prefetch filled
+     */
+    public CachingDatabaseOperations getOperations() {
+        return operations;
+    }
+    
+    /**
+     * Stop tracking changes and get the summary, or null if the catalog changed since
+     * Call after the consumer is itself listening for changes so none fall in between.
+     */
+    public LibrarySummary releaseSummary() {
+        DatabaseOperations.removeCatalogListener(this);
+        return changed ? null : summary;
+    }
+    
+    // ==================== CHANGE NOTIFICATION ====================
+    
+    private void discardSummary() {
+        changed = true;
+        summary = null;
+    }
+    
+    @Override
+    public void bookAdded(Book book) {
+        discardSummary();
+    }
+    
+    @Override
+    public void bookUpdated(Book book) {
+        discardSummary();
+    }
+    
+    @Override
+    public void bookDeleted(int bookId) {
+        discardSummary();
+    }
+    
+    @Override
+    public void catalogReloaded() {
+        discardSummary();
+    }
+    
+    @Override
+    public void staffAdded(Staff staff) {
+        discardSummary();
+    }
+    
+    @Override
+    public void staffUpdated(Staff staff) {
+        discardSummary();
+    }
+    
+    @Override
+    public void staffDeleted(Staff previous) {
+        discardSummary();
+    }
+}
@@ -0,0 +1,157 @@
+package gui;
+
+import database.DatabaseOperations;
+import database.QueryMetrics;
+import utils.LatencyHistogram;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Diagnostics window showing UI responsiveness and database latency
+ * Refreshes itself every second while open.
+ */
+public class DiagnosticsDialog extends JDialog {
+    private static final int REFRESH_INTERVAL_MS = 1000;
+    
+    private final JLabel summaryLabel = new JLabel();
+    private final DefaultTableModel latencyModel = readOnlyModel("Metric", "Count", "Mean (ms)", "p50 (ms)",
+                                                                 "p95 (ms)", "p99 (ms)", "Max (ms)");
+    private final DefaultTableModel stallModel = readOnlyModel("Time", "Duration (ms)", "Cause");
+    private final DefaultTableModel slowQueryModel = readOnlyModel("Time", "Operation", "Duration (ms)",
+                                                                   "Binds", "Batch", "SQL");
+    private final JTable stallTable = new JTable(stallModel);
+    private final JTextArea stackArea = new JTextArea();
+    private final Timer refreshTimer;
+    private List<EdtWatchdog.Stall> stalls = new ArrayList<>();
+    
+    public DiagnosticsDialog(Frame parent) {
+        super(parent, "Diagnostics", false);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        
+        summaryLabel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        summaryLabel.setFont(new Font("Arial", Font.BOLD, 12));
+        
+        // Stall list with the captured EDT stack of the selected stall below it
+        stallTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        stallTable.getSelectionModel().addListSelectionListener(e -> {
+            int row = stallTable.getSelectedRow();
+            stackArea.setText(row >= 0 && row < stalls.size() ? stalls.get(row).getStackText() : "");
+            stackArea.setCaretPosition(0);
+        });
+        stackArea.setEditable(false);
+        stackArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+        JSplitPane stallPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                                              new JScrollPane(stallTable), new JScrollPane(stackArea));
+        stallPane.setResizeWeight(0.4);
+        
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Latency", new JScrollPane(new JTable(latencyModel)));
+        tabs.addTab("EDT Stalls", stallPane);
+        tabs.addTab("Slow Queries", new JScrollPane(new JTable(slowQueryModel)));
+        
+        JButton resetButton = new JButton("Reset Query Metrics");
+        resetButton.addActionListener(e -> {
+            QueryMetrics.reset();
+            refresh();
+        });
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(resetButton);
+        buttonPanel.add(closeButton);
+        
+        setLayout(new BorderLayout());
+        add(summaryLabel, BorderLayout.NORTH);
+        add(tabs, BorderLayout.CENTER);
+        add(buttonPanel, BorderLayout.SOUTH);
+        setSize(900, 550);
+        setLocationRelativeTo(parent);
+        
+        refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> refresh());
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                refreshTimer.stop();
+            }
+        });
+        refresh();
+        refreshTimer.start();
+    }
+    
+    /**
+     * Reload all figures; cheap enough to run on the EDT
+     */
+    private void refresh() {
+        EdtWatchdog watchdog = EdtWatchdog.getInstance();
+        List<LatencyHistogram.Snapshot> latencies = new ArrayList<>();
+        
+        if (watchdog != null) {
+            LatencyHistogram.Snapshot heartbeat = watchdog.getHeartbeatLatency().snapshot();
+            summaryLabel.setText(String.format("EDT heartbeat p99 %.1f ms, max %.1f ms  |  %d stalls (%.1f per hour)",
+                                               heartbeat.getP99() / 1000.0, heartbeat.getMax() / 1000.0,
+                                               watchdog.getStallDurations().getCount(), watchdog.getStallsPerHour()));
+            latencies.add(heartbeat);
+            latencies.add(watchdog.getStallDurations().snapshot());
+            for (LatencyHistogram.Snapshot snapshot : watchdog.getStallsByCause()) {
+                latencies.add(snapshot);
+            }
+        } else {
+            summaryLabel.setText("EDT watchdog is not running");
+        }
+        latencies.add(DatabaseOperations.getLoginLatency().snapshot());
+        latencies.add(BookPanel.getSearchLatency().snapshot());
+        latencies.addAll(QueryMetrics.snapshot());
+        
+        latencyModel.setRowCount(0);
+        for (LatencyHistogram.Snapshot snapshot : latencies) {
+            latencyModel.addRow(new Object[]{
+                snapshot.getName(), snapshot.getCount(), millis(snapshot.getMean()), millis(snapshot.getP50()),
+                millis(snapshot.getP95()), millis(snapshot.getP99()), millis(snapshot.getMax())
+            });
+        }
+        
+        // Keep the selected stall selected as new ones arrive
+        List<EdtWatchdog.Stall> latestStalls = watchdog != null ? watchdog.getRecentStalls() : new ArrayList<>();
+        if (latestStalls.size() != stalls.size() || !latestStalls.isEmpty() &&
+            latestStalls.get(latestStalls.size() - 1) != stalls.get(stalls.size() - 1)) {
+            EdtWatchdog.Stall selected = stallTable.getSelectedRow() >= 0 ? stalls.get(stallTable.getSelectedRow()) : null;
+            stalls = latestStalls;
+            stallModel.setRowCount(0);
+            for (EdtWatchdog.Stall stall : stalls) {
+                stallModel.addRow(new Object[]{new Timestamp(stall.getTimestamp()), stall.getDurationMillis(), stall.getCause()});
+            }
+            int index = stalls.indexOf(selected);
+            if (index >= 0) {
+                stallTable.setRowSelectionInterval(index, index);
+            }
+        }
+        
+        slowQueryModel.setRowCount(0);
+        for (QueryMetrics.SlowQuery query : QueryMetrics.getSlowQueries()) {
+            slowQueryModel.addRow(new Object[]{
+                new Timestamp(query.getTimestamp()), query.getOperation(), millis(query.getElapsedMicros()),
+                query.getBindCount(), query.getBatchSize(), query.getSql()
+            });
+        }
+    }
+    
+    private static String millis(double micros) {
+        return String.format("%.2f", micros / 1000.0);
+    }
+    
+    private static DefaultTableModel readOnlyModel(String... columns) {
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+}
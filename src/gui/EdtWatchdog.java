@@ -0,0 +1,273 @@
+package gui;
+
+import utils.Constants;
+import utils.FlightRecorderSupport;
+import utils.LatencyHistogram;
+
+import java.awt.EventQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Watches the Event Dispatch Thread for stalls
+ * A heartbeat is posted to the EDT at a fixed interval and the delay until it
+ * runs is recorded. When a heartbeat is late past the stall threshold, the
+ * EDT stack is captured and the stall is attributed to the innermost gui
+ * method on it, e.g. BookPanel.showAddBookDialog. The stall is logged and
+ * dumped right away, so a hung EDT is reported too; its final duration is
+ * recorded once the heartbeat runs.
+ */
+public class EdtWatchdog {
+    private static final Logger logger = Logger.getLogger(EdtWatchdog.class.getName());
+    private static EdtWatchdog instance;
+    
+    private final LatencyHistogram heartbeatLatency = new LatencyHistogram("EDT heartbeat");
+    private final LatencyHistogram stallDurations = new LatencyHistogram("EDT stalls");
+    private final ConcurrentHashMap<String, LatencyHistogram> stallsByCause = new ConcurrentHashMap<>();
+    private final ArrayDeque<Stall> recentStalls = new ArrayDeque<>();
+    private final long startedAt = System.currentTimeMillis();
+    private volatile Thread eventDispatchThread;
+    private volatile boolean running = true;
+    
+    private EdtWatchdog() {}
+    
+    /**
+     * Start the watchdog thread once; later calls return the running instance
+     */
+    public static synchronized EdtWatchdog start() {
+        if (instance == null) {
+            instance = new EdtWatchdog();
+            Thread thread = new Thread(instance::watch, "edt-watchdog");
+            thread.setDaemon(true);
+            thread.start();
+            logger.info("EDT watchdog started, stall threshold " + Constants.EDT_STALL_THRESHOLD_MS + " ms");
+        }
+        return instance;
+    }
+    
+    /**
+     * Get the running watchdog, or null if it was never started
+     */
+    public static synchronized EdtWatchdog getInstance() {
+        return instance;
+    }
+    
+    public void stop() {
+        running = false;
+    }
+    
+    private void watch() {
+        while (running) {
+            Heartbeat heartbeat = new Heartbeat();
+            EventQueue.invokeLater(heartbeat);
+            try {
+                if (!heartbeat.ran.await(Constants.EDT_STALL_THRESHOLD_MS, TimeUnit.MILLISECONDS)) {
+                    // Stack taken while the EDT is still stuck
+                    StackTraceElement[] stack = captureStack();
+                    String cause = attribute(stack);
+                    reportStall(heartbeat, cause, stack);
+                    while (!heartbeat.ran.await(Constants.EDT_STALL_REPORT_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                        logger.warning("EDT still blocked after " + millisSince(heartbeat.postedAt) + " ms in " +
+                                       cause + "\n" + Stall.stackText(captureStack()));
+                    }
+                    recordStall(heartbeat, cause, stack);
+                }
+                heartbeatLatency.recordNanos(heartbeat.ranAt - heartbeat.postedAt);
+                Thread.sleep(Constants.EDT_HEARTBEAT_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    private StackTraceElement[] captureStack() {
+        Thread edt = eventDispatchThread;
+        if (edt == null) {
+            // No heartbeat has run yet, e.g. the very first one is the stalled one
+            edt = findEventDispatchThread();
+        }
+        return edt != null ? edt.getStackTrace() : new StackTraceElement[0];
+    }
+    
+    /**
+     * Find the EDT by its standard thread name
+     */
+    private static Thread findEventDispatchThread() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("AWT-EventQueue-")) {
+                return thread;
+            }
+        }
+        return null;
+    }
+    
+    private static long millisSince(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanos);
+    }
+    
+    /**
+     * Log, emit and dump a stall as soon as it passes the threshold, while the EDT may still be stuck
+     */
+    private void reportStall(Heartbeat heartbeat, String cause, StackTraceElement[] stack) {
+        String stackText = Stall.stackText(stack);
+        heartbeat.event.end();
+        if (heartbeat.event.shouldCommit()) {
+            heartbeat.event.cause = cause;
+            heartbeat.event.stack = stackText;
+            heartbeat.event.commit();
+        }
+        long blockedFor = millisSince(heartbeat.postedAt);
+        logger.warning("EDT blocked for over " + blockedFor + " ms in " + cause + "\n" + stackText);
+        FlightRecorderSupport.dumpOnStall("EDT blocked for over " + blockedFor + " ms in " + cause);
+    }
+    
+    /**
+     * Record the final duration of a stall once the heartbeat has run
+     */
+    private void recordStall(Heartbeat heartbeat, String cause, StackTraceElement[] stack) {
+        long nanos = heartbeat.ranAt - heartbeat.postedAt;
+        stallDurations.recordNanos(nanos);
+        stallsByCause.computeIfAbsent(cause, LatencyHistogram::new).recordNanos(nanos);
+        
+        Stall stall = new Stall(System.currentTimeMillis(), cause, TimeUnit.NANOSECONDS.toMillis(nanos), stack);
+        synchronized (recentStalls) {
+            if (recentStalls.size() == Constants.EDT_RECENT_STALLS) {
+                recentStalls.removeFirst();
+            }
+            recentStalls.addLast(stall);
+        }
+        logger.warning("EDT stall in " + cause + " ended after " + stall.getDurationMillis() + " ms");
+    }
+    
+    /**
+     * Name the code responsible for a stall from the EDT stack
+     * Prefers the innermost application gui frame, then any application frame.
+     */
+    static String attribute(StackTraceElement[] stack) {
+        StackTraceElement application = null;
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if (className.startsWith("gui.") && !className.startsWith("gui.EdtWatchdog")) {
+                return describe(frame);
+            }
+            if (application == null && !isPlatformClass(className)) {
+                application = frame;
+            }
+        }
+        if (application != null) {
+            return describe(application);
+        }
+        return stack.length > 0 ? describe(stack[0]) : "unknown";
+    }
+    
+    private static boolean isPlatformClass(String className) {
+        return className.startsWith("java.") || className.startsWith("javax.") ||
+               className.startsWith("sun.") || className.startsWith("jdk.") || className.startsWith("com.sun.");
+    }
+    
+    private static String describe(StackTraceElement frame) {
+        String className = frame.getClassName();
+        int dollar = className.indexOf('$');
+        String outerClass = dollar < 0 ? className : className.substring(0, dollar);
+        return outerClass.substring(outerClass.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+    }
+    
+    // ==================== STATISTICS ====================
+    
+    public LatencyHistogram getHeartbeatLatency() {
+        return heartbeatLatency;
+    }
+    
+    public LatencyHistogram getStallDurations() {
+        return stallDurations;
+    }
+    
+    /**
+     * Get stall duration summaries per cause, ordered by name
+     */
+    public List<LatencyHistogram.Snapshot> getStallsByCause() {
+        List<LatencyHistogram.Snapshot> snapshots = new ArrayList<>();
+        for (LatencyHistogram histogram : stallsByCause.values()) {
+            snapshots.add(histogram.snapshot());
+        }
+        snapshots.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return snapshots;
+    }
+    
+    /**
+     * Get the most recent stalls, oldest first
+     */
+    public List<Stall> getRecentStalls() {
+        synchronized (recentStalls) {
+            return new ArrayList<>(recentStalls);
+        }
+    }
+    
+    /**
+     * Stalls per hour since the watchdog started
+     */
+    public double getStallsPerHour() {
+        double hours = Math.max(System.currentTimeMillis() - startedAt, 1) / 3_600_000.0;
+        return stallDurations.getCount() / hours;
+    }
+    
+    /**
+     * Single EDT stall with the stack captured while it was blocked
+     */
+    public static class Stall {
+        private final long timestamp;
+        private final String cause;
+        private final long durationMillis;
+        private final StackTraceElement[] stack;
+        
+        Stall(long timestamp, String cause, long durationMillis, StackTraceElement[] stack) {
+            this.timestamp = timestamp;
+            this.cause = cause;
+            this.durationMillis = durationMillis;
+            this.stack = stack;
+        }
+        
+        public long getTimestamp() { return timestamp; }
+        public String getCause() { return cause; }
+        public long getDurationMillis() { return durationMillis; }
+        
+        public String getStackText() {
+            return stackText(stack);
+        }
+        
+        static String stackText(StackTraceElement[] stack) {
+            StringBuilder text = new StringBuilder();
+            for (StackTraceElement frame : stack) {
+                text.append("\tat ").append(frame).append('\n');
+            }
+            return text.toString();
+        }
+    }
+    
+    /**
+     * Task posted to the EDT; records when it got to run
+     */
+    private class Heartbeat implements Runnable {
+        final long postedAt = System.nanoTime();
+        final CountDownLatch ran = new CountDownLatch(1);
+        final UiEvents.EdtStall event = new UiEvents.EdtStall();
+        volatile long ranAt;
+        
+        Heartbeat() {
+            event.begin();
+        }
+        
+        @Override
+        public void run() {
+            ranAt = System.nanoTime();
+            eventDispatchThread = Thread.currentThread();
+            ran.countDown();
+        }
+    }
+}
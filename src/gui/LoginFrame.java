@@ -3,6 +3,7 @@ package gui;
 import database.DatabaseOperations;
 import models.Admin;
 import utils.Constants;
+import utils.StartupMetrics;
 import utils.ValidationUtils;
 
 import javax.swing.*;
@@ -46,13 +47,6 @@ public class LoginFrame extends JFrame implements ActionListener, KeyListener {
         setLocationRelativeTo(null);
         setResizable(false);
         
-        // Set look and feel
-        try {
-            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-        } catch (Exception e) {
-            logger.warning("Could not set system look and feel: " + e.getMessage());
-        }
-        
         // Create components
         usernameField = new JTextField(15);
         passwordField = new JPasswordField(15);
@@ -198,7 +192,7 @@ public class LoginFrame extends JFrame implements ActionListener, KeyListener {
         SwingWorker<Admin, Void> worker = new SwingWorker<Admin, Void>() {
             @Override
             protected Admin doInBackground() throws Exception {
-                return dbOperations.authenticateAdmin(username, password);
+                return UiEvents.trace("LoginFrame", "login", () -> dbOperations.authenticateAdmin(username, password));
             }
             
             @Override
@@ -215,6 +209,8 @@ public class LoginFrame extends JFrame implements ActionListener, KeyListener {
                         SwingUtilities.invokeLater(() -> {
                             new MainDashboard(admin).setVisible(true);
                             dispose();
+                            StartupMetrics.mark("dashboard shown");
+                            logger.info("Startup stages:\n" + StartupMetrics.report());
                         });
                     } else {
                         // Login failed
@@ -1,19 +1,35 @@
 package gui;
 
+import database.AsyncDatabaseOperations;
+import database.CachingDatabaseOperations;
+import database.CatalogExporter;
+import database.CatalogChangeListener;
+import database.CatalogSnapshotManager;
+import database.DashboardStatistics;
 import database.DatabaseOperations;
+import database.LastLoginWriter;
+import database.OfflineMode;
+import database.QueryMetrics;
 import models.Admin;
+import models.LibrarySummary;
 import utils.Constants;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.AWTEventListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.logging.Logger;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 
 
@@ -24,20 +40,37 @@ import java.awt.image.BufferedImage;
  */
 public class MainDashboard extends JFrame implements ActionListener {
     private static final Logger logger = Logger.getLogger(MainDashboard.class.getName());
+    private static final int BOOKS_TAB = 1;
+    private static final int STAFF_TAB = 2;
     
     private Admin currentAdmin;
-    private DatabaseOperations dbOperations;
+    private CachingDatabaseOperations dbOperations;
+    private AsyncDatabaseOperations asyncOperations;
+    private DashboardStatistics statistics;
+    private JLabel titlesValueLabel;
+    private JLabel copiesValueLabel;
+    private JLabel availabilityValueLabel;
+    private JLabel staffValueLabel;
     private JTabbedPane tabbedPane;
+    // Built on first selection or when the user is idle; null until then
     private BookPanel bookPanel;
     private StaffPanel staffPanel;
+    private Timer idlePreloadTimer;
+    private AWTEventListener inputListener;
+    private volatile long lastInputAt = System.currentTimeMillis();
     private JLabel statusLabel;
     private JLabel userLabel;
     private JLabel timeLabel;
     private Timer timeTimer;
+    private CatalogPrefetch prefetch;
     
     public MainDashboard(Admin admin) {
         this.currentAdmin = admin;
-        this.dbOperations = new DatabaseOperations();
+        // Take over the caches filled while the login window was showing
+        this.prefetch = CatalogPrefetch.take();
+        this.dbOperations = prefetch != null ? prefetch.getOperations() : new CachingDatabaseOperations();
+        this.asyncOperations = new AsyncDatabaseOperations(dbOperations);
+        this.statistics = new DashboardStatistics(asyncOperations);
         
         initializeComponents();
         setupLayout();
@@ -62,8 +95,36 @@ public class MainDashboard extends JFrame implements ActionListener {
         
         // Create main components
         tabbedPane = new JTabbedPane(JTabbedPane.TOP);
-        bookPanel = new BookPanel(dbOperations);
-        staffPanel = new StaffPanel(dbOperations);
+        
+        // Dashboard statistic values, filled in as the summary loads and changes
+        titlesValueLabel = new JLabel("...");
+        copiesValueLabel = new JLabel("...");
+        availabilityValueLabel = new JLabel("...");
+        staffValueLabel = new JLabel("...");
+        statistics.addListener(this::showSummary);
+        if (prefetch != null) {
+            statistics.seed(prefetch.releaseSummary());
+            prefetch = null;
+        } else {
+            statistics.refresh();
+        }
+        
+        // Reload the tables when the catalog is replaced underneath them,
+        // e.g. when the local snapshot turned out to be stale
+        DatabaseOperations.addCatalogListener(new CatalogChangeListener() {
+            @Override
+            public void catalogReloaded() {
+                SwingUtilities.invokeLater(() -> {
+                    // Panels not built yet load fresh rows when they are
+                    if (bookPanel != null) {
+                        bookPanel.reloadCurrentView();
+                    }
+                    if (staffPanel != null) {
+                        staffPanel.refreshData();
+                    }
+                });
+            }
+        });
       
 
         
@@ -78,6 +139,22 @@ public class MainDashboard extends JFrame implements ActionListener {
         timeLabel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
         
         userLabel.setFont(new Font("Arial", Font.BOLD, 12));
+        
+        // Show whether writes go to the database or the local journal
+        OfflineMode.getInstance().addListener(new OfflineMode.StatusListener() {
+            @Override
+            public void statusChanged(boolean offline, int pendingWrites) {
+                showOfflineStatus(offline, pendingWrites);
+            }
+            
+            @Override
+            public void replayFinished(OfflineMode.ReplayResult result) {
+                showReplayResult(result);
+            }
+        });
+        if (OfflineMode.isActive()) {
+            showOfflineStatus(true, OfflineMode.getInstance().getPendingCount());
+        }
     }
     
     /**
@@ -94,9 +171,9 @@ public class MainDashboard extends JFrame implements ActionListener {
         JPanel dashboardPanel = createDashboardPanel();
         tabbedPane.addTab("Dashboard", new ImageIcon(), dashboardPanel, "System Overview");
         
-        // Add other panels
-        tabbedPane.addTab("Books", new ImageIcon(), bookPanel, "Book Management");
-        tabbedPane.addTab("Staff", new ImageIcon(), staffPanel, "Staff Management");
+        // Add other panels as placeholders; the panels are built on demand
+        tabbedPane.addTab("Books", new ImageIcon(), new JPanel(), "Book Management");
+        tabbedPane.addTab("Staff", new ImageIcon(), new JPanel(), "Staff Management");
         
         // Style tabs
         tabbedPane.setFont(new Font("Arial", Font.BOLD, 14));
@@ -128,7 +205,13 @@ public class MainDashboard extends JFrame implements ActionListener {
         exitItem.setAccelerator(KeyStroke.getKeyStroke("alt F4"));
         exitItem.addActionListener(this);
         
+        JMenuItem exportItem = new JMenuItem("Export Data...");
+        exportItem.setMnemonic('X');
+        exportItem.setActionCommand("Export Data");
+        exportItem.addActionListener(this);
+        
         fileMenu.add(refreshItem);
+        fileMenu.add(exportItem);
         fileMenu.addSeparator();
         fileMenu.add(exitItem);
         
@@ -142,11 +225,11 @@ public class MainDashboard extends JFrame implements ActionListener {
         
         JMenuItem booksItem = new JMenuItem("Books");
         booksItem.setAccelerator(KeyStroke.getKeyStroke("ctrl 2"));
-        booksItem.addActionListener(e -> tabbedPane.setSelectedIndex(1));
+        booksItem.addActionListener(e -> tabbedPane.setSelectedIndex(BOOKS_TAB));
         
         JMenuItem staffItem = new JMenuItem("Staff");
         staffItem.setAccelerator(KeyStroke.getKeyStroke("ctrl 3"));
-        staffItem.addActionListener(e -> tabbedPane.setSelectedIndex(2));
+        staffItem.addActionListener(e -> tabbedPane.setSelectedIndex(STAFF_TAB));
         
         viewMenu.add(dashboardItem);
         viewMenu.add(booksItem);
@@ -156,10 +239,16 @@ public class MainDashboard extends JFrame implements ActionListener {
         JMenu helpMenu = new JMenu("Help");
         helpMenu.setMnemonic('H');
         
+        JMenuItem diagnosticsItem = new JMenuItem("Diagnostics");
+        diagnosticsItem.setMnemonic('D');
+        diagnosticsItem.addActionListener(this);
+        
         JMenuItem aboutItem = new JMenuItem("About");
         aboutItem.setMnemonic('A');
         aboutItem.addActionListener(this);
         
+        helpMenu.add(diagnosticsItem);
+        helpMenu.addSeparator();
         helpMenu.add(aboutItem);
         
         // Add menus to menu bar
@@ -187,7 +276,7 @@ public class MainDashboard extends JFrame implements ActionListener {
         welcomeLabel.setHorizontalAlignment(SwingConstants.CENTER);
         gbc.gridx = 0;
         gbc.gridy = 0;
-        gbc.gridwidth = 2;
+        gbc.gridwidth = 4;
         gbc.fill = GridBagConstraints.HORIZONTAL;
         panel.add(welcomeLabel, gbc);
         
@@ -199,34 +288,50 @@ public class MainDashboard extends JFrame implements ActionListener {
         gbc.weighty = 1.0;
         
         // Books card
-        JPanel booksCard = createStatsCard("Total Books", 
-            String.valueOf(dbOperations.getTotalBooks()), 
-            new Color(33, 150, 243));
         gbc.gridx = 0;
-        panel.add(booksCard, gbc);
+        panel.add(createStatsCard("Total Titles", titlesValueLabel, 
+            new Color(33, 150, 243)), gbc);
         
-        // Staff card
-        JPanel staffCard = createStatsCard("Active Staff", 
-            String.valueOf(dbOperations.getTotalStaff()), 
-            new Color(76, 175, 80));
+        // Copies card
         gbc.gridx = 1;
-        panel.add(staffCard, gbc);
+        panel.add(createStatsCard("Total Copies", copiesValueLabel, 
+            new Color(0, 150, 136)), gbc);
+        
+        // Availability card
+        gbc.gridx = 2;
+        panel.add(createStatsCard("Available / Out of Stock", availabilityValueLabel, 
+            new Color(255, 152, 0)), gbc);
+        
+        // Staff card
+        gbc.gridx = 3;
+        panel.add(createStatsCard("Active Staff", staffValueLabel, 
+            new Color(76, 175, 80)), gbc);
         
         // Quick actions
         JPanel actionsPanel = createQuickActionsPanel();
         gbc.gridy = 2;
         gbc.gridx = 0;
-        gbc.gridwidth = 2;
+        gbc.gridwidth = 4;
         gbc.weighty = 0.5;
         panel.add(actionsPanel, gbc);
         
         return panel;
     }
     
+    /**
+     * Show dashboard statistics; called on the EDT
+     */
+    private void showSummary(LibrarySummary summary) {
+        titlesValueLabel.setText(String.valueOf(summary.getTotalTitles()));
+        copiesValueLabel.setText(String.valueOf(summary.getTotalCopies()));
+        availabilityValueLabel.setText(summary.getAvailableTitles() + " / " + summary.getOutOfStockTitles());
+        staffValueLabel.setText(String.valueOf(summary.getActiveStaff()));
+    }
+    
     /**
      * Create statistics card
      */
-    private JPanel createStatsCard(String title, String value, Color color) {
+    private JPanel createStatsCard(String title, JLabel valueLabel, Color color) {
         JPanel card = new JPanel(new BorderLayout());
         card.setBorder(BorderFactory.createCompoundBorder(
             BorderFactory.createLineBorder(color, 2),
@@ -239,7 +344,6 @@ public class MainDashboard extends JFrame implements ActionListener {
         titleLabel.setForeground(color);
         titleLabel.setHorizontalAlignment(SwingConstants.CENTER);
         
-        JLabel valueLabel = new JLabel(value);
         valueLabel.setFont(new Font("Arial", Font.BOLD, 36));
         valueLabel.setForeground(color);
         valueLabel.setHorizontalAlignment(SwingConstants.CENTER);
@@ -281,17 +385,17 @@ public class MainDashboard extends JFrame implements ActionListener {
         
         // Add action listeners
         addBookBtn.addActionListener(e -> {
-            tabbedPane.setSelectedIndex(1);
-            bookPanel.showAddBookDialog();
+            tabbedPane.setSelectedIndex(BOOKS_TAB);
+            getBookPanel().showAddBookDialog();
         });
         
         addStaffBtn.addActionListener(e -> {
-            tabbedPane.setSelectedIndex(2);
-            staffPanel.showAddStaffDialog();
+            tabbedPane.setSelectedIndex(STAFF_TAB);
+            getStaffPanel().showAddStaffDialog();
         });
         
-        viewBooksBtn.addActionListener(e -> tabbedPane.setSelectedIndex(1));
-        viewStaffBtn.addActionListener(e -> tabbedPane.setSelectedIndex(2));
+        viewBooksBtn.addActionListener(e -> tabbedPane.setSelectedIndex(BOOKS_TAB));
+        viewStaffBtn.addActionListener(e -> tabbedPane.setSelectedIndex(STAFF_TAB));
         
         // Add buttons to panel
         gbc.gridx = 0;
@@ -370,8 +474,107 @@ public class MainDashboard extends JFrame implements ActionListener {
         tabbedPane.addChangeListener(e -> {
             int selectedIndex = tabbedPane.getSelectedIndex();
             String tabName = tabbedPane.getTitleAt(selectedIndex);
-            setStatus("Viewing " + tabName + " module");
+            setStatus("Viewing " + tabName + " module" + showTab(selectedIndex));
+        });
+        
+        startIdlePreload();
+    }
+    
+    // ==================== DEFERRED TABS ====================
+    
+    /**
+     * Get the book panel, building it on first use
+     */
+    private BookPanel getBookPanel() {
+        if (bookPanel == null) {
+            bookPanel = new BookPanel(dbOperations);
+            tabbedPane.setComponentAt(BOOKS_TAB, bookPanel);
+            logger.info("Books tab built");
+        }
+        return bookPanel;
+    }
+    
+    /**
+     * Get the staff panel, building it on first use
+     */
+    private StaffPanel getStaffPanel() {
+        if (staffPanel == null) {
+            staffPanel = new StaffPanel(dbOperations);
+            tabbedPane.setComponentAt(STAFF_TAB, staffPanel);
+            logger.info("Staff tab built");
+        }
+        return staffPanel;
+    }
+    
+    /**
+     * Build the selected tab if needed and reload it only when its data is too old
+     * Returns a note on the data age for the status bar.
+     */
+    private String showTab(int index) {
+        long loadedAt;
+        if (index == BOOKS_TAB) {
+            boolean built = bookPanel != null;
+            loadedAt = getBookPanel().getLoadedAt();
+            if (built && isExpired(loadedAt)) {
+                bookPanel.reloadCurrentView();
+                return " - reloading";
+            }
+        } else if (index == STAFF_TAB) {
+            boolean built = staffPanel != null;
+            loadedAt = getStaffPanel().getLoadedAt();
+            if (built && isExpired(loadedAt)) {
+                staffPanel.refreshData();
+                return " - reloading";
+            }
+        } else {
+            return "";
+        }
+        if (loadedAt == 0) {
+            return "";
+        }
+        long minutes = (System.currentTimeMillis() - loadedAt) / 60_000;
+        return minutes == 0 ? " - data is current" : " - data loaded " + minutes + " min ago";
+    }
+    
+    private static boolean isExpired(long loadedAt) {
+        return loadedAt > 0 && System.currentTimeMillis() - loadedAt > Constants.TAB_DATA_MAX_AGE_MS;
+    }
+    
+    /**
+     * Build the remaining tabs one at a time while there is no user input
+     */
+    private void startIdlePreload() {
+        inputListener = event -> lastInputAt = System.currentTimeMillis();
+        Toolkit.getDefaultToolkit().addAWTEventListener(inputListener,
+            AWTEvent.KEY_EVENT_MASK | AWTEvent.MOUSE_EVENT_MASK | AWTEvent.MOUSE_WHEEL_EVENT_MASK);
+        
+        idlePreloadTimer = new Timer((int) Constants.IDLE_PRELOAD_DELAY_MS, e -> {
+            // Wait for the dashboard counters so the preload does not compete with them
+            if (System.currentTimeMillis() - lastInputAt < Constants.IDLE_PRELOAD_DELAY_MS
+                    || statistics.getSummary() == null) {
+                return;
+            }
+            if (bookPanel == null) {
+                getBookPanel();
+            } else if (staffPanel == null) {
+                getStaffPanel();
+            }
+            if (bookPanel != null && staffPanel != null) {
+                stopIdlePreload();
+            }
         });
+        idlePreloadTimer.start();
+    }
+    
+    private void stopIdlePreload() {
+        if (idlePreloadTimer != null) {
+            idlePreloadTimer.stop();
+            idlePreloadTimer = null;
+        }
+        if (inputListener != null) {
+            Toolkit.getDefaultToolkit().removeAWTEventListener(inputListener);
+            inputListener = null;
+        }
     }
     
     /**
@@ -385,9 +588,15 @@ public class MainDashboard extends JFrame implements ActionListener {
             case "Refresh All":
                 refreshAllData();
                 break;
+            case "Export Data":
+                exportData();
+                break;
             case "Exit":
                 exitApplication();
                 break;
+            case "Diagnostics":
+                new DiagnosticsDialog(this).setVisible(true);
+                break;
             case "About":
                 showAboutDialog();
                 break;
@@ -400,25 +609,122 @@ public class MainDashboard extends JFrame implements ActionListener {
     private void refreshAllData() {
         setStatus("Refreshing data...");
         
-        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+        // Panels reload in the background; dashboard cards update in place
+        if (bookPanel != null) {
+            bookPanel.refreshData();
+        }
+        if (staffPanel != null) {
+            staffPanel.refreshData();
+        }
+        statistics.refresh();
+        
+        setStatus("Data refreshed successfully");
+    }
+    
+    /**
+     * Export a whole table to a file in the background
+     * An export that was cancelled or failed can be resumed by exporting to the same file again.
+     */
+    private void exportData() {
+        JComboBox<CatalogExporter.Table> tableBox = new JComboBox<>(CatalogExporter.Table.values());
+        JComboBox<CatalogExporter.Format> formatBox = new JComboBox<>(CatalogExporter.Format.values());
+        JCheckBox gzipBox = new JCheckBox("Compress (gzip)", true);
+        JPanel optionsPanel = new JPanel(new GridLayout(0, 2, 5, 5));
+        optionsPanel.add(new JLabel("Table:"));
+        optionsPanel.add(tableBox);
+        optionsPanel.add(new JLabel("Format:"));
+        optionsPanel.add(formatBox);
+        optionsPanel.add(new JLabel());
+        optionsPanel.add(gzipBox);
+        
+        if (JOptionPane.showConfirmDialog(this, optionsPanel, "Export Data", JOptionPane.OK_CANCEL_OPTION,
+                                          JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) {
+            return;
+        }
+        CatalogExporter.Table table = (CatalogExporter.Table) tableBox.getSelectedItem();
+        CatalogExporter.Format format = (CatalogExporter.Format) formatBox.getSelectedItem();
+        boolean gzip = gzipBox.isSelected();
+        
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export " + table);
+        chooser.setSelectedFile(new File(table.name().toLowerCase() + format.getExtension() + (gzip ? ".gz" : "")));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        
+        try {
+            if (CatalogExporter.hasCheckpoint(file)) {
+                int option = JOptionPane.showConfirmDialog(this,
+                    "An unfinished export to this file was found. Resume it?",
+                    "Resume Export", JOptionPane.YES_NO_CANCEL_OPTION);
+                if (option == JOptionPane.CANCEL_OPTION || option == JOptionPane.CLOSED_OPTION) {
+                    return;
+                }
+                if (option == JOptionPane.NO_OPTION) {
+                    CatalogExporter.discardCheckpoint(file);
+                }
+            } else if (Files.exists(file) && JOptionPane.showConfirmDialog(this,
+                    file.getFileName() + " already exists. Replace it?",
+                    "Export Data", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+                return;
+            }
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error preparing export: " + e.getMessage(),
+                                        "Export Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        ProgressMonitor monitor = new ProgressMonitor(this, "Exporting " + table + " to " + file.getFileName(), "", 0, 1000);
+        setStatus("Exporting " + table + "...");
+        
+        SwingWorker<CatalogExporter.ExportResult, String> worker = new SwingWorker<CatalogExporter.ExportResult, String>() {
             @Override
-            protected Void doInBackground() throws Exception {
-                bookPanel.refreshData();
-                staffPanel.refreshData();
-                return null;
+            protected CatalogExporter.ExportResult doInBackground() throws Exception {
+                return UiEvents.trace("MainDashboard", "export", () -> {
+                    long expectedRows = Math.max(1, table == CatalogExporter.Table.BOOKS
+                        ? dbOperations.getTotalBooks() : dbOperations.getTotalStaff());
+                    CatalogExporter exporter = new CatalogExporter(Constants.EXPORT_CHUNK_ROWS, Constants.EXPORT_THREADS);
+                    return exporter.export(table, format, gzip, file, (rows, bytes) -> {
+                        setProgress((int) Math.min(100, rows * 100 / expectedRows));
+                        publish("Exported " + rows + " rows, " + bytes / 1024 + " KB");
+                    });
+                });
+            }
+            
+            @Override
+            protected void process(List<String> notes) {
+                if (monitor.isCanceled()) {
+                    // Stops after the current chunk; the checkpoint allows resuming
+                    cancel(true);
+                    return;
+                }
+                monitor.setNote(notes.get(notes.size() - 1));
+                monitor.setProgress(getProgress() * 10);
             }
             
             @Override
             protected void done() {
-                setStatus("Data refreshed successfully");
-                
-                // Update dashboard statistics
-                if (tabbedPane.getSelectedIndex() == 0) {
-                    // Refresh dashboard if it's currently selected
-                    Component dashboardComponent = tabbedPane.getComponentAt(0);
-                    tabbedPane.removeTabAt(0);
-                    tabbedPane.insertTab("Dashboard", null, createDashboardPanel(), "System Overview", 0);
-                    tabbedPane.setSelectedIndex(0);
+                monitor.close();
+                if (isCancelled()) {
+                    setStatus("Export cancelled; export to the same file again to resume");
+                    return;
+                }
+                try {
+                    CatalogExporter.ExportResult result = get();
+                    setStatus("Exported " + result.getRowsExported() + " rows");
+                    JOptionPane.showMessageDialog(MainDashboard.this,
+                        "Exported " + result.getRowsExported() + " rows (" + result.getBytesWritten() / 1024 +
+                        " KB) in " + result.getElapsedMillis() + " ms.",
+                        "Export Complete", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    logger.severe("Error exporting " + table + ": " + cause.getMessage());
+                    setStatus("Export failed");
+                    JOptionPane.showMessageDialog(MainDashboard.this,
+                        "Error exporting " + table + ": " + cause.getMessage() +
+                        "\nExport to the same file again to resume.",
+                        "Export Error", JOptionPane.ERROR_MESSAGE);
                 }
             }
         };
@@ -457,15 +763,61 @@ public class MainDashboard extends JFrame implements ActionListener {
             if (timeTimer != null) {
                 timeTimer.stop();
             }
+            stopIdlePreload();
+            
+            asyncOperations.shutdown();
+            CatalogSnapshotManager.getInstance().shutdown();
+            LastLoginWriter.getInstance().shutdown();
             
             // Log logout
             logger.info("User logged out: " + currentAdmin.getUsername());
+            logger.info("Catalog cache statistics:\n" + dbOperations.getCacheStats());
+            logger.info("Query latency:\n" + QueryMetrics.getStats());
             
             // Close application
             System.exit(0);
         }
     }
     
+    /**
+     * Reflect offline mode in the title and status bar
+     */
+    private void showOfflineStatus(boolean offline, int pendingWrites) {
+        setTitle(Constants.APP_NAME + " - Dashboard" + (offline ? " (Offline)" : ""));
+        if (offline) {
+            setStatus("Offline - " + pendingWrites + (pendingWrites == 1 ? " change" : " changes") +
+                      " saved locally");
+        } else {
+            setStatus("Connected");
+        }
+    }
+    
+    /**
+     * Report journaled changes that were sent to the database, and any that
+     * could not be applied because their rows changed in the meantime
+     */
+    private void showReplayResult(OfflineMode.ReplayResult result) {
+        List<String> conflicts = result.getConflicts();
+        if (conflicts.isEmpty()) {
+            setStatus("Back online - " + result.getApplied() + " offline changes saved to the database");
+            return;
+        }
+        
+        StringBuilder message = new StringBuilder();
+        message.append(result.getApplied()).append(" offline changes were saved to the database, but ")
+               .append(conflicts.size()).append(conflicts.size() == 1 ? " was" : " were")
+               .append(" not applied because the records changed in the meantime:\n\n");
+        for (int i = 0; i < Math.min(conflicts.size(), Constants.JOURNAL_CONFLICTS_SHOWN); i++) {
+            message.append(conflicts.get(i)).append('\n');
+        }
+        if (conflicts.size() > Constants.JOURNAL_CONFLICTS_SHOWN) {
+            message.append("...\n");
+        }
+        message.append("\nAll conflicts are listed in ").append(result.getConflictFile());
+        JOptionPane.showMessageDialog(this, message.toString(), "Offline Changes", JOptionPane.WARNING_MESSAGE);
+        setStatus("Back online - " + conflicts.size() + " offline changes not applied");
+    }
+    
     /**
      * Set status message
      */
@@ -0,0 +1,453 @@
+package gui;
+
+import utils.Constants;
+
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Virtual table model that loads rows in pages as the table scrolls
+ * Pages are fetched in the background, the next page is prefetched and
+ * pages far from the viewport are evicted. A failed load backs off before
+ * the next attempt. All state is confined to the EDT.
+ */
+public class PagedTableModel<T> extends AbstractTableModel {
+    private static final Logger logger = Logger.getLogger(PagedTableModel.class.getName());
+    
+    /**
+     * Source of rows for the model
+     */
+    public interface PageLoader<T> {
+        /** Count all rows */
+        int count();
+        
+        /** Load rows following the given row, or the first rows when it is null; null on error */
+        List<T> loadAfter(T last, int limit);
+        
+        /** Load rows starting at an offset when no preceding row is known; null on error */
+        List<T> loadAt(int offset, int limit);
+    }
+    
+    /**
+     * Extracts a column value from a row object
+     */
+    public interface ColumnMapper<T> {
+        Object valueAt(T row, int column);
+    }
+    
+    private final String tableName;
+    private final String[] columnNames;
+    private final PageLoader<T> loader;
+    private final ColumnMapper<T> mapper;
+    private final int pageSize;
+    private final int maxPages;
+    
+    // Loaded pages keyed by first row index; pages may differ in size
+    private final TreeMap<Integer, List<T>> pages = new TreeMap<>();
+    private final Set<Integer> pendingStarts = new HashSet<>();
+    private int rowCount;
+    private int generation;
+    private long loadedAt;
+    
+    // Bumped whenever row positions shift so in-flight page loads are discarded
+    private int layoutVersion;
+    private int lastAccessedRow;
+    
+    // No page loads are started before retryAt after consecutive failures
+    private int failures;
+    private long retryAt;
+    
+    // Fixed mode shows a caller-supplied list and never loads
+    private boolean fixed;
+    
+    public PagedTableModel(String tableName, String[] columnNames, PageLoader<T> loader, ColumnMapper<T> mapper,
+                           int pageSize, int maxPages) {
+        this.tableName = tableName;
+        this.columnNames = columnNames;
+        this.loader = loader;
+        this.mapper = mapper;
+        this.pageSize = pageSize;
+        this.maxPages = Math.max(maxPages, 3);
+    }
+    
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+    
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false; // Make table read-only
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        T item = getRow(row);
+        if (item == null) {
+            requestPage(row);
+            return null;
+        }
+        return mapper.valueAt(item, column);
+    }
+    
+    /**
+     * Get the row object if its page is loaded, otherwise null
+     */
+    public T getRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            return null;
+        }
+        lastAccessedRow = row;
+        
+        Map.Entry<Integer, List<T>> entry = pages.floorEntry(row);
+        if (entry == null || row >= entry.getKey() + entry.getValue().size()) {
+            return null;
+        }
+        
+        // Prefetch the following page once the viewport passes the middle of this one
+        int pageEnd = entry.getKey() + entry.getValue().size();
+        if (!fixed && pageEnd < rowCount && pageEnd - row < pageSize / 2) {
+            requestPage(pageEnd);
+        }
+        return entry.getValue().get(row - entry.getKey());
+    }
+    
+    /**
+     * Discard all rows and recount from the loader
+     */
+    public void reload() {
+        final int expected = ++generation;
+        fixed = false;
+        failures = 0;
+        retryAt = 0;
+        
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                return UiEvents.trace(tableName, "count", loader::count);
+            }
+            
+            @Override
+            protected void done() {
+                if (expected != generation) {
+                    return;
+                }
+                try {
+                    clearPages();
+                    rowCount = get();
+                    loadedAt = System.currentTimeMillis();
+                } catch (Exception e) {
+                    logger.log(Level.SEVERE, "Error counting rows", e);
+                    clearPages();
+                    rowCount = 0;
+                }
+                fireTableDataChanged();
+            }
+        }.execute();
+    }
+    
+    /**
+     * Show a fixed list of rows, e.g. search results, without paging
+     */
+    public void setRows(List<T> rows) {
+        UiEvents.TablePopulate event = beginPopulate();
+        generation++;
+        fixed = true;
+        clearPages();
+        pages.put(0, new ArrayList<>(rows));
+        rowCount = rows.size();
+        loadedAt = System.currentTimeMillis();
+        fireTableDataChanged();
+        commitPopulate(event, rows.size());
+    }
+    
+    private static UiEvents.TablePopulate beginPopulate() {
+        UiEvents.TablePopulate event = new UiEvents.TablePopulate();
+        event.begin();
+        return event;
+    }
+    
+    /**
+     * Emit a flight recorder event covering the model update and the table's own handling of it
+     */
+    private void commitPopulate(UiEvents.TablePopulate event, int rows) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.table = tableName;
+            event.rows = rows;
+            event.commit();
+        }
+    }
+    
+    private void clearPages() {
+        pages.clear();
+        pendingStarts.clear();
+        layoutVersion++;
+    }
+    
+    // ==================== DELTA UPDATES ====================
+    
+    /**
+     * Insert a single row at the given index
+     */
+    public void insertRow(int index, T row) {
+        index = Math.max(0, Math.min(index, rowCount));
+        Map.Entry<Integer, List<T>> entry = pages.floorEntry(index);
+        if (entry != null && index <= entry.getKey() + entry.getValue().size()) {
+            entry.getValue().add(index - entry.getKey(), row);
+            shiftPages(entry.getKey() + 1, 1);
+        } else {
+            shiftPages(index, 1);
+        }
+        rowCount++;
+        fireTableRowsInserted(index, index);
+    }
+    
+    /**
+     * Replace a single row at the given index
+     */
+    public void updateRow(int index, T row) {
+        Map.Entry<Integer, List<T>> entry = pages.floorEntry(index);
+        if (entry != null && index < entry.getKey() + entry.getValue().size()) {
+            entry.getValue().set(index - entry.getKey(), row);
+            fireTableRowsUpdated(index, index);
+        }
+    }
+    
+    /**
+     * Replace several rows at once; indexes and rows correspond
+     */
+    public void updateRows(int[] indexes, List<T> rows) {
+        int first = Integer.MAX_VALUE;
+        int last = -1;
+        for (int i = 0; i < indexes.length; i++) {
+            int index = indexes[i];
+            Map.Entry<Integer, List<T>> entry = pages.floorEntry(index);
+            if (entry != null && index < entry.getKey() + entry.getValue().size()) {
+                entry.getValue().set(index - entry.getKey(), rows.get(i));
+                first = Math.min(first, index);
+                last = Math.max(last, index);
+            }
+        }
+        if (last >= 0) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+    
+    /**
+     * Remove a single row at the given index
+     */
+    public void removeRow(int index) {
+        if (index < 0 || index >= rowCount) {
+            return;
+        }
+        removeSilently(index);
+        fireTableRowsDeleted(index, index);
+    }
+    
+    /**
+     * Remove several rows with a single change event
+     */
+    public void removeRows(int[] indexes) {
+        int[] sorted = indexes.clone();
+        Arrays.sort(sorted);
+        int removed = 0;
+        // From the bottom up so the remaining indexes stay valid
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            int index = sorted[i];
+            if (index >= 0 && index < rowCount && (i == sorted.length - 1 || sorted[i + 1] != index)) {
+                removeSilently(index);
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            fireTableDataChanged();
+        }
+    }
+    
+    private void removeSilently(int index) {
+        Map.Entry<Integer, List<T>> entry = pages.floorEntry(index);
+        if (entry != null && index < entry.getKey() + entry.getValue().size()) {
+            entry.getValue().remove(index - entry.getKey());
+            if (entry.getValue().isEmpty() && !fixed) {
+                pages.remove(entry.getKey());
+            }
+        }
+        shiftPages(index + 1, -1);
+        rowCount--;
+    }
+    
+    /**
+     * Move every page starting at or after fromStart by delta rows
+     */
+    private void shiftPages(int fromStart, int delta) {
+        layoutVersion++;
+        pendingStarts.clear();
+        
+        Map<Integer, List<T>> tail = pages.tailMap(fromStart, true);
+        if (tail.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Integer, List<T>>> moved = new ArrayList<>(tail.entrySet());
+        tail.clear();
+        for (Map.Entry<Integer, List<T>> page : moved) {
+            pages.put(page.getKey() + delta, page.getValue());
+        }
+    }
+    
+    /**
+     * Schedule loading of the region that contains the row
+     */
+    private void requestPage(int row) {
+        if (fixed || row >= rowCount || System.currentTimeMillis() < retryAt) {
+            return;
+        }
+        
+        Map.Entry<Integer, List<T>> floor = pages.floorEntry(row);
+        int floorEnd = floor == null ? 0 : floor.getKey() + floor.getValue().size();
+        if (row < floorEnd) {
+            return;
+        }
+        
+        int start = Math.max(row - row % pageSize, floorEnd);
+        Integer next = pages.higherKey(row);
+        int end = Math.min(Math.min(start + pageSize, rowCount), next == null ? rowCount : next);
+        if (!pendingStarts.add(start)) {
+            return;
+        }
+        
+        // Keyset from the preceding row when the previous page ends right here
+        final T anchor = floor != null && floorEnd == start ? floor.getValue().get(floor.getValue().size() - 1) : null;
+        final int limit = end - start;
+        final int expected = layoutVersion;
+        
+        new SwingWorker<List<T>, Void>() {
+            @Override
+            protected List<T> doInBackground() throws Exception {
+                return UiEvents.trace(tableName, "page", () -> {
+                    if (start == 0) {
+                        return loader.loadAfter(null, limit);
+                    }
+                    return anchor != null ? loader.loadAfter(anchor, limit) : loader.loadAt(start, limit);
+                });
+            }
+            
+            @Override
+            protected void done() {
+                if (expected != layoutVersion) {
+                    return;
+                }
+                pendingStarts.remove(start);
+                List<T> rows;
+                try {
+                    rows = get();
+                } catch (Exception e) {
+                    logger.log(Level.SEVERE, "Error loading rows at " + start, e);
+                    rows = null;
+                }
+                if (rows == null) {
+                    pageFailed(start, limit);
+                    return;
+                }
+                failures = 0;
+                installPage(start, limit, rows);
+            }
+        }.execute();
+    }
+    
+    /**
+     * Hold off further loads, then repaint the missing rows so they are requested again
+     */
+    private void pageFailed(int start, int limit) {
+        long delay = Math.min((long) Constants.TABLE_PAGE_RETRY_MS << Math.min(failures, 16),
+                              Constants.TABLE_PAGE_RETRY_MAX_MS);
+        failures++;
+        retryAt = System.currentTimeMillis() + delay;
+        logger.warning("Loading " + tableName + " rows failed; retrying in " + delay + " ms");
+        
+        final int expected = layoutVersion;
+        Timer timer = new Timer((int) delay, e -> {
+            if (expected == layoutVersion && start < rowCount) {
+                fireTableRowsUpdated(start, Math.min(start + limit, rowCount) - 1);
+            }
+        });
+        timer.setRepeats(false);
+        timer.start();
+    }
+    
+    private void installPage(int start, int limit, List<T> rows) {
+        if (rows.isEmpty() && limit > 0) {
+            // The table shrank underneath us; treat this as the end of data
+            rowCount = start;
+            pages.tailMap(start, true).clear();
+            fireTableDataChanged();
+            return;
+        }
+        
+        UiEvents.TablePopulate event = beginPopulate();
+        pages.put(start, new ArrayList<>(rows.size() > limit ? rows.subList(0, limit) : rows));
+        evictDistantPages();
+        
+        if (rows.size() < limit) {
+            rowCount = start + rows.size();
+            pages.tailMap(start, false).clear();
+            fireTableDataChanged();
+        } else {
+            fireTableRowsUpdated(start, start + rows.size() - 1);
+        }
+        commitPopulate(event, Math.min(rows.size(), limit));
+    }
+    
+    /**
+     * Drop pages farthest from the last accessed row until under the limit
+     */
+    private void evictDistantPages() {
+        while (pages.size() > maxPages) {
+            Integer farthest = null;
+            int farthestDistance = -1;
+            for (int start : pages.keySet()) {
+                int distance = Math.abs(start - lastAccessedRow);
+                if (distance > farthestDistance) {
+                    farthestDistance = distance;
+                    farthest = start;
+                }
+            }
+            pages.remove(farthest);
+        }
+    }
+    
+    /**
+     * Get the time the rows were last loaded in full, or 0 before the first load
+     * Delta updates from this process keep the rows current and do not change it.
+     */
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+    
+    /**
+     * Check whether the model is showing a fixed list instead of paging
+     */
+    public boolean isFixed() {
+        return fixed;
+    }
+}
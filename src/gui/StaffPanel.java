@@ -2,16 +2,22 @@ package gui;
 
 import database.DatabaseOperations;
 import models.Staff;
+import utils.Constants;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
-import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
@@ -23,10 +29,12 @@ public class StaffPanel extends JPanel implements ActionListener {
     
     private DatabaseOperations dbOperations;
     private JTable staffTable;
-    private DefaultTableModel tableModel;
+    private PagedTableModel<Staff> tableModel;
     private JButton addButton;
     private JButton editButton;
     private JButton deleteButton;
+    private JButton roleButton;
+    private JButton statusButton;
     private JButton refreshButton;
     
     // Table columns
@@ -50,27 +58,37 @@ public class StaffPanel extends JPanel implements ActionListener {
     private void initializeComponents() {
         setLayout(new BorderLayout());
         
-        // Create table model and table
-        tableModel = new DefaultTableModel(columnNames, 0) {
+        // Create paged table model and table; rows are ordered by name
+        tableModel = new PagedTableModel<>("StaffPanel", columnNames, new PagedTableModel.PageLoader<Staff>() {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table read-only
+            public int count() {
+                return dbOperations.getStaffRecordCount();
             }
-        };
+            
+            @Override
+            public List<Staff> loadAfter(Staff last, int limit) {
+                return last == null
+                    ? dbOperations.getStaffPage(null, 0, limit)
+                    : dbOperations.getStaffPage(last.getName(), last.getStaffId(), limit);
+            }
+            
+            @Override
+            public List<Staff> loadAt(int offset, int limit) {
+                return dbOperations.getStaffPageAt(offset, limit);
+            }
+        }, this::getColumnValue, Constants.TABLE_PAGE_SIZE, Constants.TABLE_MAX_CACHED_PAGES);
         
         staffTable = new JTable(tableModel);
-        staffTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        staffTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         staffTable.setRowHeight(25);
         staffTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 12));
         
-        // Enable sorting
-        TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(tableModel);
-        staffTable.setRowSorter(sorter);
-        
         // Create action buttons
         addButton = new JButton("Add Staff");
         editButton = new JButton("Edit Staff");
         deleteButton = new JButton("Delete Staff");
+        roleButton = new JButton("Change Role");
+        statusButton = new JButton("Change Status");
         refreshButton = new JButton("Refresh");
         
         // Style buttons
@@ -78,6 +96,8 @@ public class StaffPanel extends JPanel implements ActionListener {
         addButton.setPreferredSize(buttonSize);
         editButton.setPreferredSize(buttonSize);
         deleteButton.setPreferredSize(buttonSize);
+        roleButton.setPreferredSize(buttonSize);
+        statusButton.setPreferredSize(buttonSize);
         refreshButton.setPreferredSize(buttonSize);
         
         addButton.setBackground(new Color(76, 175, 80));
@@ -90,6 +110,8 @@ public class StaffPanel extends JPanel implements ActionListener {
         // Initially disable edit and delete buttons
         editButton.setEnabled(false);
         deleteButton.setEnabled(false);
+        roleButton.setEnabled(false);
+        statusButton.setEnabled(false);
     }
     
     /**
@@ -101,6 +123,8 @@ public class StaffPanel extends JPanel implements ActionListener {
         buttonPanel.add(addButton);
         buttonPanel.add(editButton);
         buttonPanel.add(deleteButton);
+        buttonPanel.add(roleButton);
+        buttonPanel.add(statusButton);
         buttonPanel.add(refreshButton);
         buttonPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
@@ -126,14 +150,19 @@ public class StaffPanel extends JPanel implements ActionListener {
         addButton.addActionListener(this);
         editButton.addActionListener(this);
         deleteButton.addActionListener(this);
+        roleButton.addActionListener(this);
+        statusButton.addActionListener(this);
         refreshButton.addActionListener(this);
         
         // Table selection listener
         staffTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
-                boolean hasSelection = staffTable.getSelectedRow() >= 0;
-                editButton.setEnabled(hasSelection);
-                deleteButton.setEnabled(hasSelection);
+                // Editing works on one staff member, the rest on any number
+                int selected = staffTable.getSelectedRowCount();
+                editButton.setEnabled(selected == 1);
+                deleteButton.setEnabled(selected > 0);
+                roleButton.setEnabled(selected > 0);
+                statusButton.setEnabled(selected > 0);
             }
         });
         
@@ -141,7 +170,7 @@ public class StaffPanel extends JPanel implements ActionListener {
         staffTable.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                if (e.getClickCount() == 2 && staffTable.getSelectedRow() >= 0) {
+                if (e.getClickCount() == 2 && staffTable.getSelectedRowCount() == 1) {
                     editSelectedStaff();
                 }
             }
@@ -161,6 +190,10 @@ public class StaffPanel extends JPanel implements ActionListener {
             editSelectedStaff();
         } else if (source == deleteButton) {
             deleteSelectedStaff();
+        } else if (source == roleButton) {
+            changeSelectedRole();
+        } else if (source == statusButton) {
+            changeSelectedStatus();
         } else if (source == refreshButton) {
             refreshData();
         }
@@ -175,15 +208,12 @@ public class StaffPanel extends JPanel implements ActionListener {
         dialog.setVisible(true);
         
         if (dialog.isConfirmed()) {
-            Staff staff = dialog.getStaff();
-            if (dbOperations.addStaff(staff)) {
+            Staff newStaff = dialog.getStaff();
+            runRowWrite("add", () -> dbOperations.addStaff(newStaff), true, (staff, position) -> {
+                insertStaffRow(staff, position);
                 JOptionPane.showMessageDialog(this, "Staff member added successfully!", 
                                             "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadStaff();
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to add staff member.", 
-                                            "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            }, "Failed to add staff member.");
         }
     }
     
@@ -196,121 +226,323 @@ public class StaffPanel extends JPanel implements ActionListener {
             // Convert view row to model row
             selectedRow = staffTable.convertRowIndexToModel(selectedRow);
             
-            // Get staff data from table
-            int staffId = (Integer) tableModel.getValueAt(selectedRow, 0);
-            String name = (String) tableModel.getValueAt(selectedRow, 1);
-            String role = (String) tableModel.getValueAt(selectedRow, 2);
-            java.sql.Date hireDate = (java.sql.Date) tableModel.getValueAt(selectedRow, 3);
-            String status = (String) tableModel.getValueAt(selectedRow, 4);
-            String email = (String) tableModel.getValueAt(selectedRow, 5);
-            String phone = (String) tableModel.getValueAt(selectedRow, 6);
-            
-            Staff staff = new Staff(staffId, name, role, hireDate, status, email, phone);
+            // Get staff data from table; rows still loading cannot be edited
+            Staff staff = tableModel.getRow(selectedRow);
+            if (staff == null) {
+                return;
+            }
+            int staffId = staff.getStaffId();
+            String originalName = staff.getName();
             
+            // The dialog edits a copy; the row changes only once the update is saved
             StaffDialog dialog = new StaffDialog((Frame) SwingUtilities.getWindowAncestor(this), 
-                                               "Edit Staff Member", true, staff);
+                                               "Edit Staff Member", true, new Staff(staff));
             dialog.setVisible(true);
             
             if (dialog.isConfirmed()) {
                 Staff updatedStaff = dialog.getStaff();
                 updatedStaff.setStaffId(staffId);
                 
-                if (dbOperations.updateStaff(updatedStaff)) {
+                // A changed name moves the row to its new sorted position
+                int row = selectedRow;
+                boolean moves = !updatedStaff.getName().equals(originalName);
+                runRowWrite("update", () -> dbOperations.updateStaff(updatedStaff), moves, (saved, position) -> {
+                    Staff current = tableModel.getRow(row);
+                    if (current == null || current.getStaffId() != staffId) {
+                        // The rows shifted while the update ran
+                        loadStaff();
+                    } else if (moves) {
+                        tableModel.removeRow(row);
+                        insertStaffRow(updatedStaff, position);
+                    } else {
+                        tableModel.updateRow(row, updatedStaff);
+                    }
                     JOptionPane.showMessageDialog(this, "Staff member updated successfully!", 
                                                 "Success", JOptionPane.INFORMATION_MESSAGE);
-                    loadStaff();
-                } else {
-                    JOptionPane.showMessageDialog(this, "Failed to update staff member.", 
-                                                "Error", JOptionPane.ERROR_MESSAGE);
-                }
+                }, "Failed to update staff member.");
             }
         }
     }
     
     /**
-     * Delete selected staff member
+     * Delete selected staff members in one transaction
      */
     private void deleteSelectedStaff() {
-        int selectedRow = staffTable.getSelectedRow();
-        if (selectedRow >= 0) {
-            // Convert view row to model row
-            selectedRow = staffTable.convertRowIndexToModel(selectedRow);
-            
-            int staffId = (Integer) tableModel.getValueAt(selectedRow, 0);
-            String name = (String) tableModel.getValueAt(selectedRow, 1);
+        int[] rows = selectedLoadedRows();
+        if (rows.length == 0) {
+            return;
+        }
+        List<Staff> staffList = rowsAt(rows);
+        
+        String prompt = staffList.size() == 1
+            ? "Are you sure you want to delete staff member:\n\"" + staffList.get(0).getName() + "\"?"
+            : "Are you sure you want to delete " + staffList.size() + " staff members?";
+        int option = JOptionPane.showConfirmDialog(
+            this,
+            prompt + skippedNote(rows.length),
+            "Confirm Delete",
+            JOptionPane.YES_NO_OPTION,
+            JOptionPane.WARNING_MESSAGE
+        );
+        if (option != JOptionPane.YES_OPTION) {
+            return;
+        }
+        
+        List<Integer> staffIds = idsOf(staffList);
+        runBulkOperation("delete", rows, staffList, () -> dbOperations.deleteStaffMembers(staffIds), deleted -> {
+            staffTable.clearSelection();
+            tableModel.removeRows(rows);
+            JOptionPane.showMessageDialog(this, deleted.size() == 1 ? "Staff member deleted successfully!"
+                                                                    : deleted.size() + " staff members deleted successfully!",
+                                        "Success", JOptionPane.INFORMATION_MESSAGE);
+        });
+    }
+    
+    /**
+     * Give every selected staff member the same role
+     */
+    private void changeSelectedRole() {
+        int[] rows = selectedLoadedRows();
+        if (rows.length == 0) {
+            return;
+        }
+        List<Staff> staffList = rowsAt(rows);
+        
+        String role = (String) JOptionPane.showInputDialog(this,
+            "New role for " + staffList.size() + (staffList.size() == 1 ? " staff member:" : " staff members:") +
+            skippedNote(rows.length),
+            "Change Role", JOptionPane.QUESTION_MESSAGE, null, null, staffList.get(0).getRole());
+        if (role == null) {
+            return;
+        }
+        role = role.trim();
+        if (role.isEmpty() || role.length() > Constants.MAX_NAME_LENGTH) {
+            JOptionPane.showMessageDialog(this, "Role is required and must be at most " +
+                                        Constants.MAX_NAME_LENGTH + " characters.",
+                                        "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        String newRole = role;
+        List<Integer> staffIds = idsOf(staffList);
+        runBulkOperation("change the role of", rows, staffList, () -> dbOperations.setStaffRole(staffIds, newRole),
+                         updated -> applyUpdates(rows, staffList, updated));
+    }
+    
+    /**
+     * Mark every selected staff member active or inactive
+     */
+    private void changeSelectedStatus() {
+        int[] rows = selectedLoadedRows();
+        if (rows.length == 0) {
+            return;
+        }
+        List<Staff> staffList = rowsAt(rows);
+        
+        String[] statuses = {Constants.ACTIVE_STATUS, Constants.INACTIVE_STATUS};
+        int choice = JOptionPane.showOptionDialog(this,
+            "New status for " + staffList.size() + (staffList.size() == 1 ? " staff member:" : " staff members:") +
+            skippedNote(rows.length),
+            "Change Status", JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, statuses, statuses[0]);
+        if (choice < 0) {
+            return;
+        }
+        
+        String status = statuses[choice];
+        List<Integer> staffIds = idsOf(staffList);
+        runBulkOperation("change the status of", rows, staffList, () -> dbOperations.setStaffStatus(staffIds, status),
+                         updated -> applyUpdates(rows, staffList, updated));
+    }
+    
+    /**
+     * Replace updated rows in place; role and status do not affect the name order
+     */
+    private void applyUpdates(int[] rows, List<Staff> staffList, List<Staff> updated) {
+        Map<Integer, Staff> byId = new HashMap<>();
+        for (Staff staff : updated) {
+            byId.put(staff.getStaffId(), staff);
+        }
+        List<Staff> replacements = new ArrayList<>(rows.length);
+        for (Staff staff : staffList) {
+            replacements.add(byId.getOrDefault(staff.getStaffId(), staff));
+        }
+        tableModel.updateRows(rows, replacements);
+        JOptionPane.showMessageDialog(this, "Updated " + updated.size() +
+                                    (updated.size() == 1 ? " staff member." : " staff members."),
+                                    "Success", JOptionPane.INFORMATION_MESSAGE);
+    }
+    
+    /**
+     * Run a single staff write in the background, together with the lookup of
+     * the row's sorted position when it has to be placed, and apply the delta
+     * on the EDT once both are done
+     */
+    private void runRowWrite(String action, Supplier<Staff> write, boolean positioned,
+                             BiConsumer<Staff, Integer> onSuccess, String failureMessage) {
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<Staff, Void>() {
+            private int position;
             
-            int option = JOptionPane.showConfirmDialog(
-                this,
-                "Are you sure you want to delete staff member:\n\"" + name + "\"?",
-                "Confirm Delete",
-                JOptionPane.YES_NO_OPTION,
-                JOptionPane.WARNING_MESSAGE
-            );
+            @Override
+            protected Staff doInBackground() throws Exception {
+                return UiEvents.trace("StaffPanel", action, () -> {
+                    Staff staff = write.get();
+                    if (staff != null && positioned) {
+                        position = dbOperations.getStaffPosition(staff.getName(), staff.getStaffId());
+                    }
+                    return staff;
+                });
+            }
             
-            if (option == JOptionPane.YES_OPTION) {
-                if (dbOperations.deleteStaff(staffId)) {
-                    JOptionPane.showMessageDialog(this, "Staff member deleted successfully!", 
-                                                "Success", JOptionPane.INFORMATION_MESSAGE);
-                    loadStaff();
-                } else {
-                    JOptionPane.showMessageDialog(this, "Failed to delete staff member.", 
+            @Override
+            protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                Staff result;
+                try {
+                    result = get();
+                } catch (Exception e) {
+                    logger.severe("Error in staff " + action + ": " + e.getMessage());
+                    result = null;
+                }
+                if (result == null) {
+                    JOptionPane.showMessageDialog(StaffPanel.this, failureMessage,
                                                 "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
+                onSuccess.accept(result, position);
             }
-        }
+        }.execute();
     }
     
     /**
-     * Load staff from database
+     * Run a bulk database call in the background and apply its result to the
+     * model in one step, or reload if the rows moved while it ran
      */
-    private void loadStaff() {
-        SwingWorker<List<Staff>, Void> worker = new SwingWorker<List<Staff>, Void>() {
+    private void runBulkOperation(String action, int[] rows, List<Staff> staffList,
+                                  Supplier<List<Staff>> operation, Consumer<List<Staff>> onSuccess) {
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<List<Staff>, Void>() {
             @Override
             protected List<Staff> doInBackground() throws Exception {
-                return dbOperations.getAllStaff();
+                return UiEvents.trace("StaffPanel", action, operation::get);
             }
             
             @Override
             protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                List<Staff> result;
                 try {
-                    List<Staff> staffList = get();
-                    populateTable(staffList);
+                    result = get();
                 } catch (Exception e) {
-                    logger.severe("Error loading staff: " + e.getMessage());
-                    JOptionPane.showMessageDialog(StaffPanel.this, 
-                                                "Error loading staff: " + e.getMessage(),
-                                                "Database Error", 
-                                                JOptionPane.ERROR_MESSAGE);
+                    logger.severe("Error in bulk operation: " + e.getMessage());
+                    result = null;
+                }
+                if (result == null) {
+                    JOptionPane.showMessageDialog(StaffPanel.this, "Failed to " + action + " the selected staff members.",
+                                                "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
+                if (!rowsUnchanged(rows, staffList) || result.size() != staffList.size()) {
+                    // The table changed meanwhile or some rows were already gone
+                    loadStaff();
+                    return;
+                }
+                onSuccess.accept(result);
             }
-        };
-        
-        worker.execute();
+        }.execute();
     }
     
     /**
-     * Populate table with staff data
+     * Get the selected model rows whose staff are loaded
+     * Rows still loading in a large selection are left out.
      */
-    private void populateTable(List<Staff> staffList) {
-        // Clear existing data
-        tableModel.setRowCount(0);
-        
-        // Add staff data
+    private int[] selectedLoadedRows() {
+        int[] selected = staffTable.getSelectedRows();
+        int[] rows = new int[selected.length];
+        int count = 0;
+        for (int viewRow : selected) {
+            int row = staffTable.convertRowIndexToModel(viewRow);
+            if (tableModel.getRow(row) != null) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+    
+    private List<Staff> rowsAt(int[] rows) {
+        List<Staff> staffList = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            staffList.add(tableModel.getRow(row));
+        }
+        return staffList;
+    }
+    
+    private boolean rowsUnchanged(int[] rows, List<Staff> staffList) {
+        for (int i = 0; i < rows.length; i++) {
+            Staff current = tableModel.getRow(rows[i]);
+            if (current == null || current.getStaffId() != staffList.get(i).getStaffId()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private String skippedNote(int loaded) {
+        int skipped = staffTable.getSelectedRowCount() - loaded;
+        return skipped > 0 ? "\n(" + skipped + " selected rows are still loading and will be skipped)" : "";
+    }
+    
+    private static List<Integer> idsOf(List<Staff> staffList) {
+        List<Integer> ids = new ArrayList<>(staffList.size());
         for (Staff staff : staffList) {
-            Object[] row = {
-                staff.getStaffId(),
-                staff.getName(),
-                staff.getRole(),
-                staff.getHireDate(),
-                staff.getStatus(),
-                staff.getEmail(),
-                staff.getPhone()
-            };
-            tableModel.addRow(row);
+            ids.add(staff.getStaffId());
         }
-        
-        // Clear selection
+        return ids;
+    }
+    
+    /**
+     * Load staff from database
+     * Rows are fetched page by page as the table scrolls
+     */
+    private void loadStaff() {
         staffTable.clearSelection();
+        tableModel.reload();
+    }
+    
+    /**
+     * Insert a staff member at a position looked up with the write, or reload if that failed
+     */
+    private void insertStaffRow(Staff staff, int position) {
+        if (position < 0) {
+            loadStaff();
+            return;
+        }
+        tableModel.insertRow(position, staff);
+        staffTable.setRowSelectionInterval(position, position);
+        staffTable.scrollRectToVisible(staffTable.getCellRect(position, 0, true));
+    }
+    
+    /**
+     * Get table cell value for a staff member
+     */
+    private Object getColumnValue(Staff staff, int column) {
+        switch (column) {
+            case 0: return staff.getStaffId();
+            case 1: return staff.getName();
+            case 2: return staff.getRole();
+            case 3: return staff.getHireDate();
+            case 4: return staff.getStatus();
+            case 5: return staff.getEmail();
+            case 6: return staff.getPhone();
+            default: return null;
+        }
+    }
+    
+    /**
+     * Get the time the table was last loaded from the database, or 0 if never
+     */
+    public long getLoadedAt() {
+        return tableModel.getLoadedAt();
     }
     
     /**
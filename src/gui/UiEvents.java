@@ -0,0 +1,75 @@
+package gui;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Flight recorder events for background tasks and table updates
+ */
+final class UiEvents {
+    
+    private UiEvents() {}
+    
+    @Name("library.BackgroundTask")
+    @Label("Background Task")
+    @Category({"Library", "Swing"})
+    @Description("doInBackground of a SwingWorker started by a panel")
+    static class BackgroundTask extends Event {
+        @Label("Panel")
+        String panel;
+        
+        @Label("Task")
+        String task;
+    }
+    
+    @Name("library.TablePopulate")
+    @Label("Table Populate")
+    @Category({"Library", "Swing"})
+    @Description("Replacing the rows of a table on the EDT")
+    static class TablePopulate extends Event {
+        @Label("Table")
+        String table;
+        
+        @Label("Rows")
+        int rows;
+    }
+    
+    @Name("library.EdtStall")
+    @Label("EDT Stall")
+    @Category({"Library", "Swing"})
+    @Description("Event Dispatch Thread busy past the watchdog threshold")
+    @StackTrace(false)
+    static class EdtStall extends Event {
+        @Label("Cause")
+        String cause;
+        
+        @Label("EDT Stack")
+        @Description("Taken while the EDT was blocked; the event is committed by the watchdog when the stall " +
+                     "passes the threshold, so a hung EDT is recorded too")
+        String stack;
+    }
+    
+    /**
+     * Run the body of a doInBackground as a BackgroundTask event
+     */
+    static <T> T trace(String panel, String task, Callable<T> work) throws Exception {
+        BackgroundTask event = new BackgroundTask();
+        event.begin();
+        try {
+            return work.call();
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.panel = panel;
+                event.task = task;
+                event.commit();
+            }
+        }
+    }
+}
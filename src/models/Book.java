@@ -1,12 +1,14 @@
 package models;
 
+import utils.Isbn;
+
 import java.sql.Timestamp;
 
 /**
  * Book model class representing library books
  * Contains all book-related data and validation methods
  */
-public class Book {
+public class Book implements BookRecord {
     private int bookId;
     private String title;
     private String author;
@@ -36,6 +38,11 @@ public class Book {
         this.status = status;
     }
     
+    public Book(Book other) {
+        this(other.bookId, other.title, other.author, other.isbn, other.quantity,
+             other.dateAdded, other.status);
+    }
+    
     // Getters and Setters
     public int getBookId() { return bookId; }
     public void setBookId(int bookId) { this.bookId = bookId; }
@@ -59,10 +66,10 @@ public class Book {
     public void setStatus(String status) { this.status = status; }
     
     /**
-     * Validates ISBN format (basic validation)
+     * Validates ISBN format and check digit
      */
     public boolean isValidISBN() {
-        return isbn != null && isbn.length() >= 10 && isbn.length() <= 13;
+        return Isbn.isValid(isbn);
     }
     
     /**
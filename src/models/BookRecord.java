@@ -0,0 +1,25 @@
+package models;
+
+import java.sql.Timestamp;
+
+/**
+ * Read-only view of a book's fields
+ * Implemented by Book and by the rows CompactBookStore hands out, so code
+ * that only reads a catalog can take either. Copy a record into a Book
+ * before editing it.
+ */
+public interface BookRecord {
+    int getBookId();
+
+    String getTitle();
+
+    String getAuthor();
+
+    String getIsbn();
+
+    int getQuantity();
+
+    Timestamp getDateAdded();
+
+    String getStatus();
+}
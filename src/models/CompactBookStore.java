@@ -0,0 +1,442 @@
+package models;
+
+import utils.Isbn;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+/**
+ * Column-oriented in-memory catalog
+ * Ids, quantities, dates and ISBNs are kept in primitive arrays, the status
+ * as a byte code and authors deduplicated, with an open-addressing index
+ * from book id to row. Books are handed out as read-only flyweight views
+ * that read through to the store, so a full catalog costs a few dozen bytes
+ * per title plus its strings instead of a Book, Timestamp and boxed fields
+ * per row.
+ */
+public class CompactBookStore {
+    
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final byte NO_STATUS = -1;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RowIndex index;
+    private int size;
+    
+    private int[] ids;
+    private int[] quantities;
+    private long[] datesAdded;
+    private long[] isbns;
+    private byte[] statuses;
+    private String[] titles;
+    private String[] authors;
+    
+    // ISBNs that are not a plain 13-digit ISBN, kept as entered
+    private final Map<Integer, String> irregularIsbns = new HashMap<>();
+    private final Map<String, String> authorPool = new HashMap<>();
+    private final List<String> statusCodes = new ArrayList<>();
+    
+    public CompactBookStore() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    public CompactBookStore(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        index = new RowIndex(capacity);
+        ids = new int[capacity];
+        quantities = new int[capacity];
+        datesAdded = new long[capacity];
+        isbns = new long[capacity];
+        statuses = new byte[capacity];
+        titles = new String[capacity];
+        authors = new String[capacity];
+        statusCodes.add("AVAILABLE");
+        statusCodes.add("OUT_OF_STOCK");
+    }
+    
+    /**
+     * Number of books in the store
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Add a book, or replace the one with the same id
+     */
+    public void put(BookRecord book) {
+        put(book.getBookId(), book.getTitle(), book.getAuthor(), book.getIsbn(),
+            book.getQuantity(), book.getDateAdded(), book.getStatus());
+    }
+    
+    /**
+     * Add or replace a book from its column values without creating a Book
+     */
+    public void put(int bookId, String title, String author, String isbn, int quantity,
+                    Timestamp dateAdded, String status) {
+        if (bookId <= 0) {
+            throw new IllegalArgumentException("Book id must be positive: " + bookId);
+        }
+        
+        lock.writeLock().lock();
+        try {
+            int row = index.get(bookId);
+            if (row < 0) {
+                row = size++;
+                ensureCapacity(size);
+                index.put(bookId, row);
+            }
+            
+            ids[row] = bookId;
+            titles[row] = title;
+            authors[row] = author == null ? null : authorPool.computeIfAbsent(author, key -> key);
+            quantities[row] = quantity;
+            datesAdded[row] = dateAdded == null ? NO_DATE : dateAdded.getTime();
+            statuses[row] = statusCode(status);
+            
+            // A 13-character string that parses is already the canonical form
+            long parsed = Isbn.parse(isbn);
+            if (parsed != Isbn.INVALID && isbn.length() == 13) {
+                isbns[row] = parsed;
+                irregularIsbns.remove(bookId);
+            } else {
+                isbns[row] = Isbn.INVALID;
+                if (isbn == null) {
+                    irregularIsbns.remove(bookId);
+                } else {
+                    irregularIsbns.put(bookId, isbn);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Remove a book by id
+     * The last row moves into the gap, so row order is insertion order only
+     * until the first removal.
+     */
+    public boolean remove(int bookId) {
+        lock.writeLock().lock();
+        try {
+            int row = index.remove(bookId);
+            if (row < 0) {
+                return false;
+            }
+            irregularIsbns.remove(bookId);
+            
+            int last = --size;
+            if (row != last) {
+                ids[row] = ids[last];
+                titles[row] = titles[last];
+                authors[row] = authors[last];
+                quantities[row] = quantities[last];
+                datesAdded[row] = datesAdded[last];
+                isbns[row] = isbns[last];
+                statuses[row] = statuses[last];
+                index.put(ids[row], row);
+            }
+            titles[last] = null;
+            authors[last] = null;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public boolean contains(int bookId) {
+        lock.readLock().lock();
+        try {
+            return index.get(bookId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Get a view of the book with the given id, or null if it is not stored
+     */
+    public BookRecord get(int bookId) {
+        return contains(bookId) ? new View(bookId) : null;
+    }
+    
+    /**
+     * Views of all books in row order
+     */
+    public List<BookRecord> views() {
+        lock.readLock().lock();
+        try {
+            List<BookRecord> views = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                views.add(new View(ids[row]));
+            }
+            return views;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(titles, 0, size, null);
+            Arrays.fill(authors, 0, size, null);
+            size = 0;
+            index.clear();
+            irregularIsbns.clear();
+            authorPool.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Number of distinct author strings held
+     */
+    public int getDistinctAuthors() {
+        lock.readLock().lock();
+        try {
+            return authorPool.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Rough heap footprint of the arrays, index and strings
+     */
+    public long getEstimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = (long) ids.length * (4 + 4 + 8 + 8 + 1 + 4 + 4) + index.getEstimatedBytes();
+            for (int row = 0; row < size; row++) {
+                bytes += stringBytes(titles[row]);
+            }
+            for (String author : authorPool.keySet()) {
+                bytes += stringBytes(author) + 32;
+            }
+            for (String isbn : irregularIsbns.values()) {
+                bytes += stringBytes(isbn) + 48;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+    
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        datesAdded = Arrays.copyOf(datesAdded, capacity);
+        isbns = Arrays.copyOf(isbns, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        authors = Arrays.copyOf(authors, capacity);
+    }
+    
+    private byte statusCode(String status) {
+        if (status == null) {
+            return NO_STATUS;
+        }
+        int code = statusCodes.indexOf(status);
+        if (code < 0) {
+            if (statusCodes.size() == Byte.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct book statuses");
+            }
+            statusCodes.add(status);
+            code = statusCodes.size() - 1;
+        }
+        return (byte) code;
+    }
+    
+    // ==================== VIEW ACCESS ====================
+    
+    /**
+     * Read one column of a book under the read lock, or null if it was removed
+     */
+    private <T> T read(int bookId, IntFunction<T> column) {
+        lock.readLock().lock();
+        try {
+            int row = index.get(bookId);
+            return row < 0 ? null : column.apply(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private int readQuantity(int bookId) {
+        lock.readLock().lock();
+        try {
+            int row = index.get(bookId);
+            return row < 0 ? 0 : quantities[row];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private String isbnAt(int row) {
+        return isbns[row] == Isbn.INVALID ? irregularIsbns.get(ids[row]) : Isbn.format(isbns[row]);
+    }
+    
+    private Timestamp dateAt(int row) {
+        return datesAdded[row] == NO_DATE ? null : new Timestamp(datesAdded[row]);
+    }
+    
+    private String statusAt(int row) {
+        return statuses[row] == NO_STATUS ? null : statusCodes.get(statuses[row]);
+    }
+    
+    /**
+     * Flyweight row backed by the store
+     * Every read goes to the store, so the view shows later updates to its
+     * row; copy it into a Book to edit it.
+     */
+    private final class View implements BookRecord {
+        private final int bookId;
+        
+        View(int bookId) {
+            this.bookId = bookId;
+        }
+        
+        @Override
+        public int getBookId() { return bookId; }
+        
+        @Override
+        public String getTitle() { return read(bookId, row -> titles[row]); }
+        
+        @Override
+        public String getAuthor() { return read(bookId, row -> authors[row]); }
+        
+        @Override
+        public String getIsbn() { return read(bookId, CompactBookStore.this::isbnAt); }
+        
+        @Override
+        public int getQuantity() { return readQuantity(bookId); }
+        
+        @Override
+        public Timestamp getDateAdded() { return read(bookId, CompactBookStore.this::dateAt); }
+        
+        @Override
+        public String getStatus() { return read(bookId, CompactBookStore.this::statusAt); }
+    }
+    
+    /**
+     * Open-addressing map from positive book id to row, with linear probing
+     * Zero marks an empty slot; removal shifts the following entries back so
+     * no tombstones are needed.
+     */
+    private static class RowIndex {
+        private int[] keys;
+        private int[] rows;
+        private int mask;
+        private int count;
+        
+        RowIndex(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+            keys = new int[capacity];
+            rows = new int[capacity];
+            mask = capacity - 1;
+        }
+        
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+        
+        int get(int key) {
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return rows[slot];
+                }
+                if (keys[slot] == 0) {
+                    return -1;
+                }
+            }
+        }
+        
+        void put(int key, int row) {
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == key) {
+                rows[slot] = row;
+                return;
+            }
+            keys[slot] = key;
+            rows[slot] = row;
+            if (++count * 2 > keys.length) {
+                grow();
+            }
+        }
+        
+        int remove(int key) {
+            int slot = hash(key) & mask;
+            while (keys[slot] != key) {
+                if (keys[slot] == 0) {
+                    return -1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            int row = rows[slot];
+            count--;
+            
+            // Shift back later entries of the probe run that would otherwise be unreachable
+            int gap = slot;
+            for (int next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+                int home = hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    rows[gap] = rows[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = 0;
+            return row;
+        }
+        
+        void clear() {
+            Arrays.fill(keys, 0);
+            count = 0;
+        }
+        
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldRows = rows;
+            keys = new int[oldKeys.length * 2];
+            rows = new int[oldKeys.length * 2];
+            mask = keys.length - 1;
+            count = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldRows[i]);
+                }
+            }
+        }
+        
+        long getEstimatedBytes() {
+            return 8L * keys.length;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package models;
+
+/**
+ * Immutable snapshot of the dashboard counters
+ * Adjusted copies are produced as books and staff change
+ */
+public class LibrarySummary {
+    private final int totalTitles;
+    private final long totalCopies;
+    private final int availableTitles;
+    private final int outOfStockTitles;
+    private final int activeStaff;
+    
+    public LibrarySummary(int totalTitles, long totalCopies, int availableTitles,
+                          int outOfStockTitles, int activeStaff) {
+        this.totalTitles = totalTitles;
+        this.totalCopies = totalCopies;
+        this.availableTitles = availableTitles;
+        this.outOfStockTitles = outOfStockTitles;
+        this.activeStaff = activeStaff;
+    }
+    
+    // Getters
+    public int getTotalTitles() { return totalTitles; }
+    public long getTotalCopies() { return totalCopies; }
+    public int getAvailableTitles() { return availableTitles; }
+    public int getOutOfStockTitles() { return outOfStockTitles; }
+    public int getActiveStaff() { return activeStaff; }
+    
+    /**
+     * Summary with one book added (sign 1) or removed (sign -1)
+     */
+    public LibrarySummary withBook(Book book, int sign) {
+        boolean available = "AVAILABLE".equals(book.getStatus());
+        return new LibrarySummary(totalTitles + sign,
+                                  totalCopies + (long) sign * book.getQuantity(),
+                                  availableTitles + (available ? sign : 0),
+                                  outOfStockTitles + (available ? 0 : sign),
+                                  activeStaff);
+    }
+    
+    /**
+     * Summary with one staff member added (sign 1) or removed (sign -1)
+     */
+    public LibrarySummary withStaff(Staff staff, int sign) {
+        int delta = "ACTIVE".equals(staff.getStatus()) ? sign : 0;
+        return new LibrarySummary(totalTitles, totalCopies, availableTitles, outOfStockTitles,
+                                  activeStaff + delta);
+    }
+    
+    @Override
+    public String toString() {
+        return "LibrarySummary{" +
+                "totalTitles=" + totalTitles +
+                ", totalCopies=" + totalCopies +
+                ", availableTitles=" + availableTitles +
+                ", outOfStockTitles=" + outOfStockTitles +
+                ", activeStaff=" + activeStaff +
+                '}';
+    }
+}
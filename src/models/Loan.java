@@ -0,0 +1,74 @@
+package models;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * Loan model class representing one copy of a book lent to a patron
+ * A loan is open until it has a return date.
+ */
+public class Loan {
+    private int loanId;
+    private int bookId;
+    private String patron;
+    private Timestamp checkoutDate;
+    private Date dueDate;
+    private Timestamp returnDate;
+    
+    // Constructors
+    public Loan() {}
+    
+    public Loan(int loanId, int bookId, String patron, Timestamp checkoutDate, Date dueDate, Timestamp returnDate) {
+        this.loanId = loanId;
+        this.bookId = bookId;
+        this.patron = patron;
+        this.checkoutDate = checkoutDate;
+        this.dueDate = dueDate;
+        this.returnDate = returnDate;
+    }
+    
+    // Getters and Setters
+    public int getLoanId() { return loanId; }
+    public void setLoanId(int loanId) { this.loanId = loanId; }
+    
+    public int getBookId() { return bookId; }
+    public void setBookId(int bookId) { this.bookId = bookId; }
+    
+    public String getPatron() { return patron; }
+    public void setPatron(String patron) { this.patron = patron; }
+    
+    public Timestamp getCheckoutDate() { return checkoutDate; }
+    public void setCheckoutDate(Timestamp checkoutDate) { this.checkoutDate = checkoutDate; }
+    
+    public Date getDueDate() { return dueDate; }
+    public void setDueDate(Date dueDate) { this.dueDate = dueDate; }
+    
+    public Timestamp getReturnDate() { return returnDate; }
+    public void setReturnDate(Timestamp returnDate) { this.returnDate = returnDate; }
+    
+    /**
+     * Checks if the copy is still out
+     */
+    public boolean isOpen() {
+        return returnDate == null;
+    }
+    
+    /**
+     * Checks if the copy is still out after its due date
+     */
+    public boolean isOverdue() {
+        return isOpen() && dueDate != null && dueDate.toLocalDate().isBefore(LocalDate.now());
+    }
+    
+    @Override
+    public String toString() {
+        return "Loan{" +
+                "loanId=" + loanId +
+                ", bookId=" + bookId +
+                ", patron='" + patron + '\'' +
+                ", dueDate=" + dueDate +
+                ", returnDate=" + returnDate +
+                '}';
+    }
+}
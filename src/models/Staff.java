@@ -37,6 +37,11 @@ public class Staff {
         this.phone = phone;
     }
     
+    public Staff(Staff other) {
+        this(other.getStaffId(), other.getName(), other.getRole(), other.getHireDate(), other.getStatus(),
+             other.getEmail(), other.getPhone());
+    }
+    
     // Getters and Setters
     public int getStaffId() { return staffId; }
     public void setStaffId(int staffId) { this.staffId = staffId; }
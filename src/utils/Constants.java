@@ -11,6 +11,49 @@ public class Constants {
     public static final String DB_USERNAME = "root";
     public static final String DB_PASSWORD = "";  // Update with your MySQL password
     
+    // Connection Pool Configuration
+    public static final int POOL_MIN_SIZE = 2;
+    public static final int POOL_MAX_SIZE = 10;
+    public static final long POOL_BORROW_TIMEOUT_MS = 5000;
+    public static final long POOL_IDLE_TIMEOUT_MS = 300000;
+    public static final long POOL_VALIDATION_INTERVAL_MS = 30000;
+    public static final long POOL_LEAK_THRESHOLD_MS = 60000;
+    public static final long POOL_HOUSEKEEPING_INTERVAL_MS = 15000;
+    public static final int DB_CONNECT_TIMEOUT_MS = 5000;  // Socket connect timeout, so an unreachable server fails fast
+    
+    // Prepared Statement Cache Configuration
+    public static final int STATEMENT_CACHE_SIZE = 64;  // Per connection, 0 disables
+    public static final int DB_STREAM_FETCH_SIZE = 1000;  // Rows per cursor fetch on full-table reads; Integer.MIN_VALUE streams row by row
+    
+    // Login
+    public static final long LAST_LOGIN_FLUSH_DELAY_MS = 2000;  // Write-behind delay for last_login
+    public static final long LOGIN_LATENCY_TARGET_MS = 250;  // p99 target, warned about when exceeded
+    public static final int LOGIN_LATENCY_MIN_SAMPLES = 20;  // Logins needed before checking the target
+    
+    // Query Metrics
+    public static final long SLOW_QUERY_THRESHOLD_MS = 200;  // Override with -Dlibrary.slowQueryMs
+    public static final int SLOW_QUERY_LOG_SIZE = 100;  // Most recent slow statements kept in memory
+    
+    // Flight Recorder, enabled with -Dlibrary.jfr=true or --jfr
+    public static final int JFR_MAX_AGE_MINUTES = 10;
+    public static final int JFR_MAX_SIZE_MB = 100;
+    public static final long JFR_DUMP_COOLDOWN_MS = 5 * 60 * 1000;  // At most one stall dump per period
+    public static final String JFR_DUMP_DIRECTORY = "recordings";  // Under SNAPSHOT_DIRECTORY
+    public static final long DB_STALL_THRESHOLD_MS = 2000;  // A database call this slow counts as a stall
+    
+    // Startup Configuration
+    public static final int STARTUP_THREADS = 3;  // Independent startup steps run on this many threads
+    public static final long PREFETCH_MAX_AGE_MS = 10 * 60 * 1000;  // Older login-time prefetches are reloaded
+    public static final long IDLE_PRELOAD_DELAY_MS = 3000;  // Input-free time before unopened tabs are built
+    public static final long TAB_DATA_MAX_AGE_MS = 5 * 60 * 1000;  // Older tab data is reloaded when the tab is selected
+    public static final int DASHBOARD_REFRESH_ATTEMPTS = 3;  // Summary reloads tried while writes keep racing them
+    
+    // EDT Watchdog
+    public static final long EDT_HEARTBEAT_INTERVAL_MS = 100;
+    public static final long EDT_STALL_THRESHOLD_MS = 500;  // Heartbeat delay that counts as a stall
+    public static final long EDT_STALL_REPORT_INTERVAL_MS = 10000;  // How often a stall still in progress is logged again
+    public static final int EDT_RECENT_STALLS = 50;  // Stalls kept for the diagnostics view
+    
     // Application Information
     public static final String APP_NAME = "Library Management System";
     public static final String APP_VERSION = "1.0.0";
@@ -22,6 +65,54 @@ public class Constants {
     public static final int LOGIN_WINDOW_WIDTH = 400;
     public static final int LOGIN_WINDOW_HEIGHT = 300;
     
+    // Table Paging
+    public static final int TABLE_PAGE_SIZE = 200;
+    public static final int TABLE_MAX_CACHED_PAGES = 12;
+    // A failed page load is retried after this delay, doubling up to the maximum
+    public static final int TABLE_PAGE_RETRY_MS = 1000;
+    public static final int TABLE_PAGE_RETRY_MAX_MS = 30000;
+    
+    // Bulk Import
+    public static final int IMPORT_BATCH_SIZE = 1000;
+    public static final int IMPORT_COMMIT_SIZE = 5000;
+    
+    // Export
+    public static final int EXPORT_CHUNK_ROWS = 10000;  // Rows per compressed chunk and checkpoint
+    public static final int EXPORT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    
+    // Circulation
+    public static final int LOAN_PERIOD_DAYS = 14;
+    public static final int CHECKOUT_MAX_ITEMS = 50;  // Items one patron may scan in a single checkout
+    public static final int CIRCULATION_DEADLOCK_RETRIES = 3;
+    
+    // Bulk Edit
+    public static final int BULK_CHUNK_SIZE = 500;  // Ids per IN (...) list
+    
+    // Search
+    public static final int SEARCH_MAX_RESULTS = 1000;
+    public static final int SEARCH_DEBOUNCE_MS = 200;
+    
+    // Catalog cache
+    public static final int BOOK_CACHE_SIZE = 5000;
+    public static final long BOOK_CACHE_TTL_MS = 10 * 60 * 1000;
+    public static final int SEARCH_CACHE_SIZE = 200;
+    public static final long SEARCH_CACHE_TTL_MS = 60 * 1000;
+    public static final long CATALOG_VERSION_CHECK_INTERVAL_MS = 5000;
+    
+    // Catalog snapshot, kept under the user's home directory
+    public static final String SNAPSHOT_DIRECTORY = ".library-management";
+    public static final int SNAPSHOT_BATCH_SIZE = 10000;
+    public static final long SNAPSHOT_REWRITE_DELAY_MS = 30 * 1000;  // Quiet time after a write before rewriting
+    public static final long SNAPSHOT_REWRITE_MAX_DELAY_MS = 5 * 60 * 1000;  // Rewrite this soon after the first write at the latest
+    
+    // Offline Mode; the write-ahead journal lives in SNAPSHOT_DIRECTORY
+    public static final long JOURNAL_RECONNECT_INTERVAL_MS = 5000;  // How often to look for the database while offline
+    public static final int JOURNAL_REPLAY_BATCH_SIZE = 100;  // Journaled writes applied per transaction
+    public static final int JOURNAL_REPLAY_ATTEMPTS = 5;  // Failed replays of one write before it is set aside as a conflict
+    public static final int JOURNAL_CONFLICTS_SHOWN = 10;  // Conflicts listed in the replay dialog
+    public static final int OFFLINE_LOGIN_ITERATIONS = 310000;  // PBKDF2-HMAC-SHA256 rounds for remembered logins
+    public static final int OFFLINE_LOGIN_MAX_AGE_DAYS = 14;  // Remembered logins expire unless renewed by an online login
+    
     // Colors (RGB values)
     public static final String PRIMARY_COLOR = "#2196F3";
     public static final String SECONDARY_COLOR = "#FFC107";
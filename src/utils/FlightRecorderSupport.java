@@ -0,0 +1,92 @@
+package utils;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Continuous Java Flight Recorder recording kept as a bounded ring buffer
+ * Enabled with -Dlibrary.jfr=true or the --jfr argument. When a stall is
+ * reported, the last few minutes are dumped to a file under the user's
+ * home directory for analysis in JDK Mission Control.
+ */
+public class FlightRecorderSupport {
+    private static final Logger logger = Logger.getLogger(FlightRecorderSupport.class.getName());
+    
+    private static Recording recording;
+    private static long lastDumpMillis;
+    
+    private FlightRecorderSupport() {}
+    
+    /**
+     * Start the continuous recording if it was asked for on the command line
+     */
+    public static synchronized void startIfRequested(String[] args) {
+        boolean requested = Boolean.getBoolean("library.jfr") || Arrays.asList(args).contains("--jfr");
+        if (!requested || recording != null) {
+            return;
+        }
+        
+        try {
+            Recording continuous = new Recording(Configuration.getConfiguration("default"));
+            continuous.setName("library-continuous");
+            continuous.setToDisk(true);
+            continuous.setMaxAge(Duration.ofMinutes(Constants.JFR_MAX_AGE_MINUTES));
+            continuous.setMaxSize(Constants.JFR_MAX_SIZE_MB * 1024L * 1024L);
+            continuous.start();
+            recording = continuous;
+            logger.info("Continuous flight recording started, keeping " + Constants.JFR_MAX_AGE_MINUTES +
+                        " minutes / " + Constants.JFR_MAX_SIZE_MB + " MB");
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            logger.log(Level.WARNING, "Could not start flight recording", e);
+        }
+    }
+    
+    public static synchronized boolean isRecording() {
+        return recording != null;
+    }
+    
+    /**
+     * Dump the recording after a stall, at most once per cooldown period
+     * Writing the file can take a while, so it happens on its own thread.
+     */
+    public static void dumpOnStall(String reason) {
+        Recording current;
+        synchronized (FlightRecorderSupport.class) {
+            long now = System.currentTimeMillis();
+            if (recording == null || now - lastDumpMillis < Constants.JFR_DUMP_COOLDOWN_MS) {
+                return;
+            }
+            lastDumpMillis = now;
+            current = recording;
+        }
+        
+        Thread dumper = new Thread(() -> dump(current, reason), "jfr-stall-dump");
+        dumper.setDaemon(true);
+        dumper.start();
+    }
+    
+    private static void dump(Recording current, String reason) {
+        Path directory = Paths.get(System.getProperty("user.home"), Constants.SNAPSHOT_DIRECTORY,
+                                   Constants.JFR_DUMP_DIRECTORY);
+        Path file = directory.resolve("stall-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".jfr");
+        try {
+            Files.createDirectories(directory);
+            current.dump(file);
+            logger.warning("Stall detected (" + reason + "), flight recording written to " + file);
+        } catch (IOException | IllegalStateException e) {
+            logger.log(Level.WARNING, "Could not dump flight recording after stall: " + reason, e);
+        }
+    }
+}
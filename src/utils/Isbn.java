@@ -0,0 +1,111 @@
+package utils;
+
+/**
+ * Allocation-free ISBN parsing and normalization
+ * Accepts ISBN-10 and ISBN-13 with optional hyphens and spaces, verifies the
+ * check digit and returns the ISBN-13 as a primitive long, so the result can
+ * be used directly as a compact key in indexes and caches.
+ */
+public final class Isbn {
+    
+    /**
+     * Returned by parse when the text is not a valid ISBN
+     */
+    public static final long INVALID = -1L;
+    
+    private static final long PREFIX_978 = 978L * 10_000_000_000L;
+    
+    // Weighted ISBN-13 sum of the 978 prefix: 9*1 + 7*3 + 8*1
+    private static final int PREFIX_978_SUM = 38;
+    
+    private Isbn() {}
+    
+    /**
+     * Parse an ISBN-10 or ISBN-13 in a single pass
+     * Returns the ISBN-13 value, or INVALID if the format or check digit is wrong
+     */
+    public static long parse(CharSequence text) {
+        if (text == null) {
+            return INVALID;
+        }
+        
+        long value = 0;
+        int digits = 0;
+        // ISBN-10: running sum and sum of running sums give the weighted checksum
+        int sum10 = 0;
+        int weighted10 = 0;
+        // ISBN-13: alternating 1 and 3 weights
+        int sum13 = 0;
+        // ISBN-10 body re-weighted as digits 4 to 12 of the equivalent ISBN-13
+        int body13 = 0;
+        boolean checkX = false;
+        
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if ((c == 'X' || c == 'x') && digits == 9) {
+                digit = 10;
+                checkX = true;
+            } else if (c == '-' || c == ' ' || c == '\t') {
+                continue;
+            } else {
+                return INVALID;
+            }
+            
+            if (digits == 13 || (checkX && digit != 10)) {
+                return INVALID;
+            }
+            if (digits < 9) {
+                body13 += digit * ((digits & 1) == 0 ? 3 : 1);
+            }
+            if (digit < 10) {
+                value = value * 10 + digit;
+            }
+            sum10 += digit;
+            weighted10 += sum10;
+            sum13 += (digits & 1) == 0 ? digit : digit * 3;
+            digits++;
+        }
+        
+        if (digits == 10) {
+            if (weighted10 % 11 != 0) {
+                return INVALID;
+            }
+            long body = checkX ? value : value / 10;
+            return PREFIX_978 + body * 10 + (10 - (PREFIX_978_SUM + body13) % 10) % 10;
+        }
+        if (digits == 13 && !checkX && sum13 % 10 == 0) {
+            long prefix = value / 10_000_000_000L;
+            return prefix == 978 || prefix == 979 ? value : INVALID;
+        }
+        return INVALID;
+    }
+    
+    /**
+     * Check whether the text is a valid ISBN-10 or ISBN-13
+     */
+    public static boolean isValid(CharSequence text) {
+        return parse(text) != INVALID;
+    }
+    
+    /**
+     * Get the form ISBNs are stored and looked up in: the ISBN-13 digits
+     * Text that is not a valid ISBN is returned unchanged.
+     */
+    public static String normalize(String text) {
+        long isbn13 = parse(text);
+        return isbn13 == INVALID ? text : format(isbn13);
+    }
+    
+    /**
+     * Format a parsed ISBN-13 value as 13 digits
+     */
+    public static String format(long isbn13) {
+        if (isbn13 < 0) {
+            throw new IllegalArgumentException("Not a parsed ISBN: " + isbn13);
+        }
+        return Long.toString(isbn13);
+    }
+}
@@ -0,0 +1,166 @@
+package utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets
+ * Values are recorded in microseconds with about 6% relative precision,
+ * similar to an HdrHistogram with two significant digits. Safe to record
+ * from any thread without synchronization.
+ */
+public class LatencyHistogram {
+    // 16 linear sub-buckets per power of two
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+    
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Record the time elapsed since a System.nanoTime() start value
+     */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+    
+    /**
+     * Record a duration in nanoseconds
+     */
+    public void recordNanos(long nanos) {
+        recordMicros(TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0)));
+    }
+    
+    /**
+     * Record a duration in microseconds
+     */
+    public void recordMicros(long micros) {
+        counts.incrementAndGet(bucketIndex(micros));
+        totalCount.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+    
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> exponent) - SUB_BUCKETS;
+        return (exponent + 1) * SUB_BUCKETS + subBucket;
+    }
+    
+    /**
+     * Highest value that falls into the bucket
+     */
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << exponent) - 1;
+    }
+    
+    /**
+     * Get the value at a percentile between 0 and 100, in microseconds
+     */
+    public long getPercentileMicros(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+    
+    public long getCount() { return totalCount.get(); }
+    public long getMaxMicros() { return maxMicros.get(); }
+    
+    public double getMeanMicros() {
+        long count = totalCount.get();
+        return count == 0 ? 0.0 : (double) totalMicros.get() / count;
+    }
+    
+    /**
+     * Clear all recorded values
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+    
+    /**
+     * Take a point-in-time summary
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(name, getCount(), getMeanMicros(), getPercentileMicros(50),
+                            getPercentileMicros(95), getPercentileMicros(99), getMaxMicros());
+    }
+    
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+    
+    /**
+     * Immutable histogram summary; durations in microseconds
+     */
+    public static class Snapshot {
+        private final String name;
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p95;
+        private final long p99;
+        private final long max;
+        
+        Snapshot(String name, long count, double mean, long p50, long p95, long p99, long max) {
+            this.name = name;
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.p99 = p99;
+            this.max = max;
+        }
+        
+        public String getName() { return name; }
+        public long getCount() { return count; }
+        public double getMean() { return mean; }
+        public long getP50() { return p50; }
+        public long getP95() { return p95; }
+        public long getP99() { return p99; }
+        public long getMax() { return max; }
+        
+        @Override
+        public String toString() {
+            return String.format("%s: count=%d, mean=%.2fms, p50=%.2fms, p95=%.2fms, p99=%.2fms, max=%.2fms",
+                                 name, count, mean / 1000.0, p50 / 1000.0, p95 / 1000.0, p99 / 1000.0, max / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Size-bounded least-recently-used cache with a time to live
+ * Entries past their TTL are treated as misses. The weigher gives
+ * an estimate of the memory held by the cached values.
+ */
+public class LruCache<K, V> {
+    private final String name;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private long estimatedBytes;
+    
+    // Statistics
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    
+    public LruCache(String name, int maxEntries, long ttlMillis, ToLongFunction<V> weigher) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.weigher = weigher;
+        this.entries = new LinkedHashMap<>(Math.min(maxEntries, 1024) * 4 / 3 + 1, 0.75f, true);
+    }
+    
+    /**
+     * Get a live value, or null on a miss
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.created > ttlMillis) {
+            remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+    
+    /**
+     * Store a value, evicting the least recently used entries when full
+     */
+    public synchronized void put(K key, V value) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        long weight = weigher.applyAsLong(value);
+        Entry<V> previous = entries.put(key, new Entry<>(value, weight));
+        if (previous != null) {
+            estimatedBytes -= previous.weight;
+        }
+        estimatedBytes += weight;
+        
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            estimatedBytes -= eldest.next().getValue().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+    
+    /**
+     * Drop one entry
+     */
+    public synchronized void remove(K key) {
+        Entry<V> previous = entries.remove(key);
+        if (previous != null) {
+            estimatedBytes -= previous.weight;
+        }
+    }
+    
+    /**
+     * Drop every entry whose value matches
+     */
+    public synchronized void removeIf(Predicate<V> filter) {
+        Iterator<Entry<V>> values = entries.values().iterator();
+        while (values.hasNext()) {
+            Entry<V> entry = values.next();
+            if (filter.test(entry.value)) {
+                estimatedBytes -= entry.weight;
+                values.remove();
+            }
+        }
+    }
+    
+    /**
+     * Drop all entries; statistics are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+        estimatedBytes = 0;
+    }
+    
+    public synchronized int size() { return entries.size(); }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getExpirations() { return expirations; }
+    public synchronized long getEstimatedBytes() { return estimatedBytes; }
+    
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+    
+    /**
+     * Get cache statistics summary
+     */
+    public synchronized String getStats() {
+        return String.format("%s: entries=%d/%d, hitRatio=%.1f%%, hits=%d, misses=%d, evictions=%d, expired=%d, ~%dKB",
+                             name, entries.size(), maxEntries, getHitRatio() * 100, hits, misses,
+                             evictions, expirations, estimatedBytes / 1024);
+    }
+    
+    private static class Entry<V> {
+        final V value;
+        final long weight;
+        final long created = System.currentTimeMillis();
+        
+        Entry(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
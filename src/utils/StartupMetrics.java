@@ -0,0 +1,88 @@
+package utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Startup milestones measured from JVM start
+ * Each stage is recorded once, so a retried startup keeps the first times.
+ * The heap in use and the peak heap so far are recorded with each stage;
+ * the peak is the sum of each heap pool's peak, so it is an upper bound.
+ */
+public class StartupMetrics {
+    private static final Logger logger = Logger.getLogger(StartupMetrics.class.getName());
+    private static final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final Map<String, Long> stages = new LinkedHashMap<>();
+    private static final Map<String, long[]> heap = new LinkedHashMap<>();
+    
+    private StartupMetrics() {}
+    
+    /**
+     * Record that a stage was reached; returns milliseconds since JVM start
+     */
+    public static synchronized long mark(String stage) {
+        long elapsed = System.currentTimeMillis() - jvmStartMillis;
+        if (stages.putIfAbsent(stage, elapsed) == null) {
+            long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            long peak = peakHeap();
+            heap.put(stage, new long[] {used, peak});
+            logger.info("Startup: " + stage + " at " + elapsed + " ms, heap " + megabytes(used) + " MB used, " +
+                        megabytes(peak) + " MB peak (" + Thread.currentThread().getName() + ")");
+        }
+        return stages.get(stage);
+    }
+    
+    /**
+     * Get recorded stages in the order they were reached
+     */
+    public static synchronized Map<String, Long> getStages() {
+        return new LinkedHashMap<>(stages);
+    }
+    
+    /**
+     * Get heap bytes in use when a stage was reached, or -1 if it was not
+     */
+    public static synchronized long getHeapUsed(String stage) {
+        long[] usage = heap.get(stage);
+        return usage != null ? usage[0] : -1;
+    }
+    
+    /**
+     * Get the peak heap bytes up to when a stage was reached, or -1 if it was not
+     */
+    public static synchronized long getPeakHeap(String stage) {
+        long[] usage = heap.get(stage);
+        return usage != null ? usage[1] : -1;
+    }
+    
+    /**
+     * Get one line per stage with its time since JVM start and the heap then
+     */
+    public static synchronized String report() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, Long> stage : stages.entrySet()) {
+            long[] usage = heap.get(stage.getKey());
+            report.append(String.format("%-24s %6d ms %6d MB used %6d MB peak%n", stage.getKey(), stage.getValue(),
+                                        megabytes(usage[0]), megabytes(usage[1])));
+        }
+        return report.toString().trim();
+    }
+    
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+    
+    private static long megabytes(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+}
@@ -13,7 +13,6 @@ public class ValidationUtils {
     // Compiled patterns for better performance
     private static final Pattern EMAIL_PATTERN = Pattern.compile(Constants.EMAIL_REGEX);
     private static final Pattern PHONE_PATTERN = Pattern.compile(Constants.PHONE_REGEX);
-    private static final Pattern ISBN_PATTERN = Pattern.compile(Constants.ISBN_REGEX);
     
     /**
      * Validates if a string is not null and not empty
@@ -43,24 +42,10 @@ public class ValidationUtils {
     }
     
     /**
-     * Validates ISBN format
+     * Validates ISBN-10 or ISBN-13 format and check digit
      */
     public static boolean isValidISBN(String isbn) {
-        if (!isNotEmpty(isbn)) {
-            return false;
-        }
-        
-        // Remove hyphens and spaces
-        String cleanISBN = isbn.replaceAll("[\\s-]", "");
-        
-        // Check length
-        if (cleanISBN.length() < Constants.MIN_ISBN_LENGTH || 
-            cleanISBN.length() > Constants.MAX_ISBN_LENGTH) {
-            return false;
-        }
-        
-        // Check if contains only digits
-        return ISBN_PATTERN.matcher(cleanISBN).matches();
+        return Isbn.isValid(isbn);
     }
     
     /**
@@ -90,6 +75,25 @@ public class ValidationUtils {
      * Validates Book object
      */
     public static boolean isValidBook(Book book) {
+        return hasValidBookFields(book) && isValidISBN(book.getIsbn());
+    }
+    
+    /**
+     * Validates a Book that replaces a stored row
+     * The ISBN check digit is only verified when the ISBN changes, so rows
+     * stored before check digits were verified can still be edited.
+     */
+    public static boolean isValidBookUpdate(Book book, String previousIsbn) {
+        if (book != null && isNotEmpty(book.getIsbn()) && book.getIsbn().equals(previousIsbn)) {
+            return hasValidBookFields(book);
+        }
+        return isValidBook(book);
+    }
+    
+    /**
+     * Check every book field except the ISBN
+     */
+    private static boolean hasValidBookFields(Book book) {
         if (book == null) {
             return false;
         }
@@ -103,10 +107,6 @@ public class ValidationUtils {
             return false;
         }
         
-        if (!isValidISBN(book.getIsbn())) {
-            return false;
-        }
-        
         if (book.getQuantity() < 0) {
             return false;
         }
@@ -0,0 +1,20 @@
+-- Circulation: loans of book copies to patrons
+-- Apply after the initial schema; safe to run again. A copy on loan is not
+-- counted in books_table.quantity, which holds the copies on the shelf.
+-- Every loan refers to an existing book. The application refuses to delete
+-- a book with copies on loan; its returned loans are deleted with it.
+
+USE library_management;
+
+-- Indexes find open loans by book for returns, and by patron for the desk
+CREATE TABLE IF NOT EXISTS loans_table (
+    loan_id INT PRIMARY KEY AUTO_INCREMENT,
+    book_id INT NOT NULL,
+    patron VARCHAR(100) NOT NULL,
+    checkout_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    due_date DATE NOT NULL,
+    return_date TIMESTAMP NULL,
+    INDEX idx_loans_book (book_id, return_date),
+    INDEX idx_loans_patron (patron, return_date),
+    CONSTRAINT fk_loans_book FOREIGN KEY (book_id) REFERENCES books_table(book_id) ON DELETE CASCADE
+);
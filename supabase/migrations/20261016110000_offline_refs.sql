@@ -0,0 +1,13 @@
+-- Offline references: which journaled write created a staff row
+-- Staff have no natural key, so a member added while the database was
+-- unreachable is inserted with a reference unique to that client's journal.
+-- Replay looks it up to avoid a second insert after an interrupted run.
+-- Apply after the initial schema; safe to run again.
+
+USE library_management;
+
+-- MySQL has no ADD COLUMN IF NOT EXISTS, so the column is added only when missing
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() AND table_name = 'staff_table' AND column_name = 'offline_ref') = 0, 'ALTER TABLE staff_table ADD COLUMN offline_ref VARCHAR(64) NULL, ADD UNIQUE INDEX idx_staff_offline_ref (offline_ref)', 'DO 0');
+PREPARE add_column FROM @ddl;
+EXECUTE add_column;
+DEALLOCATE PREPARE add_column;
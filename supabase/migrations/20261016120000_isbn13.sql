@@ -0,0 +1,40 @@
+-- ISBN-13: store every valid ISBN as its 13 digits without separators
+-- The application saves and looks up ISBNs in that form, so rows saved
+-- earlier as ISBN-10 or with hyphens are rewritten to match; otherwise the
+-- same book could be added a second time. Text that is not a valid ISBN is
+-- left as it is. When the rewritten ISBN is already taken, the rows are the
+-- same book and are left for staff to merge; the last query lists them.
+-- Apply after the initial schema; safe to run again.
+
+USE library_management;
+
+DROP TABLE IF EXISTS isbn13_rewrites;
+DROP TABLE IF EXISTS isbn13_conflicts;
+
+-- Digits are only summed once the pattern has matched, so nothing is converted from text that is not a number
+CREATE TABLE isbn13_rewrites AS
+SELECT book_id, isbn13 FROM (
+    SELECT book_id, isbn, CASE
+        WHEN digits REGEXP '^97[89][0-9]{10}$' THEN
+            IF(((SUBSTRING(digits, 1, 1) + SUBSTRING(digits, 3, 1) + SUBSTRING(digits, 5, 1) + SUBSTRING(digits, 7, 1) + SUBSTRING(digits, 9, 1) + SUBSTRING(digits, 11, 1) + SUBSTRING(digits, 13, 1)) + 3 * (SUBSTRING(digits, 2, 1) + SUBSTRING(digits, 4, 1) + SUBSTRING(digits, 6, 1) + SUBSTRING(digits, 8, 1) + SUBSTRING(digits, 10, 1) + SUBSTRING(digits, 12, 1))) % 10 = 0, digits, NULL)
+        WHEN digits REGEXP '^[0-9]{9}[0-9X]$' THEN
+            IF((10 * SUBSTRING(digits, 1, 1) + 9 * SUBSTRING(digits, 2, 1) + 8 * SUBSTRING(digits, 3, 1) + 7 * SUBSTRING(digits, 4, 1) + 6 * SUBSTRING(digits, 5, 1) + 5 * SUBSTRING(digits, 6, 1) + 4 * SUBSTRING(digits, 7, 1) + 3 * SUBSTRING(digits, 8, 1) + 2 * SUBSTRING(digits, 9, 1) + IF(RIGHT(digits, 1) = 'X', 10, RIGHT(digits, 1))) % 11 = 0,
+               CONCAT('978', LEFT(digits, 9), (10 - (38 + 3 * (SUBSTRING(digits, 1, 1) + SUBSTRING(digits, 3, 1) + SUBSTRING(digits, 5, 1) + SUBSTRING(digits, 7, 1) + SUBSTRING(digits, 9, 1)) + SUBSTRING(digits, 2, 1) + SUBSTRING(digits, 4, 1) + SUBSTRING(digits, 6, 1) + SUBSTRING(digits, 8, 1)) % 10) % 10), NULL)
+    END AS isbn13
+    FROM (SELECT book_id, isbn, UPPER(REPLACE(REPLACE(REPLACE(isbn, '-', ''), ' ', ''), CHAR(9), '')) AS digits
+          FROM books_table) stripped
+) parsed
+WHERE isbn13 IS NOT NULL AND isbn13 <> isbn;
+
+-- Another row already holds the ISBN-13, or a row with a lower id is being rewritten to it
+CREATE TABLE isbn13_conflicts AS
+SELECT r.book_id, r.isbn13 FROM isbn13_rewrites r
+WHERE EXISTS (SELECT 1 FROM books_table b WHERE b.isbn = r.isbn13)
+   OR EXISTS (SELECT 1 FROM isbn13_rewrites o WHERE o.isbn13 = r.isbn13 AND o.book_id < r.book_id);
+DELETE FROM isbn13_rewrites WHERE book_id IN (SELECT book_id FROM isbn13_conflicts);
+
+UPDATE books_table b JOIN isbn13_rewrites r ON r.book_id = b.book_id SET b.isbn = r.isbn13;
+DROP TABLE isbn13_rewrites;
+
+SELECT c.book_id, b.isbn, c.isbn13 FROM isbn13_conflicts c JOIN books_table b ON b.book_id = c.book_id;
+DROP TABLE isbn13_conflicts;
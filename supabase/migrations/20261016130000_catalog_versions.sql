@@ -0,0 +1,47 @@
+-- Catalog versions: one row per table with its row count and a change counter
+-- Triggers bump the counter on every insert, update and delete, so clients
+-- notice changes from other desks by reading one row instead of scanning
+-- the table. Writers of a table queue on its counter row until they commit.
+-- Apply after the initial schema; safe to run again.
+
+USE library_management;
+
+CREATE TABLE IF NOT EXISTS catalog_versions (
+    table_name VARCHAR(64) PRIMARY KEY,
+    row_count INT NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+DROP TRIGGER IF EXISTS books_table_version_insert;
+CREATE TRIGGER books_table_version_insert AFTER INSERT ON books_table FOR EACH ROW
+    UPDATE catalog_versions SET row_count = row_count + 1, version = version + 1 WHERE table_name = 'books_table';
+
+DROP TRIGGER IF EXISTS books_table_version_update;
+CREATE TRIGGER books_table_version_update AFTER UPDATE ON books_table FOR EACH ROW
+    UPDATE catalog_versions SET version = version + 1 WHERE table_name = 'books_table';
+
+DROP TRIGGER IF EXISTS books_table_version_delete;
+CREATE TRIGGER books_table_version_delete AFTER DELETE ON books_table FOR EACH ROW
+    UPDATE catalog_versions SET row_count = row_count - 1, version = version + 1 WHERE table_name = 'books_table';
+
+DROP TRIGGER IF EXISTS staff_table_version_insert;
+CREATE TRIGGER staff_table_version_insert AFTER INSERT ON staff_table FOR EACH ROW
+    UPDATE catalog_versions SET row_count = row_count + 1, version = version + 1 WHERE table_name = 'staff_table';
+
+DROP TRIGGER IF EXISTS staff_table_version_update;
+CREATE TRIGGER staff_table_version_update AFTER UPDATE ON staff_table FOR EACH ROW
+    UPDATE catalog_versions SET version = version + 1 WHERE table_name = 'staff_table';
+
+DROP TRIGGER IF EXISTS staff_table_version_delete;
+CREATE TRIGGER staff_table_version_delete AFTER DELETE ON staff_table FOR EACH ROW
+    UPDATE catalog_versions SET row_count = row_count - 1, version = version + 1 WHERE table_name = 'staff_table';
+
+-- Counted after the triggers exist; the locking read waits for writes in flight,
+-- and the version moves on so clients reload once
+INSERT INTO catalog_versions (table_name, row_count, version)
+SELECT 'books_table', COUNT(*), 1 FROM books_table
+ON DUPLICATE KEY UPDATE row_count = VALUES(row_count), version = version + 1;
+
+INSERT INTO catalog_versions (table_name, row_count, version)
+SELECT 'staff_table', COUNT(*), 1 FROM staff_table
+ON DUPLICATE KEY UPDATE row_count = VALUES(row_count), version = version + 1;
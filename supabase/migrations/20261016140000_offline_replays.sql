@@ -0,0 +1,15 @@
+-- Offline replays: how far each client's journal has been replayed
+-- Quantity edits made offline are replayed as a change on top of the
+-- stored quantity, so applying one twice would count it twice. Each replay
+-- batch records its last journal sequence here in the same transaction,
+-- and a replay cut short before the client noted its progress skips what
+-- the database already has. The row goes once the journal is empty.
+-- Apply after the initial schema; safe to run again.
+
+USE library_management;
+
+CREATE TABLE IF NOT EXISTS offline_replays (
+    journal_generation VARCHAR(64) PRIMARY KEY,
+    sequence BIGINT NOT NULL,
+    replayed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);